@@ -0,0 +1,70 @@
+package nl.hdn.api.benchmark;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.APIResponse;
+import nl.hdn.api.object.*;
+import nl.hdn.api.object.Record;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the decoding of list pages, from the raw HTTP response to the page of API objects
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListPageBenchmark {
+    /**
+     * The number of objects on a page, 100 is the default limit and 1000 the maximum
+     */
+    @Param({"10", "100", "1000"})
+    public int pageSize;
+
+    private String recordPage;
+    private StubHttpResponse recordResponse;
+    private APIController recordController;
+    private APIController dossierController;
+    private APIController eventController;
+    private final String dossierUuid = UUID.randomUUID().toString();
+
+    @Setup
+    public void setUp() {
+        Payloads payloads = new Payloads(pageSize);
+        recordPage = payloads.recordPage(pageSize);
+        String dossierPage = payloads.dossierPage(pageSize);
+        String eventPage = payloads.eventPage(pageSize);
+
+        recordResponse = StubHttpResponse.json(200, recordPage, URI.create("https://localhost/api/v2/records"));
+        recordController = new StubAPIController(url -> recordPage);
+        dossierController = new StubAPIController(url -> dossierPage);
+        eventController = new StubAPIController(url -> eventPage);
+    }
+
+    @Benchmark
+    public APIResponse apiResponse() {
+        return new APIResponse(recordResponse);
+    }
+
+    @Benchmark
+    public Page<Record> recordPage() throws IOException, URISyntaxException, InterruptedException {
+        return new RecordList().getPage(0, pageSize, "123456", recordController);
+    }
+
+    @Benchmark
+    public Page<Dossier> dossierPage() throws IOException, URISyntaxException, InterruptedException {
+        return new DossierList().getPage(0, pageSize, "123456", dossierController);
+    }
+
+    @Benchmark
+    public Page<Event> eventPage() throws IOException, URISyntaxException, InterruptedException {
+        return new EventList(dossierUuid).getPage(0, pageSize, eventController);
+    }
+}
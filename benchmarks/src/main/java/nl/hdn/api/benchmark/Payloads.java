@@ -0,0 +1,182 @@
+package nl.hdn.api.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.time.Instant;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Builds payloads in the shape returned by the HDN Platform of Trust. The values are generated from a fixed seed, so
+ * every run of a benchmark decodes exactly the same documents.
+ */
+public final class Payloads {
+    private static final Instant START = Instant.parse("2025-01-01T08:00:00Z");
+    private static final String[] MESSAGE_TYPES = {"AX OfferteAanvraag", "OX Offerte", "SX StatusMelding", "DA DocumentAanvraagBericht"};
+    private static final String[] STATUSES = {"new", "read", "confirmed"};
+
+    private final Random random;
+
+    /**
+     * Constructs a payload builder
+     *
+     * @param seed the seed of the generated values
+     */
+    public Payloads(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Builds an XML message of about the given size, with the nested structure of an application envelope
+     *
+     * @param size the approximate size in characters
+     * @return the message
+     */
+    public String message(int size) {
+        StringBuilder message = new StringBuilder(size + 256);
+        message.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?><AanvraagEnvelop xmlns=\"http://www.hdn.nl/schemas\">")
+                .append("<Bericht><BerichtType>AX</BerichtType><BerichtVersie>24.0.0</BerichtVersie></Bericht>");
+        for (int part = 0; message.length() < size; part++) {
+            message.append("<Aanvrager><AanvragerVolgnummer>").append(part).append("</AanvragerVolgnummer>")
+                    .append("<Geslachtsnaam>Jansen-").append(random.nextInt(100000)).append("</Geslachtsnaam>")
+                    .append("<GeboorteDatum>19").append(50 + random.nextInt(50)).append("-0").append(1 + random.nextInt(9)).append("-1").append(random.nextInt(10)).append("</GeboorteDatum>")
+                    .append("<BrutoJaarInkomen>").append(20000 + random.nextInt(100000)).append(".00</BrutoJaarInkomen>")
+                    .append("</Aanvrager>");
+        }
+        return message.append("</AanvraagEnvelop>").toString();
+    }
+
+    /**
+     * Builds a record as returned by the platform
+     *
+     * @param dossierUuid the UUID of the dossier
+     * @return the record
+     */
+    public JSONObject record(String dossierUuid) {
+        int messageType = random.nextInt(MESSAGE_TYPES.length);
+        Instant creationDate = START.plusSeconds(random.nextInt(86400 * 30));
+        return new JSONObject()
+                .put("resourceUuid", uuid())
+                .put("dossierUuid", dossierUuid)
+                .put("sub", uuid())
+                .put("creationDate", creationDate.toString())
+                .put("parentRecord", random.nextBoolean() ? uuid() : "")
+                .put("header", new JSONObject()
+                        .put("requestVersion", "1.0")
+                        .put("requestTraceNr", "TRACE-" + random.nextInt(1000000))
+                        .put("sender", node())
+                        .put("receiver", node())
+                        .put("requestSchema", new JSONObject()
+                                .put("messageType", MESSAGE_TYPES[messageType])
+                                .put("schemaVersion", "24.0.0")
+                                .put("receiverCode", "HDN")
+                                .put("contentType", "XML")
+                                .put("environment", "production"))
+                        .put("responseSchema", new JSONObject()
+                                .put("messageType", MESSAGE_TYPES[(messageType + 1) % MESSAGE_TYPES.length])
+                                .put("schemaVersion", "24.0.0")
+                                .put("receiverCode", "HDN")
+                                .put("contentType", "XML")))
+                .put("miscellaneous", new JSONObject()
+                        .put("senderName", "Adviseur " + random.nextInt(1000))
+                        .put("receiverName", "Geldverstrekker " + random.nextInt(100))
+                        .put("sendingApplication", new JSONObject()
+                                .put("applicationName", "Adviespakket")
+                                .put("applicationVersion", "7.3." + random.nextInt(20))
+                                .put("sendingDateTime", creationDate.toString())))
+                .put("status", new JSONObject()
+                        .put("value", STATUSES[random.nextInt(STATUSES.length)])
+                        .put("modifiedTimestamp", creationDate.plusSeconds(random.nextInt(3600)).toString()));
+    }
+
+    /**
+     * Builds a dossier as returned by the platform
+     *
+     * @return the dossier
+     */
+    public JSONObject dossier() {
+        String sender = node();
+        String receiver = node();
+        return new JSONObject()
+                .put("resourceUuid", uuid())
+                .put("sub", uuid())
+                .put("requestTraceNr", "TRACE-" + random.nextInt(1000000))
+                .put("nodes", new JSONArray().put(sender).put(receiver))
+                .put("originalNodes", new JSONArray().put(sender))
+                .put("sortedOriginalNodes", sender)
+                .put("creationDate", START.plusSeconds(random.nextInt(86400 * 30)).toString());
+    }
+
+    /**
+     * Builds an event as returned by the platform
+     *
+     * @return the event
+     */
+    public JSONObject event() {
+        return new JSONObject()
+                .put("resourceUuid", uuid())
+                .put("eventType", random.nextBoolean() ? "record.created" : "record.read")
+                .put("sub", uuid())
+                .put("businessKey", "TRACE-" + random.nextInt(1000000))
+                .put("timestamp", START.plusSeconds(random.nextInt(86400 * 30)).toString());
+    }
+
+    /**
+     * Builds a page of records as returned by the records endpoints
+     *
+     * @param size the number of records on the page
+     * @return the page
+     */
+    public String recordPage(int size) {
+        String dossierUuid = uuid();
+        JSONArray records = new JSONArray();
+        for (int i = 0; i < size; i++) {
+            records.put(record(dossierUuid));
+        }
+        return page("records", records, size * 10);
+    }
+
+    /**
+     * Builds a page of dossiers as returned by the dossiers endpoint
+     *
+     * @param size the number of dossiers on the page
+     * @return the page
+     */
+    public String dossierPage(int size) {
+        JSONArray dossiers = new JSONArray();
+        for (int i = 0; i < size; i++) {
+            dossiers.put(dossier());
+        }
+        return page("dossiers", dossiers, size * 10);
+    }
+
+    /**
+     * Builds a page of events as returned by the events endpoints
+     *
+     * @param size the number of events on the page
+     * @return the page
+     */
+    public String eventPage(int size) {
+        JSONArray events = new JSONArray();
+        for (int i = 0; i < size; i++) {
+            events.put(event());
+        }
+        return page("events", events, size * 10);
+    }
+
+    private static String page(String name, JSONArray items, int total) {
+        return new JSONObject()
+                .put("data", new JSONObject().put(name, items))
+                .put("total", total)
+                .toString();
+    }
+
+    private String uuid() {
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+
+    private String node() {
+        return String.format("%06d", random.nextInt(1000000));
+    }
+}
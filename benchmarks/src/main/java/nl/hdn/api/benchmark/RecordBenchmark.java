@@ -0,0 +1,71 @@
+package nl.hdn.api.benchmark;
+
+import nl.hdn.api.object.Record;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.*;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the handling of a single record: decoding the platform JSON, building the create body, signing the
+ * message and the reflective {@code toString}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordBenchmark {
+    /**
+     * The approximate size of the XML message in characters
+     */
+    @Param({"1024", "65536", "1048576"})
+    public int messageSize;
+
+    private String dossierUuid;
+    private String resourceUuid;
+    private String attributes;
+    private Record record;
+    private PrivateKey privateKey;
+
+    @Setup
+    public void setUp() throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
+        Payloads payloads = new Payloads(messageSize);
+        dossierUuid = UUID.randomUUID().toString();
+        JSONObject json = payloads.record(dossierUuid);
+        resourceUuid = json.getString("resourceUuid");
+        attributes = json.toString();
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        privateKey = generator.generateKeyPair().getPrivate();
+
+        record = new Record(dossierUuid, resourceUuid, attributes)
+                .setMessage(payloads.message(messageSize))
+                .setPublicKey(UUID.randomUUID().toString())
+                .signMessage(privateKey);
+    }
+
+    @Benchmark
+    public Record updateAttributes() {
+        return new Record(dossierUuid, resourceUuid, attributes);
+    }
+
+    @Benchmark
+    public String createBody() {
+        return record.toCreateBody().toString();
+    }
+
+    @Benchmark
+    public Record signMessage() throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
+        return record.signMessage(privateKey);
+    }
+
+    @Benchmark
+    public String objectToString() {
+        return record.toString();
+    }
+}
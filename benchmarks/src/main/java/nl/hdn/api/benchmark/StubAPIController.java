@@ -0,0 +1,51 @@
+package nl.hdn.api.benchmark;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.APIResponse;
+
+import java.net.URI;
+import java.util.function.Function;
+
+/**
+ * API controller that answers every call with a prepared body instead of calling the platform, so benchmarks measure
+ * the client only
+ */
+public class StubAPIController extends APIController {
+    private static final String BASE_URL = "https://localhost/api/v2";
+
+    private final Function<String, String> responder;
+
+    /**
+     * Constructs the controller
+     *
+     * @param responder returns the JSON body for a requested URL, without the base URL
+     */
+    public StubAPIController(Function<String, String> responder) {
+        super(BASE_URL, BASE_URL, "benchmark", "benchmark", null, null);
+        this.responder = responder;
+    }
+
+    @Override
+    public APIResponse get(String url, String node) {
+        return respond(url);
+    }
+
+    @Override
+    public APIResponse post(String url, String body, String node) {
+        return respond(url);
+    }
+
+    @Override
+    public APIResponse put(String url, String body, String node) {
+        return respond(url);
+    }
+
+    @Override
+    public APIResponse delete(String url, String node) {
+        return respond(url);
+    }
+
+    private APIResponse respond(String url) {
+        return new APIResponse(StubHttpResponse.json(200, responder.apply(url), URI.create(BASE_URL + url)));
+    }
+}
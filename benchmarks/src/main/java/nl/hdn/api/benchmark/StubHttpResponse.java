@@ -0,0 +1,55 @@
+package nl.hdn.api.benchmark;
+
+import javax.net.ssl.SSLSession;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * HTTP response with a fixed status and body, used instead of a response of the platform
+ *
+ * @param statusCode the status code
+ * @param body       the body
+ * @param headers    the headers
+ * @param uri        the requested URI
+ */
+public record StubHttpResponse(int statusCode, String body, HttpHeaders headers, URI uri) implements HttpResponse<String> {
+    private static final HttpHeaders JSON = HttpHeaders.of(Map.of("Content-Type", List.of("application/json")), (name, value) -> true);
+
+    /**
+     * Constructs a JSON response
+     *
+     * @param statusCode the status code
+     * @param body       the JSON body
+     * @param uri        the requested URI
+     * @return the response
+     */
+    public static StubHttpResponse json(int statusCode, String body, URI uri) {
+        return new StubHttpResponse(statusCode, body, JSON, uri);
+    }
+
+    @Override
+    public HttpRequest request() {
+        return HttpRequest.newBuilder(uri).build();
+    }
+
+    @Override
+    public Optional<HttpResponse<String>> previousResponse() {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<SSLSession> sslSession() {
+        return Optional.empty();
+    }
+
+    @Override
+    public HttpClient.Version version() {
+        return HttpClient.Version.HTTP_1_1;
+    }
+}
@@ -0,0 +1,39 @@
+package nl.hdn.api.benchmark;
+
+import nl.hdn.api.APIConstants;
+import nl.hdn.api.APIController;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building the URL of a filtered list call
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UrlBenchmark {
+    private final Map<String, String> params = new HashMap<>();
+
+    @Setup
+    public void setUp() {
+        params.put("limit", "100");
+        params.put("offset", "2500");
+        params.put("status", "new");
+        params.put("node", "123456");
+        params.put("header.requestSchema.messageType", "AX OfferteAanvraag");
+        params.put("creationDate[$gte]", "2025-01-01T08:00:00.000Z");
+        params.put("sort", "creationDate");
+    }
+
+    @Benchmark
+    public String buildUrl() throws URISyntaxException {
+        return APIController.buildUrl(APIConstants.RECORDS_GET, params);
+    }
+}
@@ -0,0 +1,47 @@
+package nl.hdn.api.load;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.object.Page;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.object.RecordList;
+
+/**
+ * Bulk synchronization: page through all records of a node, as a full reconciliation does. All workers read the same
+ * records, seeded before the start.
+ */
+public class BulkSyncScenario implements Scenario {
+    private static final String NODE = "300000";
+
+    private final int records;
+    private final int pageSize;
+
+    /**
+     * Constructs the scenario
+     *
+     * @param records  the number of records seeded for the node
+     * @param pageSize the number of records listed per page
+     */
+    public BulkSyncScenario(int records, int pageSize) {
+        this.records = records;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void prepare(MockPlatform platform, int workers) {
+        platform.seedRecords("100000", NODE, "AX OfferteAanvraag", records);
+    }
+
+    @Override
+    public boolean run(int worker, APIController apiController, LatencyRecorder recorder) throws Exception {
+        int offset = 0;
+        int total;
+        do {
+            int pageOffset = offset;
+            Page<Record> page = recorder.record("sync.page", () -> new RecordList().setSort("creationDate").getPage(pageOffset, pageSize, NODE, apiController));
+            total = page.total();
+            offset += pageSize;
+        } while (offset < total);
+        return true;
+    }
+}
@@ -0,0 +1,49 @@
+package nl.hdn.api.load;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.object.Page;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.object.RecordList;
+
+/**
+ * Sweep of an inbox: list a page of new records, then fetch and confirm every record on it. Every worker sweeps the
+ * inbox of its own node, seeded before the start.
+ */
+public class InboxSweepScenario implements Scenario {
+    private final int records;
+    private final int pageSize;
+
+    /**
+     * Constructs the scenario
+     *
+     * @param records  the number of records seeded in the inbox of every worker
+     * @param pageSize the number of records listed per page
+     */
+    public InboxSweepScenario(int records, int pageSize) {
+        this.records = records;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void prepare(MockPlatform platform, int workers) {
+        for (int worker = 0; worker < workers; worker++) {
+            platform.seedRecords("100000", node(worker), "AX OfferteAanvraag", records);
+        }
+    }
+
+    @Override
+    public boolean run(int worker, APIController apiController, LatencyRecorder recorder) throws Exception {
+        String node = node(worker);
+        Page<Record> page = recorder.record("inbox.list", () -> new RecordList().setStatus("new").getPage(0, pageSize, node, apiController));
+        for (Record apiRecord : page.items()) {
+            recorder.record("record.fetch", () -> apiRecord.fetch(node, apiController));
+            recorder.record("record.confirm", () -> apiRecord.confirm(node, apiController));
+        }
+        return !page.items().isEmpty();
+    }
+
+    private static String node(int worker) {
+        return String.format("%06d", 200000 + worker);
+    }
+}
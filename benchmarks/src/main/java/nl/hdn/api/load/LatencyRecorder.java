@@ -0,0 +1,99 @@
+package nl.hdn.api.load;
+
+import nl.hdn.api.APIResponse;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the latency of every operation in an HDR histogram per operation, with microsecond precision up to a
+ * minute. Recording is lock-free, so many workers can record concurrently.
+ */
+public class LatencyRecorder {
+    private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    /**
+     * An operation of which the latency is recorded
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    public interface Call<T> {
+        T call() throws Exception;
+    }
+
+    private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    /**
+     * Performs and records an operation. The operation counts as an error when it throws or returns an
+     * {@link APIResponse} with a status of 400 or higher.
+     *
+     * @param operation the name of the operation
+     * @param call      the operation
+     * @param <T>       the type of the result
+     * @return the result of the operation
+     * @throws Exception the exception thrown by the operation
+     */
+    public <T> T record(String operation, Call<T> call) throws Exception {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = call.call();
+            failed = result instanceof APIResponse apiResponse && apiResponse.getResponse().statusCode() >= 400;
+            return result;
+        } finally {
+            record(operation, System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Records an operation that has been timed by the caller
+     *
+     * @param operation the name of the operation
+     * @param nanos     the duration in nanoseconds
+     * @param failed    true when the operation failed
+     */
+    public void record(String operation, long nanos, boolean failed) {
+        recorders.computeIfAbsent(operation, name -> new Recorder(MAX_MICROS, 3))
+                .recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), MAX_MICROS));
+        if (failed) {
+            errors.computeIfAbsent(operation, name -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Returns the histograms recorded since the previous call or the start, by operation name, and starts new ones
+     *
+     * @return the histograms in microseconds
+     */
+    public Map<String, Histogram> interval() {
+        Map<String, Histogram> histograms = new TreeMap<>();
+        recorders.forEach((operation, recorder) -> histograms.put(operation, recorder.getIntervalHistogram()));
+        return histograms;
+    }
+
+    /**
+     * Discards everything recorded so far, f.e. at the end of a warmup
+     */
+    public void reset() {
+        recorders.values().forEach(Recorder::reset);
+        errors.values().forEach(LongAdder::reset);
+    }
+
+    /**
+     * Returns the number of failed operations since the previous call or the start, and resets it
+     *
+     * @param operation the name of the operation
+     * @return the number of errors
+     */
+    public long errors(String operation) {
+        LongAdder adder = errors.get(operation);
+        return adder == null ? 0 : adder.sumThenReset();
+    }
+}
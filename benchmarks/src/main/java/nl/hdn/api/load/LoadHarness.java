@@ -0,0 +1,126 @@
+package nl.hdn.api.load;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.Latency;
+import nl.hdn.api.mock.MockPlatform;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a scenario with a number of concurrent workers against the local platform stand-in and prints the throughput
+ * and latency percentiles per operation. All workers share one controller, so the numbers are those of one client
+ * instance.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar nl.hdn.api.load.LoadHarness --scenario newcase|inbox|sync [options]}
+ * with the options {@code --concurrency} (16), {@code --duration} and {@code --warmup} in seconds (30 and 5),
+ * {@code --records} seeded per inbox or for the sync (1000), {@code --page-size} (100), {@code --message-size} (16384),
+ * {@code --latency} median in milliseconds (20), {@code --latency-sigma} (0.5), {@code --error-rate} and
+ * {@code --throttle-rate} (0).
+ */
+public final class LoadHarness {
+    private static final String ITERATION = "iteration";
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = parseOptions(args);
+        String name = options.getOrDefault("scenario", "newcase");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5")));
+        int records = Integer.parseInt(options.getOrDefault("records", "1000"));
+        int pageSize = Integer.parseInt(options.getOrDefault("page-size", "100"));
+        int messageSize = Integer.parseInt(options.getOrDefault("message-size", "16384"));
+        double latency = Double.parseDouble(options.getOrDefault("latency", "20"));
+        double sigma = Double.parseDouble(options.getOrDefault("latency-sigma", "0.5"));
+
+        Scenario scenario = switch (name) {
+            case "newcase" -> new NewCaseScenario(messageSize);
+            case "inbox" -> new InboxSweepScenario(records, pageSize);
+            case "sync" -> new BulkSyncScenario(records, pageSize);
+            default -> throw new IllegalArgumentException("Unknown scenario " + name + ", use newcase, inbox or sync");
+        };
+
+        try (MockPlatform platform = new MockPlatform()) {
+            platform.setLatency(latency > 0 ? Latency.logNormal(Duration.ofNanos((long) (latency * 1_000_000)), sigma) : Latency.none())
+                    .setErrorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")))
+                    .setThrottleRate(Double.parseDouble(options.getOrDefault("throttle-rate", "0")));
+            scenario.prepare(platform, concurrency);
+            APIController apiController = platform.createController("load-harness");
+
+            System.out.printf("Scenario %s with %d workers, %d s warmup and %d s measurement%n", name, concurrency, warmup.toSeconds(), duration.toSeconds());
+            LatencyRecorder recorder = new LatencyRecorder();
+            AtomicLong measureStart = new AtomicLong(System.nanoTime());
+            long deadline = System.nanoTime() + warmup.plus(duration).toNanos();
+
+            try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int worker = 0; worker < concurrency; worker++) {
+                    int number = worker;
+                    workers.submit(() -> runWorker(scenario, number, apiController, recorder, deadline));
+                }
+                if (!warmup.isZero()) {
+                    Thread.sleep(warmup);
+                    recorder.reset();
+                    measureStart.set(System.nanoTime());
+                }
+            }
+            double seconds = (System.nanoTime() - measureStart.get()) / 1e9;
+            print(recorder, seconds);
+            System.out.printf("Platform: %d calls, %d injected errors, %d throttled%n",
+                    platform.getRequestCount(), platform.getErrorCount(), platform.getThrottledCount());
+        }
+    }
+
+    private static void runWorker(Scenario scenario, int worker, APIController apiController, LatencyRecorder recorder, long deadline) {
+        boolean more = true;
+        while (more && System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                more = scenario.run(worker, apiController, recorder);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failed = true;
+            }
+            recorder.record(ITERATION, System.nanoTime() - start, failed);
+        }
+    }
+
+    private static void print(LatencyRecorder recorder, double seconds) {
+        System.out.printf("%-16s %10s %8s %10s %9s %9s %9s %9s%n", "operation", "count", "errors", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        recorder.interval().forEach((operation, histogram) -> System.out.printf("%-16s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                operation,
+                histogram.getTotalCount(),
+                recorder.errors(operation),
+                histogram.getTotalCount() / seconds,
+                millis(histogram, 50),
+                millis(histogram, 99),
+                millis(histogram, 99.9),
+                histogram.getMaxValue() / 1000.0));
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Options should be given as --name value, found " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
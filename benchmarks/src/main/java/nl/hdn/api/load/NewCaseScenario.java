@@ -0,0 +1,71 @@
+package nl.hdn.api.load;
+
+import nl.hdn.api.APIConstants;
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.object.Dossier;
+import nl.hdn.api.object.Record;
+
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Submission of a new case: create a dossier, create a signed record in it and send the record
+ */
+public class NewCaseScenario implements Scenario {
+    private static final String RECEIVER = "200000";
+
+    private final String message;
+    private final String publicKey = UUID.randomUUID().toString();
+    private final PrivateKey privateKey;
+
+    /**
+     * Constructs the scenario
+     *
+     * @param messageSize the approximate size of the sent message in characters
+     */
+    public NewCaseScenario(int messageSize) {
+        this.message = "<AanvraagEnvelop>" + "x".repeat(Math.max(0, messageSize - 37)) + "</AanvraagEnvelop>";
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            this.privateKey = generator.generateKeyPair().getPrivate();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void prepare(MockPlatform platform, int workers) {
+        // Every worker creates its own dossiers
+    }
+
+    @Override
+    public boolean run(int worker, APIController apiController, LatencyRecorder recorder) throws Exception {
+        String node = String.format("%06d", 100000 + worker);
+        Dossier dossier = new Dossier();
+        recorder.record("dossier.create", () -> dossier.create(node, apiController));
+        if (dossier.getResourceUuid() == null) {
+            return true;
+        }
+
+        Record apiRecord = recorder.record("record.sign", () -> new Record(dossier.getResourceUuid())
+                .setHeader(new Record.Header("1", null, node, RECEIVER,
+                        new Record.RequestSchema("AX OfferteAanvraag", "25.0", "HDN", APIConstants.ContentType.XML, APIConstants.Environment.acceptatie),
+                        List.of(), null))
+                .setMiscellaneous(new Record.Miscellaneous("Adviseur", "Geldverstrekker",
+                        new Record.SendingApplication("LoadHarness", "1.0", Instant.now())))
+                .setMessage(message)
+                .setPublicKey(publicKey)
+                .signMessage(privateKey));
+        recorder.record("record.create", () -> apiRecord.create(node, apiController));
+        if (apiRecord.getResourceUuid() != null) {
+            recorder.record("record.send", () -> apiRecord.send(node, apiController));
+        }
+        return true;
+    }
+}
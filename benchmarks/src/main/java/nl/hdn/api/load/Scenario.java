@@ -0,0 +1,28 @@
+package nl.hdn.api.load;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.MockPlatform;
+
+/**
+ * A scripted workload, run repeatedly by every worker of the {@link LoadHarness}
+ */
+public interface Scenario {
+    /**
+     * Prepares the platform, f.e. by seeding records, before the workers start
+     *
+     * @param platform the platform stand-in
+     * @param workers  the number of workers
+     */
+    void prepare(MockPlatform platform, int workers);
+
+    /**
+     * Runs one iteration
+     *
+     * @param worker        the number of the worker, from 0
+     * @param apiController the controller shared by all workers
+     * @param recorder      the recorder of the operations
+     * @return false when the worker has no work left
+     * @throws Exception thrown when the iteration failed
+     */
+    boolean run(int worker, APIController apiController, LatencyRecorder recorder) throws Exception;
+}
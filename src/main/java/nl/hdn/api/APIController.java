@@ -17,15 +17,24 @@ import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.security.cert.CertificateException;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Implements the API connection to the HDN Platform of Trust
  */
-public class APIController {
+public class APIController implements AutoCloseable {
     /**
      * Holds the instance for the singleton pattern
      */
     private static APIController instance;
+    /**
+     * Guards the initialization, a lock instead of synchronized so a virtual thread loading the keystore does not pin
+     * its carrier thread
+     */
+    private static final ReentrantLock initLock = new ReentrantLock();
 
     /**
      * Initializes the instance
@@ -37,11 +46,16 @@ public class APIController {
      * @param keyStorePath     the path to the certificate
      * @param keyStorePassword the passwordt of the certificate
      */
-    public static synchronized void init(String baseURL, String authURL, String clientID, String clientSecret, String keyStorePath, String keyStorePassword) {
-        if (instance != null) {
-            throw new IllegalStateException("APIController already initialized");
+    public static void init(String baseURL, String authURL, String clientID, String clientSecret, String keyStorePath, String keyStorePassword) {
+        initLock.lock();
+        try {
+            if (instance != null) {
+                throw new IllegalStateException("APIController already initialized");
+            }
+            instance = new APIController(baseURL, authURL, clientID, clientSecret, keyStorePath, keyStorePassword);
+        } finally {
+            initLock.unlock();
         }
-        instance = new APIController(baseURL, authURL, clientID, clientSecret, keyStorePath, keyStorePassword);
     }
 
     /**
@@ -101,6 +115,10 @@ public class APIController {
 
     private String accessToken;
     private SSLContext sslContext;
+    private volatile Executor executor;
+    private volatile HttpClient client = sharedClient;
+    private ExecutorService ownedExecutor;
+    private final ReentrantLock clientLock = new ReentrantLock();
 
     /**
      * Constructs the APIController
@@ -113,6 +131,10 @@ public class APIController {
         this.keyStorePath = keyStorePath;
         this.keyStorePassword = keyStorePassword;
 
+        if (keyStorePath == null) {
+            // Without a client certificate, f.e. against a local stand-in of the platform
+            return;
+        }
         try (FileInputStream fis = new FileInputStream(keyStorePath)) {
             KeyStore keyStore = KeyStore.getInstance("PKCS12");
             keyStore.load(fis, keyStorePassword.toCharArray());
@@ -218,7 +240,14 @@ public class APIController {
         String form = "grant_type=password&" + "client_id=" + clientID + "&" + "client_secret=" + clientSecret + "&" + "scope=openid profile";
         HttpRequest request = HttpRequest.newBuilder().uri(URI.create(authURL + "/auth/realms/platformoftrust/protocol/openid-connect/token")).header("Content-Type", "application/x-www-form-urlencoded").POST(HttpRequest.BodyPublishers.ofString(form)).build();
         HttpResponse<String> response;
-        try (HttpClient client = HttpClient.newBuilder().sslContext(sslContext).build()) {
+        HttpClient.Builder builder = HttpClient.newBuilder();
+        if (sslContext != null) {
+            builder.sslContext(sslContext);
+        }
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        try (HttpClient client = builder.build()) {
             response = client.send(request, HttpResponse.BodyHandlers.ofString());
 
             JSONObject obj = new JSONObject(response.body());
@@ -243,10 +272,81 @@ public class APIController {
         return builder;
     }
 
-    private static final HttpClient client = HttpClient.newBuilder()
+    private static final HttpClient sharedClient = HttpClient.newBuilder()
             //.version(HttpClient.Version.HTTP_1_1) // of HTTP_2 als stabiel
             .build();
 
+    /**
+     * Sets the executor the HTTP client of this controller uses for its asynchronous work, replacing the client shared
+     * by all controllers with a client of its own. The executor can be set once; the client of its own is closed by
+     * {@link #close()}, the executor itself is left to the caller.
+     *
+     * @param executor the executor
+     * @return the controller itself
+     */
+    @SuppressWarnings("unused")
+    public APIController setExecutor(Executor executor) {
+        clientLock.lock();
+        try {
+            if (executor == null) {
+                logger.error("Executor should not be null.");
+            } else if (client != sharedClient) {
+                logger.error("Executor should be set only once, close the controller first.");
+            } else {
+                this.executor = executor;
+                this.client = HttpClient.newBuilder().executor(executor).build();
+            }
+        } finally {
+            clientLock.unlock();
+        }
+        return this;
+    }
+
+    /**
+     * Lets the HTTP client of this controller run its asynchronous work on virtual threads, one per task. The blocking
+     * calls of the client can be made from virtual threads in any mode, see {@link nl.hdn.api.concurrent.FanOut}. Like
+     * {@link #setExecutor(Executor)} this can be done once; {@link #close()} closes both the client and the executor.
+     *
+     * @return the controller itself
+     */
+    @SuppressWarnings("unused")
+    public APIController useVirtualThreads() {
+        clientLock.lock();
+        try {
+            if (client != sharedClient) {
+                logger.error("Executor should be set only once, close the controller first.");
+                return this;
+            }
+            ownedExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("hdn-http-", 0).factory());
+            return setExecutor(ownedExecutor);
+        } finally {
+            clientLock.unlock();
+        }
+    }
+
+    /**
+     * Closes the HTTP client this controller got from {@link #setExecutor(Executor)} or {@link #useVirtualThreads()},
+     * and the executor created by the latter, after the calls in progress are done. The controller goes back to the
+     * client shared by all controllers, which is never closed.
+     */
+    @Override
+    public void close() {
+        clientLock.lock();
+        try {
+            if (client != sharedClient) {
+                client.close();
+                client = sharedClient;
+                executor = null;
+            }
+            if (ownedExecutor != null) {
+                ownedExecutor.close();
+                ownedExecutor = null;
+            }
+        } finally {
+            clientLock.unlock();
+        }
+    }
+
     /**
      * Performs a get call
      *
@@ -0,0 +1,126 @@
+package nl.hdn.api.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs blocking client calls for many items concurrently, f.e. fetching all records of a list. Every item gets its own
+ * virtual thread, a semaphore caps the number of calls in flight so the platform is not flooded.
+ * <p>
+ * The blocking calls of the client do not pin the carrier thread of a virtual thread, so they can also be made from
+ * virtual threads created by the application itself.
+ */
+public final class FanOut {
+    private static final Logger logger = LoggerFactory.getLogger(FanOut.class);
+
+    /**
+     * The default number of calls in flight
+     */
+    public static final int DEFAULT_CONCURRENCY = 16;
+
+    /**
+     * A blocking call for one item
+     *
+     * @param <T> the type of the item
+     * @param <R> the type of the result
+     */
+    @FunctionalInterface
+    public interface Task<T, R> {
+        R apply(T item) throws Exception;
+    }
+
+    private FanOut() {
+    }
+
+    /**
+     * Applies a call to every item concurrently and waits for all results. When a call fails, the calls still running
+     * are interrupted and the failure is thrown.
+     *
+     * @param items       the items
+     * @param concurrency the maximum number of calls in flight
+     * @param task        the call
+     * @param <T>         the type of the items
+     * @param <R>         the type of the results
+     * @return the results in the order of the items
+     * @throws IOException          thrown when a call failed with an IO error
+     * @throws InterruptedException thrown when the waiting thread is interrupted
+     * @throws IllegalStateException thrown when a call failed with another checked exception
+     */
+    public static <T, R> List<R> map(Collection<? extends T> items, int concurrency, Task<? super T, ? extends R> task) throws IOException, InterruptedException {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency should be at least 1");
+        }
+        Semaphore permits = new Semaphore(concurrency);
+        Object[] results = new Object[items.size()];
+        List<Future<?>> futures = new ArrayList<>(items.size());
+
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("hdn-fan-out-", 0).factory())) {
+            CompletionService<Object> completion = new ExecutorCompletionService<>(executor);
+            int index = 0;
+            for (T item : items) {
+                int position = index++;
+                futures.add(completion.submit(() -> {
+                    permits.acquire();
+                    try {
+                        results[position] = task.apply(item);
+                    } finally {
+                        permits.release();
+                    }
+                    return null;
+                }));
+            }
+            try {
+                for (int done = 0; done < futures.size(); done++) {
+                    completion.take().get();
+                }
+            } catch (ExecutionException e) {
+                futures.forEach(future -> future.cancel(true));
+                logger.error("Exception occured in a concurrent call: {}", e.getCause().getMessage());
+                throw unwrap(e.getCause());
+            } catch (InterruptedException e) {
+                futures.forEach(future -> future.cancel(true));
+                throw e;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        List<R> list = (List<R>) Arrays.asList(results);
+        return list;
+    }
+
+    /**
+     * Applies a call to every item concurrently, with the default number of calls in flight
+     *
+     * @param items the items
+     * @param task  the call
+     * @param <T>   the type of the items
+     * @param <R>   the type of the results
+     * @return the results in the order of the items
+     * @throws IOException          thrown when a call failed with an IO error
+     * @throws InterruptedException thrown when the waiting thread is interrupted
+     */
+    @SuppressWarnings("unused")
+    public static <T, R> List<R> map(Collection<? extends T> items, Task<? super T, ? extends R> task) throws IOException, InterruptedException {
+        return map(items, DEFAULT_CONCURRENCY, task);
+    }
+
+    private static IOException unwrap(Throwable cause) throws InterruptedException {
+        if (cause instanceof IOException ioException) {
+            return ioException;
+        } else if (cause instanceof InterruptedException interruptedException) {
+            throw interruptedException;
+        } else if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        } else if (cause instanceof Error error) {
+            throw error;
+        }
+        throw new IllegalStateException(cause);
+    }
+}
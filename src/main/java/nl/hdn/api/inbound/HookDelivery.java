@@ -0,0 +1,49 @@
+package nl.hdn.api.inbound;
+
+import org.json.JSONObject;
+
+import java.time.Instant;
+
+/**
+ * Represents a single delivery of a hook by the HDN Platform of Trust
+ *
+ * @param resourceUuid the UUID of the delivered resource, or null
+ * @param dossierUuid  the UUID of the dossier of the delivered resource, or null
+ * @param recordUuid   the UUID of the record of the delivered resource, or null
+ * @param messageType  the message type of the record, or null
+ * @param eventType    the type of the event, or null
+ * @param timestamp    the moment of the delivery according to the platform, or null
+ * @param body         the complete body of the delivery
+ */
+public record HookDelivery(
+        String resourceUuid,
+        String dossierUuid,
+        String recordUuid,
+        String messageType,
+        String eventType,
+        Instant timestamp,
+        JSONObject body
+) {
+    /**
+     * Parses the body of a delivery
+     *
+     * @param body the JSON body of the delivery
+     * @return the delivery
+     */
+    public static HookDelivery parse(JSONObject body) {
+        JSONObject header = body.optJSONObject("header");
+        JSONObject requestSchema = header == null ? null : header.optJSONObject("requestSchema");
+        String messageType = body.optString("messageType", requestSchema == null ? null : requestSchema.optString("messageType", null));
+        String timestamp = body.optString("timestamp", body.optString("creationDate", null));
+
+        return new HookDelivery(
+                body.optString("resourceUuid", null),
+                body.optString("dossierUuid", null),
+                body.optString("recordUuid", null),
+                messageType,
+                body.optString("eventType", null),
+                timestamp == null ? null : Instant.parse(timestamp),
+                body
+        );
+    }
+}
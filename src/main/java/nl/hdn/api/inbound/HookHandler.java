@@ -0,0 +1,15 @@
+package nl.hdn.api.inbound;
+
+/**
+ * Handles the deliveries received by a {@link HookReceiver}
+ */
+@FunctionalInterface
+public interface HookHandler {
+    /**
+     * Handles a delivery; the delivery has already been acknowledged to the platform
+     *
+     * @param delivery the delivery
+     * @throws Exception thrown when the delivery could not be handled, which is logged by the receiver
+     */
+    void handle(HookDelivery delivery) throws Exception;
+}
@@ -0,0 +1,506 @@
+package nl.hdn.api.inbound;
+
+import com.sun.net.httpserver.*;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Receives the deliveries of hooks registered with {@link nl.hdn.api.object.Hook#create(String)}. Every request is
+ * handled on a virtual thread, parsed and acknowledged immediately with 202 Accepted; the actual work is dispatched
+ * to the registered handlers through a bounded queue. When the queue is full the delivery is refused with 503, so the
+ * platform retries it later.
+ * <p>
+ * The platform does not resend a delivery that has been acknowledged. {@link #stop(Duration)} and {@link #close()}
+ * therefore handle the queued deliveries first; the deliveries that could not be handled within the drain timeout are
+ * logged and returned by {@link #stop(Duration)}, so they can be stored or handled otherwise. They are lost when the
+ * receiver is closed without doing so.
+ * <p>
+ * With {@link #setTls(SSLContext, boolean)} the receiver listens on HTTPS and can require a client certificate, which
+ * can be restricted further to a set of SHA-256 fingerprints with {@link #setAllowedClientCertificates(Set)}.
+ */
+public class HookReceiver implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(HookReceiver.class);
+
+    private final InetSocketAddress address;
+    private final Map<String, List<HookHandler>> messageTypeHandlers = new ConcurrentHashMap<>();
+    private final Map<String, List<HookHandler>> eventTypeHandlers = new ConcurrentHashMap<>();
+    private final List<HookHandler> defaultHandlers = new CopyOnWriteArrayList<>();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong handled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    private String path = "/";
+    private int queueCapacity = 10_000;
+    private int workers = 16;
+    private SSLContext sslContext = null;
+    private boolean requireClientCertificate = false;
+    private Set<String> allowedClientCertificates = Set.of();
+    private UuidDeduplicator deduplicator = null;
+    private Duration drainTimeout = Duration.ofSeconds(30);
+
+    private HttpServer server;
+    private ExecutorService requestExecutor;
+    private ExecutorService workerExecutor;
+    private BlockingQueue<HookDelivery> queue;
+    private final Set<HookDelivery> inProgress = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopping = false;
+
+    /**
+     * Constructs a receiver
+     *
+     * @param address the address to listen on
+     */
+    public HookReceiver(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    /**
+     * Registers a handler for the deliveries of records with a message type
+     *
+     * @param messageType the message type, f.e. "OX Offerte"
+     * @param handler     the handler
+     * @return the receiver itself
+     */
+    @SuppressWarnings("unused")
+    public HookReceiver onMessageType(String messageType, HookHandler handler) {
+        messageTypeHandlers.computeIfAbsent(messageType, key -> new CopyOnWriteArrayList<>()).add(handler);
+        return this;
+    }
+
+    /**
+     * Registers a handler for the deliveries of events with an event type
+     *
+     * @param eventType the event type
+     * @param handler   the handler
+     * @return the receiver itself
+     */
+    @SuppressWarnings("unused")
+    public HookReceiver onEventType(String eventType, HookHandler handler) {
+        eventTypeHandlers.computeIfAbsent(eventType, key -> new CopyOnWriteArrayList<>()).add(handler);
+        return this;
+    }
+
+    /**
+     * Registers a handler for all deliveries without a more specific handler
+     *
+     * @param handler the handler
+     * @return the receiver itself
+     */
+    @SuppressWarnings("unused")
+    public HookReceiver onDelivery(HookHandler handler) {
+        defaultHandlers.add(handler);
+        return this;
+    }
+
+    /**
+     * Starts listening for deliveries
+     *
+     * @return the receiver itself
+     * @throws IOException thrown when the server could not be started
+     */
+    public HookReceiver start() throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("HookReceiver already started");
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        stopping = false;
+        requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        workerExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        for (int i = 0; i < workers; i++) {
+            workerExecutor.submit(this::work);
+        }
+
+        if (sslContext != null) {
+            HttpsServer httpsServer = HttpsServer.create(address, 0);
+            httpsServer.setHttpsConfigurator(new HttpsConfigurator(sslContext) {
+                @Override
+                public void configure(HttpsParameters params) {
+                    SSLParameters sslParameters = getSSLContext().getDefaultSSLParameters();
+                    sslParameters.setNeedClientAuth(requireClientCertificate);
+                    params.setSSLParameters(sslParameters);
+                }
+            });
+            server = httpsServer;
+        } else {
+            server = HttpServer.create(address, 0);
+        }
+        server.setExecutor(requestExecutor);
+        server.createContext(path, this::receive);
+        server.start();
+        logger.info("HookReceiver listening on {}{}", server.getAddress(), path);
+        return this;
+    }
+
+    /**
+     * Stops the receiver. New deliveries are refused and the acknowledged deliveries are handled for at most the given
+     * time, after which the handlers still running are interrupted.
+     *
+     * @param drainTimeout the maximum time to handle the acknowledged deliveries
+     * @return the acknowledged deliveries that were not handled or were interrupted, empty when all were handled
+     * @throws InterruptedException thrown when interrupted while waiting for the deliveries to be handled
+     */
+    public List<HookDelivery> stop(Duration drainTimeout) throws InterruptedException {
+        if (server == null) {
+            return List.of();
+        }
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        server.stop(0);
+        requestExecutor.shutdown();
+        // A request being read can still add its delivery to the queue
+        requestExecutor.awaitTermination(drainTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        stopping = true;
+        workerExecutor.shutdown();
+        List<HookDelivery> abandoned = new ArrayList<>();
+        if (!workerExecutor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            workerExecutor.shutdownNow();
+            abandoned.addAll(inProgress);
+            queue.drainTo(abandoned);
+            logger.warn("HookReceiver stopped with {} acknowledged deliveries not handled: {}", abandoned.size(),
+                    abandoned.stream().map(HookDelivery::resourceUuid).toList());
+        }
+        server = null;
+        return abandoned;
+    }
+
+    /**
+     * Stops the receiver, handling the acknowledged deliveries for at most the drain timeout
+     *
+     * @see #setDrainTimeout(Duration)
+     */
+    @Override
+    public void close() {
+        try {
+            stop(drainTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the address the receiver is listening on
+     *
+     * @return the address, or null when not started
+     */
+    @SuppressWarnings("unused")
+    public InetSocketAddress getAddress() {
+        return server == null ? null : server.getAddress();
+    }
+
+    /**
+     * Handles a single HTTP request of the platform
+     *
+     * @param exchange the HTTP exchange
+     * @throws IOException thrown when the response could not be written
+     */
+    private void receive(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!isAllowedClient(exchange)) {
+                exchange.sendResponseHeaders(403, -1);
+                return;
+            }
+
+            HookDelivery delivery;
+            try (InputStream in = exchange.getRequestBody()) {
+                delivery = HookDelivery.parse(new JSONObject(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+            } catch (JSONException | DateTimeParseException e) {
+                logger.error("Invalid hook delivery: {}", e.getMessage());
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            received.incrementAndGet();
+            if (deduplicator != null && delivery.resourceUuid() != null && deduplicator.contains(delivery.resourceUuid())) {
+                duplicates.incrementAndGet();
+                logger.debug("Duplicate hook delivery of {} ignored", delivery.resourceUuid());
+                exchange.sendResponseHeaders(202, -1);
+            } else if (queue.offer(delivery)) {
+                exchange.sendResponseHeaders(202, -1);
+            } else {
+                rejected.incrementAndGet();
+                logger.warn("Hook delivery queue full, delivery of {} refused", delivery.resourceUuid());
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                exchange.sendResponseHeaders(503, -1);
+            }
+        }
+    }
+
+    /**
+     * Checks the client certificate against the allowed fingerprints, when configured
+     *
+     * @param exchange the HTTP exchange
+     * @return true when the client is allowed
+     */
+    private boolean isAllowedClient(HttpExchange exchange) {
+        if (allowedClientCertificates.isEmpty()) {
+            return true;
+        }
+        if (!(exchange instanceof HttpsExchange httpsExchange)) {
+            return false;
+        }
+        try {
+            Certificate[] certificates = httpsExchange.getSSLSession().getPeerCertificates();
+            return certificates.length > 0 && allowedClientCertificates.contains(fingerprint(certificates[0]));
+        } catch (SSLPeerUnverifiedException e) {
+            logger.warn("Hook delivery without verified client certificate refused");
+            return false;
+        }
+    }
+
+    /**
+     * Returns the SHA-256 fingerprint of a certificate as lowercase hex
+     *
+     * @param certificate the certificate
+     * @return the fingerprint
+     */
+    private static String fingerprint(Certificate certificate) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded()));
+        } catch (NoSuchAlgorithmException | CertificateEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Takes deliveries from the queue and dispatches them to the handlers until the receiver is stopped
+     */
+    private void work() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                HookDelivery delivery = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (delivery != null) {
+                    inProgress.add(delivery);
+                    try {
+                        dispatch(delivery);
+                    } finally {
+                        inProgress.remove(delivery);
+                    }
+                } else if (stopping) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Dispatches a delivery to the handlers of its message type and event type, or to the default handlers
+     *
+     * @param delivery the delivery
+     */
+    private void dispatch(HookDelivery delivery) {
+        List<HookHandler> handlers = new ArrayList<>();
+        if (delivery.messageType() != null) {
+            handlers.addAll(messageTypeHandlers.getOrDefault(delivery.messageType(), List.of()));
+        }
+        if (delivery.eventType() != null) {
+            handlers.addAll(eventTypeHandlers.getOrDefault(delivery.eventType(), List.of()));
+        }
+        if (handlers.isEmpty()) {
+            handlers.addAll(defaultHandlers);
+        }
+        if (deduplicator != null && delivery.resourceUuid() != null && !deduplicator.firstSeen(delivery.resourceUuid())) {
+            duplicates.incrementAndGet();
+            return;
+        }
+        boolean succeeded = true;
+        for (HookHandler handler : handlers) {
+            try {
+                handler.handle(delivery);
+                handled.incrementAndGet();
+            } catch (Exception e) {
+                succeeded = false;
+                failed.incrementAndGet();
+                logger.error("Exception occured while handling hook delivery {}: {}", delivery.resourceUuid(), e.getMessage());
+            }
+        }
+        if (!succeeded && deduplicator != null && delivery.resourceUuid() != null) {
+            // A resend by the platform should be handled again instead of being dropped as duplicate
+            deduplicator.forget(delivery.resourceUuid());
+        }
+    }
+
+    /**
+     * Sets the path the deliveries are posted to
+     *
+     * @param path the path, f.e. "/hdn/hooks"
+     * @return the receiver itself
+     */
+    @SuppressWarnings("unused")
+    public HookReceiver setPath(String path) {
+        this.path = path;
+        return this;
+    }
+
+    /**
+     * Sets the capacity of the queue between the acknowledgement and the handlers
+     *
+     * @param queueCapacity the capacity, must be greater than 0
+     * @return the receiver itself
+     */
+    @SuppressWarnings("unused")
+    public HookReceiver setQueueCapacity(int queueCapacity) {
+        if (queueCapacity > 0) {
+            this.queueCapacity = queueCapacity;
+        } else {
+            logger.error("Queue capacity should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of deliveries that are handled concurrently
+     *
+     * @param workers the number of workers, must be greater than 0
+     * @return the receiver itself
+     */
+    @SuppressWarnings("unused")
+    public HookReceiver setWorkers(int workers) {
+        if (workers > 0) {
+            this.workers = workers;
+        } else {
+            logger.error("Number of workers should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the maximum time {@link #close()} handles the acknowledged deliveries before stopping
+     *
+     * @param drainTimeout the drain timeout, must not be negative
+     * @return the receiver itself
+     */
+    @SuppressWarnings("unused")
+    public HookReceiver setDrainTimeout(Duration drainTimeout) {
+        if (drainTimeout != null && !drainTimeout.isNegative()) {
+            this.drainTimeout = drainTimeout;
+        } else {
+            logger.error("Drain timeout should not be negative.");
+        }
+        return this;
+    }
+
+    /**
+     * Listens on HTTPS instead of HTTP
+     *
+     * @param sslContext               the SSL context holding the server certificate and the trusted client certificates
+     * @param requireClientCertificate true to require a client certificate (mTLS)
+     * @return the receiver itself
+     */
+    @SuppressWarnings("unused")
+    public HookReceiver setTls(SSLContext sslContext, boolean requireClientCertificate) {
+        this.sslContext = sslContext;
+        this.requireClientCertificate = requireClientCertificate;
+        return this;
+    }
+
+    /**
+     * Restricts the accepted client certificates, only has effect in combination with {@link #setTls(SSLContext, boolean)}
+     *
+     * @param fingerprints the SHA-256 fingerprints of the allowed certificates as hex, an empty set allows all
+     * @return the receiver itself
+     */
+    @SuppressWarnings("unused")
+    public HookReceiver setAllowedClientCertificates(Set<String> fingerprints) {
+        this.allowedClientCertificates = fingerprints.stream().map(f -> f.replace(":", "").toLowerCase()).collect(Collectors.toUnmodifiableSet());
+        return this;
+    }
+
+    /**
+     * Filters duplicate deliveries of the same resource UUID; duplicates are acknowledged but not dispatched
+     *
+     * @param deduplicator the deduplicator, or null to dispatch every delivery
+     * @return the receiver itself
+     */
+    @SuppressWarnings("unused")
+    public HookReceiver setDeduplicator(UuidDeduplicator deduplicator) {
+        this.deduplicator = deduplicator;
+        return this;
+    }
+
+    /**
+     * Returns the number of duplicate deliveries that have been ignored
+     *
+     * @return the number of duplicates
+     */
+    @SuppressWarnings("unused")
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    /**
+     * Returns the number of deliveries received and accepted into the queue or refused
+     *
+     * @return the number of deliveries received
+     */
+    @SuppressWarnings("unused")
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    /**
+     * Returns the number of deliveries refused because the queue was full
+     *
+     * @return the number of refused deliveries
+     */
+    @SuppressWarnings("unused")
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Returns the number of successful handler invocations
+     *
+     * @return the number of handled deliveries
+     */
+    @SuppressWarnings("unused")
+    public long getHandledCount() {
+        return handled.get();
+    }
+
+    /**
+     * Returns the number of failed handler invocations
+     *
+     * @return the number of failed deliveries
+     */
+    @SuppressWarnings("unused")
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Returns the number of deliveries waiting in the queue
+     *
+     * @return the queue depth
+     */
+    @SuppressWarnings("unused")
+    public int getQueueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+}
@@ -0,0 +1,31 @@
+package nl.hdn.api.inbound;
+
+import nl.hdn.api.object.Record;
+import org.w3c.dom.Document;
+
+/**
+ * Processes the records passing an {@link InboundPipeline}. A record is only confirmed after the handler returned
+ * normally. A record that could not be confirmed keeps the status read and is delivered again when the records with
+ * status read are scanned, so the handler should be idempotent.
+ */
+@FunctionalInterface
+public interface InboundHandler {
+    /**
+     * Processes a fetched record
+     *
+     * @param apiRecord the record, with its message
+     * @param document  the parsed message, or null when the message is not XML
+     * @throws Exception thrown when the record could not be processed, the record is then not confirmed
+     */
+    void handle(Record apiRecord, Document document) throws Exception;
+
+    /**
+     * Called when a record failed in one of the stages and has not been confirmed, a record that has been fetched then
+     * has the status read
+     *
+     * @param apiRecord the record
+     * @param exception the failure
+     */
+    default void failed(Record apiRecord, Exception exception) {
+    }
+}
@@ -0,0 +1,457 @@
+package nl.hdn.api.inbound;
+
+import nl.hdn.api.APIConstants;
+import nl.hdn.api.APIController;
+import nl.hdn.api.APIResponse;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.object.RecordKeysetIterator;
+import nl.hdn.api.object.RecordList;
+import nl.hdn.api.pipeline.Stage;
+import nl.hdn.api.pipeline.StageMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Processes inbound records through bounded stages: discovery, fetch, XML decoding, signature verification, the
+ * handler and confirmation. Each stage has its own concurrency and queue, so the network calls of fetching and
+ * confirming overlap with the CPU-bound parsing and verification of other records, and the slowest stage applies
+ * backpressure all the way back to the discovery of new records.
+ * <p>
+ * A record is only confirmed after the {@link InboundHandler} returned normally. Fetching a record marks it as read
+ * on the platform, so a record that failed after the fetch stage is not found again by a scan for new records; it has
+ * to be processed again by a scan of the records with status read. A record that is still in the pipeline is not
+ * submitted again when it is discovered twice. The verification stage is only present when signature keys have been
+ * set.
+ */
+public class InboundPipeline implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(InboundPipeline.class);
+
+    /**
+     * A scan of a record list
+     */
+    private record Discovery(RecordList filter, String onBehalfOf) {
+    }
+
+    /**
+     * A record travelling through the pipeline
+     */
+    private record Delivery(Record apiRecord, String onBehalfOf, Document document, CompletableFuture<Record> future) {
+        Delivery withDocument(Document document) {
+            return new Delivery(apiRecord, onBehalfOf, document, future);
+        }
+    }
+
+    private final APIController apiController;
+    private final InboundHandler handler;
+    private final Map<String, CompletableFuture<Record>> inFlight = new ConcurrentHashMap<>();
+    private final ThreadLocal<DocumentBuilder> documentBuilders = ThreadLocal.withInitial(InboundPipeline::newDocumentBuilder);
+    private int discoveryConcurrency = 1;
+    private int fetchConcurrency = 16;
+    private int decodeConcurrency = Runtime.getRuntime().availableProcessors();
+    private int verifyConcurrency = Runtime.getRuntime().availableProcessors();
+    private int handlerConcurrency = 4;
+    private int confirmConcurrency = 16;
+    private int queueCapacity = 1000;
+    private Function<String, PublicKey> signatureKeys = null;
+
+    private Stage<Discovery, Void> discoveryStage;
+    private Stage<Delivery, Delivery> fetchStage;
+    private Stage<Delivery, Delivery> decodeStage;
+    private Stage<Delivery, Delivery> verifyStage;
+    private Stage<Delivery, Delivery> handlerStage;
+    private Stage<Delivery, Delivery> confirmStage;
+
+    /**
+     * Constructs a pipeline with the default API controller
+     *
+     * @param handler the handler of the records
+     */
+    @SuppressWarnings("unused")
+    public InboundPipeline(InboundHandler handler) {
+        this(handler, APIController.getInstance());
+    }
+
+    /**
+     * Constructs a pipeline
+     *
+     * @param handler       the handler of the records
+     * @param apiController the controller to be used for the API calls
+     */
+    public InboundPipeline(InboundHandler handler, APIController apiController) {
+        this.handler = handler;
+        this.apiController = apiController;
+    }
+
+    /**
+     * Starts the stages of the pipeline
+     *
+     * @return the pipeline itself
+     */
+    public InboundPipeline start() {
+        if (confirmStage != null) {
+            throw new IllegalStateException("InboundPipeline already started");
+        }
+        confirmStage = new Stage<>("confirm", queueCapacity, confirmConcurrency, this::confirm, delivery -> delivery.future().complete(delivery.apiRecord()), this::fail);
+        handlerStage = new Stage<>("handle", queueCapacity, handlerConcurrency, this::handle, confirmStage::submit, this::fail);
+        if (signatureKeys != null) {
+            verifyStage = new Stage<>("verify", queueCapacity, verifyConcurrency, this::verify, handlerStage::submit, this::fail);
+        }
+        Stage<Delivery, Delivery> afterDecode = verifyStage != null ? verifyStage : handlerStage;
+        decodeStage = new Stage<>("decode", queueCapacity, decodeConcurrency, this::decode, afterDecode::submit, this::fail);
+        fetchStage = new Stage<>("fetch", queueCapacity, fetchConcurrency, this::fetch, decodeStage::submit, this::fail);
+        discoveryStage = new Stage<>("discover", queueCapacity, discoveryConcurrency, this::discover, ignored -> {
+        }, (discovery, e) -> logger.error("Exception occured while discovering records: {}", e.getMessage()));
+        return this;
+    }
+
+    /**
+     * Queues a scan of a record list, f.e. with status new; every record found is submitted to the pipeline. The scan
+     * uses the keyset iterator, so records confirmed during the scan do not shift the pages. Records missed by a scan,
+     * f.e. because they became visible during it, are found by the next scan.
+     *
+     * @param filter     the record list with the filters of the records to process
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the records are processed
+     * @throws InterruptedException thrown when interrupted while waiting for room in the pipeline
+     */
+    @SuppressWarnings("unused")
+    public void discover(RecordList filter, String onBehalfOf) throws InterruptedException {
+        if (confirmStage == null) {
+            throw new IllegalStateException("InboundPipeline not started");
+        }
+        discoveryStage.submit(new Discovery(filter, onBehalfOf));
+    }
+
+    /**
+     * Submits a record found elsewhere, f.e. by a hook or an {@link InboxPoller}, blocking while the fetch stage is full
+     *
+     * @param apiRecord  the record, with the dossier UUID and resource UUID set
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the record is processed
+     * @return a future completing with the record once it has been confirmed, or the future of the same record when
+     * it is already in the pipeline
+     * @throws InterruptedException thrown when interrupted while waiting for room in the pipeline
+     */
+    public CompletableFuture<Record> submit(Record apiRecord, String onBehalfOf) throws InterruptedException {
+        if (confirmStage == null) {
+            throw new IllegalStateException("InboundPipeline not started");
+        }
+        CompletableFuture<Record> future = new CompletableFuture<>();
+        CompletableFuture<Record> existing = inFlight.putIfAbsent(apiRecord.getResourceUuid(), future);
+        if (existing != null) {
+            return existing;
+        }
+        future.whenComplete((result, e) -> inFlight.remove(apiRecord.getResourceUuid(), future));
+        try {
+            fetchStage.submit(new Delivery(apiRecord, onBehalfOf, null, future));
+        } catch (InterruptedException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Returns a listener for an {@link InboxPoller} that submits the new records to the pipeline
+     *
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the records are processed
+     * @return the listener
+     */
+    @SuppressWarnings("unused")
+    public InboxListener listener(String onBehalfOf) {
+        return apiRecord -> {
+            try {
+                submit(apiRecord, onBehalfOf);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    /**
+     * Returns the metrics of all stages, in pipeline order
+     *
+     * @return the metrics per stage
+     */
+    @SuppressWarnings("unused")
+    public List<StageMetrics> getMetrics() {
+        if (confirmStage == null) {
+            return List.of();
+        }
+        List<StageMetrics> metrics = new ArrayList<>();
+        for (Stage<?, ?> stage : stages()) {
+            metrics.add(stage.getMetrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * Waits until all queued scans and records have passed the pipeline and stops the stages. When a stage does not
+     * finish within the timeout, the futures of the records still in the pipeline complete with an
+     * {@link IllegalStateException}; these records are not confirmed and, once fetched, are only found again by a
+     * scan of the records with status read.
+     *
+     * @param timeout the maximum time to wait per stage
+     * @return true when all records passed the pipeline within the timeout
+     * @throws InterruptedException thrown when interrupted while waiting
+     */
+    public boolean shutdown(Duration timeout) throws InterruptedException {
+        if (confirmStage == null) {
+            return true;
+        }
+        boolean completed = true;
+        for (Stage<?, ?> stage : stages()) {
+            completed &= stage.shutdown(timeout);
+        }
+        if (!completed) {
+            IllegalStateException e = new IllegalStateException("InboundPipeline stopped before the record was confirmed");
+            for (CompletableFuture<Record> future : List.copyOf(inFlight.values())) {
+                future.completeExceptionally(e);
+            }
+            inFlight.clear();
+        }
+        return completed;
+    }
+
+    /**
+     * Stops the pipeline, waiting at most a minute for the records in progress
+     */
+    @Override
+    public void close() {
+        try {
+            if (!shutdown(Duration.ofMinutes(1))) {
+                logger.warn("InboundPipeline stopped with records still in progress");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<Stage<?, ?>> stages() {
+        List<Stage<?, ?>> stages = new ArrayList<>(List.of(discoveryStage, fetchStage, decodeStage));
+        if (verifyStage != null) {
+            stages.add(verifyStage);
+        }
+        stages.add(handlerStage);
+        stages.add(confirmStage);
+        return stages;
+    }
+
+    private Void discover(Discovery discovery) throws InterruptedException {
+        try (RecordKeysetIterator records = discovery.filter().keysetIterator(discovery.onBehalfOf(), apiController)) {
+            while (records.hasNext()) {
+                submit(records.next(), discovery.onBehalfOf());
+            }
+        }
+        return null;
+    }
+
+    private Delivery fetch(Delivery delivery) throws IOException, InterruptedException {
+        delivery.apiRecord().fetch(delivery.onBehalfOf(), apiController);
+        if (delivery.apiRecord().getMessage() == null) {
+            throw new IOException("Record " + delivery.apiRecord().getResourceUuid() + " could not be fetched");
+        }
+        return delivery;
+    }
+
+    private Delivery decode(Delivery delivery) throws IOException, SAXException {
+        Record.Header header = delivery.apiRecord().getHeader();
+        if (header == null || header.requestSchema() == null || header.requestSchema().contentType() != APIConstants.ContentType.XML) {
+            return delivery;
+        }
+        DocumentBuilder documentBuilder = documentBuilders.get();
+        try {
+            return delivery.withDocument(documentBuilder.parse(new InputSource(new StringReader(delivery.apiRecord().getMessage()))));
+        } finally {
+            documentBuilder.reset();
+        }
+    }
+
+    private Delivery verify(Delivery delivery) throws GeneralSecurityException {
+        String publicKeyUuid = delivery.apiRecord().getPublicKey();
+        PublicKey publicKey = publicKeyUuid != null ? signatureKeys.apply(publicKeyUuid) : null;
+        if (publicKey == null) {
+            throw new SignatureException("No public key found for record " + delivery.apiRecord().getResourceUuid());
+        }
+        if (!delivery.apiRecord().verifyMessage(publicKey)) {
+            throw new SignatureException("Signature of record " + delivery.apiRecord().getResourceUuid() + " is invalid");
+        }
+        return delivery;
+    }
+
+    private Delivery handle(Delivery delivery) throws Exception {
+        handler.handle(delivery.apiRecord(), delivery.document());
+        return delivery;
+    }
+
+    private Delivery confirm(Delivery delivery) throws IOException, InterruptedException {
+        APIResponse apiResponse = delivery.apiRecord().confirm(delivery.onBehalfOf(), apiController);
+        if (apiResponse == null || apiResponse.getResponse().statusCode() != 200) {
+            throw new IOException("Record could not be confirmed");
+        }
+        return delivery;
+    }
+
+    private void fail(Delivery delivery, Exception e) {
+        logger.error("Exception occured while processing record {}: {}", delivery.apiRecord().getResourceUuid(), e.getMessage());
+        delivery.future().completeExceptionally(e);
+        handler.failed(delivery.apiRecord(), e);
+    }
+
+    private static DocumentBuilder newDocumentBuilder() {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setXIncludeAware(false);
+            factory.setExpandEntityReferences(false);
+            return factory.newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("XML parser could not be configured", e);
+        }
+    }
+
+    /**
+     * Sets the number of record lists scanned concurrently
+     *
+     * @param discoveryConcurrency the concurrency, must be greater than 0
+     * @return the pipeline itself
+     */
+    @SuppressWarnings("unused")
+    public InboundPipeline setDiscoveryConcurrency(int discoveryConcurrency) {
+        if (discoveryConcurrency > 0) {
+            this.discoveryConcurrency = discoveryConcurrency;
+        } else {
+            logger.error("Concurrency should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of records fetched concurrently
+     *
+     * @param fetchConcurrency the concurrency, must be greater than 0
+     * @return the pipeline itself
+     */
+    @SuppressWarnings("unused")
+    public InboundPipeline setFetchConcurrency(int fetchConcurrency) {
+        if (fetchConcurrency > 0) {
+            this.fetchConcurrency = fetchConcurrency;
+        } else {
+            logger.error("Concurrency should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of messages parsed concurrently, defaults to the number of processors
+     *
+     * @param decodeConcurrency the concurrency, must be greater than 0
+     * @return the pipeline itself
+     */
+    @SuppressWarnings("unused")
+    public InboundPipeline setDecodeConcurrency(int decodeConcurrency) {
+        if (decodeConcurrency > 0) {
+            this.decodeConcurrency = decodeConcurrency;
+        } else {
+            logger.error("Concurrency should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of signatures verified concurrently, defaults to the number of processors
+     *
+     * @param verifyConcurrency the concurrency, must be greater than 0
+     * @return the pipeline itself
+     */
+    @SuppressWarnings("unused")
+    public InboundPipeline setVerifyConcurrency(int verifyConcurrency) {
+        if (verifyConcurrency > 0) {
+            this.verifyConcurrency = verifyConcurrency;
+        } else {
+            logger.error("Concurrency should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of records handled concurrently
+     *
+     * @param handlerConcurrency the concurrency, must be greater than 0
+     * @return the pipeline itself
+     */
+    @SuppressWarnings("unused")
+    public InboundPipeline setHandlerConcurrency(int handlerConcurrency) {
+        if (handlerConcurrency > 0) {
+            this.handlerConcurrency = handlerConcurrency;
+        } else {
+            logger.error("Concurrency should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of records confirmed concurrently
+     *
+     * @param confirmConcurrency the concurrency, must be greater than 0
+     * @return the pipeline itself
+     */
+    @SuppressWarnings("unused")
+    public InboundPipeline setConfirmConcurrency(int confirmConcurrency) {
+        if (confirmConcurrency > 0) {
+            this.confirmConcurrency = confirmConcurrency;
+        } else {
+            logger.error("Concurrency should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the capacity of the queue of every stage
+     *
+     * @param queueCapacity the capacity, must be greater than 0
+     * @return the pipeline itself
+     */
+    @SuppressWarnings("unused")
+    public InboundPipeline setQueueCapacity(int queueCapacity) {
+        if (queueCapacity > 0) {
+            this.queueCapacity = queueCapacity;
+        } else {
+            logger.error("Queue capacity should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the lookup of the public keys of the senders by the UUID of their publickey, f.e. a cache filled from the
+     * {@link nl.hdn.api.object.PublicKeyList}. Records without a signature or with an unknown key are not confirmed.
+     *
+     * @param signatureKeys the lookup or null to skip the verification stage
+     * @return the pipeline itself
+     */
+    @SuppressWarnings("unused")
+    public InboundPipeline setSignatureKeys(Function<String, PublicKey> signatureKeys) {
+        this.signatureKeys = signatureKeys;
+        return this;
+    }
+}
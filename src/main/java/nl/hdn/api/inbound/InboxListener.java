@@ -0,0 +1,16 @@
+package nl.hdn.api.inbound;
+
+import nl.hdn.api.object.Record;
+
+/**
+ * Receives the new records found by an {@link InboxPoller}
+ */
+@FunctionalInterface
+public interface InboxListener {
+    /**
+     * Called once for every record that appears in the polled list
+     *
+     * @param apiRecord the new record, with the attributes of the list
+     */
+    void onRecord(Record apiRecord);
+}
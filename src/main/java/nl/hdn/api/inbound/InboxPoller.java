@@ -0,0 +1,352 @@
+package nl.hdn.api.inbound;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.object.RecordKeysetIterator;
+import nl.hdn.api.object.RecordList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Polls the record lists of many nodes and filters from a single scheduler. Every subscription is polled on a
+ * virtual thread; the interval of a subscription grows exponentially while no new records are found and drops
+ * back to the minimum interval as soon as a new record arrives.
+ * <p>
+ * The first poll of a subscription scans the whole filtered list, every following poll only the records created
+ * after the newest record seen minus an overlap window, with the keyset iterator of {@link RecordList}. Records within
+ * the window are remembered, so each record is handed to the listener of a subscription exactly once. A record that
+ * appears with a creationDate before the window, f.e. because it was sent long after it was created, is not found.
+ */
+public class InboxPoller implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(InboxPoller.class);
+    private static final int PAGE_LIMIT = 100;
+
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownScheduler;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    /**
+     * The interval right after activity
+     */
+    private Duration minInterval = Duration.ofSeconds(1);
+    /**
+     * The maximum interval while idle
+     */
+    private Duration maxInterval = Duration.ofSeconds(60);
+    /**
+     * The factor the interval grows with after every idle poll
+     */
+    private double backoffMultiplier = 2.0;
+    /**
+     * The window before the newest record seen that is retrieved again on every poll
+     */
+    private Duration overlap = Duration.ofMinutes(5);
+
+    /**
+     * Constructs a poller with its own single threaded scheduler
+     */
+    public InboxPoller() {
+        this(Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("hdn-inbox-poller").daemon().factory()), true);
+    }
+
+    /**
+     * Constructs a poller on a shared scheduler, the scheduler is only used for timing and is not shut down on close
+     *
+     * @param scheduler the scheduler to use
+     */
+    @SuppressWarnings("unused")
+    public InboxPoller(ScheduledExecutorService scheduler) {
+        this(scheduler, false);
+    }
+
+    private InboxPoller(ScheduledExecutorService scheduler, boolean ownScheduler) {
+        this.scheduler = scheduler;
+        this.ownScheduler = ownScheduler;
+    }
+
+    /**
+     * Subscribes a listener to the records of a node matching a filter, with the default API controller
+     *
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the records are polled
+     * @param filter     the record list holding the filter, a creation date range is replaced by the overlap window
+     * @param listener   the listener receiving the new records
+     * @return the subscription
+     */
+    @SuppressWarnings("unused")
+    public Subscription subscribe(String onBehalfOf, RecordList filter, InboxListener listener) {
+        return subscribe(onBehalfOf, filter, listener, APIController.getInstance());
+    }
+
+    /**
+     * Subscribes a listener to the records of a node matching a filter
+     *
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the records are polled
+     * @param filter        the record list holding the filter, a creation date range is replaced by the overlap window
+     * @param listener      the listener receiving the new records
+     * @param apiController the controller to be used for the API calls
+     * @return the subscription
+     */
+    public Subscription subscribe(String onBehalfOf, RecordList filter, InboxListener listener, APIController apiController) {
+        Subscription subscription = new Subscription(onBehalfOf, filter, listener, apiController);
+        subscriptions.add(subscription);
+        subscription.schedule(Duration.ZERO);
+        return subscription;
+    }
+
+    /**
+     * Waits without blocking a thread for the first poll that finds records, as a replacement of
+     * {@link RecordList#waitForMessage(int, int, String)}, with the default API controller
+     *
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the records are polled
+     * @param filter     the record list holding the filter
+     * @param timeout    the maximum time to wait
+     * @return a future completing with the records found, or with an empty list when the timeout expires
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<List<Record>> awaitRecords(String onBehalfOf, RecordList filter, Duration timeout) {
+        return awaitRecords(onBehalfOf, filter, timeout, APIController.getInstance());
+    }
+
+    /**
+     * Waits without blocking a thread for the first poll that finds records, as a replacement of
+     * {@link RecordList#waitForMessage(int, int, String, APIController)}
+     *
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the records are polled
+     * @param filter        the record list holding the filter
+     * @param timeout       the maximum time to wait
+     * @param apiController the controller to be used for the API calls
+     * @return a future completing with the records found, or with an empty list when the timeout expires
+     */
+    public CompletableFuture<List<Record>> awaitRecords(String onBehalfOf, RecordList filter, Duration timeout, APIController apiController) {
+        CompletableFuture<List<Record>> future = new CompletableFuture<>();
+        List<Record> found = Collections.synchronizedList(new ArrayList<>());
+        Subscription subscription = new Subscription(onBehalfOf, filter, found::add, apiController) {
+            @Override
+            void afterPoll(int delivered) {
+                if (delivered > 0) {
+                    future.complete(List.copyOf(found));
+                }
+            }
+        };
+        future.completeOnTimeout(List.of(), timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((records, e) -> subscription.cancel());
+        subscriptions.add(subscription);
+        subscription.schedule(Duration.ZERO);
+        return future;
+    }
+
+    /**
+     * Returns the number of active subscriptions
+     *
+     * @return the number of subscriptions
+     */
+    @SuppressWarnings("unused")
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Cancels all subscriptions and shuts the scheduler down when it is owned by this poller
+     */
+    @Override
+    public void close() {
+        new ArrayList<>(subscriptions).forEach(Subscription::cancel);
+        if (ownScheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Sets the interval between polls right after activity
+     *
+     * @param minInterval the minimum interval, must be positive
+     * @return the poller itself
+     */
+    @SuppressWarnings("unused")
+    public InboxPoller setMinInterval(Duration minInterval) {
+        if (!minInterval.isNegative() && !minInterval.isZero()) {
+            this.minInterval = minInterval;
+        } else {
+            logger.error("Minimum interval should be positive.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the maximum interval between polls while no new records are found
+     *
+     * @param maxInterval the maximum interval, must be positive
+     * @return the poller itself
+     */
+    @SuppressWarnings("unused")
+    public InboxPoller setMaxInterval(Duration maxInterval) {
+        if (!maxInterval.isNegative() && !maxInterval.isZero()) {
+            this.maxInterval = maxInterval;
+        } else {
+            logger.error("Maximum interval should be positive.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the factor the interval grows with after every poll without new records
+     *
+     * @param backoffMultiplier the multiplier, must be at least 1
+     * @return the poller itself
+     */
+    @SuppressWarnings("unused")
+    public InboxPoller setBackoffMultiplier(double backoffMultiplier) {
+        if (backoffMultiplier >= 1.0) {
+            this.backoffMultiplier = backoffMultiplier;
+        } else {
+            logger.error("Backoff multiplier should be at least 1.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the window before the newest record seen that is retrieved again on every poll, to find records that
+     * appear in the list after newer records, f.e. because of clock skew on the platform
+     *
+     * @param overlap the overlap, must not be negative
+     * @return the poller itself
+     */
+    @SuppressWarnings("unused")
+    public InboxPoller setOverlap(Duration overlap) {
+        if (!overlap.isNegative()) {
+            this.overlap = overlap;
+        } else {
+            logger.error("Overlap should not be negative.");
+        }
+        return this;
+    }
+
+    /**
+     * A subscription of a listener to the records of a node matching a filter
+     */
+    public class Subscription {
+        private final String onBehalfOf;
+        private final RecordList filter;
+        private final InboxListener listener;
+        private final APIController apiController;
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        /**
+         * The UUIDs and creation dates of the delivered records within the overlap window
+         */
+        private final Map<String, Instant> delivered = new HashMap<>();
+        /**
+         * The creationDate of the newest record seen, null before the first record
+         */
+        private Instant watermark;
+        private Duration interval;
+        private ScheduledFuture<?> scheduled;
+
+        Subscription(String onBehalfOf, RecordList filter, InboxListener listener, APIController apiController) {
+            this.onBehalfOf = onBehalfOf;
+            this.filter = filter;
+            this.listener = listener;
+            this.apiController = apiController;
+            this.interval = minInterval;
+        }
+
+        /**
+         * Stops polling for this subscription
+         */
+        public void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                subscriptions.remove(this);
+                ScheduledFuture<?> current = scheduled;
+                if (current != null) {
+                    current.cancel(false);
+                }
+            }
+        }
+
+        /**
+         * Returns the current interval between polls
+         *
+         * @return the interval
+         */
+        @SuppressWarnings("unused")
+        public Duration getInterval() {
+            return interval;
+        }
+
+        /**
+         * Schedules the next poll, which runs on a virtual thread
+         *
+         * @param delay the delay before the poll
+         */
+        void schedule(Duration delay) {
+            if (!cancelled.get()) {
+                try {
+                    scheduled = scheduler.schedule(() -> Thread.ofVirtual().name("hdn-inbox-poll").start(this::poll),
+                            delay.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    logger.debug("Poller closed, subscription for node {} stopped", onBehalfOf);
+                    cancel();
+                }
+            }
+        }
+
+        /**
+         * Scans the filtered list from the start of the overlap window, hands the new records to the listener and
+         * schedules the next poll
+         */
+        private void poll() {
+            int count = 0;
+            RecordList scan = filter.copy().setLimit(PAGE_LIMIT);
+            if (watermark != null) {
+                scan.setCreationDateRange(watermark.minus(overlap), null);
+            }
+            try (RecordKeysetIterator iterator = scan.keysetIterator(onBehalfOf, apiController)) {
+                while (iterator.hasNext() && !cancelled.get()) {
+                    Record apiRecord = iterator.next();
+                    if (!delivered.containsKey(apiRecord.getResourceUuid())) {
+                        // Only remembered once the listener took it, a record the listener failed on is handed out again
+                        listener.onRecord(apiRecord);
+                        delivered.put(apiRecord.getResourceUuid(), apiRecord.getCreationDate());
+                        count++;
+                    }
+                    if (watermark == null || apiRecord.getCreationDate().isAfter(watermark)) {
+                        watermark = apiRecord.getCreationDate();
+                    }
+                }
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    cancel();
+                    return;
+                }
+                logger.error("Exception occured while polling records for node {}: {}", onBehalfOf, e.getMessage());
+            }
+
+            if (watermark != null) {
+                // Records before the overlap window are not retrieved again, so they can be forgotten
+                Instant windowStart = watermark.minus(overlap);
+                delivered.values().removeIf(creationDate -> creationDate.isBefore(windowStart));
+            }
+            afterPoll(count);
+            if (count > 0) {
+                interval = minInterval;
+            } else {
+                long next = (long) (interval.toMillis() * backoffMultiplier);
+                interval = Duration.ofMillis(Math.min(next, maxInterval.toMillis()));
+            }
+            schedule(count > 0 ? minInterval : interval);
+        }
+
+        /**
+         * Called after every poll
+         *
+         * @param delivered the number of records handed to the listener during the poll
+         */
+        void afterPoll(int delivered) {
+            // No action for a regular subscription
+        }
+    }
+}
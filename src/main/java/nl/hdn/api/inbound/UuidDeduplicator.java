@@ -0,0 +1,363 @@
+package nl.hdn.api.inbound;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Filters duplicate deliveries of records and events by their UUID, with a fixed amount of memory. UUIDs are
+ * stored as two longs, together with their expiry time, in an open-addressing table of a fixed capacity
+ * (24 bytes per slot). A UUID is forgotten after the configured time to live; when a probe sequence is full, the
+ * entry that expires first is replaced, so the table never grows.
+ * <p>
+ * The optional Bloom filter answers most lookups of new UUIDs without touching the table. It consists of two
+ * generations which are rotated every time to live, so it never has to delete entries.
+ */
+public class UuidDeduplicator {
+    private static final Logger logger = LoggerFactory.getLogger(UuidDeduplicator.class);
+    private static final int MAX_PROBE = 32;
+    private static final long FILE_MAGIC = 0x48444e5555494431L;
+
+    private final long[] mostSignificant;
+    private final long[] leastSignificant;
+    /**
+     * The expiry time of each slot in milliseconds, 0 for an empty slot
+     */
+    private final long[] expiresAt;
+    private final int mask;
+    private final long ttl;
+    private final Clock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long[] bloomCurrent;
+    private long[] bloomPrevious;
+    private long bloomRotatedAt;
+
+    /**
+     * Constructs a deduplicator
+     *
+     * @param capacity the number of slots, rounded up to a power of two; should be about twice the number of UUIDs seen within the time to live
+     * @param ttl      the time a UUID is remembered
+     */
+    public UuidDeduplicator(int capacity, Duration ttl) {
+        this(capacity, ttl, Clock.systemUTC());
+    }
+
+    /**
+     * Constructs a deduplicator with a specific clock
+     *
+     * @param capacity the number of slots, rounded up to a power of two
+     * @param ttl      the time a UUID is remembered
+     * @param clock    the clock used for the expiry
+     */
+    public UuidDeduplicator(int capacity, Duration ttl, Clock clock) {
+        int size = Integer.highestOneBit(Math.max(capacity, MAX_PROBE) - 1) << 1;
+        this.mostSignificant = new long[size];
+        this.leastSignificant = new long[size];
+        this.expiresAt = new long[size];
+        this.mask = size - 1;
+        this.ttl = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Enables the Bloom filter pre-check, which takes 10 bits per slot for each of its two generations
+     *
+     * @return the deduplicator itself
+     */
+    @SuppressWarnings("unused")
+    public UuidDeduplicator enableBloomFilter() {
+        lock.lock();
+        try {
+            bloomCurrent = new long[Math.max(1, expiresAt.length * 10 / 64)];
+            bloomPrevious = new long[bloomCurrent.length];
+            bloomRotatedAt = clock.millis();
+            for (int slot = 0; slot < expiresAt.length; slot++) {
+                if (expiresAt[slot] != 0) {
+                    bloomAdd(mostSignificant[slot], leastSignificant[slot]);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    /**
+     * Records a UUID and checks whether it has been seen before within the time to live
+     *
+     * @param uuid the UUID of the record or event
+     * @return true when the UUID is new and should be processed, false for a duplicate
+     */
+    public boolean firstSeen(String uuid) {
+        UUID value = toUuid(uuid);
+        long msb = value.getMostSignificantBits();
+        long lsb = value.getLeastSignificantBits();
+        long now = clock.millis();
+
+        lock.lock();
+        try {
+            rotateBloomFilter(now);
+            boolean maybePresent = bloomMightContain(msb, lsb);
+            int start = index(msb, lsb);
+            int target = -1;
+            long earliest = Long.MAX_VALUE;
+
+            for (int probe = 0; probe < MAX_PROBE; probe++) {
+                int slot = (start + probe) & mask;
+                long expiry = expiresAt[slot];
+                if (expiry == 0) {
+                    if (target < 0) target = slot;
+                    break;
+                }
+                if (maybePresent && mostSignificant[slot] == msb && leastSignificant[slot] == lsb) {
+                    boolean live = expiry > now;
+                    expiresAt[slot] = now + ttl;
+                    bloomAdd(msb, lsb);
+                    return !live;
+                }
+                if (expiry <= now && target < 0) {
+                    target = slot;
+                } else if (expiry < earliest && target < 0) {
+                    earliest = expiry;
+                    target = -2 - slot;
+                }
+            }
+            // No free or expired slot: replace the entry that expires first
+            int slot = target >= 0 ? target : -2 - target;
+            if (target < -1) {
+                logger.debug("Deduplication table full within probe sequence, evicting an entry");
+            }
+            mostSignificant[slot] = msb;
+            leastSignificant[slot] = lsb;
+            expiresAt[slot] = now + ttl;
+            bloomAdd(msb, lsb);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets a UUID, so its next delivery is processed again, f.e. after processing it failed. The slot is marked
+     * as expired instead of empty, so the probe sequences of other UUIDs stay intact.
+     *
+     * @param uuid the UUID of the record or event
+     */
+    public void forget(String uuid) {
+        UUID value = toUuid(uuid);
+        long msb = value.getMostSignificantBits();
+        long lsb = value.getLeastSignificantBits();
+
+        lock.lock();
+        try {
+            int start = index(msb, lsb);
+            for (int probe = 0; probe < MAX_PROBE; probe++) {
+                int slot = (start + probe) & mask;
+                if (expiresAt[slot] == 0) {
+                    return;
+                }
+                if (mostSignificant[slot] == msb && leastSignificant[slot] == lsb) {
+                    expiresAt[slot] = 1;
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether a UUID has been seen within the time to live, without recording it
+     *
+     * @param uuid the UUID of the record or event
+     * @return true when the UUID has been seen
+     */
+    @SuppressWarnings("unused")
+    public boolean contains(String uuid) {
+        UUID value = toUuid(uuid);
+        long msb = value.getMostSignificantBits();
+        long lsb = value.getLeastSignificantBits();
+        long now = clock.millis();
+
+        lock.lock();
+        try {
+            rotateBloomFilter(now);
+            if (!bloomMightContain(msb, lsb)) {
+                return false;
+            }
+            int start = index(msb, lsb);
+            for (int probe = 0; probe < MAX_PROBE; probe++) {
+                int slot = (start + probe) & mask;
+                if (expiresAt[slot] == 0) {
+                    return false;
+                }
+                if (mostSignificant[slot] == msb && leastSignificant[slot] == lsb) {
+                    return expiresAt[slot] > now;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of slots of the table
+     *
+     * @return the capacity
+     */
+    @SuppressWarnings("unused")
+    public int getCapacity() {
+        return expiresAt.length;
+    }
+
+    /**
+     * Writes the UUIDs that have not expired yet to a file, which is replaced atomically
+     *
+     * @param file the file to write to
+     * @throws IOException thrown when the file could not be written
+     */
+    @SuppressWarnings("unused")
+    public void save(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        long now = clock.millis();
+        lock.lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeLong(FILE_MAGIC);
+            for (int slot = 0; slot < expiresAt.length; slot++) {
+                if (expiresAt[slot] > now) {
+                    out.writeLong(mostSignificant[slot]);
+                    out.writeLong(leastSignificant[slot]);
+                    out.writeLong(expiresAt[slot]);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the UUIDs written by {@link #save(Path)}, UUIDs that have expired in the meantime are skipped
+     *
+     * @param file the file to read
+     * @return the deduplicator itself
+     * @throws IOException thrown when the file could not be read or has an unknown format
+     */
+    @SuppressWarnings("unused")
+    public UuidDeduplicator load(Path file) throws IOException {
+        long now = clock.millis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readLong() != FILE_MAGIC) {
+                throw new IOException("Unknown deduplication file format: " + file);
+            }
+            lock.lock();
+            try {
+                while (true) {
+                    long msb;
+                    try {
+                        msb = in.readLong();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    long lsb = in.readLong();
+                    long expiry = in.readLong();
+                    if (expiry > now) {
+                        restore(msb, lsb, expiry);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return this;
+    }
+
+    private void restore(long msb, long lsb, long expiry) {
+        int start = index(msb, lsb);
+        for (int probe = 0; probe < MAX_PROBE; probe++) {
+            int slot = (start + probe) & mask;
+            if (expiresAt[slot] == 0 || (mostSignificant[slot] == msb && leastSignificant[slot] == lsb)) {
+                mostSignificant[slot] = msb;
+                leastSignificant[slot] = lsb;
+                expiresAt[slot] = Math.max(expiry, expiresAt[slot]);
+                bloomAdd(msb, lsb);
+                return;
+            }
+        }
+    }
+
+    private void rotateBloomFilter(long now) {
+        if (bloomCurrent != null && now - bloomRotatedAt >= ttl) {
+            long[] cleared = bloomPrevious;
+            Arrays.fill(cleared, 0L);
+            bloomPrevious = bloomCurrent;
+            bloomCurrent = cleared;
+            bloomRotatedAt = now;
+        }
+    }
+
+    private void bloomAdd(long msb, long lsb) {
+        if (bloomCurrent == null) {
+            return;
+        }
+        long bits = (long) bloomCurrent.length * 64;
+        long h1 = mix(msb);
+        long h2 = mix(lsb) | 1;
+        for (int i = 0; i < 7; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            bloomCurrent[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private boolean bloomMightContain(long msb, long lsb) {
+        if (bloomCurrent == null) {
+            return true;
+        }
+        return bloomMightContain(bloomCurrent, msb, lsb) || bloomMightContain(bloomPrevious, msb, lsb);
+    }
+
+    private static boolean bloomMightContain(long[] bloom, long msb, long lsb) {
+        long bits = (long) bloom.length * 64;
+        long h1 = mix(msb);
+        long h2 = mix(lsb) | 1;
+        for (int i = 0; i < 7; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(long msb, long lsb) {
+        long hash = mix(msb ^ Long.rotateLeft(lsb, 32));
+        return (int) hash & mask;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    private static UUID toUuid(String uuid) {
+        try {
+            return UUID.fromString(uuid);
+        } catch (IllegalArgumentException e) {
+            return UUID.nameUUIDFromBytes(uuid.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
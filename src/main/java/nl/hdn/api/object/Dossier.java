@@ -3,17 +3,35 @@ package nl.hdn.api.object;
 import nl.hdn.api.APIConstants;
 import nl.hdn.api.APIController;
 import nl.hdn.api.APIResponse;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.IOException;
 import java.security.InvalidParameterException;
 import java.time.Instant;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents a dossier object on the HDN Platform Of Trust
  */
 public class Dossier extends APIObject {
+    /**
+     * The attributes of a dossier that can be skipped when a dossier is constructed from a list, the resource UUID is
+     * always set
+     */
+    public enum Field {
+        ORIGINAL_NODES,
+        NODES,
+        SUB,
+        REQUEST_TRACE_NR,
+        SORTED_ORIGINAL_NODES,
+        CREATION_DATE
+    }
+
+    private static final Set<Field> ALL_FIELDS = EnumSet.allOf(Field.class);
+
     private List<String> originalNodes;
     private List<String> nodes;
     private String resourceUuid;
@@ -41,6 +59,27 @@ public class Dossier extends APIObject {
         eventList = new EventList(resourceUuid);
     }
 
+    /**
+     * Construct an existing dossier, with attributes
+     *
+     * @param resourceUuid the uuid of the dossier
+     * @param attributes   the attributes as JSON string
+     */
+    @SuppressWarnings("unused")
+    public Dossier(String resourceUuid, String attributes) {
+        this(new JSONObject(attributes).put("resourceUuid", resourceUuid), ALL_FIELDS);
+    }
+
+    /**
+     * Construct an existing dossier from the attributes returned by the platform, only setting the given fields
+     *
+     * @param attributes the attributes returned by the platform
+     * @param fields     the fields to set
+     */
+    Dossier(JSONObject attributes, Set<Field> fields) {
+        updateAttributes(attributes, fields);
+    }
+
     /**
      * Updates the attributes, based on the JSON object returned by the platform
      *
@@ -48,17 +87,44 @@ public class Dossier extends APIObject {
      */
     @SuppressWarnings("unused")
     private void updateAttributes(JSONObject attributes) {
-        originalNodes = attributes.getJSONArray("originalNodes").toList().stream().map(Object::toString).toList();
-        nodes = attributes.getJSONArray("nodes").toList().stream().map(Object::toString).toList();
+        updateAttributes(attributes, ALL_FIELDS);
+    }
+
+    /**
+     * Updates the given fields, based on the JSON object returned by the platform. A missing nodes, original nodes or
+     * creation date attribute is an error, the other attributes are optional and empty when missing.
+     *
+     * @param attributes a collection of attributes returned by the platform
+     * @param fields     the fields to update
+     */
+    private void updateAttributes(JSONObject attributes, Set<Field> fields) {
         resourceUuid = attributes.getString("resourceUuid");
-        sub = attributes.optString("sub");
-        requestTraceNr = attributes.optString("requestTraceNr");
-        sortedOriginalNodes = attributes.optString("sortedOriginalNodes");
-        creationDate = Instant.parse(attributes.getString("creationDate"));
+        if (fields.contains(Field.ORIGINAL_NODES)) {
+            originalNodes = toNodes(attributes.getJSONArray("originalNodes"));
+        }
+        if (fields.contains(Field.NODES)) {
+            nodes = toNodes(attributes.getJSONArray("nodes"));
+        }
+        if (fields.contains(Field.SUB)) {
+            sub = attributes.optString("sub");
+        }
+        if (fields.contains(Field.REQUEST_TRACE_NR)) {
+            requestTraceNr = attributes.optString("requestTraceNr");
+        }
+        if (fields.contains(Field.SORTED_ORIGINAL_NODES)) {
+            sortedOriginalNodes = attributes.optString("sortedOriginalNodes");
+        }
+        if (fields.contains(Field.CREATION_DATE)) {
+            creationDate = Instant.parse(attributes.getString("creationDate"));
+        }
         recordList = new RecordList(resourceUuid);
         eventList = new EventList(resourceUuid);
     }
 
+    private static List<String> toNodes(JSONArray array) {
+        return array.toList().stream().map(Object::toString).toList();
+    }
+
     private void validateOnBehalfOf(String onBehalfOf) throws InvalidParameterException {
         if (onBehalfOf == null || !onBehalfOf.matches("\\d{6}")) {
             logger.error("onBehalfOf node is not set or doesn't match 6 digits but required");
@@ -0,0 +1,189 @@
+package nl.hdn.api.object;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.concurrent.FanOut;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Loads a dossier with its records, messages and events as a dependency graph instead of one call after another. The
+ * dossier, its record list and its events are retrieved concurrently, and as soon as the record list is in the
+ * messages and events of all records are retrieved concurrently as well. A case view then takes about two round
+ * trips instead of the sum of all of them.
+ * <p>
+ * A hydrator holds only its settings and can be shared between threads once configured.
+ */
+public class DossierHydrator {
+    private static final Logger logger = LoggerFactory.getLogger(DossierHydrator.class);
+    /**
+     * The limit of records and events retrieved in a single call, the maximum of the platform
+     */
+    private static final int PAGE_LIMIT = 1000;
+
+    /**
+     * How deep the graph below the dossier is loaded
+     */
+    public enum Depth {
+        /**
+         * Only the dossier
+         */
+        DOSSIER,
+        /**
+         * The dossier and the list of its records, without their messages and events
+         */
+        RECORDS,
+        /**
+         * The dossier, its records and per record the projected details
+         */
+        RECORD_DETAILS
+    }
+
+    /**
+     * The optional parts of the graph
+     */
+    public enum Projection {
+        /**
+         * The messages of the records, the records are fetched one by one, which marks them as read for the receiver.
+         * Not loaded unless asked for with {@link #setProjections(Projection...)}.
+         */
+        MESSAGES,
+        /**
+         * The events of the dossier
+         */
+        DOSSIER_EVENTS,
+        /**
+         * The events of every record
+         */
+        RECORD_EVENTS
+    }
+
+    private Depth depth = Depth.RECORD_DETAILS;
+    private Set<Projection> projections = EnumSet.of(Projection.DOSSIER_EVENTS, Projection.RECORD_EVENTS);
+    private int concurrency = FanOut.DEFAULT_CONCURRENCY;
+
+    /**
+     * Loads a dossier, with the default controller
+     *
+     * @param dossierUuid the resource UUID of the dossier
+     * @param onBehalfOf  the 6-digit nodenumber on behalf of which the requests are made
+     * @return the snapshot of the dossier
+     * @throws IOException          thrown when an IO error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     */
+    @SuppressWarnings("unused")
+    public DossierSnapshot hydrate(String dossierUuid, String onBehalfOf) throws IOException, InterruptedException {
+        return hydrate(dossierUuid, onBehalfOf, APIController.getInstance());
+    }
+
+    /**
+     * Loads a dossier with its records and events, according to the depth and projections of the hydrator. When one of
+     * the calls fails the calls still running are interrupted and the failure is thrown.
+     *
+     * @param dossierUuid   the resource UUID of the dossier
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the requests are made
+     * @param apiController the controller to be used for the API calls
+     * @return the snapshot of the dossier
+     * @throws IOException          thrown when an IO error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     */
+    @SuppressWarnings("unused")
+    public DossierSnapshot hydrate(String dossierUuid, String onBehalfOf, APIController apiController) throws IOException, InterruptedException {
+        Dossier dossier = new Dossier(dossierUuid);
+        RecordList recordList = new RecordList(dossierUuid).setLimit(PAGE_LIMIT);
+        EventList eventList = new EventList(dossierUuid).setLimit(PAGE_LIMIT);
+        List<DossierSnapshot.RecordSnapshot> records = new ArrayList<>();
+
+        List<Callable<?>> calls = new ArrayList<>(3);
+        calls.add(() -> dossier.fetch(onBehalfOf, apiController));
+        if (depth != Depth.DOSSIER) {
+            calls.add(() -> records.addAll(hydrateRecords(recordList, onBehalfOf, apiController)));
+        }
+        if (projections.contains(Projection.DOSSIER_EVENTS)) {
+            calls.add(() -> eventList.get(apiController));
+        }
+        logger.debug("Hydrating dossier {} with depth {} and projections {}", dossierUuid, depth, projections);
+        FanOut.map(calls, calls.size(), Callable::call);
+
+        return new DossierSnapshot(dossier, records, eventList.getEvents());
+    }
+
+    private List<DossierSnapshot.RecordSnapshot> hydrateRecords(RecordList recordList, String onBehalfOf, APIController apiController) throws Exception {
+        List<Record> records = recordList.get(onBehalfOf, apiController).getRecords();
+        List<EventList> eventLists = new ArrayList<>(records.size());
+        List<Callable<?>> calls = new ArrayList<>();
+        for (Record apiRecord : records) {
+            // A list of its own, the fetch of the record replaces the event list of the record
+            EventList eventList = new EventList(apiRecord.getDossierUuid(), apiRecord.getResourceUuid()).setLimit(PAGE_LIMIT);
+            eventLists.add(eventList);
+            if (depth == Depth.RECORD_DETAILS && projections.contains(Projection.MESSAGES)) {
+                calls.add(() -> apiRecord.fetch(onBehalfOf, apiController));
+            }
+            if (depth == Depth.RECORD_DETAILS && projections.contains(Projection.RECORD_EVENTS)) {
+                calls.add(() -> eventList.get(apiController));
+            }
+        }
+        if (!calls.isEmpty()) {
+            FanOut.map(calls, concurrency, Callable::call);
+        }
+
+        List<DossierSnapshot.RecordSnapshot> snapshots = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            snapshots.add(new DossierSnapshot.RecordSnapshot(records.get(i), eventLists.get(i).getEvents()));
+        }
+        return snapshots;
+    }
+
+    /**
+     * Sets how deep the graph below the dossier is loaded
+     *
+     * @param depth the depth
+     * @return the hydrator itself
+     */
+    @SuppressWarnings("unused")
+    public DossierHydrator setDepth(Depth depth) {
+        if (depth != null) {
+            this.depth = depth;
+        } else {
+            logger.error("Depth should not be null.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the optional parts of the graph that are loaded, replacing the previous projections. By default the events
+     * are loaded, but not the messages.
+     *
+     * @param projections the projections, none for only the dossier and its records
+     * @return the hydrator itself
+     */
+    @SuppressWarnings("unused")
+    public DossierHydrator setProjections(Projection... projections) {
+        Set<Projection> set = EnumSet.noneOf(Projection.class);
+        set.addAll(List.of(projections));
+        this.projections = set;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of record calls in flight
+     *
+     * @param concurrency the concurrency, must be greater than 0
+     * @return the hydrator itself
+     */
+    @SuppressWarnings("unused")
+    public DossierHydrator setConcurrency(int concurrency) {
+        if (concurrency > 0) {
+            this.concurrency = concurrency;
+        } else {
+            logger.error("Concurrency should be greater than 0.");
+        }
+        return this;
+    }
+}
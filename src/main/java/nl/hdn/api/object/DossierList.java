@@ -3,12 +3,14 @@ package nl.hdn.api.object;
 import nl.hdn.api.APIConstants;
 import nl.hdn.api.APIController;
 import nl.hdn.api.APIResponse;
+import nl.hdn.api.concurrent.FanOut;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.*;
+import java.util.stream.Stream;
 
 /**
  * Represents a list of dossiers on the HDN Platform of Trust
@@ -23,6 +25,10 @@ public class DossierList extends APIObject {
      * The limit of dossiers to retrieve in a single call
      */
     private Integer limit = 100;
+    /**
+     * The tuner choosing the limit of every page, null for the fixed limit
+     */
+    private PageSizeTuner pageSizeTuner = null;
     /**
      * The offset of the list of dossier to retrieve in a single call
      */
@@ -51,6 +57,10 @@ public class DossierList extends APIObject {
      * The original nodes of the dossiers
      */
     private String originalNodes = null;
+    /**
+     * The fields of the dossiers to set from the list
+     */
+    private Set<Dossier.Field> fields = EnumSet.allOf(Dossier.Field.class);
 
     /**
      * Retrieves all dossiers based on the parameters and filter provided, with the default API controller
@@ -78,47 +88,168 @@ public class DossierList extends APIObject {
      */
     @SuppressWarnings("unused,UnusedReturnValue")
     public DossierList get(String onBehalfOf, APIController apiController) throws IOException, URISyntaxException, InterruptedException {
+        dossiers.clear();
+        Integer total = 0;
+        Integer loopOffset = this.offset;
+
+        while (loopOffset <= total) {
+            int pageLimit = nextLimit();
+            Page<Dossier> page = getPage(loopOffset, pageLimit, onBehalfOf, apiController);
+            this.dossiers.addAll(page.items());
+
+            total = this.dossiers.isEmpty() ? -1 : page.total();
+            loopOffset += pageLimit;
+        }
+
+        return this;
+    }
+
+    /**
+     * Retrieves a single page of dossiers based on the parameters and filter provided
+     *
+     * @param offset        the start offset of the page
+     * @param limit         the limit of dossiers on the page
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the request is made
+     * @param apiController the controller to be used for the API calls
+     * @return the page, an empty page with a total of -1 when the platform returned an error
+     * @throws IOException          thrown when an IO error occurs
+     * @throws URISyntaxException   thrown when a URI syntax error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     */
+    public Page<Dossier> getPage(int offset, int limit, String onBehalfOf, APIController apiController) throws IOException, URISyntaxException, InterruptedException {
+        return getPage(offset, limit, onBehalfOf, apiController, pageSizeTuner);
+    }
+
+    /**
+     * Retrieves a single page of dossiers and records it with a tuner
+     *
+     * @param offset        the start offset of the page
+     * @param limit         the limit of dossiers on the page
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the request is made
+     * @param apiController the controller to be used for the API calls
+     * @param tuner         the tuner to record the page with, or null
+     * @return the page, an empty page with a total of -1 when the platform returned an error
+     */
+    private Page<Dossier> getPage(int offset, int limit, String onBehalfOf, APIController apiController, PageSizeTuner tuner) throws IOException, URISyntaxException, InterruptedException {
         try {
-            dossiers.clear();
-            Integer total = 0;
-            Integer loopOffset = this.offset;
-
-            while (loopOffset <= total) {
-                Map<String, String> params = buildParams(loopOffset);
-
-                // Process the get call
-                APIResponse apiResponse = apiController.get(APIController.buildUrl(APIConstants.DOSSIERS_GET, params), onBehalfOf);
-
-                // When the list of dossiers is returned
-                if (apiResponse.getResponse().statusCode() == 200) {
-                    JSONArray dossierList = apiResponse.getBody().getJSONObject("data").getJSONArray("dossiers");
-                    for (Object dossier : dossierList) {
-                        Dossier tmp = new Dossier(((JSONObject) dossier).getString(APIConstants.RESOURCE_UUID));
-                        this.dossiers.add(tmp);
-                    }
-
-                    total = this.dossiers.isEmpty() ? -1 : apiResponse.getBody().getInt("total");
-                    loopOffset += limit;
-                } else {
-                    logger.error("Error with code [{}] while retrieving the dossierlist", apiResponse.getResponse().statusCode());
-                    total = -1;
+            long start = System.nanoTime();
+            Map<String, String> params = buildParams(offset, limit);
+
+            // Process the get call
+            APIResponse apiResponse = apiController.get(APIController.buildUrl(APIConstants.DOSSIERS_GET, params), onBehalfOf);
+
+            // When the list of dossiers is returned
+            if (apiResponse.getResponse().statusCode() == 200) {
+                JSONArray dossierList = apiResponse.getBody().getJSONObject("data").getJSONArray("dossiers");
+                List<Dossier> page = new ArrayList<>(dossierList.length());
+                for (Object dossier : dossierList) {
+                    page.add(new Dossier((JSONObject) dossier, fields));
                 }
+                if (tuner != null) {
+                    tuner.record(limit, page.size(), System.nanoTime() - start, apiResponse.getResponse().body().length());
+                }
+                return new Page<>(page, offset, limit, apiResponse.getBody().getInt("total"));
+            } else {
+                logger.error("Error with code [{}] while retrieving the dossierlist", apiResponse.getResponse().statusCode());
+                return Page.empty(offset, limit);
             }
         } catch (IOException | InterruptedException | URISyntaxException e) {
             logger.error("Exception occured while retrieving the dossierlist: {}", e.getMessage());
             throw e;
         }
+    }
 
-        return this;
+    /**
+     * Counts the dossiers matching the filter without retrieving them, with the default API controller
+     *
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the request is made
+     * @return the number of dossiers, -1 when the platform returned an error
+     * @throws IOException          thrown when an IO error occurs
+     * @throws URISyntaxException   thrown when a URI syntax error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     */
+    @SuppressWarnings("unused")
+    public int count(String onBehalfOf) throws IOException, URISyntaxException, InterruptedException {
+        return count(onBehalfOf, APIController.getInstance());
+    }
+
+    /**
+     * Counts the dossiers matching the filter without retrieving them, only a page of one dossier is requested for its
+     * total. The offset and limit of this list are ignored.
+     *
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the request is made
+     * @param apiController the controller to be used for the API calls
+     * @return the number of dossiers, -1 when the platform returned an error
+     * @throws IOException          thrown when an IO error occurs
+     * @throws URISyntaxException   thrown when a URI syntax error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     */
+    @SuppressWarnings("unused")
+    public int count(String onBehalfOf, APIController apiController) throws IOException, URISyntaxException, InterruptedException {
+        return getPage(0, 1, onBehalfOf, apiController, null).total();
+    }
+
+    /**
+     * Returns an iterator over all dossiers based on the parameters and filter provided, with the default API controller.
+     * Pages are retrieved on demand and the next page is prefetched while the current page is processed. A page the
+     * platform returned an error for ends the iteration with an {@link java.io.UncheckedIOException}.
+     *
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the request is made
+     * @return the iterator, which should be closed when the iteration is stopped early
+     */
+    @SuppressWarnings("unused")
+    public PageIterator<Dossier> iterator(String onBehalfOf) {
+        return iterator(onBehalfOf, APIController.getInstance());
+    }
+
+    /**
+     * Returns an iterator over all dossiers based on the parameters and filter provided.
+     * Pages are retrieved on demand and the next page is prefetched while the current page is processed. A page the
+     * platform returned an error for ends the iteration with an {@link java.io.UncheckedIOException}. With a page size
+     * tuner the limit of every page is chosen by the tuner.
+     *
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the request is made
+     * @param apiController the controller to be used for the API calls
+     * @return the iterator, which should be closed when the iteration is stopped early
+     */
+    @SuppressWarnings("unused")
+    public PageIterator<Dossier> iterator(String onBehalfOf, APIController apiController) {
+        // The limit of the iterator is the fixed limit, the tuner overrides it per page; the next offset follows from
+        // the limit the page was retrieved with
+        return new PageIterator<>((pageOffset, pageLimit) -> getPage(pageOffset, nextLimit(), onBehalfOf, apiController), offset, limit);
+    }
+
+    /**
+     * Returns a lazy stream over all dossiers based on the parameters and filter provided, with the default API controller
+     *
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the request is made
+     * @return the stream, which should be closed when it is not fully consumed
+     */
+    @SuppressWarnings("unused")
+    public Stream<Dossier> stream(String onBehalfOf) {
+        return stream(onBehalfOf, APIController.getInstance());
+    }
+
+    /**
+     * Returns a lazy stream over all dossiers based on the parameters and filter provided
+     *
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the request is made
+     * @param apiController the controller to be used for the API calls
+     * @return the stream, which should be closed when it is not fully consumed
+     */
+    @SuppressWarnings("unused")
+    public Stream<Dossier> stream(String onBehalfOf, APIController apiController) {
+        return iterator(onBehalfOf, apiController).stream();
     }
 
     /**
      * Creates the parameters to use during the retrieval of the dossiers
      *
      * @param offset the start offset of the list of dossiers
+     * @param limit  the limit of dossiers to retrieve
      * @return the key value based list of parameters
      */
-    private Map<String, String> buildParams(Integer offset) {
+    private Map<String, String> buildParams(Integer offset, Integer limit) {
         Map<String, String> params = new HashMap<>();
         params.put("limit", Integer.toString(limit));
         params.put("offset", Integer.toString(offset));
@@ -140,6 +271,50 @@ public class DossierList extends APIObject {
         return dossiers;
     }
 
+    /**
+     * Fetches every retrieved dossier concurrently, with the default API controller
+     *
+     * @param onBehalfOf  the 6-digit nodenumber on behalf of which the requests are made
+     * @param concurrency the maximum number of requests in flight
+     * @return the dossier list object itself
+     * @throws IOException          thrown when an IO error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     */
+    @SuppressWarnings("unused")
+    public DossierList fetchAll(String onBehalfOf, int concurrency) throws IOException, InterruptedException {
+        return fetchAll(onBehalfOf, concurrency, APIController.getInstance());
+    }
+
+    /**
+     * Fetches every retrieved dossier concurrently, each on its own virtual thread
+     *
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the requests are made
+     * @param concurrency   the maximum number of requests in flight
+     * @param apiController the controller to be used for the API calls
+     * @return the dossier list object itself
+     * @throws IOException          thrown when an IO error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     */
+    @SuppressWarnings("unused")
+    public DossierList fetchAll(String onBehalfOf, int concurrency, APIController apiController) throws IOException, InterruptedException {
+        FanOut.map(dossiers, concurrency, dossier -> dossier.fetch(onBehalfOf, apiController));
+        return this;
+    }
+
+    /**
+     * Sets the fields of the dossiers to set from the list, the other fields stay null. The resource UUID is always set.
+     *
+     * @param fields the fields to set, none for only the resource UUID
+     * @return the dossier list object itself
+     */
+    @SuppressWarnings("unused")
+    public DossierList setFields(Dossier.Field... fields) {
+        Set<Dossier.Field> set = EnumSet.noneOf(Dossier.Field.class);
+        set.addAll(List.of(fields));
+        this.fields = set;
+        return this;
+    }
+
     /**
      * Sets the limit of dossiers to retrieve in a single call
      *
@@ -155,6 +330,37 @@ public class DossierList extends APIObject {
         return this;
     }
 
+    /**
+     * Sets the tuner choosing the limit of every page from the pages retrieved before, replacing the fixed limit
+     *
+     * @param pageSizeTuner the tuner, or null to use the fixed limit
+     * @return the dossier list object itself
+     */
+    @SuppressWarnings("unused")
+    public DossierList setPageSizeTuner(PageSizeTuner pageSizeTuner) {
+        this.pageSizeTuner = pageSizeTuner;
+        return this;
+    }
+
+    /**
+     * Returns the tuner choosing the limit of every page, if any
+     *
+     * @return the tuner or null
+     */
+    @SuppressWarnings("unused")
+    public PageSizeTuner getPageSizeTuner() {
+        return pageSizeTuner;
+    }
+
+    /**
+     * Returns the limit of the next page, chosen by the tuner when set
+     *
+     * @return the limit
+     */
+    private int nextLimit() {
+        return pageSizeTuner != null ? pageSizeTuner.getLimit() : limit;
+    }
+
     /**
      * Sets the offset of dossiers to start retrieving of
      *
@@ -0,0 +1,53 @@
+package nl.hdn.api.object;
+
+import java.util.List;
+
+/**
+ * A dossier with its records and events as loaded by a {@link DossierHydrator}. The lists of the snapshot cannot be
+ * modified and are not refreshed, hydrate the dossier again for a newer state.
+ *
+ * @param dossier the fetched dossier
+ * @param records the records of the dossier, empty when the records were not loaded
+ * @param events  the events of the dossier, empty when the events were not loaded
+ */
+public record DossierSnapshot(
+        Dossier dossier,
+        List<RecordSnapshot> records,
+        List<Event> events
+) {
+    /**
+     * Constructs a snapshot, copying the lists
+     */
+    public DossierSnapshot {
+        records = List.copyOf(records);
+        events = List.copyOf(events);
+    }
+
+    /**
+     * A record of the dossier with its events
+     *
+     * @param record the record, with its message when the messages were loaded
+     * @param events the events of the record, empty when the events were not loaded
+     */
+    public record RecordSnapshot(
+            Record record,
+            List<Event> events
+    ) {
+        /**
+         * Constructs a snapshot of a record, copying the events
+         */
+        public RecordSnapshot {
+            events = List.copyOf(events);
+        }
+    }
+
+    /**
+     * Returns the resource UUID of the dossier
+     *
+     * @return the resource UUID
+     */
+    @SuppressWarnings("unused")
+    public String resourceUuid() {
+        return dossier.getResourceUuid();
+    }
+}
@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Flow;
 
 public class EventList extends APIObject {
     private final List<Event> events = new ArrayList<>();
@@ -24,6 +25,10 @@ public class EventList extends APIObject {
      * The limit of dossiers to retrieve in a single call
      */
     private Integer limit = 100;
+    /**
+     * The tuner choosing the limit of every page, null for the fixed limit
+     */
+    private PageSizeTuner pageSizeTuner = null;
     /**
      * The offset of the list of dossier to retrieve in a single call
      */
@@ -74,50 +79,142 @@ public class EventList extends APIObject {
      */
     @SuppressWarnings("unused,UnusedReturnValue")
     public EventList get(APIController apiController) throws IOException, URISyntaxException, InterruptedException, JSONException {
+        events.clear();
+        Integer total = 0;
+        Integer loopOffset = this.offset;
+
+        while (loopOffset <= total) {
+            int pageLimit = nextLimit();
+            Page<Event> page = getPage(loopOffset, pageLimit, apiController);
+            this.events.addAll(page.items());
+
+            total = this.events.isEmpty() ? -1 : page.total();
+            loopOffset += pageLimit;
+        }
+
+        return this;
+    }
+
+    /**
+     * Retrieves a single page of events based on the parameters and filter provided
+     *
+     * @param offset        the start offset of the page
+     * @param limit         the limit of events on the page
+     * @param apiController the controller to be used for the API calls
+     * @return the page, an empty page with a total of -1 when the platform returned an error
+     * @throws IOException          thrown when an IO error occurs
+     * @throws URISyntaxException   thrown when a URI syntax error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     * @throws JSONException        thrown when an error occurs in parsing the JSON
+     */
+    public Page<Event> getPage(int offset, int limit, APIController apiController) throws IOException, URISyntaxException, InterruptedException, JSONException {
+        return getPage(offset, limit, apiController, pageSizeTuner);
+    }
+
+    /**
+     * Retrieves a single page of events and records it with a tuner
+     *
+     * @param offset        the start offset of the page
+     * @param limit         the limit of events on the page
+     * @param apiController the controller to be used for the API calls
+     * @param tuner         the tuner to record the page with, or null
+     * @return the page, an empty page with a total of -1 when the platform returned an error
+     */
+    private Page<Event> getPage(int offset, int limit, APIController apiController, PageSizeTuner tuner) throws IOException, URISyntaxException, InterruptedException, JSONException {
         try {
-            events.clear();
-            Integer total = 0;
-            Integer loopOffset = this.offset;
-
-            while (loopOffset <= total) {
-                Map<String, String> params = buildParams(loopOffset);
-
-                // Process the get call
-                String uri = this.recordUuid == null ? String.format(APIConstants.DOSSIER_GET_EVENTS, dossierUuid) : String.format(APIConstants.RECORD_GET_EVENTS, dossierUuid, recordUuid);
-                logger.info(uri);
-                APIResponse apiResponse = apiController.get(APIController.buildUrl(uri, params));
-
-                // When the list of dossiers is returned
-                if (apiResponse.getResponse().statusCode() == 200) {
-                    JSONArray records = apiResponse.getBody().getJSONObject("data").getJSONArray("events");
-                    for (Object apiRecord : records) {
-                        Event tmp = new Event(dossierUuid, recordUuid, ((JSONObject) apiRecord).getString("resourceUuid"), apiRecord.toString());
-                        this.events.add(tmp);
-                    }
-
-                    total = this.events.isEmpty() ? -1 : apiResponse.getBody().getInt("total");
-                    loopOffset += limit;
-                } else {
-                    logger.error("Error with code [{}] while retrieving the eventlist", apiResponse.getResponse().statusCode());
-                    total = -1;
+            long start = System.nanoTime();
+            Map<String, String> params = buildParams(offset, limit);
+
+            // Process the get call
+            String uri = this.recordUuid == null ? String.format(APIConstants.DOSSIER_GET_EVENTS, dossierUuid) : String.format(APIConstants.RECORD_GET_EVENTS, dossierUuid, recordUuid);
+            logger.debug(uri);
+            APIResponse apiResponse = apiController.get(APIController.buildUrl(uri, params));
+
+            // When the list of events is returned
+            if (apiResponse.getResponse().statusCode() == 200) {
+                JSONArray records = apiResponse.getBody().getJSONObject("data").getJSONArray("events");
+                List<Event> page = new ArrayList<>(records.length());
+                for (Object apiRecord : records) {
+                    page.add(new Event(dossierUuid, recordUuid, ((JSONObject) apiRecord).getString("resourceUuid"), apiRecord.toString()));
                 }
+                if (tuner != null) {
+                    tuner.record(limit, page.size(), System.nanoTime() - start, apiResponse.getResponse().body().length());
+                }
+                return new Page<>(page, offset, limit, apiResponse.getBody().getInt("total"));
+            } else {
+                logger.error("Error with code [{}] while retrieving the eventlist", apiResponse.getResponse().statusCode());
+                return Page.empty(offset, limit);
             }
         } catch (IOException | InterruptedException | URISyntaxException | JSONException e) {
             logger.error("Exception occured while retrieving the eventlist: {}", e.getMessage());
             throw e;
         }
+    }
 
-        return this;
+    /**
+     * Counts the events matching the filter without retrieving them, with the default API controller
+     *
+     * @return the number of events, -1 when the platform returned an error
+     * @throws IOException          thrown when an IO error occurs
+     * @throws URISyntaxException   thrown when a URI syntax error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     * @throws JSONException        thrown when an error occurs in parsing the JSON
+     */
+    @SuppressWarnings("unused")
+    public int count() throws IOException, URISyntaxException, InterruptedException, JSONException {
+        return count(APIController.getInstance());
+    }
+
+    /**
+     * Counts the events matching the filter without retrieving them, only a page of one event is requested for its
+     * total. The offset and limit of this list are ignored.
+     *
+     * @param apiController the controller to be used for the API calls
+     * @return the number of events, -1 when the platform returned an error
+     * @throws IOException          thrown when an IO error occurs
+     * @throws URISyntaxException   thrown when a URI syntax error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     * @throws JSONException        thrown when an error occurs in parsing the JSON
+     */
+    @SuppressWarnings("unused")
+    public int count(APIController apiController) throws IOException, URISyntaxException, InterruptedException, JSONException {
+        return getPage(0, 1, apiController, null).total();
+    }
+
+    /**
+     * Returns a publisher of all events based on the parameters and filter provided, with the default API controller.
+     * Pages are only retrieved on demand of the subscriber.
+     *
+     * @return the publisher
+     */
+    @SuppressWarnings("unused")
+    public Flow.Publisher<Event> publisher() {
+        return publisher(APIController.getInstance());
+    }
+
+    /**
+     * Returns a publisher of all events based on the parameters and filter provided.
+     * Pages are only retrieved on demand of the subscriber.
+     *
+     * @param apiController the controller to be used for the API calls
+     * @return the publisher
+     */
+    @SuppressWarnings("unused")
+    public Flow.Publisher<Event> publisher(APIController apiController) {
+        // With a tuner the demand of the subscriber caps the limit chosen by the tuner
+        return new PagePublisher<>((pageOffset, pageLimit) -> getPage(pageOffset, Math.min(pageLimit, nextLimit()), apiController),
+                offset, pageSizeTuner != null ? PageSizeTuner.MAX_LIMIT : limit);
     }
 
     /**
      * Creates the parameters to use during the retrieval of the eventsd
      *
      * @param offset the start offset of the list of events
+     * @param limit  the limit of events to retrieve
      * @return the key value based list of parameters
      */
     @SuppressWarnings("unused")
-    private Map<String, String> buildParams(Integer offset) {
+    private Map<String, String> buildParams(Integer offset, Integer limit) {
         Map<String, String> params = new HashMap<>();
         params.put("limit", Integer.toString(limit));
         params.put("offset", Integer.toString(offset));
@@ -153,6 +250,37 @@ public class EventList extends APIObject {
         return this;
     }
 
+    /**
+     * Sets the tuner choosing the limit of every page from the pages retrieved before, replacing the fixed limit
+     *
+     * @param pageSizeTuner the tuner, or null to use the fixed limit
+     * @return the event list object itself
+     */
+    @SuppressWarnings("unused")
+    public EventList setPageSizeTuner(PageSizeTuner pageSizeTuner) {
+        this.pageSizeTuner = pageSizeTuner;
+        return this;
+    }
+
+    /**
+     * Returns the tuner choosing the limit of every page, if any
+     *
+     * @return the tuner or null
+     */
+    @SuppressWarnings("unused")
+    public PageSizeTuner getPageSizeTuner() {
+        return pageSizeTuner;
+    }
+
+    /**
+     * Returns the limit of the next page, chosen by the tuner when set
+     *
+     * @return the limit
+     */
+    private int nextLimit() {
+        return pageSizeTuner != null ? pageSizeTuner.getLimit() : limit;
+    }
+
     /**
      * Sets the offset of event to start retrieving of
      *
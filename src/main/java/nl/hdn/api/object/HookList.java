@@ -62,10 +62,7 @@ public class HookList extends APIObject {
      */
     @SuppressWarnings("unused,UnusedReturnValue")
     public HookList get(String onBehalfOf, APIController apiController) throws IOException, URISyntaxException, InterruptedException, JSONException {
-        if(onBehalfOf==null || !onBehalfOf.matches("\\d{6}")) {
-            logger.error("onBehalfOf node is not set or doesn't match 6 digits but required");
-            throw new InvalidParameterException("OnBehalfOf is required");
-        }
+        validateOnBehalfOf(onBehalfOf);
 
         try {
             hooks.clear();
@@ -102,6 +99,61 @@ public class HookList extends APIObject {
         return this;
     }
 
+    /**
+     * Counts the hooks matching the filter without retrieving them, with the default API controller
+     *
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the request is made
+     * @return the number of hooks, -1 when the platform returned an error
+     * @throws IOException          thrown when an IO error occurs
+     * @throws URISyntaxException   thrown when a URI syntax error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     * @throws JSONException        thrown when an error occurs in parsing the JSON
+     */
+    @SuppressWarnings("unused")
+    public int count(String onBehalfOf) throws IOException, URISyntaxException, InterruptedException, JSONException {
+        return count(onBehalfOf, APIController.getInstance());
+    }
+
+    /**
+     * Counts the hooks matching the filter without retrieving them, only a page of one hook is requested for its total.
+     * The offset and limit of this list are ignored.
+     *
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the request is made
+     * @param apiController the controller to be used for the API calls
+     * @return the number of hooks, -1 when the platform returned an error
+     * @throws IOException          thrown when an IO error occurs
+     * @throws URISyntaxException   thrown when a URI syntax error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     * @throws JSONException        thrown when an error occurs in parsing the JSON
+     */
+    @SuppressWarnings("unused")
+    public int count(String onBehalfOf, APIController apiController) throws IOException, URISyntaxException, InterruptedException, JSONException {
+        validateOnBehalfOf(onBehalfOf);
+
+        try {
+            Map<String, String> params = buildParams(0);
+            params.put("limit", "1");
+
+            // Process the get call
+            APIResponse apiResponse = apiController.get(APIController.buildUrl(APIConstants.HOOKS_GET, params), onBehalfOf);
+            if (apiResponse.getResponse().statusCode() == 200) {
+                return apiResponse.getBody().getInt("total");
+            }
+            logger.error("Error with code [{}] while counting the hooklist", apiResponse.getResponse().statusCode());
+            return -1;
+        } catch (IOException | InterruptedException | URISyntaxException | JSONException e) {
+            logger.error("Exception occured while counting the hooklist: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    private void validateOnBehalfOf(String onBehalfOf) throws InvalidParameterException {
+        if (onBehalfOf == null || !onBehalfOf.matches("\\d{6}")) {
+            logger.error("onBehalfOf node is not set or doesn't match 6 digits but required");
+            throw new InvalidParameterException("OnBehalfOf is required");
+        }
+    }
+
     /**
      * Creates the parameters to use during the retrieval of the eventsd
      *
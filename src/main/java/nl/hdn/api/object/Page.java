@@ -0,0 +1,58 @@
+package nl.hdn.api.object;
+
+import java.util.List;
+
+/**
+ * Represents a single page of a list retrieved from the HDN Platform of Trust
+ *
+ * @param items  the objects on this page
+ * @param offset the offset that was used to retrieve this page
+ * @param limit  the limit that was used to retrieve this page
+ * @param total  the total number of objects matching the filter, -1 when the page could not be retrieved
+ * @param <T>    the type of the objects on the page
+ */
+public record Page<T>(
+        List<T> items,
+        int offset,
+        int limit,
+        int total
+) {
+    /**
+     * Returns an empty page, used when the platform returned an error instead of a list
+     *
+     * @param offset the offset that was used to retrieve the page
+     * @param limit  the limit that was used to retrieve the page
+     * @param <T>    the type of the objects on the page
+     * @return an empty page
+     */
+    public static <T> Page<T> empty(int offset, int limit) {
+        return new Page<>(List.of(), offset, limit, -1);
+    }
+
+    /**
+     * Checks if the page could not be retrieved, so an empty page does not end an iteration as if the list was complete
+     *
+     * @return true when the platform returned an error instead of the page
+     */
+    public boolean failed() {
+        return total < 0;
+    }
+
+    /**
+     * Checks if another page exists after this page
+     *
+     * @return true when the platform has more objects after this page, false otherwise
+     */
+    public boolean hasNext() {
+        return !items.isEmpty() && offset + limit < total;
+    }
+
+    /**
+     * Returns the offset of the page following this page
+     *
+     * @return the offset of the next page
+     */
+    public int nextOffset() {
+        return offset + limit;
+    }
+}
@@ -0,0 +1,24 @@
+package nl.hdn.api.object;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+/**
+ * Retrieves a single page of a list from the HDN Platform of Trust
+ *
+ * @param <T> the type of the objects on the page
+ */
+@FunctionalInterface
+public interface PageFetcher<T> {
+    /**
+     * Retrieves the page starting at the given offset
+     *
+     * @param offset the start offset of the page
+     * @param limit  the maximum number of objects on the page
+     * @return the retrieved page
+     * @throws IOException          thrown when an IO error occurs
+     * @throws URISyntaxException   thrown when a URI syntax error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     */
+    Page<T> fetch(int offset, int limit) throws IOException, URISyntaxException, InterruptedException;
+}
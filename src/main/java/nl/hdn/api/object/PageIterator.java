@@ -0,0 +1,157 @@
+package nl.hdn.api.object;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates lazily over the pages of a list on the HDN Platform of Trust. The first page is retrieved
+ * on the first call to {@link #hasNext()}, every following page is prefetched in the background while
+ * the current page is processed. A page is released as soon as all of its objects have been returned.
+ *
+ * @param <T> the type of the objects in the list
+ */
+public class PageIterator<T> implements Iterator<T>, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(PageIterator.class);
+
+    /**
+     * Retrieves the pages
+     */
+    private final PageFetcher<T> fetcher;
+    /**
+     * The limit of objects to retrieve in a single call
+     */
+    private final int limit;
+    /**
+     * The offset of the first page
+     */
+    private final int offset;
+    /**
+     * The objects of the current page which have not been returned yet
+     */
+    private Iterator<T> current = Collections.emptyIterator();
+    /**
+     * The page that is being retrieved in the background, or null when there is no next page
+     */
+    private Future<Page<T>> next;
+    private boolean started = false;
+    private boolean closed = false;
+
+    /**
+     * Constructs the iterator
+     *
+     * @param fetcher the fetcher used to retrieve a single page
+     * @param offset  the offset of the first page
+     * @param limit   the limit of objects to retrieve in a single call
+     */
+    public PageIterator(PageFetcher<T> fetcher, int offset, int limit) {
+        this.fetcher = fetcher;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Checks if another object is available, retrieving the next page when the current page is consumed
+     *
+     * @return true when another object is available
+     * @throws UncheckedIOException thrown when a page could not be retrieved
+     */
+    @Override
+    public boolean hasNext() {
+        if (!started) {
+            started = true;
+            next = prefetch(offset);
+        }
+        while (!current.hasNext() && next != null && !closed) {
+            Page<T> page = await(next);
+            if (page.failed()) {
+                close();
+                throw new UncheckedIOException(new IOException("Page at offset " + page.offset() + " could not be retrieved"));
+            }
+            next = page.hasNext() ? prefetch(page.nextOffset()) : null;
+            current = page.items().iterator();
+        }
+        return current.hasNext();
+    }
+
+    /**
+     * Returns the next object of the list
+     *
+     * @return the next object
+     */
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * Stops the iteration and cancels the page that is being retrieved in the background, if any
+     */
+    @Override
+    public void close() {
+        closed = true;
+        current = Collections.emptyIterator();
+        if (next != null) {
+            next.cancel(true);
+            next = null;
+        }
+    }
+
+    /**
+     * Returns a sequential stream over the remaining objects; closing the stream closes this iterator
+     *
+     * @return the stream
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * Starts the retrieval of a page on a virtual thread
+     *
+     * @param pageOffset the offset of the page
+     * @return the future holding the page
+     */
+    private Future<Page<T>> prefetch(int pageOffset) {
+        FutureTask<Page<T>> task = new FutureTask<>(() -> fetcher.fetch(pageOffset, limit));
+        Thread.ofVirtual().name("hdn-page-prefetch").start(task);
+        return task;
+    }
+
+    /**
+     * Waits for a page to be retrieved
+     *
+     * @param future the future holding the page
+     * @return the page
+     */
+    private Page<T> await(Future<Page<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("Interrupted while retrieving a page", e);
+        } catch (ExecutionException e) {
+            close();
+            logger.error("Exception occured while retrieving a page: {}", e.getCause().getMessage());
+            if (e.getCause() instanceof IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            } else if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package nl.hdn.api.object;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the objects of a list on the HDN Platform of Trust to reactive subscribers. Pages are only
+ * retrieved when a subscriber signals demand: a request of n objects leads to a page with a limit of at
+ * most n (capped by the configured limit). Cancelling the subscription stops the retrieval of further pages.
+ *
+ * @param <T> the type of the objects in the list
+ */
+public class PagePublisher<T> implements Flow.Publisher<T> {
+    private static final Logger logger = LoggerFactory.getLogger(PagePublisher.class);
+
+    /**
+     * Retrieves the pages
+     */
+    private final PageFetcher<T> fetcher;
+    /**
+     * The offset of the first page
+     */
+    private final int offset;
+    /**
+     * The maximum limit of objects to retrieve in a single call
+     */
+    private final int limit;
+
+    /**
+     * Constructs the publisher
+     *
+     * @param fetcher the fetcher used to retrieve a single page
+     * @param offset  the offset of the first page
+     * @param limit   the maximum limit of objects to retrieve in a single call
+     */
+    public PagePublisher(PageFetcher<T> fetcher, int offset, int limit) {
+        this.fetcher = fetcher;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Subscribes a subscriber, every subscriber receives all objects of the list in its own subscription
+     *
+     * @param subscriber the subscriber
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        PageSubscription subscription = new PageSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * The subscription of a single subscriber. All signals to the subscriber are emitted by a single
+     * drain loop, which runs on a virtual thread whenever demand is added.
+     */
+    private class PageSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final Deque<T> buffer = new ArrayDeque<>();
+        private volatile boolean cancelled = false;
+        private Throwable error;
+        private boolean exhausted = false;
+        private int nextOffset = offset;
+
+        PageSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * Adds demand for n objects
+         *
+         * @param n the number of objects requested, must be greater than 0
+         */
+        @Override
+        public void request(long n) {
+            if (cancelled) {
+                return;
+            }
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested number of events should be greater than 0");
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            if (wip.getAndIncrement() == 0) {
+                Thread.ofVirtual().name("hdn-page-publisher").start(this::drain);
+            }
+        }
+
+        /**
+         * Cancels the subscription, no further pages are retrieved
+         */
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Emits buffered objects while there is demand and retrieves the next page when the buffer is empty
+         */
+        private void drain() {
+            int missed = 1;
+            do {
+                if (error != null) {
+                    cancelled = true;
+                    subscriber.onError(error);
+                    return;
+                }
+                try {
+                    while (!cancelled && demand.get() > 0) {
+                        if (buffer.isEmpty()) {
+                            if (exhausted) {
+                                break;
+                            }
+                            retrieveNextPage();
+                        } else {
+                            demand.decrementAndGet();
+                            subscriber.onNext(buffer.poll());
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(e);
+                    return;
+                } catch (Exception e) {
+                    fail(e);
+                    return;
+                }
+                if (!cancelled && exhausted && buffer.isEmpty()) {
+                    cancelled = true;
+                    subscriber.onComplete();
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Retrieves the next page with a limit based on the outstanding demand
+         *
+         * @throws Exception thrown when the page could not be retrieved, also when the platform returned an error
+         */
+        private void retrieveNextPage() throws Exception {
+            int pageLimit = (int) Math.min(limit, Math.max(1, demand.get()));
+            Page<T> page = fetcher.fetch(nextOffset, pageLimit);
+            if (page.failed()) {
+                throw new IOException("Page at offset " + nextOffset + " could not be retrieved");
+            }
+            buffer.addAll(page.items());
+            exhausted = !page.hasNext();
+            nextOffset = page.nextOffset();
+        }
+
+        /**
+         * Signals an error to the subscriber and ends the subscription
+         *
+         * @param e the error
+         */
+        private void fail(Exception e) {
+            logger.error("Exception occured while publishing a page: {}", e.getMessage());
+            cancelled = true;
+            buffer.clear();
+            subscriber.onError(e);
+        }
+    }
+}
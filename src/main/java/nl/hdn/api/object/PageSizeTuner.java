@@ -0,0 +1,230 @@
+package nl.hdn.api.object;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Chooses the limit of the next page of a list from the pages retrieved before. The time and body size per object are
+ * measured on every page, and the limit is set so a page takes about the target time and stays below the target body
+ * size. With a fixed latency per call the limit settles where a page takes the target time, small pages waste round
+ * trips on the latency and large pages cause slow calls and large bodies on the heap.
+ * <p>
+ * The limit changes at most by the growth factor between two pages, and always stays between 1 and 1000. A tuner can
+ * be shared by several lists and threads.
+ */
+public class PageSizeTuner {
+    private static final Logger logger = LoggerFactory.getLogger(PageSizeTuner.class);
+    /**
+     * The smallest limit the platform allows
+     */
+    public static final int MIN_LIMIT = 1;
+    /**
+     * The largest limit the platform allows
+     */
+    public static final int MAX_LIMIT = 1000;
+    /**
+     * The weight of the latest page in the averages per object
+     */
+    private static final double SMOOTHING = 0.5;
+
+    /**
+     * A snapshot of the limits chosen by a tuner
+     *
+     * @param limit           the limit of the next page
+     * @param pages           the number of pages measured
+     * @param objects         the number of objects on the measured pages
+     * @param minLimit        the smallest limit of a measured page, 0 when no page has been measured
+     * @param maxLimit        the largest limit of a measured page, 0 when no page has been measured
+     * @param averageLimit    the average limit of the measured pages
+     * @param averagePageTime the average time of the measured pages
+     * @param averagePageSize the average body size of the measured pages, in characters
+     */
+    public record Metrics(
+            int limit,
+            long pages,
+            long objects,
+            int minLimit,
+            int maxLimit,
+            double averageLimit,
+            Duration averagePageTime,
+            long averagePageSize
+    ) {
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Duration targetTime = Duration.ofMillis(500);
+    private long targetSize = 4L * 1024 * 1024;
+    private double growth = 2.0;
+
+    private int limit;
+    private double nanosPerObject = 0;
+    private double sizePerObject = 0;
+    private long pages = 0;
+    private long objects = 0;
+    private long limitSum = 0;
+    private int minLimit = 0;
+    private int maxLimit = 0;
+    private long totalNanos = 0;
+    private long totalSize = 0;
+
+    /**
+     * Constructs a tuner starting with the default limit of the lists
+     */
+    public PageSizeTuner() {
+        this(100);
+    }
+
+    /**
+     * Constructs a tuner
+     *
+     * @param initialLimit the limit of the first page, must be between 1 and 1000
+     */
+    public PageSizeTuner(int initialLimit) {
+        if (initialLimit < MIN_LIMIT || initialLimit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Initial limit should be greater than 0 and lower than or equal to 1000");
+        }
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Returns the limit to use for the next page
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a retrieved page and chooses the limit of the next page
+     *
+     * @param pageLimit the limit the page was requested with
+     * @param count     the number of objects on the page
+     * @param nanos     the time the page took, from the request until the objects were constructed
+     * @param size      the size of the body of the page, in characters
+     */
+    public void record(int pageLimit, int count, long nanos, long size) {
+        lock.lock();
+        try {
+            pages++;
+            objects += count;
+            limitSum += pageLimit;
+            minLimit = pages == 1 ? pageLimit : Math.min(minLimit, pageLimit);
+            maxLimit = Math.max(maxLimit, pageLimit);
+            totalNanos += nanos;
+            totalSize += size;
+            if (count == 0) {
+                // An empty page says nothing about the cost per object
+                return;
+            }
+
+            double pageNanos = (double) nanos / count;
+            double pageSize = (double) size / count;
+            nanosPerObject = nanosPerObject == 0 ? pageNanos : SMOOTHING * pageNanos + (1 - SMOOTHING) * nanosPerObject;
+            sizePerObject = sizePerObject == 0 ? pageSize : SMOOTHING * pageSize + (1 - SMOOTHING) * sizePerObject;
+
+            double desired = Math.min(targetTime.toNanos() / nanosPerObject, targetSize / Math.max(1, sizePerObject));
+            double bounded = Math.clamp(desired, pageLimit / growth, pageLimit * growth);
+            int next = Math.clamp(Math.round(bounded), MIN_LIMIT, MAX_LIMIT);
+            if (next != limit) {
+                logger.debug("Page limit changed from {} to {}", limit, next);
+            }
+            limit = next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the limits chosen and the pages measured
+     *
+     * @return the metrics
+     */
+    @SuppressWarnings("unused")
+    public Metrics getMetrics() {
+        lock.lock();
+        try {
+            return new Metrics(limit,
+                    pages,
+                    objects,
+                    minLimit,
+                    maxLimit,
+                    pages == 0 ? 0 : (double) limitSum / pages,
+                    Duration.ofNanos(pages == 0 ? 0 : totalNanos / pages),
+                    pages == 0 ? 0 : totalSize / pages);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the time a page should take
+     *
+     * @param targetTime the target time, must be positive
+     * @return the tuner itself
+     */
+    @SuppressWarnings("unused")
+    public PageSizeTuner setTargetTime(Duration targetTime) {
+        if (targetTime != null && targetTime.isPositive()) {
+            lock.lock();
+            try {
+                this.targetTime = targetTime;
+            } finally {
+                lock.unlock();
+            }
+        } else {
+            logger.error("Target time should be positive.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the body size a page should stay below
+     *
+     * @param targetSize the target size in characters, must be greater than 0
+     * @return the tuner itself
+     */
+    @SuppressWarnings("unused")
+    public PageSizeTuner setTargetSize(long targetSize) {
+        if (targetSize > 0) {
+            lock.lock();
+            try {
+                this.targetSize = targetSize;
+            } finally {
+                lock.unlock();
+            }
+        } else {
+            logger.error("Target size should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the factor by which the limit may change between two pages
+     *
+     * @param growth the factor, must be greater than 1
+     * @return the tuner itself
+     */
+    @SuppressWarnings("unused")
+    public PageSizeTuner setGrowth(double growth) {
+        if (growth > 1) {
+            lock.lock();
+            try {
+                this.growth = growth;
+            } finally {
+                lock.unlock();
+            }
+        } else {
+            logger.error("Growth should be greater than 1.");
+        }
+        return this;
+    }
+}
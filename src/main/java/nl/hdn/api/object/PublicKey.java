@@ -41,6 +41,20 @@ public class PublicKey extends APIObject {
         updateAttributes(new JSONObject(attributes));
     }
 
+    /**
+     * Constructs an existing publickey from an entry of a list returned by the platform, attributes missing in the
+     * entry are left empty
+     *
+     * @param attributes the attributes of the list entry
+     */
+    PublicKey(JSONObject attributes) {
+        resourceUuid = attributes.getString("resourceUuid");
+        node = attributes.optString("node");
+        algorithm = attributes.optString("algorithm");
+        publicKeyValue = attributes.optString("publicKey");
+        sub = attributes.optString("sub");
+    }
+
     /**
      * Updates the attributes, based on the JSON object returned by the platform
      *
@@ -78,7 +78,7 @@ public class PublicKeyList extends APIObject {
                 if (apiResponse.getResponse().statusCode() == 200) {
                     JSONArray records = apiResponse.getBody().getJSONObject("data").getJSONArray("publickeys");
                     for (Object apiRecord : records) {
-                        PublicKey tmp = new PublicKey(((JSONObject) apiRecord).getString("resourceUuid"));
+                        PublicKey tmp = new PublicKey((JSONObject) apiRecord);
                         this.publickeys.add(tmp);
                     }
 
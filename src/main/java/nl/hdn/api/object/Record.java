@@ -9,8 +9,10 @@ import org.json.JSONObject;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.*;
+import java.security.PublicKey;
 import java.security.cert.CertificateException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 
@@ -326,6 +328,22 @@ public class Record extends APIObject {
         return this;
     }
 
+    /**
+     * Sets the UUID of the dossier that will contain this record, only possible before the record is created
+     *
+     * @param dossierUuid the UUID of the dossier
+     * @return the record object itself
+     */
+    @SuppressWarnings("unused")
+    public Record setDossierUuid(String dossierUuid) {
+        if (resourceUuid == null) {
+            this.dossierUuid = dossierUuid;
+        } else {
+            logger.error("Cannot change the dossier of a record that has been created");
+        }
+        return this;
+    }
+
     /**
      * Sets the message content of the record
      *
@@ -371,7 +389,7 @@ public class Record extends APIObject {
             message = new String(Base64.getDecoder().decode(apiResponse.getBody().getJSONObject(FIELD_MESSAGE).getString("data")));
             if (apiResponse.getBody().getJSONObject(FIELD_MESSAGE).has(FIELD_SIGNATURE)) {
                 publicKey = apiResponse.getBody().getJSONObject(FIELD_MESSAGE).getJSONObject(FIELD_SIGNATURE).getJSONObject("publicKey").getString("uuid");
-                messageSigned = apiResponse.getBody().getJSONObject(FIELD_MESSAGE).getJSONObject(FIELD_SIGNATURE).getString(FIELD_VALUE).getBytes();
+                messageSigned = Base64.getDecoder().decode(apiResponse.getBody().getJSONObject(FIELD_MESSAGE).getJSONObject(FIELD_SIGNATURE).getString(FIELD_VALUE));
             }
         }
         return this;
@@ -406,53 +424,7 @@ public class Record extends APIObject {
         if (resourceUuid == null) {
             validateOnBehalfOf(onBehalfOf);
 
-            JSONObject body = new JSONObject();
-            JSONArray responseSchemas = new JSONArray();
-
-            body.put(FIELD_HEADER, new JSONObject()
-                    .put("receiver", header.receiver)
-                    .put("requestVersion", header.requestVersion)
-                    .put("requestSchema", new JSONObject()
-                            .put(FIELD_MESSAGE_TYPE, header.requestSchema.messageType)
-                            .put(FIELD_RECEIVER_CODE, header.requestSchema.receiverCode)
-                            .put(FIELD_SCHEMA_VERSION, header.requestSchema.schemaVersion)
-                            .put(FIELD_CONTENT_TYPE, header.requestSchema.contentType)
-                            .put("environment", header.requestSchema.environment)
-                    )
-            );
-
-            if (!header.responseSchemas.isEmpty()) {
-                header.responseSchemas.forEach(responseSchema -> responseSchemas.put(new JSONObject()
-                        .put(FIELD_MESSAGE_TYPE, responseSchema.messageType)
-                        .put(FIELD_RECEIVER_CODE, responseSchema.receiverCode)
-                        .put(FIELD_SCHEMA_VERSION, responseSchema.schemaVersion)
-                        .put(FIELD_CONTENT_TYPE, responseSchema.contentType)
-                ));
-                body.getJSONObject(FIELD_HEADER).put("responseSchemas", responseSchemas);
-            }
-
-            if (header.externalSource != null) {
-                body.getJSONObject(FIELD_HEADER).put("externalSource", new JSONObject()
-                        .put("document", header.externalSource.document)
-                        .put("provider", header.externalSource.provider)
-                        .put("source", header.externalSource.source)
-                );
-            }
-
-            body.put(FIELD_MESSAGE, new JSONObject()
-                    .put("data", Base64.getEncoder().encodeToString(message.getBytes()))
-                    .put(FIELD_SIGNATURE, new JSONObject()
-                            .put("publicKey", new JSONObject()
-                                    .put("uuid", publicKey))
-                            .put(FIELD_VALUE, Base64.getEncoder().encodeToString(messageSigned))));
-
-            body.put("miscellaneous", new JSONObject()
-                    .put("senderName", miscellaneous.senderName)
-                    .put("receiverName", miscellaneous.receiverName)
-                    .put("sendingApplication", new JSONObject()
-                            .put("applicationName", miscellaneous.sendingApplication.applicationName)
-                            .put("applicationVersion", miscellaneous.sendingApplication.applicationVersion)
-                            .put("sendingDateTime", miscellaneous.sendingApplication.sendingDateTime)));
+            JSONObject body = toCreateBody();
 
             APIResponse apiResponse = apiController.post(String.format(APIConstants.DOSSIER_CREATE_RECORD, dossierUuid), body.toString(), onBehalfOf);
 
@@ -468,6 +440,120 @@ public class Record extends APIObject {
         return null;
     }
 
+    /**
+     * Returns the body used to create the record on the HDN Platform of Trust
+     *
+     * @return the body as JSON object
+     */
+    public JSONObject toCreateBody() {
+        JSONObject body = new JSONObject();
+        JSONArray responseSchemas = new JSONArray();
+
+        body.put(FIELD_HEADER, new JSONObject()
+                .put("receiver", header.receiver)
+                .put("requestVersion", header.requestVersion)
+                .put("requestSchema", new JSONObject()
+                        .put(FIELD_MESSAGE_TYPE, header.requestSchema.messageType)
+                        .put(FIELD_RECEIVER_CODE, header.requestSchema.receiverCode)
+                        .put(FIELD_SCHEMA_VERSION, header.requestSchema.schemaVersion)
+                        .put(FIELD_CONTENT_TYPE, header.requestSchema.contentType)
+                        .put("environment", header.requestSchema.environment)
+                )
+        );
+
+        if (!header.responseSchemas.isEmpty()) {
+            header.responseSchemas.forEach(responseSchema -> responseSchemas.put(new JSONObject()
+                    .put(FIELD_MESSAGE_TYPE, responseSchema.messageType)
+                    .put(FIELD_RECEIVER_CODE, responseSchema.receiverCode)
+                    .put(FIELD_SCHEMA_VERSION, responseSchema.schemaVersion)
+                    .put(FIELD_CONTENT_TYPE, responseSchema.contentType)
+            ));
+            body.getJSONObject(FIELD_HEADER).put("responseSchemas", responseSchemas);
+        }
+
+        if (header.externalSource != null) {
+            body.getJSONObject(FIELD_HEADER).put("externalSource", new JSONObject()
+                    .put("document", header.externalSource.document)
+                    .put("provider", header.externalSource.provider)
+                    .put("source", header.externalSource.source)
+            );
+        }
+
+        body.put(FIELD_MESSAGE, new JSONObject()
+                .put("data", Base64.getEncoder().encodeToString(message.getBytes()))
+                .put(FIELD_SIGNATURE, new JSONObject()
+                        .put("publicKey", new JSONObject()
+                                .put("uuid", publicKey))
+                        .put(FIELD_VALUE, Base64.getEncoder().encodeToString(messageSigned))));
+
+        body.put("miscellaneous", new JSONObject()
+                .put("senderName", miscellaneous.senderName)
+                .put("receiverName", miscellaneous.receiverName)
+                .put("sendingApplication", new JSONObject()
+                        .put("applicationName", miscellaneous.sendingApplication.applicationName)
+                        .put("applicationVersion", miscellaneous.sendingApplication.applicationVersion)
+                        .put("sendingDateTime", miscellaneous.sendingApplication.sendingDateTime)));
+        return body;
+    }
+
+    /**
+     * Constructs a new record from a body created by {@link #toCreateBody()}, f.e. to create it after a restart
+     *
+     * @param dossierUuid the UUID of the dossier that will contain this record
+     * @param body        the body as JSON object
+     * @return the new record, signed when the body holds a signature
+     */
+    public static Record fromCreateBody(String dossierUuid, JSONObject body) {
+        JSONObject headerObject = body.getJSONObject(FIELD_HEADER);
+        JSONObject requestSchema = headerObject.getJSONObject("requestSchema");
+        JSONArray responseSchemas = headerObject.optJSONArray("responseSchemas");
+        JSONObject externalSource = headerObject.optJSONObject("externalSource");
+        JSONObject messageObject = body.getJSONObject(FIELD_MESSAGE);
+        JSONObject signature = messageObject.optJSONObject(FIELD_SIGNATURE);
+        JSONObject misc = body.getJSONObject("miscellaneous");
+        JSONObject sa = misc.getJSONObject("sendingApplication");
+
+        List<ResponseSchema> schemas = new ArrayList<>();
+        if (responseSchemas != null) {
+            for (int i = 0; i < responseSchemas.length(); i++) {
+                JSONObject responseSchema = responseSchemas.getJSONObject(i);
+                schemas.add(new ResponseSchema(
+                        responseSchema.getString(FIELD_MESSAGE_TYPE),
+                        responseSchema.getString(FIELD_RECEIVER_CODE),
+                        responseSchema.getString(FIELD_SCHEMA_VERSION),
+                        APIConstants.ContentType.valueOf(responseSchema.getString(FIELD_CONTENT_TYPE))));
+            }
+        }
+
+        Record apiRecord = new Record(dossierUuid)
+                .setHeader(new Header(
+                        headerObject.getString("requestVersion"),
+                        null,
+                        null,
+                        headerObject.getString("receiver"),
+                        new RequestSchema(
+                                requestSchema.getString(FIELD_MESSAGE_TYPE),
+                                requestSchema.getString(FIELD_SCHEMA_VERSION),
+                                requestSchema.getString(FIELD_RECEIVER_CODE),
+                                APIConstants.ContentType.valueOf(requestSchema.getString(FIELD_CONTENT_TYPE)),
+                                APIConstants.Environment.valueOf(requestSchema.getString("environment"))
+                        ),
+                        schemas,
+                        externalSource != null ? new ExternalSource(
+                                externalSource.getString("document"),
+                                externalSource.getString("provider"),
+                                externalSource.getString("source")
+                        ) : null))
+                .setMiscellaneous(new Miscellaneous(misc.getString("senderName"), misc.getString("receiverName"),
+                        new SendingApplication(sa.getString("applicationName"), sa.getString("applicationVersion"), Instant.parse(sa.getString("sendingDateTime")))))
+                .setMessage(new String(Base64.getDecoder().decode(messageObject.getString("data"))));
+        if (signature != null) {
+            apiRecord.publicKey = signature.getJSONObject("publicKey").optString("uuid", null);
+            apiRecord.messageSigned = Base64.getDecoder().decode(signature.getString(FIELD_VALUE));
+        }
+        return apiRecord;
+    }
+
     /**
      * Sends a record that has been created with the default API controller
      *
@@ -516,7 +602,20 @@ public class Record extends APIObject {
      */
     @SuppressWarnings("unused")
     public Record signMessage() throws IOException, KeyStoreException, CertificateException, NoSuchAlgorithmException, UnrecoverableKeyException, InvalidKeyException, SignatureException {
-        PrivateKey pk = APIController.getInstance().getPrivateKey();
+        return signMessage(APIController.getInstance().getPrivateKey());
+    }
+
+    /**
+     * Signs the message with the given key, so the key can be loaded once when signing many records
+     *
+     * @param pk the private key of the certificate
+     * @return the record object itself
+     * @throws NoSuchAlgorithmException exception thrown when an algorithm error has occured
+     * @throws InvalidKeyException      exception thrown when an invalid key error has occured
+     * @throws SignatureException       exception thrown when a signature error has occured
+     */
+    @SuppressWarnings("unused")
+    public Record signMessage(PrivateKey pk) throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
         Signature signature = Signature.getInstance("SHA256withRSA");
         signature.initSign(pk);
         signature.update(message.getBytes(StandardCharsets.UTF_8));
@@ -525,6 +624,26 @@ public class Record extends APIObject {
         return this;
     }
 
+    /**
+     * Verifies the signature of the message with the public key of the sender, after a fetch() call has been executed
+     *
+     * @param pk the public key of the certificate of the sender
+     * @return true when the message has a signature and it matches the message
+     * @throws NoSuchAlgorithmException exception thrown when an algorithm error has occured
+     * @throws InvalidKeyException      exception thrown when an invalid key error has occured
+     * @throws SignatureException       exception thrown when a signature error has occured
+     */
+    @SuppressWarnings("unused")
+    public boolean verifyMessage(PublicKey pk) throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
+        if (message == null || messageSigned == null) {
+            return false;
+        }
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initVerify(pk);
+        signature.update(message.getBytes(StandardCharsets.UTF_8));
+        return signature.verify(messageSigned);
+    }
+
     /**
      * Confirms the record on the HDN Platform of Trust to indicate the record has been processed by the receiver with the default API controller
      *
@@ -598,6 +717,16 @@ public class Record extends APIObject {
         return messageSigned;
     }
 
+    /**
+     * Returns the UUID of the publickey used to sign the message
+     *
+     * @return the UUID of the publickey
+     */
+    @SuppressWarnings("unused")
+    public String getPublicKey() {
+        return publicKey;
+    }
+
     /**
      * Returns the header object of the record
      *
@@ -0,0 +1,162 @@
+package nl.hdn.api.object;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the records of a {@link RecordList} by keyset instead of by offset. Every page is requested
+ * with the creationDate of the last record seen as lower bound, so each page costs the same regardless of how
+ * far the scan has progressed, and records created during the scan do not shift the pages.
+ * <p>
+ * Records sharing the creationDate of the boundary are returned again by the next page; those are skipped with
+ * a compact set of the UUIDs seen at the boundary. Within a page, records are ordered on creationDate and
+ * resourceUuid, so ties are always returned in the same order.
+ */
+public class RecordKeysetIterator implements Iterator<Record>, AutoCloseable {
+    /**
+     * Retrieves a page of records created at or after the boundary
+     */
+    @FunctionalInterface
+    interface KeysetFetcher {
+        Page<Record> fetch(Instant boundary, int skip, int limit) throws IOException, URISyntaxException, InterruptedException;
+    }
+
+    private static final Comparator<Record> KEYSET_ORDER = Comparator
+            .comparing(Record::getCreationDate)
+            .thenComparing(Record::getResourceUuid);
+
+    private final KeysetFetcher fetcher;
+    private final int limit;
+    /**
+     * The UUIDs of the records returned with a creationDate equal to the boundary
+     */
+    private final UuidSet seenAtBoundary = new UuidSet();
+    /**
+     * The creationDate of the last record returned, or the initial lower bound
+     */
+    private Instant boundary;
+    private Iterator<Record> current = Collections.emptyIterator();
+    private boolean exhausted = false;
+
+    /**
+     * Constructs the iterator
+     *
+     * @param fetcher the fetcher used to retrieve a single page
+     * @param start   the initial lower bound of the creationDate, or null to start at the first record
+     * @param limit   the limit of records to retrieve in a single call
+     */
+    RecordKeysetIterator(KeysetFetcher fetcher, Instant start, int limit) {
+        this.fetcher = fetcher;
+        this.boundary = start;
+        this.limit = limit;
+    }
+
+    /**
+     * Checks if another record is available, retrieving the next page when the current page is consumed
+     *
+     * @return true when another record is available
+     * @throws UncheckedIOException thrown when a page could not be retrieved
+     */
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext() && !exhausted) {
+            current = nextPage().iterator();
+        }
+        return current.hasNext();
+    }
+
+    /**
+     * Returns the next record
+     *
+     * @return the next record
+     */
+    @Override
+    public Record next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * Returns the creationDate of the last record returned, which can be used to resume a scan later on
+     *
+     * @return the creationDate of the last record or the initial lower bound
+     */
+    @SuppressWarnings("unused")
+    public Instant getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * Stops the iteration
+     */
+    @Override
+    public void close() {
+        exhausted = true;
+        current = Collections.emptyIterator();
+    }
+
+    /**
+     * Returns a sequential stream over the remaining records
+     *
+     * @return the stream
+     */
+    public Stream<Record> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * Retrieves the next page and returns the records that have not been returned before
+     *
+     * @return the new records of the page, possibly empty
+     */
+    private List<Record> nextPage() {
+        // Only skip the ties at the boundary when they fill a complete page, otherwise the scan cannot progress
+        int skip = seenAtBoundary.size() >= limit ? seenAtBoundary.size() : 0;
+        Page<Record> page;
+        try {
+            page = fetcher.fetch(boundary, skip, limit);
+        } catch (IOException e) {
+            exhausted = true;
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exhausted = true;
+            throw new IllegalStateException("Interrupted while retrieving a page", e);
+        } catch (URISyntaxException e) {
+            exhausted = true;
+            throw new IllegalStateException(e);
+        }
+
+        if (page.failed()) {
+            exhausted = true;
+            throw new UncheckedIOException(new IOException("Page after " + boundary + " could not be retrieved"));
+        }
+        exhausted = !page.hasNext();
+
+        List<Record> sorted = new ArrayList<>(page.items());
+        sorted.sort(KEYSET_ORDER);
+        List<Record> result = new ArrayList<>(sorted.size());
+        for (Record apiRecord : sorted) {
+            Instant creationDate = apiRecord.getCreationDate();
+            if (boundary != null && creationDate.isBefore(boundary)) {
+                continue;
+            }
+            if (boundary == null || creationDate.isAfter(boundary)) {
+                boundary = creationDate;
+                seenAtBoundary.clear();
+            }
+            if (seenAtBoundary.add(apiRecord.getResourceUuid())) {
+                result.add(apiRecord);
+            }
+        }
+        return result;
+    }
+}
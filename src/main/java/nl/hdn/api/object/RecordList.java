@@ -3,13 +3,17 @@ package nl.hdn.api.object;
 import nl.hdn.api.APIConstants;
 import nl.hdn.api.APIController;
 import nl.hdn.api.APIResponse;
+import nl.hdn.api.concurrent.FanOut;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Represents a list of records on the HDN Platform of Trust
@@ -27,6 +31,10 @@ public class RecordList extends APIObject {
      * The limit of dossiers to retrieve in a single call
      */
     private Integer limit = 100;
+    /**
+     * The tuner choosing the limit of every page, null for the fixed limit
+     */
+    private PageSizeTuner pageSizeTuner = null;
     /**
      * The offset of the list of dossier to retrieve in a single call
      */
@@ -51,6 +59,14 @@ public class RecordList extends APIObject {
      * The operator to use to compare against the creationdate
      */
     private String creationDateOperator = null;
+    /**
+     * The start of the creationdate range of the records to retrieve, included
+     */
+    private Instant creationDateFrom = null;
+    /**
+     * The end of the creationdate range of the records to retrieve, excluded
+     */
+    private Instant creationDateUntil = null;
     /**
      * The sub of the records to retrieve
      */
@@ -106,48 +122,160 @@ public class RecordList extends APIObject {
      */
     @SuppressWarnings("unused,UnusedReturnValue")
     public RecordList get(String onBehalfOf, APIController apiController) throws IOException, URISyntaxException, InterruptedException, JSONException {
+        records.clear();
+        Integer total = 0;
+        Integer loopOffset = this.offset;
+
+        while (loopOffset <= total) {
+            int pageLimit = nextLimit();
+            Page<Record> page = getPage(loopOffset, pageLimit, onBehalfOf, apiController);
+            this.records.addAll(page.items());
+
+            total = this.records.isEmpty() ? -1 : page.total();
+            loopOffset += pageLimit;
+        }
+
+        return this;
+    }
+
+    /**
+     * Retrieves a single page of records based on the parameters and filter provided
+     *
+     * @param offset        the start offset of the page
+     * @param limit         the limit of records on the page
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the request is made
+     * @param apiController the controller to be used for the API calls
+     * @return the page, an empty page with a total of -1 when the platform returned an error
+     * @throws IOException          thrown when an IO error occurs
+     * @throws URISyntaxException   thrown when a URI syntax error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     * @throws JSONException        thrown when an error occurs in parsing the JSON
+     */
+    public Page<Record> getPage(int offset, int limit, String onBehalfOf, APIController apiController) throws IOException, URISyntaxException, InterruptedException, JSONException {
+        return getPage(buildParams(offset, limit), offset, limit, onBehalfOf, apiController, pageSizeTuner);
+    }
+
+    /**
+     * Retrieves a single page of records with the given parameters
+     *
+     * @param params        the key value based list of parameters
+     * @param offset        the start offset of the page
+     * @param limit         the limit of records on the page
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the request is made
+     * @param apiController the controller to be used for the API calls
+     * @param tuner         the tuner to record the page with, or null
+     * @return the page, an empty page with a total of -1 when the platform returned an error
+     */
+    private Page<Record> getPage(Map<String, String> params, int offset, int limit, String onBehalfOf, APIController apiController, PageSizeTuner tuner) throws IOException, URISyntaxException, InterruptedException, JSONException {
         try {
-            records.clear();
-            Integer total = 0;
-            Integer loopOffset = this.offset;
-
-            while (loopOffset <= total) {
-                Map<String, String> params = buildParams(loopOffset);
-
-                // Process the get call
-                String uri = this.dossierUuid == null ? APIConstants.RECORDS_GET : String.format(APIConstants.DOSSIER_GET_RECORDS, dossierUuid);
-                APIResponse apiResponse = apiController.get(APIController.buildUrl(uri, params), onBehalfOf);
-
-                // When the list of dossiers is returned
-                if (apiResponse.getResponse().statusCode() == 200) {
-                    JSONArray apiRecords = apiResponse.getBody().getJSONObject("data").getJSONArray("records");
-                    for (Object apiRecord : apiRecords) {
-                        Record tmp = new Record(((JSONObject) apiRecord).getString("dossierUuid"), ((JSONObject) apiRecord).getString(APIConstants.RESOURCE_UUID), apiRecord.toString());
-                        this.records.add(tmp);
-                    }
-
-                    total = this.records.isEmpty() ? -1 : apiResponse.getBody().getInt("total");
-                    loopOffset += limit;
-                } else {
-                    logger.error("Error with code [{}] while retrieving the recordlist", apiResponse.getResponse().statusCode());
-                    total = -1;
+            long start = System.nanoTime();
+            // Process the get call
+            String uri = this.dossierUuid == null ? APIConstants.RECORDS_GET : String.format(APIConstants.DOSSIER_GET_RECORDS, dossierUuid);
+            APIResponse apiResponse = apiController.get(APIController.buildUrl(uri, params), onBehalfOf);
+
+            // When the list of records is returned
+            if (apiResponse.getResponse().statusCode() == 200) {
+                JSONArray apiRecords = apiResponse.getBody().getJSONObject("data").getJSONArray("records");
+                List<Record> page = new ArrayList<>(apiRecords.length());
+                for (Object apiRecord : apiRecords) {
+                    page.add(new Record(((JSONObject) apiRecord).getString("dossierUuid"), ((JSONObject) apiRecord).getString(APIConstants.RESOURCE_UUID), apiRecord.toString()));
+                }
+                if (tuner != null) {
+                    tuner.record(limit, page.size(), System.nanoTime() - start, apiResponse.getResponse().body().length());
                 }
+                return new Page<>(page, offset, limit, apiResponse.getBody().getInt("total"));
+            } else {
+                logger.error("Error with code [{}] while retrieving the recordlist", apiResponse.getResponse().statusCode());
+                return Page.empty(offset, limit);
             }
         } catch (IOException | InterruptedException | URISyntaxException | JSONException e) {
             logger.error("Exception occured while retrieving the recordlist: {}", e.getMessage());
             throw e;
         }
+    }
 
-        return this;
+    /**
+     * Returns an iterator that pages through the filtered records by creationDate instead of by offset, with
+     * the default API controller. A creationDate filter with "$gt" or "$gte" or the start of the creationDate
+     * range is used as start of the scan, a filter with "$lt" or "$lte" or the end of the range as its end.
+     * The offset and sort of this list are ignored.
+     *
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the request is made
+     * @return the keyset iterator
+     */
+    @SuppressWarnings("unused")
+    public RecordKeysetIterator keysetIterator(String onBehalfOf) {
+        return keysetIterator(onBehalfOf, APIController.getInstance());
+    }
+
+    /**
+     * Returns an iterator that pages through the filtered records by creationDate instead of by offset.
+     * A creationDate filter with "$gt" or "$gte" or the start of the creationDate range is used as start of the
+     * scan, a filter with "$lt" or "$lte" or the end of the range as its end. The offset and sort of this list are
+     * ignored.
+     *
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the request is made
+     * @param apiController the controller to be used for the API calls
+     * @return the keyset iterator
+     */
+    @SuppressWarnings("unused")
+    public RecordKeysetIterator keysetIterator(String onBehalfOf, APIController apiController) {
+        boolean lowerBound = "$gt".equals(creationDateOperator) || "$gte".equals(creationDateOperator);
+        Instant start = lowerBound ? Instant.parse(creationDate) : null;
+        if (creationDateFrom != null && (start == null || creationDateFrom.isAfter(start))) {
+            start = creationDateFrom;
+        }
+        Instant exclusiveStart = "$gt".equals(creationDateOperator) && start.equals(Instant.parse(creationDate)) ? start : null;
+
+        return new RecordKeysetIterator((boundary, skip, pageLimit) -> {
+            Map<String, String> params = buildParams(skip, pageLimit);
+            if (lowerBound) {
+                params.remove("creationDate[" + creationDateOperator + "]");
+            }
+            if (boundary != null) {
+                // The boundary itself is included, records already returned are skipped by the iterator; only the
+                // start of a "$gt" filter stays excluded
+                String operator = boundary.equals(exclusiveStart) ? "$gt" : "$gte";
+                params.put("creationDate[" + operator + "]", boundary.toString());
+            }
+            params.put("sort", "creationDate");
+            return getPage(params, skip, pageLimit, onBehalfOf, apiController, null);
+        }, start, limit);
+    }
+
+    /**
+     * Returns a stream over the filtered records, paged by creationDate, with the default API controller
+     *
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the request is made
+     * @return the stream
+     * @see #keysetIterator(String)
+     */
+    @SuppressWarnings("unused")
+    public Stream<Record> keysetStream(String onBehalfOf) {
+        return keysetIterator(onBehalfOf).stream();
+    }
+
+    /**
+     * Returns a stream over the filtered records, paged by creationDate
+     *
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the request is made
+     * @param apiController the controller to be used for the API calls
+     * @return the stream
+     * @see #keysetIterator(String, APIController)
+     */
+    @SuppressWarnings("unused")
+    public Stream<Record> keysetStream(String onBehalfOf, APIController apiController) {
+        return keysetIterator(onBehalfOf, apiController).stream();
     }
 
     /**
      * Creates the parameters to use during the retrieval of the records
      *
      * @param offset the start offset of the list of records
+     * @param limit  the limit of records to retrieve
      * @return the key value based list of parameters
      */
-    private Map<String, String> buildParams(Integer offset) {
+    private Map<String, String> buildParams(Integer offset, Integer limit) {
         Map<String, String> params = new HashMap<>();
         params.put("limit", Integer.toString(limit));
         params.put("offset", Integer.toString(offset));
@@ -156,6 +284,8 @@ public class RecordList extends APIObject {
         if (messageType != null) params.put("header.requestSchema.messageType", messageType);
         if (creationDate != null)
             params.put("creationDate" + ((creationDateOperator == null) ? "" : "[" + creationDateOperator + "]"), creationDate);
+        if (creationDateFrom != null) params.put("creationDate[$gte]", creationDateFrom.toString());
+        if (creationDateUntil != null) params.put("creationDate[$lt]", creationDateUntil.toString());
         if (sub != null) params.put("sub", sub);
         if (resourceUuid != null) params.put("resourceUuid", resourceUuid);
         if (sort != null) params.put("sort", sort);
@@ -188,6 +318,37 @@ public class RecordList extends APIObject {
         return this;
     }
 
+    /**
+     * Sets the tuner choosing the limit of every page from the pages retrieved before, replacing the fixed limit
+     *
+     * @param pageSizeTuner the tuner, or null to use the fixed limit
+     * @return the record list object itself
+     */
+    @SuppressWarnings("unused")
+    public RecordList setPageSizeTuner(PageSizeTuner pageSizeTuner) {
+        this.pageSizeTuner = pageSizeTuner;
+        return this;
+    }
+
+    /**
+     * Returns the tuner choosing the limit of every page, if any
+     *
+     * @return the tuner or null
+     */
+    @SuppressWarnings("unused")
+    public PageSizeTuner getPageSizeTuner() {
+        return pageSizeTuner;
+    }
+
+    /**
+     * Returns the limit of the next page, chosen by the tuner when set
+     *
+     * @return the limit
+     */
+    private int nextLimit() {
+        return pageSizeTuner != null ? pageSizeTuner.getLimit() : limit;
+    }
+
     /**
      * Sets the offset of records to start retrieving of
      *
@@ -269,6 +430,25 @@ public class RecordList extends APIObject {
         return this;
     }
 
+    /**
+     * Sets a range of creation dates to filter the records on, combining the "$gte" and "$lt" operators. The range can
+     * be combined with the filter of {@link #setCreationDate(String, String)}, but replaces a filter with the same operator.
+     *
+     * @param from  the start of the range, included, or null for no start
+     * @param until the end of the range, excluded, or null for no end
+     * @return the record list object itself
+     */
+    @SuppressWarnings("unused")
+    public RecordList setCreationDateRange(Instant from, Instant until) {
+        if (from == null || until == null || from.isBefore(until)) {
+            this.creationDateFrom = from;
+            this.creationDateUntil = until;
+        } else {
+            logger.error("Start of the range should be before its end.");
+        }
+        return this;
+    }
+
     /**
      * Sets the sub to filter the records on
      *
@@ -310,6 +490,167 @@ public class RecordList extends APIObject {
         return this;
     }
 
+    /**
+     * Counts the records matching the filter without retrieving them, with the default API controller
+     *
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the request is made
+     * @return the number of records, -1 when the platform returned an error
+     * @throws IOException          thrown when an IO error occurs
+     * @throws URISyntaxException   thrown when a URI syntax error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     * @throws JSONException        thrown when an error occurs in parsing the JSON
+     */
+    @SuppressWarnings("unused")
+    public int count(String onBehalfOf) throws IOException, URISyntaxException, InterruptedException, JSONException {
+        return count(onBehalfOf, APIController.getInstance());
+    }
+
+    /**
+     * Counts the records matching the filter without retrieving them, only a page of one record is requested for its
+     * total. The offset, limit and sort of this list are ignored.
+     *
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the request is made
+     * @param apiController the controller to be used for the API calls
+     * @return the number of records, -1 when the platform returned an error
+     * @throws IOException          thrown when an IO error occurs
+     * @throws URISyntaxException   thrown when a URI syntax error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     * @throws JSONException        thrown when an error occurs in parsing the JSON
+     */
+    @SuppressWarnings("unused")
+    public int count(String onBehalfOf, APIController apiController) throws IOException, URISyntaxException, InterruptedException, JSONException {
+        Map<String, String> params = buildParams(0, 1);
+        params.remove("sort");
+        return getPage(params, 0, 1, onBehalfOf, apiController, null).total();
+    }
+
+    /**
+     * Counts the records matching the filter per status concurrently, with the default API controller
+     *
+     * @param statuses   the statuses to count
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the requests are made
+     * @return the number of records per status in the order of the statuses, -1 for a status the platform returned an
+     * error for
+     * @throws IOException          thrown when an IO error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     */
+    @SuppressWarnings("unused")
+    public Map<String, Integer> countPerStatus(List<String> statuses, String onBehalfOf) throws IOException, InterruptedException {
+        return countPerStatus(statuses, onBehalfOf, APIController.getInstance());
+    }
+
+    /**
+     * Counts the records matching the filter per status concurrently, the status of this list is replaced by each of
+     * the statuses
+     *
+     * @param statuses      the statuses to count
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the requests are made
+     * @param apiController the controller to be used for the API calls
+     * @return the number of records per status in the order of the statuses, -1 for a status the platform returned an
+     * error for
+     * @throws IOException          thrown when an IO error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     */
+    @SuppressWarnings("unused")
+    public Map<String, Integer> countPerStatus(List<String> statuses, String onBehalfOf, APIController apiController) throws IOException, InterruptedException {
+        return countPer(statuses, value -> copy().setStatus(value), onBehalfOf, apiController);
+    }
+
+    /**
+     * Counts the records matching the filter per message type concurrently, with the default API controller
+     *
+     * @param messageTypes the message types to count
+     * @param onBehalfOf   the 6-digit nodenumber on behalf of which the requests are made
+     * @return the number of records per message type in the order of the message types, -1 for a message type the
+     * platform returned an error for
+     * @throws IOException          thrown when an IO error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     */
+    @SuppressWarnings("unused")
+    public Map<String, Integer> countPerMessageType(List<String> messageTypes, String onBehalfOf) throws IOException, InterruptedException {
+        return countPerMessageType(messageTypes, onBehalfOf, APIController.getInstance());
+    }
+
+    /**
+     * Counts the records matching the filter per message type concurrently, the message type of this list is replaced
+     * by each of the message types
+     *
+     * @param messageTypes  the message types to count
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the requests are made
+     * @param apiController the controller to be used for the API calls
+     * @return the number of records per message type in the order of the message types, -1 for a message type the
+     * platform returned an error for
+     * @throws IOException          thrown when an IO error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     */
+    @SuppressWarnings("unused")
+    public Map<String, Integer> countPerMessageType(List<String> messageTypes, String onBehalfOf, APIController apiController) throws IOException, InterruptedException {
+        return countPer(messageTypes, value -> copy().setMessageType(value), onBehalfOf, apiController);
+    }
+
+    private Map<String, Integer> countPer(List<String> values, Function<String, RecordList> filter, String onBehalfOf, APIController apiController) throws IOException, InterruptedException {
+        List<Integer> counts = FanOut.map(values, Math.max(1, values.size()), value -> filter.apply(value).count(onBehalfOf, apiController));
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            result.put(values.get(i), counts.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new record list with the same dossier and filter as this list, without the retrieved records
+     *
+     * @return the copy
+     */
+    @SuppressWarnings("unused")
+    public RecordList copy() {
+        RecordList copy = new RecordList(dossierUuid);
+        copy.limit = limit;
+        copy.offset = offset;
+        copy.status = status;
+        copy.node = node;
+        copy.messageType = messageType;
+        copy.creationDate = creationDate;
+        copy.creationDateOperator = creationDateOperator;
+        copy.creationDateFrom = creationDateFrom;
+        copy.creationDateUntil = creationDateUntil;
+        copy.sub = sub;
+        copy.resourceUuid = resourceUuid;
+        copy.sort = sort;
+        copy.pageSizeTuner = pageSizeTuner;
+        return copy;
+    }
+
+    /**
+     * Fetches the message of every retrieved record concurrently, with the default API controller
+     *
+     * @param onBehalfOf  the 6-digit nodenumber on behalf of which the requests are made
+     * @param concurrency the maximum number of requests in flight
+     * @return the record list object itself
+     * @throws IOException          thrown when an IO error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     */
+    @SuppressWarnings("unused")
+    public RecordList fetchAll(String onBehalfOf, int concurrency) throws IOException, InterruptedException {
+        return fetchAll(onBehalfOf, concurrency, APIController.getInstance());
+    }
+
+    /**
+     * Fetches the message of every retrieved record concurrently, each on its own virtual thread
+     *
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the requests are made
+     * @param concurrency   the maximum number of requests in flight
+     * @param apiController the controller to be used for the API calls
+     * @return the record list object itself
+     * @throws IOException          thrown when an IO error occurs
+     * @throws InterruptedException thrown when an interrupted error occurs
+     */
+    @SuppressWarnings("unused")
+    public RecordList fetchAll(String onBehalfOf, int concurrency, APIController apiController) throws IOException, InterruptedException {
+        FanOut.map(records, concurrency, apiRecord -> apiRecord.fetch(onBehalfOf, apiController));
+        return this;
+    }
+
     /**
      * Confirms all filtered records
      */
@@ -346,6 +687,7 @@ public class RecordList extends APIObject {
      * @throws IOException          thrown when an IO error occurs
      * @throws URISyntaxException   thrown when a URI syntax error occurs
      * @throws InterruptedException thrown when an interrupted error occurs
+     * @see nl.hdn.api.inbound.InboxPoller for polling without blocking a thread
      */
     @SuppressWarnings("unused")
     public List<Record> waitForMessage(int maxRetries, int waitTime, String onBehalfOf) throws IOException, URISyntaxException, InterruptedException {
@@ -0,0 +1,127 @@
+package nl.hdn.api.object;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * A compact set of UUIDs, stored as two longs per UUID in an open-addressing table.
+ * Identifiers that are not valid UUIDs are stored as their name based UUID.
+ */
+class UuidSet {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] mostSignificant;
+    private long[] leastSignificant;
+    private boolean[] used;
+    private int size = 0;
+
+    /**
+     * Constructs an empty set
+     */
+    UuidSet() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Adds a UUID to the set
+     *
+     * @param uuid the UUID as string
+     * @return true when the UUID was not present yet, false otherwise
+     */
+    boolean add(String uuid) {
+        UUID value = toUuid(uuid);
+        if ((size + 1) * 2 > used.length) {
+            resize();
+        }
+        return insert(value.getMostSignificantBits(), value.getLeastSignificantBits());
+    }
+
+    /**
+     * Checks if a UUID is present in the set
+     *
+     * @param uuid the UUID as string
+     * @return true when present, false otherwise
+     */
+    boolean contains(String uuid) {
+        UUID value = toUuid(uuid);
+        long msb = value.getMostSignificantBits();
+        long lsb = value.getLeastSignificantBits();
+        int mask = used.length - 1;
+        for (int slot = index(msb, lsb, mask); used[slot]; slot = (slot + 1) & mask) {
+            if (mostSignificant[slot] == msb && leastSignificant[slot] == lsb) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all UUIDs from the set, keeping the allocated capacity when it is small
+     */
+    void clear() {
+        if (used.length > INITIAL_CAPACITY * 16) {
+            allocate(INITIAL_CAPACITY);
+        } else {
+            Arrays.fill(used, false);
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the number of UUIDs in the set
+     *
+     * @return the number of UUIDs
+     */
+    int size() {
+        return size;
+    }
+
+    private boolean insert(long msb, long lsb) {
+        int mask = used.length - 1;
+        int slot = index(msb, lsb, mask);
+        while (used[slot]) {
+            if (mostSignificant[slot] == msb && leastSignificant[slot] == lsb) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        mostSignificant[slot] = msb;
+        leastSignificant[slot] = lsb;
+        size++;
+        return true;
+    }
+
+    private void resize() {
+        long[] oldMost = mostSignificant;
+        long[] oldLeast = leastSignificant;
+        boolean[] oldUsed = used;
+        allocate(oldUsed.length * 2);
+        size = 0;
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                insert(oldMost[i], oldLeast[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mostSignificant = new long[capacity];
+        leastSignificant = new long[capacity];
+        used = new boolean[capacity];
+    }
+
+    private static int index(long msb, long lsb, int mask) {
+        long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static UUID toUuid(String uuid) {
+        try {
+            return UUID.fromString(uuid);
+        } catch (IllegalArgumentException e) {
+            return UUID.nameUUIDFromBytes(uuid.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package nl.hdn.api.outbound;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.APIResponse;
+import nl.hdn.api.object.Dossier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps a number of dossiers per node created in advance, so a new case does not wait for the creation of its
+ * dossier. {@link #acquire(String)} hands out a pooled dossier when one is available and creates one otherwise;
+ * either way the pool of the node is refilled in the background on a virtual thread.
+ * <p>
+ * When the platform limits how long a dossier may stay unused, set a maximum age: older dossiers are no longer
+ * handed out but passed to the expiry handler instead.
+ */
+public class DossierPool implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(DossierPool.class);
+
+    /**
+     * A dossier waiting in the pool
+     */
+    private record Pooled(Dossier dossier, Instant createdAt) {
+    }
+
+    /**
+     * The pooled dossiers of a single node
+     */
+    private static final class NodePool {
+        private final ConcurrentLinkedDeque<Pooled> dossiers = new ConcurrentLinkedDeque<>();
+        private final AtomicBoolean refilling = new AtomicBoolean(false);
+    }
+
+    private final int size;
+    private final APIController apiController;
+    private final Clock clock;
+    private final Map<String, NodePool> pools = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private Duration maxAge = null;
+    private BiConsumer<String, Dossier> expiryHandler = (node, dossier) -> logger.debug("Pooled dossier {} of node {} expired", dossier.getResourceUuid(), node);
+    private volatile boolean closed = false;
+
+    /**
+     * Constructs a pool with the default API controller
+     *
+     * @param size the number of dossiers kept per node
+     */
+    @SuppressWarnings("unused")
+    public DossierPool(int size) {
+        this(size, APIController.getInstance());
+    }
+
+    /**
+     * Constructs a pool
+     *
+     * @param size          the number of dossiers kept per node
+     * @param apiController the controller to be used for the API calls
+     */
+    public DossierPool(int size, APIController apiController) {
+        this(size, apiController, Clock.systemUTC());
+    }
+
+    /**
+     * Constructs a pool with a clock for the expiry of dossiers
+     *
+     * @param size          the number of dossiers kept per node
+     * @param apiController the controller to be used for the API calls
+     * @param clock         the clock
+     */
+    public DossierPool(int size, APIController apiController, Clock clock) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size should be greater than 0");
+        }
+        this.size = size;
+        this.apiController = apiController;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts filling the pool of a node in the background
+     *
+     * @param node the 6-digit nodenumber on behalf of which the dossiers are created
+     * @return the pool itself
+     */
+    @SuppressWarnings("unused")
+    public DossierPool warmUp(String node) {
+        refill(node, pool(node));
+        return this;
+    }
+
+    /**
+     * Returns a created dossier for a node, from the pool when available and created on the spot otherwise
+     *
+     * @param node the 6-digit nodenumber on behalf of which the dossier is created
+     * @return the created dossier
+     * @throws IOException          exception thrown when an IO error has occured or the dossier could not be created
+     * @throws InterruptedException exception thrown when the API request to the platform was interrupted
+     */
+    public Dossier acquire(String node) throws IOException, InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("DossierPool closed");
+        }
+        NodePool pool = pool(node);
+        Pooled pooled;
+        while ((pooled = pool.dossiers.pollFirst()) != null) {
+            if (!isExpired(pooled)) {
+                hits.incrementAndGet();
+                refill(node, pool);
+                return pooled.dossier();
+            }
+            expire(node, pooled);
+        }
+
+        misses.incrementAndGet();
+        refill(node, pool);
+        return create(node);
+    }
+
+    /**
+     * Removes the expired dossiers of all nodes, handing them to the expiry handler, and refills the pools.
+     * Can be called periodically when the pool is idle for longer than the maximum age.
+     */
+    @SuppressWarnings("unused")
+    public void sweep() {
+        pools.forEach((node, pool) -> {
+            sweep(node, pool);
+            refill(node, pool);
+        });
+    }
+
+    /**
+     * Returns the number of dossiers available for a node
+     *
+     * @param node the 6-digit nodenumber
+     * @return the number of available dossiers
+     */
+    @SuppressWarnings("unused")
+    public int getAvailable(String node) {
+        NodePool pool = pools.get(node);
+        return pool == null ? 0 : pool.dossiers.size();
+    }
+
+    /**
+     * Returns the number of acquired dossiers taken from the pool
+     *
+     * @return the number of hits
+     */
+    @SuppressWarnings("unused")
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of acquired dossiers created on the spot because the pool was empty
+     *
+     * @return the number of misses
+     */
+    @SuppressWarnings("unused")
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of dossiers that expired in the pool
+     *
+     * @return the number of expired dossiers
+     */
+    @SuppressWarnings("unused")
+    public long getExpired() {
+        return expired.get();
+    }
+
+    /**
+     * Returns the fraction of acquired dossiers taken from the pool
+     *
+     * @return the hit rate between 0 and 1, or 0 when no dossier has been acquired yet
+     */
+    @SuppressWarnings("unused")
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    /**
+     * Stops refilling the pools, the dossiers left in the pools stay unused on the platform
+     */
+    @Override
+    public void close() {
+        closed = true;
+        pools.clear();
+    }
+
+    private NodePool pool(String node) {
+        return pools.computeIfAbsent(node, key -> new NodePool());
+    }
+
+    private void refill(String node, NodePool pool) {
+        if (closed || pool.dossiers.size() >= size || !pool.refilling.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("hdn-dossier-pool").start(() -> {
+            try {
+                sweep(node, pool);
+                while (!closed && pool.dossiers.size() < size) {
+                    pool.dossiers.addLast(new Pooled(create(node), clock.instant()));
+                }
+            } catch (IOException e) {
+                logger.error("Exception occured while refilling the dossier pool of node {}: {}", node, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                pool.refilling.set(false);
+            }
+        });
+    }
+
+    private void sweep(String node, NodePool pool) {
+        Pooled pooled;
+        while ((pooled = pool.dossiers.peekFirst()) != null && isExpired(pooled)) {
+            if (pool.dossiers.removeFirstOccurrence(pooled)) {
+                expire(node, pooled);
+            }
+        }
+    }
+
+    private Dossier create(String node) throws IOException, InterruptedException {
+        Dossier dossier = new Dossier();
+        APIResponse apiResponse = dossier.create(node, apiController);
+        if (apiResponse == null || apiResponse.getResponse().statusCode() != 201) {
+            throw new IOException("Dossier could not be created");
+        }
+        return dossier;
+    }
+
+    private boolean isExpired(Pooled pooled) {
+        return maxAge != null && pooled.createdAt().plus(maxAge).isBefore(clock.instant());
+    }
+
+    private void expire(String node, Pooled pooled) {
+        expired.incrementAndGet();
+        try {
+            expiryHandler.accept(node, pooled.dossier());
+        } catch (RuntimeException e) {
+            logger.error("Exception occured in the expiry handler: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Sets the maximum time a dossier stays in the pool before it expires, null to never expire
+     *
+     * @param maxAge the maximum age or null
+     * @return the pool itself
+     */
+    @SuppressWarnings("unused")
+    public DossierPool setMaxAge(Duration maxAge) {
+        if (maxAge == null || maxAge.isPositive()) {
+            this.maxAge = maxAge;
+        } else {
+            logger.error("Max age should be positive.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the handler receiving the node and the dossier when a pooled dossier expires, f.e. to reuse or record it
+     *
+     * @param expiryHandler the handler
+     * @return the pool itself
+     */
+    @SuppressWarnings("unused")
+    public DossierPool setExpiryHandler(BiConsumer<String, Dossier> expiryHandler) {
+        if (expiryHandler != null) {
+            this.expiryHandler = expiryHandler;
+        } else {
+            logger.error("Expiry handler should not be null.");
+        }
+        return this;
+    }
+}
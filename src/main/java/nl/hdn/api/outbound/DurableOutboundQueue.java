@@ -0,0 +1,488 @@
+package nl.hdn.api.outbound;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.APIResponse;
+import nl.hdn.api.object.Dossier;
+import nl.hdn.api.object.Record;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound queue backed by an {@link OutboundJournal} on local disk. A submission is accepted once its record has
+ * been written to the journal; concurrent submissions share a single fsync through group commit. Every step of the
+ * submission (dossier created, record created, sent) is journaled before the next step starts, so after a restart
+ * {@link #start()} resumes each unfinished submission at the step where it stopped.
+ * <p>
+ * Delivery is at-least-once: when the process stops after the platform handled a call but before the step was
+ * journaled, the step is repeated on recovery. Segments of the journal are deleted once all submissions written to
+ * them have been sent or failed.
+ */
+public class DurableOutboundQueue implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(DurableOutboundQueue.class);
+    private static final String FIELD_STEP = "step";
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_ON_BEHALF_OF = "onBehalfOf";
+    private static final String FIELD_DOSSIER_UUID = "dossierUuid";
+    private static final String FIELD_RECORD_UUID = "recordUuid";
+    private static final String FIELD_RECORD = "record";
+    private static final String FIELD_REASON = "reason";
+
+    /**
+     * The steps of a submission as written to the journal
+     */
+    public enum Step {
+        SUBMITTED,
+        DOSSIER_CREATED,
+        RECORD_CREATED,
+        SENT,
+        FAILED
+    }
+
+    /**
+     * A submission accepted by the queue
+     *
+     * @param id      the id of the submission in the journal
+     * @param durable completes once the submission has been written to disk
+     * @param sent    completes with the record once it has been sent, or exceptionally when all attempts failed or
+     *                the queue was shut down before, with a {@link CancellationException} in the latter case
+     */
+    public record Submission(String id, CompletableFuture<Void> durable, CompletableFuture<Record> sent) {
+    }
+
+    /**
+     * The state of a submission in progress
+     */
+    private static final class Item {
+        private final String id;
+        private final long segment;
+        private final String onBehalfOf;
+        private final JSONObject body;
+        private final CompletableFuture<Record> sent = new CompletableFuture<>();
+        private volatile String dossierUuid;
+        private volatile String recordUuid;
+        private Record apiRecord;
+        private int attempts = 0;
+
+        private Item(String id, long segment, String onBehalfOf, String dossierUuid, JSONObject body) {
+            this.id = id;
+            this.segment = segment;
+            this.onBehalfOf = onBehalfOf;
+            this.dossierUuid = dossierUuid;
+            this.body = body;
+        }
+    }
+
+    private final Path directory;
+    private final APIController apiController;
+    private final Map<String, Item> items = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Integer> openPerSegment = new ConcurrentSkipListMap<>();
+    private final BlockingQueue<Item> ready = new LinkedBlockingQueue<>();
+    private final List<Submission> recovered = new ArrayList<>();
+    private long segmentSize = 64L * 1024 * 1024;
+    private int concurrency = 16;
+    private int maxAttempts = 5;
+    private Duration retryDelay = Duration.ofSeconds(1);
+    private PrivateKey privateKey = null;
+    private DossierPool dossierPool = null;
+    private OutboundJournal journal;
+    private Semaphore permits;
+    private Thread dispatcher;
+    private volatile boolean running = false;
+
+    /**
+     * Constructs a queue journaling to a directory, with the default API controller
+     *
+     * @param directory the directory of the journal
+     */
+    @SuppressWarnings("unused")
+    public DurableOutboundQueue(Path directory) {
+        this(directory, APIController.getInstance());
+    }
+
+    /**
+     * Constructs a queue journaling to a directory
+     *
+     * @param directory     the directory of the journal
+     * @param apiController the controller to be used for the API calls
+     */
+    public DurableOutboundQueue(Path directory, APIController apiController) {
+        this.directory = directory;
+        this.apiController = apiController;
+    }
+
+    /**
+     * Opens the journal, recovers the unfinished submissions and starts processing
+     *
+     * @return the queue itself
+     * @throws IOException              thrown when the journal or the private key could not be read
+     * @throws GeneralSecurityException thrown when the private key could not be loaded
+     */
+    public DurableOutboundQueue start() throws IOException, GeneralSecurityException {
+        if (running) {
+            throw new IllegalStateException("DurableOutboundQueue already started");
+        }
+        if (privateKey == null) {
+            privateKey = apiController.getPrivateKey();
+        }
+        journal = new OutboundJournal(directory, segmentSize);
+        recover();
+        permits = new Semaphore(concurrency);
+        running = true;
+        dispatcher = Thread.ofVirtual().name("hdn-outbound-queue").start(this::dispatch);
+        return this;
+    }
+
+    /**
+     * Submits a record, signing it when it has not been signed yet. The record is accepted once the returned
+     * {@link Submission#durable()} completes.
+     *
+     * @param apiRecord  the record with header, message and miscellaneous set, the dossier UUID may be null
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the record is sent
+     * @return the submission
+     * @throws GeneralSecurityException thrown when the record could not be signed
+     */
+    public Submission submit(Record apiRecord, String onBehalfOf) throws GeneralSecurityException {
+        if (!running) {
+            throw new IllegalStateException("DurableOutboundQueue not started");
+        }
+        if (apiRecord.getResourceUuid() != null) {
+            throw new IllegalArgumentException("Record has already been created");
+        }
+        if (apiRecord.getSignature() == null) {
+            apiRecord.signMessage(privateKey);
+        }
+
+        Item item = new Item(UUID.randomUUID().toString(), journal.getCurrentSegment(), onBehalfOf, apiRecord.getDossierUuid(), apiRecord.toCreateBody());
+        JSONObject entry = entry(Step.SUBMITTED, item.id)
+                .put(FIELD_ON_BEHALF_OF, onBehalfOf)
+                .put(FIELD_RECORD, item.body);
+        if (item.dossierUuid != null) {
+            entry.put(FIELD_DOSSIER_UUID, item.dossierUuid);
+        }
+
+        // Register before appending, the segment read above is never later than the one the entry ends up in
+        open(item);
+        CompletableFuture<Void> durable = journal.append(entry).handle((segment, e) -> {
+            if (e != null) {
+                logger.error("Submission could not be journaled: {}", e.getMessage());
+                finish(item);
+                item.sent.completeExceptionally(e);
+                throw new IllegalStateException("Submission could not be journaled", e);
+            }
+            ready.add(item);
+            return null;
+        });
+        return new Submission(item.id, durable, item.sent);
+    }
+
+    /**
+     * Returns the submissions recovered from the journal by {@link #start()}
+     *
+     * @return the recovered submissions
+     */
+    @SuppressWarnings("unused")
+    public List<Submission> getRecovered() {
+        return List.copyOf(recovered);
+    }
+
+    /**
+     * Returns the number of submissions that have not been sent or failed yet
+     *
+     * @return the number of pending submissions
+     */
+    @SuppressWarnings("unused")
+    public int getPendingCount() {
+        return items.size();
+    }
+
+    /**
+     * Stops processing, waiting for the calls in progress. Unfinished submissions stay in the journal and are
+     * resumed by the next {@link #start()}; their sent futures complete with a {@link CancellationException}.
+     *
+     * @param timeout the maximum time to wait for the calls in progress
+     * @return true when all calls in progress finished within the timeout
+     * @throws InterruptedException thrown when interrupted while waiting
+     */
+    public boolean shutdown(Duration timeout) throws InterruptedException {
+        if (!running) {
+            return true;
+        }
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join();
+        boolean finished = permits.tryAcquire(concurrency, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        journal.close();
+        items.values().forEach(this::leaveToNextStart);
+        return finished;
+    }
+
+    /**
+     * Stops processing, waiting at most a minute for the calls in progress
+     */
+    @Override
+    public void close() {
+        try {
+            if (!shutdown(Duration.ofMinutes(1))) {
+                logger.warn("DurableOutboundQueue stopped with calls still in progress");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void recover() throws IOException {
+        Map<String, Item> found = new LinkedHashMap<>();
+        journal.replay((segment, entry) -> {
+            String id = entry.getString(FIELD_ID);
+            Step step = Step.valueOf(entry.getString(FIELD_STEP));
+            if (step == Step.SUBMITTED) {
+                found.put(id, new Item(id, segment, entry.getString(FIELD_ON_BEHALF_OF), entry.optString(FIELD_DOSSIER_UUID, null), entry.getJSONObject(FIELD_RECORD)));
+                return;
+            }
+            Item item = found.get(id);
+            if (item == null) {
+                return;
+            }
+            switch (step) {
+                case DOSSIER_CREATED -> item.dossierUuid = entry.getString(FIELD_DOSSIER_UUID);
+                case RECORD_CREATED -> item.recordUuid = entry.getString(FIELD_RECORD_UUID);
+                default -> found.remove(id);
+            }
+        });
+
+        for (Item item : found.values()) {
+            open(item);
+            ready.add(item);
+            recovered.add(new Submission(item.id, CompletableFuture.completedFuture(null), item.sent));
+        }
+        if (!found.isEmpty()) {
+            logger.info("Recovered {} unfinished submissions from the journal", found.size());
+        }
+        compact();
+    }
+
+    private void dispatch() {
+        try {
+            while (running) {
+                Item item = ready.take();
+                permits.acquire();
+                Thread.ofVirtual().start(() -> {
+                    try {
+                        process(item);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(Item item) {
+        try {
+            if (item.dossierUuid == null) {
+                Dossier dossier;
+                if (dossierPool != null) {
+                    dossier = dossierPool.acquire(item.onBehalfOf);
+                } else {
+                    dossier = new Dossier();
+                    APIResponse apiResponse = dossier.create(item.onBehalfOf, apiController);
+                    if (apiResponse == null || apiResponse.getResponse().statusCode() != 201) {
+                        throw new IOException("Dossier could not be created");
+                    }
+                }
+                OutboundJournal.await(journal.append(entry(Step.DOSSIER_CREATED, item.id).put(FIELD_DOSSIER_UUID, dossier.getResourceUuid())));
+                item.dossierUuid = dossier.getResourceUuid();
+            }
+
+            if (item.recordUuid == null) {
+                Record apiRecord = Record.fromCreateBody(item.dossierUuid, item.body);
+                APIResponse apiResponse = apiRecord.create(item.onBehalfOf, apiController);
+                if (apiResponse == null || apiResponse.getResponse().statusCode() != 201) {
+                    throw new IOException("Record could not be created");
+                }
+                OutboundJournal.await(journal.append(entry(Step.RECORD_CREATED, item.id).put(FIELD_RECORD_UUID, apiRecord.getResourceUuid())));
+                item.recordUuid = apiRecord.getResourceUuid();
+                item.apiRecord = apiRecord;
+            }
+
+            Record apiRecord = item.apiRecord != null ? item.apiRecord : new Record(item.dossierUuid, item.recordUuid);
+            APIResponse apiResponse = apiRecord.send(item.onBehalfOf, apiController);
+            if (apiResponse == null || apiResponse.getResponse().statusCode() != 200) {
+                throw new IOException("Record could not be sent");
+            }
+            OutboundJournal.await(journal.append(entry(Step.SENT, item.id)));
+            finish(item);
+            item.sent.complete(apiRecord);
+        } catch (InterruptedException e) {
+            // Left in the journal, resumed on the next start
+            Thread.currentThread().interrupt();
+            leaveToNextStart(item);
+        } catch (Exception e) {
+            retry(item, e);
+        }
+    }
+
+    private void retry(Item item, Exception e) {
+        item.attempts++;
+        if (item.attempts < maxAttempts && running) {
+            logger.warn("Attempt {} of submission {} failed, retrying: {}", item.attempts, item.id, e.getMessage());
+            long delay = retryDelay.toMillis() << Math.min(item.attempts - 1, 16);
+            Thread.ofVirtual().start(() -> {
+                try {
+                    Thread.sleep(delay);
+                    ready.add(item);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        } else if (running) {
+            logger.error("Submission {} failed after {} attempts: {}", item.id, item.attempts, e.getMessage());
+            journal.append(entry(Step.FAILED, item.id).put(FIELD_REASON, String.valueOf(e.getMessage())))
+                    .whenComplete((segment, journalException) -> finish(item));
+            item.sent.completeExceptionally(e);
+        } else {
+            leaveToNextStart(item);
+        }
+    }
+
+    /**
+     * Fails the sent future of a submission that stays in the journal because the queue is stopping
+     */
+    private void leaveToNextStart(Item item) {
+        item.sent.completeExceptionally(new CancellationException("Submission " + item.id + " is resumed from the journal by the next start"));
+    }
+
+    private void open(Item item) {
+        items.put(item.id, item);
+        openPerSegment.merge(item.segment, 1, Integer::sum);
+    }
+
+    private void finish(Item item) {
+        if (items.remove(item.id) != null) {
+            openPerSegment.computeIfPresent(item.segment, (segment, count) -> count > 1 ? count - 1 : null);
+            compact();
+        }
+    }
+
+    private void compact() {
+        Map.Entry<Long, Integer> oldest = openPerSegment.firstEntry();
+        int deleted = journal.deleteSegmentsBefore(oldest != null ? oldest.getKey() : journal.getCurrentSegment());
+        if (deleted > 0) {
+            logger.debug("Deleted {} completed journal segments", deleted);
+        }
+    }
+
+    private static JSONObject entry(Step step, String id) {
+        return new JSONObject().put(FIELD_STEP, step.name()).put(FIELD_ID, id);
+    }
+
+    /**
+     * Sets the size after which the journal starts a new segment, before the queue is started
+     *
+     * @param segmentSize the size in bytes, must be greater than 0
+     * @return the queue itself
+     */
+    @SuppressWarnings("unused")
+    public DurableOutboundQueue setSegmentSize(long segmentSize) {
+        if (segmentSize > 0) {
+            this.segmentSize = segmentSize;
+        } else {
+            logger.error("Segment size should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of submissions processed concurrently, before the queue is started
+     *
+     * @param concurrency the concurrency, must be greater than 0
+     * @return the queue itself
+     */
+    @SuppressWarnings("unused")
+    public DurableOutboundQueue setConcurrency(int concurrency) {
+        if (concurrency > 0) {
+            this.concurrency = concurrency;
+        } else {
+            logger.error("Concurrency should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of attempts per submission before it is marked as failed
+     *
+     * @param maxAttempts the number of attempts, must be greater than 0
+     * @return the queue itself
+     */
+    @SuppressWarnings("unused")
+    public DurableOutboundQueue setMaxAttempts(int maxAttempts) {
+        if (maxAttempts > 0) {
+            this.maxAttempts = maxAttempts;
+        } else {
+            logger.error("Max attempts should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the delay before the first retry, doubled for every further retry
+     *
+     * @param retryDelay the delay, must be positive
+     * @return the queue itself
+     */
+    @SuppressWarnings("unused")
+    public DurableOutboundQueue setRetryDelay(Duration retryDelay) {
+        if (retryDelay != null && !retryDelay.isNegative()) {
+            this.retryDelay = retryDelay;
+        } else {
+            logger.error("Retry delay should be positive.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the private key used for signing, instead of loading it from the certificate of the API controller
+     *
+     * @param privateKey the private key
+     * @return the queue itself
+     */
+    @SuppressWarnings("unused")
+    public DurableOutboundQueue setPrivateKey(PrivateKey privateKey) {
+        this.privateKey = privateKey;
+        return this;
+    }
+
+    /**
+     * Sets the pool dossiers are taken from, instead of creating a dossier for every record without one
+     *
+     * @param dossierPool the pool or null to create dossiers on the spot
+     * @return the queue itself
+     */
+    @SuppressWarnings("unused")
+    public DurableOutboundQueue setDossierPool(DossierPool dossierPool) {
+        this.dossierPool = dossierPool;
+        return this;
+    }
+}
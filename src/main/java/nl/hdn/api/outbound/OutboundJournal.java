@@ -0,0 +1,349 @@
+package nl.hdn.api.outbound;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented journal on local disk. Every entry is a JSON object, framed as length, CRC32 and UTF-8
+ * bytes. Appends are collected by a single writer thread that writes all pending entries and forces them to disk with
+ * one fsync (group commit), so many concurrent appends share the cost of a single flush.
+ * <p>
+ * A new segment is started on every open and whenever the current segment exceeds the segment size, so a torn entry
+ * at the tail of a segment left by a crash is never appended to. Replay stops reading a segment at the first entry
+ * that is incomplete or fails its checksum. The directory is forced after a segment is created or deleted, so the set
+ * of segments survives a crash as well.
+ */
+public class OutboundJournal implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(OutboundJournal.class);
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_ENTRY_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_BATCH = 1024;
+
+    /**
+     * An entry waiting for the writer thread
+     */
+    private record PendingWrite(byte[] data, CompletableFuture<Long> future) {
+    }
+
+    private static final PendingWrite POISON = new PendingWrite(new byte[0], null);
+
+    private final Path directory;
+    private final long segmentSize;
+    private final TreeSet<Long> segments = new TreeSet<>();
+    private final ReentrantLock segmentLock = new ReentrantLock();
+    private final ReentrantLock stateLock = new ReentrantLock();
+    private final BlockingQueue<PendingWrite> pending = new LinkedBlockingQueue<>();
+    private volatile long currentSegment;
+    private volatile boolean closed = false;
+    private FileChannel channel;
+    private Thread writer;
+
+    /**
+     * Opens the journal in a directory, creating the directory when needed
+     *
+     * @param directory   the directory holding the segments
+     * @param segmentSize the size in bytes after which a new segment is started
+     * @throws IOException thrown when the directory could not be read or created
+     */
+    public OutboundJournal(Path directory, long segmentSize) throws IOException {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size should be greater than 0");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> {
+                        try {
+                            segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                        } catch (NumberFormatException e) {
+                            logger.warn("Ignoring unknown file in journal directory: {}", name);
+                        }
+                    });
+        }
+        currentSegment = segments.isEmpty() ? 0 : segments.last();
+    }
+
+    /**
+     * Reads all entries of all segments in the order they were written. Must be called before the first append.
+     *
+     * @param consumer receives the segment number and the entry
+     * @throws IOException thrown when a segment could not be read
+     */
+    public void replay(BiConsumer<Long, JSONObject> consumer) throws IOException {
+        for (long segment : List.copyOf(segments)) {
+            Path file = segmentPath(segment);
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            while (buffer.remaining() >= HEADER_SIZE) {
+                int position = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < 0 || length > MAX_ENTRY_SIZE || length > buffer.remaining()) {
+                    logger.warn("Incomplete entry at {} in {}, ignoring the rest of the segment", position, file);
+                    break;
+                }
+                byte[] data = new byte[length];
+                buffer.get(data);
+                if (crc(data) != checksum) {
+                    logger.warn("Checksum mismatch at {} in {}, ignoring the rest of the segment", position, file);
+                    break;
+                }
+                try {
+                    consumer.accept(segment, new JSONObject(new String(data, StandardCharsets.UTF_8)));
+                } catch (JSONException e) {
+                    logger.warn("Unreadable entry at {} in {}, ignoring the rest of the segment", position, file);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends an entry, starting the writer thread on first use
+     *
+     * @param entry the entry
+     * @return a future completing with the segment of the entry once it has been forced to disk
+     */
+    public CompletableFuture<Long> append(JSONObject entry) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        stateLock.lock();
+        try {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("OutboundJournal closed"));
+            }
+            if (writer == null) {
+                writer = Thread.ofPlatform().name("hdn-journal-writer").daemon().start(this::write);
+            }
+            pending.add(new PendingWrite(entry.toString().getBytes(StandardCharsets.UTF_8), future));
+        } finally {
+            stateLock.unlock();
+        }
+        return future;
+    }
+
+    /**
+     * Returns the segment currently written to
+     *
+     * @return the segment number
+     */
+    public long getCurrentSegment() {
+        return currentSegment;
+    }
+
+    /**
+     * Deletes all segments before a given segment, the current segment is never deleted
+     *
+     * @param segment the first segment to keep
+     * @return the number of deleted segments
+     */
+    public int deleteSegmentsBefore(long segment) {
+        int deleted = 0;
+        segmentLock.lock();
+        try {
+            for (Long old : List.copyOf(segments.headSet(Math.min(segment, currentSegment)))) {
+                try {
+                    Files.deleteIfExists(segmentPath(old));
+                    segments.remove(old);
+                    deleted++;
+                } catch (IOException e) {
+                    logger.error("Segment {} could not be deleted: {}", old, e.getMessage());
+                }
+            }
+            if (deleted > 0) {
+                forceDirectory();
+            }
+        } finally {
+            segmentLock.unlock();
+        }
+        return deleted;
+    }
+
+    /**
+     * Returns the number of segments on disk
+     *
+     * @return the number of segments
+     */
+    @SuppressWarnings("unused")
+    public int getSegmentCount() {
+        segmentLock.lock();
+        try {
+            return segments.size();
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    /**
+     * Writes all pending entries and closes the current segment
+     */
+    @Override
+    public void close() {
+        Thread running;
+        stateLock.lock();
+        try {
+            closed = true;
+            running = writer;
+        } finally {
+            stateLock.unlock();
+        }
+        if (running != null) {
+            pending.add(POISON);
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void write() {
+        List<PendingWrite> batch = new ArrayList<>();
+        boolean running = true;
+        try {
+            roll();
+            while (running) {
+                batch.add(pending.take());
+                pending.drainTo(batch, MAX_BATCH);
+                if (batch.remove(POISON)) {
+                    running = false;
+                }
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Journal could not be written: {}", e.getMessage());
+            batch.forEach(write -> write.future().completeExceptionally(e));
+            stateLock.lock();
+            try {
+                closed = true;
+            } finally {
+                stateLock.unlock();
+            }
+        } finally {
+            pending.forEach(write -> {
+                if (write.future() != null) {
+                    write.future().completeExceptionally(new IllegalStateException("OutboundJournal closed"));
+                }
+            });
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                logger.error("Journal segment could not be closed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) throws IOException {
+        int size = 0;
+        for (PendingWrite write : batch) {
+            size += HEADER_SIZE + write.data().length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (PendingWrite write : batch) {
+            buffer.putInt(write.data().length).putInt(crc(write.data())).put(write.data());
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+
+        long segment = currentSegment;
+        try {
+            if (channel.size() >= segmentSize) {
+                roll();
+            }
+        } finally {
+            // Completed after the roll, so a caller that waited for its entry sees the segment written to next
+            batch.forEach(write -> write.future().complete(segment));
+        }
+    }
+
+    private void roll() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        long next = currentSegment + 1;
+        channel = FileChannel.open(segmentPath(next), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        forceDirectory();
+        segmentLock.lock();
+        try {
+            segments.add(next);
+            currentSegment = next;
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    /**
+     * Forces the directory entries to disk, so a created segment is still there and a deleted segment is not replayed
+     * after a crash. Not every platform can open a directory, there the file system is relied upon.
+     */
+    private void forceDirectory() {
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException e) {
+            logger.debug("Journal directory could not be forced: {}", e.getMessage());
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private static int crc(byte[] data) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data);
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * Waits for an append, rethrowing failures as unchecked exceptions
+     *
+     * @param future the future returned by {@link #append(JSONObject)}
+     * @return the segment of the entry
+     * @throws InterruptedException thrown when interrupted while waiting
+     */
+    static long await(CompletableFuture<Long> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
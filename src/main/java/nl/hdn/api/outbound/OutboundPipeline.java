@@ -0,0 +1,318 @@
+package nl.hdn.api.outbound;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.APIResponse;
+import nl.hdn.api.object.Dossier;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.pipeline.Stage;
+import nl.hdn.api.pipeline.StageMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Submits outbound records through four bounded stages: dossier creation, signing, upload (create) and send.
+ * Each stage has its own concurrency and queue, so the CPU-bound signing of one record overlaps with the network
+ * calls of others, and a slow stage applies backpressure to {@link #submit(Record, String)}.
+ * <p>
+ * Records without a dossier UUID get a new dossier in the first stage, all other records start at the signing stage.
+ */
+public class OutboundPipeline implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(OutboundPipeline.class);
+
+    /**
+     * A record travelling through the pipeline
+     */
+    private record Submission(Record apiRecord, String onBehalfOf, CompletableFuture<Record> future) {
+    }
+
+    private final APIController apiController;
+    private final Set<CompletableFuture<Record>> inFlight = ConcurrentHashMap.newKeySet();
+    private int dossierConcurrency = 4;
+    private int signingConcurrency = Runtime.getRuntime().availableProcessors();
+    private int uploadConcurrency = 16;
+    private int sendConcurrency = 16;
+    private int queueCapacity = 1000;
+    private PrivateKey privateKey = null;
+    private DossierPool dossierPool = null;
+
+    private Stage<Submission, Submission> dossierStage;
+    private Stage<Submission, Submission> signingStage;
+    private Stage<Submission, Submission> uploadStage;
+    private Stage<Submission, Submission> sendStage;
+
+    /**
+     * Constructs a pipeline with the default API controller
+     */
+    @SuppressWarnings("unused")
+    public OutboundPipeline() {
+        this(APIController.getInstance());
+    }
+
+    /**
+     * Constructs a pipeline
+     *
+     * @param apiController the controller to be used for the API calls
+     */
+    public OutboundPipeline(APIController apiController) {
+        this.apiController = apiController;
+    }
+
+    /**
+     * Starts the stages of the pipeline, loading the private key once when none has been set
+     *
+     * @return the pipeline itself
+     * @throws IOException              thrown when the private key could not be read
+     * @throws GeneralSecurityException thrown when the private key could not be loaded
+     */
+    public OutboundPipeline start() throws IOException, GeneralSecurityException {
+        if (sendStage != null) {
+            throw new IllegalStateException("OutboundPipeline already started");
+        }
+        if (privateKey == null) {
+            privateKey = apiController.getPrivateKey();
+        }
+        sendStage = new Stage<>("send", queueCapacity, sendConcurrency, this::send, submission -> submission.future().complete(submission.apiRecord()), this::fail);
+        uploadStage = new Stage<>("upload", queueCapacity, uploadConcurrency, this::upload, sendStage::submit, this::fail);
+        signingStage = new Stage<>("sign", queueCapacity, signingConcurrency, this::sign, uploadStage::submit, this::fail);
+        dossierStage = new Stage<>("dossier", queueCapacity, dossierConcurrency, this::createDossier, signingStage::submit, this::fail);
+        return this;
+    }
+
+    /**
+     * Submits a record, blocking while the first stage is full
+     *
+     * @param apiRecord  the record with header, message and miscellaneous set, the dossier UUID may be null
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the record is sent
+     * @return a future completing with the record once it has been sent
+     * @throws InterruptedException thrown when interrupted while waiting for room in the pipeline
+     */
+    public CompletableFuture<Record> submit(Record apiRecord, String onBehalfOf) throws InterruptedException {
+        if (sendStage == null) {
+            throw new IllegalStateException("OutboundPipeline not started");
+        }
+        Submission submission = new Submission(apiRecord, onBehalfOf, new CompletableFuture<>());
+        inFlight.add(submission.future());
+        submission.future().whenComplete((result, e) -> inFlight.remove(submission.future()));
+        try {
+            if (apiRecord.getDossierUuid() == null) {
+                dossierStage.submit(submission);
+            } else {
+                signingStage.submit(submission);
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            submission.future().completeExceptionally(e);
+            throw e;
+        }
+        return submission.future();
+    }
+
+    /**
+     * Returns the metrics of all stages, in pipeline order
+     *
+     * @return the metrics per stage
+     */
+    @SuppressWarnings("unused")
+    public List<StageMetrics> getMetrics() {
+        if (sendStage == null) {
+            return List.of();
+        }
+        return List.of(dossierStage.getMetrics(), signingStage.getMetrics(), uploadStage.getMetrics(), sendStage.getMetrics());
+    }
+
+    /**
+     * Waits until all submitted records have passed the pipeline and stops the stages. When a stage does not finish
+     * within the timeout, the futures of the records still in the pipeline complete with an
+     * {@link IllegalStateException}; these records may have been created on the platform without being sent.
+     *
+     * @param timeout the maximum time to wait per stage
+     * @return true when all records passed the pipeline within the timeout
+     * @throws InterruptedException thrown when interrupted while waiting
+     */
+    public boolean shutdown(Duration timeout) throws InterruptedException {
+        if (sendStage == null) {
+            return true;
+        }
+        boolean completed = dossierStage.shutdown(timeout)
+                & signingStage.shutdown(timeout)
+                & uploadStage.shutdown(timeout)
+                & sendStage.shutdown(timeout);
+        if (!completed) {
+            IllegalStateException e = new IllegalStateException("OutboundPipeline stopped before the record was sent");
+            for (CompletableFuture<Record> future : List.copyOf(inFlight)) {
+                future.completeExceptionally(e);
+            }
+            inFlight.clear();
+        }
+        return completed;
+    }
+
+    /**
+     * Stops the pipeline, waiting at most a minute for the records in progress
+     */
+    @Override
+    public void close() {
+        try {
+            if (!shutdown(Duration.ofMinutes(1))) {
+                logger.warn("OutboundPipeline stopped with records still in progress");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Submission createDossier(Submission submission) throws IOException, InterruptedException {
+        Dossier dossier;
+        if (dossierPool != null) {
+            dossier = dossierPool.acquire(submission.onBehalfOf());
+        } else {
+            dossier = new Dossier();
+            APIResponse apiResponse = dossier.create(submission.onBehalfOf(), apiController);
+            if (apiResponse == null || apiResponse.getResponse().statusCode() != 201) {
+                throw new IOException("Dossier could not be created");
+            }
+        }
+        submission.apiRecord().setDossierUuid(dossier.getResourceUuid());
+        return submission;
+    }
+
+    private Submission sign(Submission submission) throws GeneralSecurityException {
+        submission.apiRecord().signMessage(privateKey);
+        return submission;
+    }
+
+    private Submission upload(Submission submission) throws IOException, InterruptedException {
+        if (submission.apiRecord().getResourceUuid() == null) {
+            APIResponse apiResponse = submission.apiRecord().create(submission.onBehalfOf(), apiController);
+            if (apiResponse == null || apiResponse.getResponse().statusCode() != 201) {
+                throw new IOException("Record could not be created");
+            }
+        }
+        return submission;
+    }
+
+    private Submission send(Submission submission) throws IOException, InterruptedException {
+        APIResponse apiResponse = submission.apiRecord().send(submission.onBehalfOf(), apiController);
+        if (apiResponse == null || apiResponse.getResponse().statusCode() != 200) {
+            throw new IOException("Record could not be sent");
+        }
+        return submission;
+    }
+
+    private void fail(Submission submission, Exception e) {
+        logger.error("Exception occured while submitting a record: {}", e.getMessage());
+        submission.future().completeExceptionally(e);
+    }
+
+    /**
+     * Sets the number of dossiers created concurrently
+     *
+     * @param dossierConcurrency the concurrency, must be greater than 0
+     * @return the pipeline itself
+     */
+    @SuppressWarnings("unused")
+    public OutboundPipeline setDossierConcurrency(int dossierConcurrency) {
+        if (dossierConcurrency > 0) {
+            this.dossierConcurrency = dossierConcurrency;
+        } else {
+            logger.error("Concurrency should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of records signed concurrently, defaults to the number of processors
+     *
+     * @param signingConcurrency the concurrency, must be greater than 0
+     * @return the pipeline itself
+     */
+    @SuppressWarnings("unused")
+    public OutboundPipeline setSigningConcurrency(int signingConcurrency) {
+        if (signingConcurrency > 0) {
+            this.signingConcurrency = signingConcurrency;
+        } else {
+            logger.error("Concurrency should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of records created concurrently
+     *
+     * @param uploadConcurrency the concurrency, must be greater than 0
+     * @return the pipeline itself
+     */
+    @SuppressWarnings("unused")
+    public OutboundPipeline setUploadConcurrency(int uploadConcurrency) {
+        if (uploadConcurrency > 0) {
+            this.uploadConcurrency = uploadConcurrency;
+        } else {
+            logger.error("Concurrency should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of records sent concurrently
+     *
+     * @param sendConcurrency the concurrency, must be greater than 0
+     * @return the pipeline itself
+     */
+    @SuppressWarnings("unused")
+    public OutboundPipeline setSendConcurrency(int sendConcurrency) {
+        if (sendConcurrency > 0) {
+            this.sendConcurrency = sendConcurrency;
+        } else {
+            logger.error("Concurrency should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the capacity of the queue of every stage
+     *
+     * @param queueCapacity the capacity, must be greater than 0
+     * @return the pipeline itself
+     */
+    @SuppressWarnings("unused")
+    public OutboundPipeline setQueueCapacity(int queueCapacity) {
+        if (queueCapacity > 0) {
+            this.queueCapacity = queueCapacity;
+        } else {
+            logger.error("Queue capacity should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the private key used for signing, instead of loading it from the certificate of the API controller
+     *
+     * @param privateKey the private key
+     * @return the pipeline itself
+     */
+    @SuppressWarnings("unused")
+    public OutboundPipeline setPrivateKey(PrivateKey privateKey) {
+        this.privateKey = privateKey;
+        return this;
+    }
+
+    /**
+     * Sets the pool dossiers are taken from, instead of creating a dossier for every record without one
+     *
+     * @param dossierPool the pool or null to create dossiers on the spot
+     * @return the pipeline itself
+     */
+    @SuppressWarnings("unused")
+    public OutboundPipeline setDossierPool(DossierPool dossierPool) {
+        this.dossierPool = dossierPool;
+        return this;
+    }
+}
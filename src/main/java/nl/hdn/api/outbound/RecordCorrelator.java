@@ -0,0 +1,312 @@
+package nl.hdn.api.outbound;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.APIResponse;
+import nl.hdn.api.inbound.HookHandler;
+import nl.hdn.api.inbound.InboxListener;
+import nl.hdn.api.object.Record;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Correlates outbound records with the replies that arrive in the same dossier, f.e. an "OX Offerte" answering an
+ * "AX OfferteAanvraag". Every outstanding request is held in constant time lookup maps by its own UUID, its
+ * business key and its dossier; a reply is matched on its parentRecord first, then on its business key and finally
+ * on the outstanding request in its dossier that was sent to the sender of the reply and expects the message type of
+ * the reply, by its response schemas or by {@link #addReplyType(String, String)}. When several requests in the
+ * dossier qualify, the reply is not correlated rather than matched to the wrong request.
+ * <p>
+ * Replies are offered by an {@link nl.hdn.api.inbound.InboxPoller} through {@link #asInboxListener()} or by a
+ * {@link nl.hdn.api.inbound.HookReceiver} through {@link #asHookHandler(String, APIController)}.
+ */
+public class RecordCorrelator {
+    private static final Logger logger = LoggerFactory.getLogger(RecordCorrelator.class);
+
+    /**
+     * An outstanding request
+     */
+    private record Pending(Record request, String businessKey, CompletableFuture<Record> future) {
+    }
+
+    private final Map<String, Pending> byRequest = new ConcurrentHashMap<>();
+    private final Map<String, Pending> byBusinessKey = new ConcurrentHashMap<>();
+    private final Map<String, Queue<Pending>> byDossier = new ConcurrentHashMap<>();
+    /**
+     * The message types of the replies per message type of the requests, besides the response schemas of a request
+     */
+    private final Map<String, Set<String>> replyTypes = new ConcurrentHashMap<>();
+    /**
+     * The time after which an outstanding request fails with a TimeoutException
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+    /**
+     * Extracts the business key of a request or reply, returns null when a record has no business key
+     */
+    private Function<Record, String> businessKeyExtractor = apiRecord -> null;
+
+    /**
+     * Creates (when needed) and sends a record and returns a future for its reply, with the default API controller
+     *
+     * @param apiRecord  the record to send
+     * @param onBehalfOf the 6-digit nodenumber on behalf of which the request is made
+     * @return a future completing with the reply
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Record> submit(Record apiRecord, String onBehalfOf) {
+        return submit(apiRecord, onBehalfOf, APIController.getInstance());
+    }
+
+    /**
+     * Creates (when needed) and sends a record on a virtual thread and returns a future for its reply. The request is
+     * registered before it is sent, so a fast reply cannot be missed.
+     *
+     * @param apiRecord     the record to send
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the request is made
+     * @param apiController the controller to be used for the API calls
+     * @return a future completing with the reply, or exceptionally when the record could not be sent or no reply arrived in time
+     */
+    public CompletableFuture<Record> submit(Record apiRecord, String onBehalfOf, APIController apiController) {
+        CompletableFuture<Record> reply = new CompletableFuture<>();
+        Thread.ofVirtual().name("hdn-correlator-submit").start(() -> {
+            try {
+                if (apiRecord.getResourceUuid() == null) {
+                    APIResponse created = apiRecord.create(onBehalfOf, apiController);
+                    if (created == null || created.getResponse().statusCode() != 201) {
+                        throw new IOException("Record could not be created");
+                    }
+                }
+                expect(apiRecord).whenComplete((result, e) -> {
+                    if (e != null) reply.completeExceptionally(e);
+                    else reply.complete(result);
+                });
+                APIResponse sent = apiRecord.send(onBehalfOf, apiController);
+                if (sent == null || sent.getResponse().statusCode() != 200) {
+                    throw new IOException("Record could not be sent");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel(apiRecord, reply, e);
+            } catch (Exception e) {
+                cancel(apiRecord, reply, e);
+            }
+        });
+        return reply;
+    }
+
+    /**
+     * Registers a record that has been created (and possibly sent) already and returns a future for its reply
+     *
+     * @param apiRecord the created record
+     * @return a future completing with the reply, or exceptionally when no reply arrived in time
+     */
+    public CompletableFuture<Record> expect(Record apiRecord) {
+        if (apiRecord.getResourceUuid() == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Record is not created yet"));
+        }
+        Pending pending = new Pending(apiRecord, businessKeyExtractor.apply(apiRecord), new CompletableFuture<>());
+        byRequest.put(apiRecord.getResourceUuid(), pending);
+        if (pending.businessKey() != null) {
+            byBusinessKey.put(pending.businessKey(), pending);
+        }
+        if (apiRecord.getDossierUuid() != null) {
+            byDossier.compute(apiRecord.getDossierUuid(), (key, queue) -> {
+                Queue<Pending> pendingInDossier = queue == null ? new ConcurrentLinkedQueue<>() : queue;
+                pendingInDossier.add(pending);
+                return pendingInDossier;
+            });
+        }
+        pending.future()
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((reply, e) -> remove(pending));
+        return pending.future();
+    }
+
+    /**
+     * Offers a possible reply, completing the outstanding request it answers
+     *
+     * @param reply the received record
+     * @return true when the record matched an outstanding request
+     */
+    public boolean offer(Record reply) {
+        Pending pending = match(reply);
+        if (pending == null) {
+            return false;
+        }
+        logger.debug("Record {} correlated with request {}", reply.getResourceUuid(), pending.request().getResourceUuid());
+        return pending.future().complete(reply);
+    }
+
+    /**
+     * Returns a listener that offers every record found by an inbox poller
+     *
+     * @return the inbox listener
+     */
+    @SuppressWarnings("unused")
+    public InboxListener asInboxListener() {
+        return this::offer;
+    }
+
+    /**
+     * Returns a hook handler that fetches the delivered record and offers it, with the given API controller
+     *
+     * @param onBehalfOf    the 6-digit nodenumber on behalf of which the record is fetched
+     * @param apiController the controller to be used for the API calls
+     * @return the hook handler
+     */
+    @SuppressWarnings("unused")
+    public HookHandler asHookHandler(String onBehalfOf, APIController apiController) {
+        return delivery -> {
+            String recordUuid = delivery.recordUuid() != null ? delivery.recordUuid() : delivery.resourceUuid();
+            if (delivery.dossierUuid() != null && recordUuid != null && byDossier.containsKey(delivery.dossierUuid())) {
+                offer(new Record(delivery.dossierUuid(), recordUuid).fetch(onBehalfOf, apiController));
+            }
+        };
+    }
+
+    /**
+     * Returns the number of outstanding requests
+     *
+     * @return the number of outstanding requests
+     */
+    @SuppressWarnings("unused")
+    public int getPendingCount() {
+        return byRequest.size();
+    }
+
+    /**
+     * Finds the outstanding request a record answers
+     *
+     * @param reply the received record
+     * @return the outstanding request, or null when there is none
+     */
+    private Pending match(Record reply) {
+        if (byRequest.containsKey(reply.getResourceUuid())) {
+            // The request itself, f.e. when polling the records of both nodes
+            return null;
+        }
+        String parent = reply.getParentRecord();
+        if (parent != null && !parent.isEmpty()) {
+            Pending pending = byRequest.get(parent);
+            if (pending != null) return pending;
+        }
+        String businessKey = businessKeyExtractor.apply(reply);
+        if (businessKey != null) {
+            Pending pending = byBusinessKey.get(businessKey);
+            if (pending != null) return pending;
+        }
+        Queue<Pending> candidates = reply.getDossierUuid() == null ? null : byDossier.get(reply.getDossierUuid());
+        if (candidates == null) {
+            return null;
+        }
+        Pending found = null;
+        for (Pending pending : candidates) {
+            if (answers(pending.request(), reply)) {
+                if (found != null) {
+                    logger.warn("Record {} answers several outstanding requests in dossier {}, not correlated", reply.getResourceUuid(), reply.getDossierUuid());
+                    return null;
+                }
+                found = pending;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Checks if the reply was sent by the receiver of the request and has a message type the request expects
+     */
+    private boolean answers(Record request, Record reply) {
+        if (request.getHeader() == null || reply.getHeader() == null || reply.getHeader().requestSchema() == null) {
+            return false;
+        }
+        if (request.getHeader().receiver() == null || !request.getHeader().receiver().equals(reply.getHeader().sender())) {
+            return false;
+        }
+        String replyType = reply.getHeader().requestSchema().messageType();
+        if (request.getHeader().responseSchemas() != null) {
+            for (Record.ResponseSchema responseSchema : request.getHeader().responseSchemas()) {
+                if (responseSchema.messageType().equals(replyType)) {
+                    return true;
+                }
+            }
+        }
+        String requestType = request.getHeader().requestSchema() == null ? null : request.getHeader().requestSchema().messageType();
+        return requestType != null && replyTypes.getOrDefault(requestType, Set.of()).contains(replyType);
+    }
+
+    private void cancel(Record apiRecord, CompletableFuture<Record> reply, Exception e) {
+        logger.error("Exception occured while submitting record {}: {}", apiRecord.getResourceUuid(), e.getMessage());
+        Pending pending = apiRecord.getResourceUuid() == null ? null : byRequest.get(apiRecord.getResourceUuid());
+        if (pending != null) {
+            pending.future().completeExceptionally(e);
+        }
+        reply.completeExceptionally(e);
+    }
+
+    private void remove(Pending pending) {
+        byRequest.remove(pending.request().getResourceUuid(), pending);
+        if (pending.businessKey() != null) {
+            byBusinessKey.remove(pending.businessKey(), pending);
+        }
+        String dossierUuid = pending.request().getDossierUuid();
+        if (dossierUuid != null) {
+            byDossier.computeIfPresent(dossierUuid, (key, queue) -> {
+                queue.remove(pending);
+                return queue.isEmpty() ? null : queue;
+            });
+        }
+    }
+
+    /**
+     * Sets the time after which an outstanding request fails with a TimeoutException
+     *
+     * @param timeout the timeout, must be positive
+     * @return the correlator itself
+     */
+    @SuppressWarnings("unused")
+    public RecordCorrelator setTimeout(Duration timeout) {
+        if (!timeout.isNegative() && !timeout.isZero()) {
+            this.timeout = timeout;
+        } else {
+            logger.error("Timeout should be positive.");
+        }
+        return this;
+    }
+
+    /**
+     * Declares the message type of the replies to a message type of requests, f.e. "OX Offerte" for
+     * "AX OfferteAanvraag", for requests that do not list it in their response schemas. Only replies of a declared
+     * type are matched to a request without a parentRecord or business key.
+     *
+     * @param requestMessageType the message type of the requests
+     * @param replyMessageType   the message type of the replies
+     * @return the correlator itself
+     */
+    @SuppressWarnings("unused")
+    public RecordCorrelator addReplyType(String requestMessageType, String replyMessageType) {
+        replyTypes.computeIfAbsent(requestMessageType, key -> ConcurrentHashMap.newKeySet()).add(replyMessageType);
+        return this;
+    }
+
+    /**
+     * Sets the function that extracts the business key of a request or reply
+     *
+     * @param businessKeyExtractor the extractor, returning null when a record has no business key
+     * @return the correlator itself
+     */
+    @SuppressWarnings("unused")
+    public RecordCorrelator setBusinessKeyExtractor(Function<Record, String> businessKeyExtractor) {
+        this.businessKeyExtractor = businessKeyExtractor;
+        return this;
+    }
+}
@@ -0,0 +1,226 @@
+package nl.hdn.api.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single stage of a pipeline, with a bounded queue and a fixed number of workers running on virtual threads.
+ * Submitting to a full stage blocks the caller, so a slow stage applies backpressure to the stages before it.
+ *
+ * @param <I> the type of the items entering the stage
+ * @param <O> the type of the items leaving the stage
+ */
+public class Stage<I, O> {
+    private static final Logger logger = LoggerFactory.getLogger(Stage.class);
+
+    /**
+     * The work of a stage
+     *
+     * @param <I> the type of the items entering the stage
+     * @param <O> the type of the items leaving the stage
+     */
+    @FunctionalInterface
+    public interface Task<I, O> {
+        /**
+         * Processes a single item
+         *
+         * @param input the item
+         * @return the result passed to the next stage, or null to stop processing the item
+         * @throws Exception thrown when the item could not be processed
+         */
+        O apply(I input) throws Exception;
+    }
+
+    /**
+     * Receives the results of a stage, usually the next stage
+     *
+     * @param <O> the type of the results
+     */
+    @FunctionalInterface
+    public interface Sink<O> {
+        /**
+         * Accepts a result, blocking while the receiver is full
+         *
+         * @param output the result
+         * @throws InterruptedException thrown when interrupted while waiting
+         */
+        void accept(O output) throws InterruptedException;
+    }
+
+    /**
+     * Handles the failure of an item in a stage
+     *
+     * @param <I> the type of the items entering the stage
+     */
+    @FunctionalInterface
+    public interface FailureHandler<I> {
+        /**
+         * Handles a failed item
+         *
+         * @param input     the item
+         * @param exception the failure
+         */
+        void failed(I input, Exception exception);
+    }
+
+    private record Entry<I>(I item, long enqueuedAt) {
+    }
+
+    private final String name;
+    private final int concurrency;
+    private final BlockingQueue<Entry<I>> queue;
+    private final Task<I, O> task;
+    private final Sink<O> sink;
+    private final FailureHandler<I> failureHandler;
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private volatile boolean stopping = false;
+
+    /**
+     * Constructs and starts a stage
+     *
+     * @param name           the name of the stage, used for the metrics and the worker threads
+     * @param queueCapacity  the capacity of the queue of the stage
+     * @param concurrency    the number of items processed concurrently
+     * @param task           the work of the stage
+     * @param sink           the receiver of the results
+     * @param failureHandler the handler of failed items
+     */
+    public Stage(String name, int queueCapacity, int concurrency, Task<I, O> task, Sink<O> sink, FailureHandler<I> failureHandler) {
+        this.name = name;
+        this.concurrency = concurrency;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.task = task;
+        this.sink = sink;
+        this.failureHandler = failureHandler;
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(Thread.ofVirtual().name("hdn-stage-" + name + "-" + i).start(this::work));
+        }
+    }
+
+    /**
+     * Submits an item to the stage, blocking while the queue of the stage is full
+     *
+     * @param item the item
+     * @throws InterruptedException thrown when interrupted while waiting
+     */
+    public void submit(I item) throws InterruptedException {
+        if (stopping) {
+            throw new IllegalStateException("Stage " + name + " is stopped");
+        }
+        queue.put(new Entry<>(item, System.nanoTime()));
+    }
+
+    /**
+     * Stops accepting items, waits until the queued items have been processed and stops the workers
+     *
+     * @param timeout the maximum time to wait
+     * @return true when all items were processed within the timeout
+     * @throws InterruptedException thrown when interrupted while waiting
+     */
+    public boolean shutdown(Duration timeout) throws InterruptedException {
+        stopping = true;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Thread worker : workers) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !worker.join(Duration.ofNanos(remaining))) {
+                workers.forEach(Thread::interrupt);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a snapshot of the metrics of the stage
+     *
+     * @return the metrics
+     */
+    public StageMetrics getMetrics() {
+        long count = processed.get() + failed.get();
+        return new StageMetrics(
+                name,
+                queue.size(),
+                queue.size() + queue.remainingCapacity(),
+                concurrency,
+                processed.get(),
+                failed.get(),
+                Duration.ofNanos(count == 0 ? 0 : totalNanos.get() / count),
+                Duration.ofNanos(maxNanos.get()),
+                Duration.ofNanos(count == 0 ? 0 : totalWaitNanos.get() / count));
+    }
+
+    /**
+     * Takes items from the queue and processes them until the stage is stopped and the queue is empty
+     */
+    private void work() {
+        try {
+            while (!stopping || !queue.isEmpty()) {
+                Entry<I> entry = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (entry != null) {
+                    process(entry);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(Entry<I> entry) throws InterruptedException {
+        long start = System.nanoTime();
+        totalWaitNanos.addAndGet(start - entry.enqueuedAt());
+        O output;
+        try {
+            output = task.apply(entry.item());
+        } catch (InterruptedException e) {
+            fail(entry.item(), e);
+            throw e;
+        } catch (Exception e) {
+            record(start);
+            fail(entry.item(), e);
+            return;
+        }
+        record(start);
+        if (output != null) {
+            try {
+                sink.accept(output);
+            } catch (RuntimeException e) {
+                // F.e. the next stage has been stopped, the worker carries on with the next item
+                fail(entry.item(), e);
+                return;
+            }
+        }
+        processed.incrementAndGet();
+    }
+
+    /**
+     * Counts a failed item and passes it to the failure handler, which may not stop the worker either
+     */
+    private void fail(I item, Exception exception) {
+        failed.incrementAndGet();
+        logger.debug("Item failed in stage {}: {}", name, exception.getMessage());
+        try {
+            failureHandler.failed(item, exception);
+        } catch (RuntimeException e) {
+            logger.error("Exception occured while handling a failed item in stage {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void record(long start) {
+        long elapsed = System.nanoTime() - start;
+        totalNanos.addAndGet(elapsed);
+        maxNanos.accumulateAndGet(elapsed, Math::max);
+    }
+}
@@ -0,0 +1,29 @@
+package nl.hdn.api.pipeline;
+
+import java.time.Duration;
+
+/**
+ * A snapshot of the metrics of a single pipeline stage
+ *
+ * @param name           the name of the stage
+ * @param queueDepth     the number of items waiting in the queue of the stage
+ * @param queueCapacity  the capacity of the queue of the stage
+ * @param concurrency    the number of items the stage processes concurrently
+ * @param processed      the number of items processed successfully
+ * @param failed         the number of items that failed in this stage
+ * @param averageLatency the average time an item spent in the task of the stage
+ * @param maxLatency     the maximum time an item spent in the task of the stage
+ * @param averageWait    the average time an item waited in the queue of the stage
+ */
+public record StageMetrics(
+        String name,
+        int queueDepth,
+        int queueCapacity,
+        int concurrency,
+        long processed,
+        long failed,
+        Duration averageLatency,
+        Duration maxLatency,
+        Duration averageWait
+) {
+}
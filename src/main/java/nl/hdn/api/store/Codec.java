@@ -0,0 +1,135 @@
+package nl.hdn.api.store;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Conversions between the string attributes of the platform and their primitive column values
+ */
+final class Codec {
+    /**
+     * Column value of an absent node
+     */
+    static final int NO_NODE = -1;
+    /**
+     * Column value of an absent timestamp
+     */
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    private Codec() {
+    }
+
+    /**
+     * Parses a UUID
+     *
+     * @param uuid the UUID as string
+     * @return the UUID
+     * @throws IllegalArgumentException thrown when the value is not a UUID
+     */
+    static UUID uuid(String uuid) {
+        return UUID.fromString(uuid);
+    }
+
+    /**
+     * Formats the two halves of a UUID, returning null for the nil UUID used for absent values
+     *
+     * @param msb the most significant bits
+     * @param lsb the least significant bits
+     * @return the UUID as string or null
+     */
+    static String uuid(long msb, long lsb) {
+        return msb == 0 && lsb == 0 ? null : new UUID(msb, lsb).toString();
+    }
+
+    /**
+     * Encodes a 6-digit node number
+     *
+     * @param node the node number or null
+     * @return the node as int or {@link #NO_NODE}
+     * @throws IllegalArgumentException thrown when the node is not a 6-digit number
+     */
+    static int node(String node) {
+        if (node == null || node.isEmpty()) {
+            return NO_NODE;
+        }
+        if (!node.matches("\\d{6}")) {
+            throw new IllegalArgumentException("Node should be 6 digits: " + node);
+        }
+        return Integer.parseInt(node);
+    }
+
+    /**
+     * Decodes a node number, keeping the leading zeros
+     *
+     * @param node the node as int
+     * @return the node number or null
+     */
+    static String node(int node) {
+        return node == NO_NODE ? null : String.format("%06d", node);
+    }
+
+    /**
+     * Encodes a timestamp as epoch milliseconds
+     *
+     * @param instant the timestamp or null
+     * @return the epoch milliseconds or {@link #NO_TIME}
+     */
+    static long time(Instant instant) {
+        return instant == null ? NO_TIME : instant.toEpochMilli();
+    }
+
+    /**
+     * Decodes epoch milliseconds
+     *
+     * @param epochMilli the epoch milliseconds
+     * @return the timestamp or null
+     */
+    static Instant time(long epochMilli) {
+        return epochMilli == NO_TIME ? null : Instant.ofEpochMilli(epochMilli);
+    }
+
+    /**
+     * Returns a capacity for at least the required number of elements, growing by half
+     *
+     * @param current  the current capacity
+     * @param required the required capacity
+     * @return the new capacity
+     */
+    static int grow(int current, int required) {
+        return Math.max(required, current + (current >> 1) + 16);
+    }
+
+    /**
+     * Grows an array to hold at least the required number of elements
+     *
+     * @param array    the array
+     * @param required the required capacity
+     * @return the array itself when large enough, otherwise a larger copy
+     */
+    static long[] grow(long[] array, int required) {
+        return required <= array.length ? array : Arrays.copyOf(array, grow(array.length, required));
+    }
+
+    /**
+     * Grows an array to hold at least the required number of elements
+     *
+     * @param array    the array
+     * @param required the required capacity
+     * @return the array itself when large enough, otherwise a larger copy
+     */
+    static int[] grow(int[] array, int required) {
+        return required <= array.length ? array : Arrays.copyOf(array, grow(array.length, required));
+    }
+
+    /**
+     * Grows an array to hold at least the required number of elements
+     *
+     * @param array    the array
+     * @param required the required capacity
+     * @return the array itself when large enough, otherwise a larger copy
+     */
+    static byte[] grow(byte[] array, int required) {
+        return required <= array.length ? array : Arrays.copyOf(array, grow(array.length, required));
+    }
+}
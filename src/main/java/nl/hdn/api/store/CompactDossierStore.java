@@ -0,0 +1,275 @@
+package nl.hdn.api.store;
+
+import nl.hdn.api.object.Dossier;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Column store for the metadata of many dossiers. The resource UUID is kept as two longs, the creation date as epoch
+ * milliseconds and the nodes and original nodes of all dossiers as ints in a single shared array, addressed by an
+ * offset and a count per dossier.
+ * <p>
+ * Rows are read through {@link DossierView} flyweights. The store is not thread-safe.
+ */
+public class CompactDossierStore implements Iterable<DossierView> {
+    private final UuidIndex index;
+
+    private long[] resourceMsb = new long[0];
+    private long[] resourceLsb = new long[0];
+    private long[] creationDate = new long[0];
+    private int[] nodesOffset = new int[0];
+    private int[] nodesCount = new int[0];
+    private int[] originalNodesOffset = new int[0];
+    private int[] originalNodesCount = new int[0];
+    private int[] nodeData = new int[0];
+    private int nodeDataSize = 0;
+    private int size = 0;
+
+    /**
+     * Constructs an empty store
+     */
+    public CompactDossierStore() {
+        index = new UuidIndex(new UuidIndex.Columns() {
+            @Override
+            public long msb(int row) {
+                return resourceMsb[row];
+            }
+
+            @Override
+            public long lsb(int row) {
+                return resourceLsb[row];
+            }
+        });
+    }
+
+    /**
+     * Adds a dossier or, when a dossier with the same resource UUID is present, overwrites its row
+     *
+     * @param dossier the dossier
+     * @return the row of the dossier
+     * @throws IllegalArgumentException thrown when the dossier has no resource UUID or holds an invalid UUID or node
+     */
+    public int put(Dossier dossier) {
+        return put(dossier.getResourceUuid(), dossier.getCreationDate(), dossier.getNodes(), dossier.getOriginalNodes());
+    }
+
+    /**
+     * Adds the metadata of a dossier or, when a dossier with the same resource UUID is present, overwrites its row
+     *
+     * @param resourceUuid  the UUID of the dossier
+     * @param creationDate  the moment the dossier has been created or null
+     * @param nodes         the nodes with access to the dossier or null
+     * @param originalNodes the original nodes with access to the dossier or null
+     * @return the row of the dossier
+     * @throws IllegalArgumentException thrown when the resource UUID is missing or a UUID or node is invalid
+     */
+    int put(String resourceUuid, Instant creationDate, List<String> nodes, List<String> originalNodes) {
+        if (resourceUuid == null) {
+            throw new IllegalArgumentException("Dossier has not been created");
+        }
+        UUID uuid = Codec.uuid(resourceUuid);
+        int row = index.find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        boolean added = row < 0;
+        if (added) {
+            row = size;
+            ensureCapacity(size + 1);
+            resourceMsb[row] = uuid.getMostSignificantBits();
+            resourceLsb[row] = uuid.getLeastSignificantBits();
+        }
+
+        this.creationDate[row] = Codec.time(creationDate);
+        nodesOffset[row] = putNodes(nodes, nodesOffset[row], added ? 0 : nodesCount[row]);
+        nodesCount[row] = nodes == null ? 0 : nodes.size();
+        originalNodesOffset[row] = putNodes(originalNodes, originalNodesOffset[row], added ? 0 : originalNodesCount[row]);
+        originalNodesCount[row] = originalNodes == null ? 0 : originalNodes.size();
+
+        if (added) {
+            size++;
+            index.add(row);
+        }
+        return row;
+    }
+
+    /**
+     * Adds all dossiers
+     *
+     * @param dossiers the dossiers
+     * @return the store itself
+     */
+    @SuppressWarnings("unused")
+    public CompactDossierStore putAll(Iterable<Dossier> dossiers) {
+        dossiers.forEach(this::put);
+        return this;
+    }
+
+    /**
+     * Finds the row of a dossier
+     *
+     * @param resourceUuid the resource UUID of the dossier
+     * @return the row or -1 when absent
+     */
+    public int indexOf(String resourceUuid) {
+        UUID uuid;
+        try {
+            uuid = Codec.uuid(resourceUuid);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+        return index.find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Returns a new view on a row
+     *
+     * @param row the row
+     * @return the view
+     */
+    @SuppressWarnings("unused")
+    public DossierView get(int row) {
+        checkRow(row);
+        return new DossierView(this, row);
+    }
+
+    /**
+     * Returns a view on a dossier
+     *
+     * @param resourceUuid the resource UUID of the dossier
+     * @return the view or null when absent
+     */
+    @SuppressWarnings("unused")
+    public DossierView find(String resourceUuid) {
+        int row = indexOf(resourceUuid);
+        return row < 0 ? null : new DossierView(this, row);
+    }
+
+    /**
+     * Passes every row to the consumer through a single reused view, so no object is allocated per row.
+     * The view must not be kept after the call.
+     *
+     * @param consumer the consumer
+     */
+    @SuppressWarnings("unused")
+    public void forEachRow(Consumer<DossierView> consumer) {
+        DossierView view = new DossierView(this, 0);
+        for (int row = 0; row < size; row++) {
+            consumer.accept(view.moveTo(row));
+        }
+    }
+
+    /**
+     * Iterates over all rows with a new view per row
+     *
+     * @return the iterator
+     */
+    @Override
+    public Iterator<DossierView> iterator() {
+        return new Iterator<>() {
+            private int row = 0;
+
+            @Override
+            public boolean hasNext() {
+                return row < size;
+            }
+
+            @Override
+            public DossierView next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return new DossierView(CompactDossierStore.this, row++);
+            }
+        };
+    }
+
+    /**
+     * Returns the number of dossiers
+     *
+     * @return the number of dossiers
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all dossiers, keeping the allocated arrays
+     */
+    @SuppressWarnings("unused")
+    public void clear() {
+        size = 0;
+        nodeDataSize = 0;
+        index.clear();
+    }
+
+    /**
+     * Returns an estimate of the memory used by the columns and the index in bytes
+     *
+     * @return the number of bytes
+     */
+    @SuppressWarnings("unused")
+    public long memoryUsage() {
+        long capacity = resourceMsb.length;
+        return capacity * (3 * Long.BYTES + 4 * Integer.BYTES) + (long) nodeData.length * Integer.BYTES + index.memoryUsage();
+    }
+
+    String resourceUuid(int row) {
+        return Codec.uuid(resourceMsb[row], resourceLsb[row]);
+    }
+
+    long creationDateMillis(int row) {
+        return creationDate[row];
+    }
+
+    int nodeCount(int row, boolean original) {
+        return original ? originalNodesCount[row] : nodesCount[row];
+    }
+
+    int nodeCode(int row, boolean original, int position) {
+        return nodeData[(original ? originalNodesOffset[row] : nodesOffset[row]) + position];
+    }
+
+    void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException(row);
+        }
+    }
+
+    /**
+     * Writes the nodes of a dossier in place when they fit in the previous range, otherwise at the end
+     *
+     * @param nodes         the nodes or null
+     * @param offset        the offset of the previous range
+     * @param previousCount the number of nodes in the previous range
+     * @return the offset of the written range
+     */
+    private int putNodes(List<String> nodes, int offset, int previousCount) {
+        int count = nodes == null ? 0 : nodes.size();
+        if (count > previousCount) {
+            offset = nodeDataSize;
+            nodeData = Codec.grow(nodeData, nodeDataSize + count);
+            nodeDataSize += count;
+        }
+        for (int i = 0; i < count; i++) {
+            nodeData[offset + i] = Codec.node(nodes.get(i));
+        }
+        return offset;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= resourceMsb.length) {
+            return;
+        }
+        int capacity = Codec.grow(resourceMsb.length, required);
+        resourceMsb = Codec.grow(resourceMsb, capacity);
+        resourceLsb = Codec.grow(resourceLsb, capacity);
+        creationDate = Codec.grow(creationDate, capacity);
+        nodesOffset = Codec.grow(nodesOffset, capacity);
+        nodesCount = Codec.grow(nodesCount, capacity);
+        originalNodesOffset = Codec.grow(originalNodesOffset, capacity);
+        originalNodesCount = Codec.grow(originalNodesCount, capacity);
+    }
+}
@@ -0,0 +1,333 @@
+package nl.hdn.api.store;
+
+import nl.hdn.api.object.Record;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Column store for the metadata of many records, f.e. the results of a {@link nl.hdn.api.object.RecordList} kept
+ * for reconciliation. Instead of a {@link Record} with its strings per record, every attribute is kept in a primitive
+ * array: UUIDs as two longs, node numbers as ints, message types and statuses as dictionary-encoded bytes and
+ * timestamps as epoch milliseconds. A row takes about 90 bytes, including the index on the resource UUID.
+ * <p>
+ * Rows are read through {@link RecordView} flyweights. The store is not thread-safe.
+ */
+public class CompactRecordStore implements Iterable<RecordView> {
+    private final Dictionary messageTypes = new Dictionary();
+    private final Dictionary statuses = new Dictionary();
+    private final UuidIndex index;
+
+    private long[] resourceMsb = new long[0];
+    private long[] resourceLsb = new long[0];
+    private long[] dossierMsb = new long[0];
+    private long[] dossierLsb = new long[0];
+    private long[] parentMsb = new long[0];
+    private long[] parentLsb = new long[0];
+    private int[] sender = new int[0];
+    private int[] receiver = new int[0];
+    private byte[] messageType = new byte[0];
+    private byte[] status = new byte[0];
+    private long[] creationDate = new long[0];
+    private long[] statusModified = new long[0];
+    private int size = 0;
+
+    /**
+     * Constructs an empty store
+     */
+    public CompactRecordStore() {
+        index = new UuidIndex(new UuidIndex.Columns() {
+            @Override
+            public long msb(int row) {
+                return resourceMsb[row];
+            }
+
+            @Override
+            public long lsb(int row) {
+                return resourceLsb[row];
+            }
+        });
+    }
+
+    /**
+     * Adds a record or, when a record with the same resource UUID is present, overwrites its row
+     *
+     * @param apiRecord the record, fetched or taken from a list
+     * @return the row of the record
+     * @throws IllegalArgumentException thrown when the record has no resource UUID or holds an invalid UUID or node
+     */
+    public int put(Record apiRecord) {
+        Record.Header header = apiRecord.getHeader();
+        Record.Status recordStatus = apiRecord.getStatus();
+        return put(apiRecord.getResourceUuid(),
+                apiRecord.getDossierUuid(),
+                apiRecord.getParentRecord(),
+                header != null ? header.sender() : null,
+                header != null ? header.receiver() : null,
+                header != null && header.requestSchema() != null ? header.requestSchema().messageType() : null,
+                recordStatus != null ? recordStatus.value() : null,
+                recordStatus != null ? recordStatus.modifiedTimestamp() : null,
+                apiRecord.getCreationDate());
+    }
+
+    /**
+     * Adds the metadata of a record or, when a record with the same resource UUID is present, overwrites its row
+     *
+     * @param resourceUuid   the UUID of the record
+     * @param dossierUuid    the UUID of the dossier or null
+     * @param parentRecord   the UUID of the parent record or null
+     * @param sender         the nodenumber of the sender or null
+     * @param receiver       the nodenumber of the receiver or null
+     * @param messageType    the message type or null
+     * @param status         the status or null
+     * @param statusModified the moment the status was last updated or null
+     * @param creationDate   the moment the record has been created or null
+     * @return the row of the record
+     * @throws IllegalArgumentException thrown when the resource UUID is missing or a UUID or node is invalid
+     */
+    int put(String resourceUuid, String dossierUuid, String parentRecord, String sender, String receiver,
+            String messageType, String status, Instant statusModified, Instant creationDate) {
+        if (resourceUuid == null) {
+            throw new IllegalArgumentException("Record has not been created");
+        }
+        // Validate and encode everything before the row is touched, so a rejected record leaves the row as it was
+        UUID uuid = Codec.uuid(resourceUuid);
+        UUID dossier = uuidOrNull(dossierUuid);
+        UUID parent = uuidOrNull(parentRecord);
+        int senderCode = Codec.node(sender);
+        int receiverCode = Codec.node(receiver);
+        byte messageTypeCode = messageTypes.encode(messageType);
+        byte statusCode = statuses.encode(status);
+        int row = index.find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        boolean added = row < 0;
+        if (added) {
+            row = size;
+            ensureCapacity(size + 1);
+            resourceMsb[row] = uuid.getMostSignificantBits();
+            resourceLsb[row] = uuid.getLeastSignificantBits();
+        }
+
+        setUuid(dossierMsb, dossierLsb, row, dossier);
+        setUuid(parentMsb, parentLsb, row, parent);
+        this.sender[row] = senderCode;
+        this.receiver[row] = receiverCode;
+        this.messageType[row] = messageTypeCode;
+        this.status[row] = statusCode;
+        this.statusModified[row] = Codec.time(statusModified);
+        this.creationDate[row] = Codec.time(creationDate);
+
+        if (added) {
+            size++;
+            index.add(row);
+        }
+        return row;
+    }
+
+    /**
+     * Adds all records
+     *
+     * @param records the records
+     * @return the store itself
+     */
+    @SuppressWarnings("unused")
+    public CompactRecordStore putAll(Iterable<Record> records) {
+        records.forEach(this::put);
+        return this;
+    }
+
+    /**
+     * Finds the row of a record
+     *
+     * @param resourceUuid the resource UUID of the record
+     * @return the row or -1 when absent
+     */
+    public int indexOf(String resourceUuid) {
+        UUID uuid;
+        try {
+            uuid = Codec.uuid(resourceUuid);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+        return index.find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Returns a new view on a row
+     *
+     * @param row the row
+     * @return the view
+     */
+    public RecordView get(int row) {
+        checkRow(row);
+        return new RecordView(this, row);
+    }
+
+    /**
+     * Returns a view on a record
+     *
+     * @param resourceUuid the resource UUID of the record
+     * @return the view or null when absent
+     */
+    @SuppressWarnings("unused")
+    public RecordView find(String resourceUuid) {
+        int row = indexOf(resourceUuid);
+        return row < 0 ? null : new RecordView(this, row);
+    }
+
+    /**
+     * Passes every row to the consumer through a single reused view, so no object is allocated per row.
+     * The view must not be kept after the call.
+     *
+     * @param consumer the consumer
+     */
+    @SuppressWarnings("unused")
+    public void forEachRow(Consumer<RecordView> consumer) {
+        RecordView view = new RecordView(this, 0);
+        for (int row = 0; row < size; row++) {
+            consumer.accept(view.moveTo(row));
+        }
+    }
+
+    /**
+     * Iterates over all rows with a new view per row
+     *
+     * @return the iterator
+     */
+    @Override
+    public Iterator<RecordView> iterator() {
+        return new Iterator<>() {
+            private int row = 0;
+
+            @Override
+            public boolean hasNext() {
+                return row < size;
+            }
+
+            @Override
+            public RecordView next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return new RecordView(CompactRecordStore.this, row++);
+            }
+        };
+    }
+
+    /**
+     * Returns the number of records
+     *
+     * @return the number of records
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all records, keeping the dictionaries and the allocated arrays
+     */
+    @SuppressWarnings("unused")
+    public void clear() {
+        size = 0;
+        index.clear();
+    }
+
+    /**
+     * Returns an estimate of the memory used by the columns and the index in bytes
+     *
+     * @return the number of bytes
+     */
+    @SuppressWarnings("unused")
+    public long memoryUsage() {
+        long capacity = resourceMsb.length;
+        return capacity * (8 * Long.BYTES + 2 * Integer.BYTES + 2) + index.memoryUsage();
+    }
+
+    String resourceUuid(int row) {
+        return Codec.uuid(resourceMsb[row], resourceLsb[row]);
+    }
+
+    String dossierUuid(int row) {
+        return Codec.uuid(dossierMsb[row], dossierLsb[row]);
+    }
+
+    long dossierMsb(int row) {
+        return dossierMsb[row];
+    }
+
+    long dossierLsb(int row) {
+        return dossierLsb[row];
+    }
+
+    String parentRecord(int row) {
+        return Codec.uuid(parentMsb[row], parentLsb[row]);
+    }
+
+    int senderCode(int row) {
+        return sender[row];
+    }
+
+    int receiverCode(int row) {
+        return receiver[row];
+    }
+
+    byte messageTypeCode(int row) {
+        return messageType[row];
+    }
+
+    byte statusCode(int row) {
+        return status[row];
+    }
+
+    long creationDateMillis(int row) {
+        return creationDate[row];
+    }
+
+    long statusModifiedMillis(int row) {
+        return statusModified[row];
+    }
+
+    Dictionary messageTypes() {
+        return messageTypes;
+    }
+
+    Dictionary statuses() {
+        return statuses;
+    }
+
+    void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException(row);
+        }
+    }
+
+    private static UUID uuidOrNull(String value) {
+        return value == null || value.isEmpty() ? null : Codec.uuid(value);
+    }
+
+    private static void setUuid(long[] msb, long[] lsb, int row, UUID uuid) {
+        msb[row] = uuid == null ? 0 : uuid.getMostSignificantBits();
+        lsb[row] = uuid == null ? 0 : uuid.getLeastSignificantBits();
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= resourceMsb.length) {
+            return;
+        }
+        int capacity = Codec.grow(resourceMsb.length, required);
+        resourceMsb = Codec.grow(resourceMsb, capacity);
+        resourceLsb = Codec.grow(resourceLsb, capacity);
+        dossierMsb = Codec.grow(dossierMsb, capacity);
+        dossierLsb = Codec.grow(dossierLsb, capacity);
+        parentMsb = Codec.grow(parentMsb, capacity);
+        parentLsb = Codec.grow(parentLsb, capacity);
+        sender = Codec.grow(sender, capacity);
+        receiver = Codec.grow(receiver, capacity);
+        messageType = Codec.grow(messageType, capacity);
+        status = Codec.grow(status, capacity);
+        creationDate = Codec.grow(creationDate, capacity);
+        statusModified = Codec.grow(statusModified, capacity);
+    }
+}
@@ -0,0 +1,80 @@
+package nl.hdn.api.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes a small set of repeating strings, like message types and statuses, as a single byte.
+ * Code 0 is reserved for null, so at most 255 distinct values can be encoded.
+ */
+final class Dictionary {
+    private static final int MAX_SIZE = 255;
+
+    private final List<String> values = new ArrayList<>();
+    private final Map<String, Byte> codes = new HashMap<>();
+
+    /**
+     * Constructs an empty dictionary
+     */
+    Dictionary() {
+        values.add(null);
+    }
+
+    /**
+     * Returns the code of a value, adding the value when it is new
+     *
+     * @param value the value or null
+     * @return the code
+     * @throws IllegalStateException thrown when the dictionary is full
+     */
+    byte encode(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Byte code = codes.get(value);
+        if (code == null) {
+            if (values.size() > MAX_SIZE) {
+                throw new IllegalStateException("Dictionary is full, cannot encode " + value);
+            }
+            code = (byte) values.size();
+            values.add(value);
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    /**
+     * Returns the code of a value without adding it
+     *
+     * @param value the value
+     * @return the code or -1 when the value has not been encoded
+     */
+    int find(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Byte code = codes.get(value);
+        return code == null ? -1 : code & 0xFF;
+    }
+
+    /**
+     * Returns the value of a code
+     *
+     * @param code the code
+     * @return the value or null
+     */
+    String decode(byte code) {
+        return values.get(code & 0xFF);
+    }
+
+    /**
+     * Returns the number of codes in use, including the code for null
+     *
+     * @return the number of codes
+     */
+    int size() {
+        return values.size();
+    }
+}
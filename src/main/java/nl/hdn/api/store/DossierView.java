@@ -0,0 +1,152 @@
+package nl.hdn.api.store;
+
+import nl.hdn.api.object.Dossier;
+
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Flyweight view on a row of a {@link CompactDossierStore}, decoding the columns only when a getter is called
+ */
+public final class DossierView {
+    private final CompactDossierStore store;
+    private int row;
+
+    /**
+     * Constructs a view on a row
+     *
+     * @param store the store
+     * @param row   the row
+     */
+    DossierView(CompactDossierStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+    /**
+     * Moves the view to another row
+     *
+     * @param row the row
+     * @return the view itself
+     */
+    DossierView moveTo(int row) {
+        this.row = row;
+        return this;
+    }
+
+    /**
+     * Returns the row of the view in the store
+     *
+     * @return the row
+     */
+    @SuppressWarnings("unused")
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Returns the UUID of the dossier
+     *
+     * @return the resource UUID
+     */
+    @SuppressWarnings("unused")
+    public String getResourceUuid() {
+        return store.resourceUuid(row);
+    }
+
+    /**
+     * Returns the moment the dossier has been created
+     *
+     * @return the creation date or null
+     */
+    @SuppressWarnings("unused")
+    public Instant getCreationDate() {
+        return Codec.time(store.creationDateMillis(row));
+    }
+
+    /**
+     * Returns all nodes with access to the dossier, decoded on access
+     *
+     * @return a read-only list of the nodes
+     */
+    @SuppressWarnings("unused")
+    public List<String> getNodes() {
+        return nodes(false);
+    }
+
+    /**
+     * Returns all original nodes with access to the dossier, decoded on access
+     *
+     * @return a read-only list of the original nodes
+     */
+    @SuppressWarnings("unused")
+    public List<String> getOriginalNodes() {
+        return nodes(true);
+    }
+
+    /**
+     * Checks if a node has access to the dossier, without decoding the nodes
+     *
+     * @param node the 6-digit nodenumber
+     * @return true when the node is one of the nodes of the dossier
+     */
+    @SuppressWarnings("unused")
+    public boolean hasNode(String node) {
+        int code;
+        try {
+            code = Codec.node(node);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        for (int i = 0; i < store.nodeCount(row, false); i++) {
+            if (store.nodeCode(row, false, i) == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a dossier referring to this row, to fetch it or add a node on the HDN Platform of Trust
+     *
+     * @return the existing dossier
+     */
+    @SuppressWarnings("unused")
+    public Dossier toDossier() {
+        return new Dossier(getResourceUuid());
+    }
+
+    /**
+     * Copies the columns of the row, the copy does not follow later updates of the store
+     *
+     * @return the copy
+     */
+    @SuppressWarnings("unused")
+    public MirroredDossier snapshot() {
+        return new MirroredDossier(getResourceUuid(), getCreationDate(), List.copyOf(getNodes()), List.copyOf(getOriginalNodes()));
+    }
+
+    @Override
+    public String toString() {
+        return "DossierView[" + getResourceUuid() + ", " + getNodes() + "]";
+    }
+
+    private List<String> nodes(boolean original) {
+        int fixedRow = row;
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return Codec.node(store.nodeCode(fixedRow, original, index));
+            }
+
+            @Override
+            public int size() {
+                return store.nodeCount(fixedRow, original);
+            }
+        };
+    }
+}
@@ -0,0 +1,467 @@
+package nl.hdn.api.store;
+
+import nl.hdn.api.object.Record;
+import nl.hdn.api.object.RecordList;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Records kept in a {@link CompactRecordStore} with secondary indexes, so repeated filters on a large inbox do not
+ * scan all records. Status, message type, sender and receiver have a bitmap per value, the dossier UUID a list of rows
+ * per dossier, and the creation date a sorted index that is rebuilt on the first query after a change. A {@link Query}
+ * intersects the bitmaps of its criteria.
+ * <p>
+ * The collection is not thread-safe. Concurrent readers should make sure the sorted index is up to date before they
+ * query, as a {@link LocalMirror} does.
+ */
+public class IndexedRecordCollection implements Iterable<RecordView> {
+    private final CompactRecordStore store = new CompactRecordStore();
+    private final Map<Integer, BitSet> byStatus = new HashMap<>();
+    private final Map<Integer, BitSet> byMessageType = new HashMap<>();
+    private final Map<Integer, BitSet> bySender = new HashMap<>();
+    private final Map<Integer, BitSet> byReceiver = new HashMap<>();
+    private final Map<UUID, int[]> byDossier = new HashMap<>();
+    private long[] sortedCreationDates = new long[0];
+    private int[] sortedRows = new int[0];
+    private boolean sorted = true;
+
+    /**
+     * Constructs an empty collection
+     */
+    public IndexedRecordCollection() {
+    }
+
+    /**
+     * Constructs a collection holding the records retrieved by a record list
+     *
+     * @param recordList the record list after {@link RecordList#get(String)}
+     * @return the collection
+     */
+    @SuppressWarnings("unused")
+    public static IndexedRecordCollection of(RecordList recordList) {
+        IndexedRecordCollection collection = new IndexedRecordCollection();
+        collection.putAll(recordList.getRecords());
+        return collection;
+    }
+
+    /**
+     * Adds a record or updates the record with the same resource UUID, including its index entries
+     *
+     * @param apiRecord the record
+     * @return the row of the record
+     * @throws IllegalArgumentException thrown when the record has no resource UUID or holds an invalid UUID or node,
+     *                                  an existing record then keeps its row and index entries
+     */
+    public int put(Record apiRecord) {
+        int row = apiRecord.getResourceUuid() == null ? -1 : store.indexOf(apiRecord.getResourceUuid());
+        if (row >= 0) {
+            unindex(row);
+        }
+        try {
+            row = store.put(apiRecord);
+        } finally {
+            // A rejected record leaves the row as it was, which is then indexed again
+            if (row >= 0) {
+                index(row);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Adds the metadata of a record or updates the record with the same resource UUID, including its index entries
+     *
+     * @param resourceUuid   the UUID of the record
+     * @param dossierUuid    the UUID of the dossier or null
+     * @param parentRecord   the UUID of the parent record or null
+     * @param sender         the nodenumber of the sender or null
+     * @param receiver       the nodenumber of the receiver or null
+     * @param messageType    the message type or null
+     * @param status         the status or null
+     * @param statusModified the moment the status was last updated or null
+     * @param creationDate   the moment the record has been created or null
+     * @return the row of the record
+     * @throws IllegalArgumentException thrown when the resource UUID is missing or a UUID or node is invalid
+     */
+    int put(String resourceUuid, String dossierUuid, String parentRecord, String sender, String receiver,
+            String messageType, String status, Instant statusModified, Instant creationDate) {
+        int row = resourceUuid == null ? -1 : store.indexOf(resourceUuid);
+        if (row >= 0) {
+            unindex(row);
+        }
+        try {
+            row = store.put(resourceUuid, dossierUuid, parentRecord, sender, receiver, messageType, status, statusModified, creationDate);
+        } finally {
+            if (row >= 0) {
+                index(row);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Adds or updates all records
+     *
+     * @param records the records
+     * @return the collection itself
+     */
+    public IndexedRecordCollection putAll(Iterable<Record> records) {
+        records.forEach(this::put);
+        return this;
+    }
+
+    /**
+     * Starts a query matching all records until criteria are added
+     *
+     * @return the query
+     */
+    public Query query() {
+        return new Query();
+    }
+
+    /**
+     * Returns a new view on a row. The store itself is not exposed, so records only change through
+     * {@link #put(Record)} and the indexes stay in line with the store.
+     *
+     * @param row the row
+     * @return the view
+     */
+    @SuppressWarnings("unused")
+    public RecordView get(int row) {
+        return store.get(row);
+    }
+
+    /**
+     * Returns a view on a record
+     *
+     * @param resourceUuid the resource UUID of the record
+     * @return the view or null when absent
+     */
+    public RecordView find(String resourceUuid) {
+        return store.find(resourceUuid);
+    }
+
+    /**
+     * Passes every row to the consumer through a single reused view, which must not be kept after the call
+     *
+     * @param consumer the consumer
+     */
+    public void forEachRow(Consumer<RecordView> consumer) {
+        store.forEachRow(consumer);
+    }
+
+    /**
+     * Iterates over all records with a new view per row
+     *
+     * @return the iterator
+     */
+    @Override
+    public Iterator<RecordView> iterator() {
+        return store.iterator();
+    }
+
+    /**
+     * Returns the number of records
+     *
+     * @return the number of records
+     */
+    public int size() {
+        return store.size();
+    }
+
+    private int index(int row) {
+        bits(byStatus, store.statusCode(row) & 0xFF).set(row);
+        bits(byMessageType, store.messageTypeCode(row) & 0xFF).set(row);
+        bits(bySender, store.senderCode(row)).set(row);
+        bits(byReceiver, store.receiverCode(row)).set(row);
+        if (store.dossierMsb(row) != 0 || store.dossierLsb(row) != 0) {
+            byDossier.merge(new UUID(store.dossierMsb(row), store.dossierLsb(row)), new int[]{1, row}, IndexedRecordCollection::append);
+        }
+        sorted = false;
+        return row;
+    }
+
+    private void unindex(int row) {
+        if (store.dossierMsb(row) != 0 || store.dossierLsb(row) != 0) {
+            byDossier.computeIfPresent(new UUID(store.dossierMsb(row), store.dossierLsb(row)), (uuid, rows) -> remove(rows, row));
+        }
+        clear(byStatus, store.statusCode(row) & 0xFF, row);
+        clear(byMessageType, store.messageTypeCode(row) & 0xFF, row);
+        clear(bySender, store.senderCode(row), row);
+        clear(byReceiver, store.receiverCode(row), row);
+    }
+
+    /**
+     * Appends the rows of the second list to the first one, the first element of a list holds its size
+     *
+     * @param rows  the list
+     * @param added the list with the rows to append
+     * @return the list, grown when needed
+     */
+    private static int[] append(int[] rows, int[] added) {
+        int size = rows[0];
+        rows = Codec.grow(rows, size + added[0] + 1);
+        System.arraycopy(added, 1, rows, size + 1, added[0]);
+        rows[0] = size + added[0];
+        return rows;
+    }
+
+    /**
+     * Removes a row from a list, the first element of a list holds its size
+     *
+     * @param rows the list
+     * @param row  the row to remove
+     * @return the list or null when it became empty
+     */
+    private static int[] remove(int[] rows, int row) {
+        int size = rows[0];
+        for (int i = 1; i <= size; i++) {
+            if (rows[i] == row) {
+                rows[i] = rows[size];
+                rows[0] = --size;
+                break;
+            }
+        }
+        return size == 0 ? null : rows;
+    }
+
+    private static BitSet bits(Map<Integer, BitSet> index, int code) {
+        return index.computeIfAbsent(code, key -> new BitSet());
+    }
+
+    private static void clear(Map<Integer, BitSet> index, int code, int row) {
+        BitSet bits = index.get(code);
+        if (bits != null) {
+            bits.clear(row);
+        }
+    }
+
+    /**
+     * Checks if the sorted index on creation date is up to date, a query on creation date updates it otherwise
+     *
+     * @return true when the index is up to date
+     */
+    boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * Rebuilds the sorted index on creation date when records have changed since the last rebuild. Concurrent readers
+     * must call this under an exclusive lock before querying, so a query never writes to the collection.
+     */
+    void sort() {
+        if (sorted) {
+            return;
+        }
+        int size = store.size();
+        long[] creationDates = new long[size];
+        for (int row = 0; row < size; row++) {
+            creationDates[row] = store.creationDateMillis(row);
+        }
+        sortedCreationDates = creationDates.clone();
+        Arrays.sort(sortedCreationDates);
+
+        // Place every row at the next free position of its creation date, keeping rows with equal dates in row order
+        sortedRows = new int[size];
+        int[] placed = new int[size];
+        for (int row = 0; row < size; row++) {
+            int position = lowerBound(creationDates[row]);
+            sortedRows[position + placed[position]++] = row;
+        }
+        sorted = true;
+    }
+
+    /**
+     * Returns the first position in the sorted index with a creation date not before a moment
+     *
+     * @param millis the moment as epoch milliseconds
+     * @return the position
+     */
+    private int lowerBound(long millis) {
+        int low = 0;
+        int high = sortedCreationDates.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedCreationDates[mid] < millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * A compound filter on the collection, every criterion narrows the result. Values passed to a single criterion
+     * are alternatives, f.e. {@code status("new", "read")} matches records with either status.
+     */
+    public final class Query {
+        private final List<BitSet> criteria = new ArrayList<>();
+        private Instant from = null;
+        private Instant to = null;
+
+        private Query() {
+        }
+
+        /**
+         * Matches records in one of the dossiers
+         *
+         * @param dossierUuids the UUIDs of the dossiers
+         * @return the query itself
+         */
+        public Query dossier(String... dossierUuids) {
+            BitSet union = new BitSet();
+            for (String dossierUuid : dossierUuids) {
+                int[] rows;
+                try {
+                    rows = byDossier.get(Codec.uuid(dossierUuid));
+                } catch (IllegalArgumentException e) {
+                    rows = null;
+                }
+                if (rows != null) {
+                    for (int i = 1; i <= rows[0]; i++) {
+                        union.set(rows[i]);
+                    }
+                }
+            }
+            criteria.add(union);
+            return this;
+        }
+
+        /**
+         * Matches records with one of the statuses
+         *
+         * @param statuses the statuses, f.e. new or read
+         * @return the query itself
+         */
+        public Query status(String... statuses) {
+            criteria.add(union(byStatus, Arrays.stream(statuses).mapToInt(value -> store.statuses().find(value)).toArray()));
+            return this;
+        }
+
+        /**
+         * Matches records with one of the message types of the request schema
+         *
+         * @param messageTypes the message types
+         * @return the query itself
+         */
+        public Query messageType(String... messageTypes) {
+            criteria.add(union(byMessageType, Arrays.stream(messageTypes).mapToInt(value -> store.messageTypes().find(value)).toArray()));
+            return this;
+        }
+
+        /**
+         * Matches records sent by one of the nodes
+         *
+         * @param nodes the 6-digit nodenumbers
+         * @return the query itself
+         */
+        public Query sender(String... nodes) {
+            criteria.add(union(bySender, nodeCodes(nodes)));
+            return this;
+        }
+
+        /**
+         * Matches records received by one of the nodes
+         *
+         * @param nodes the 6-digit nodenumbers
+         * @return the query itself
+         */
+        public Query receiver(String... nodes) {
+            criteria.add(union(byReceiver, nodeCodes(nodes)));
+            return this;
+        }
+
+        /**
+         * Matches records created in a range
+         *
+         * @param from the start of the range, inclusive, or null
+         * @param to   the end of the range, exclusive, or null
+         * @return the query itself
+         */
+        public Query createdBetween(Instant from, Instant to) {
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        /**
+         * Returns the rows of the matching records
+         *
+         * @return the rows as bitmap
+         */
+        public BitSet rows() {
+            BitSet result = new BitSet(store.size());
+            result.set(0, store.size());
+            for (BitSet criterion : criteria) {
+                result.and(criterion);
+            }
+            if ((from != null || to != null) && !result.isEmpty()) {
+                sort();
+                int start = from == null ? 0 : lowerBound(from.toEpochMilli());
+                int end = to == null ? sortedRows.length : lowerBound(to.toEpochMilli());
+                BitSet range = new BitSet(store.size());
+                for (int i = start; i < end; i++) {
+                    range.set(sortedRows[i]);
+                }
+                result.and(range);
+            }
+            return result;
+        }
+
+        /**
+         * Returns the number of matching records
+         *
+         * @return the number of records
+         */
+        public int count() {
+            return rows().cardinality();
+        }
+
+        /**
+         * Returns views on the matching records
+         *
+         * @return the views, in row order
+         */
+        public List<RecordView> list() {
+            List<RecordView> views = new ArrayList<>();
+            BitSet rows = rows();
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                views.add(store.get(row));
+            }
+            return views;
+        }
+
+        private BitSet union(Map<Integer, BitSet> index, int[] codes) {
+            BitSet union = new BitSet();
+            for (int code : codes) {
+                BitSet bits = code < 0 ? null : index.get(code);
+                if (bits != null) {
+                    union.or(bits);
+                }
+            }
+            return union;
+        }
+
+        private int[] nodeCodes(String[] nodes) {
+            int[] codes = new int[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                try {
+                    codes[i] = Codec.node(nodes[i]);
+                } catch (IllegalArgumentException e) {
+                    codes[i] = Integer.MIN_VALUE;
+                }
+            }
+            return codes;
+        }
+    }
+}
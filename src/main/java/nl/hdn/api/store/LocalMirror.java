@@ -0,0 +1,753 @@
+package nl.hdn.api.store;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.object.Dossier;
+import nl.hdn.api.object.DossierList;
+import nl.hdn.api.object.Event;
+import nl.hdn.api.object.EventList;
+import nl.hdn.api.object.PageIterator;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.object.RecordKeysetIterator;
+import nl.hdn.api.object.RecordList;
+import nl.hdn.api.sync.RecordSync;
+import nl.hdn.api.sync.RecordSyncListener;
+import nl.hdn.api.sync.SyncCheckpoint;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Local copy of the metadata of dossiers, records and events, so reporting and reconciliation are answered without
+ * calling the platform. Every change is appended as a JSON line to a file per object type in the mirror directory and
+ * replayed on open, the last line of an object wins. {@link #compact()} rewrites the files with only the current state.
+ * <p>
+ * Records are indexed on dossier UUID, status, message type, sender, receiver and creation date through an
+ * {@link IndexedRecordCollection}, dossiers on UUID and node. The mirror is kept up to date with the refresh methods:
+ * records incrementally through a {@link RecordSync} with its checkpoint in the mirror directory, events from the
+ * timestamp of the latest mirrored event of a dossier, and dossiers through a full pass over the {@link DossierList}.
+ * The incremental refresh only sees status changes of records created within its overlap window; the status of older
+ * records is brought up to date with {@link #refreshStatus(String, String, APIController)}.
+ * <p>
+ * Reads and refreshes may run concurrently. Queries return copies made under the lock, which do not change when the
+ * mirror is updated afterwards.
+ */
+public class LocalMirror implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LocalMirror.class);
+    private static final String RECORDS_FILE = "records.jsonl";
+    private static final String DOSSIERS_FILE = "dossiers.jsonl";
+    private static final String EVENTS_FILE = "events.jsonl";
+    private static final String CHECKPOINT_FILE = "sync.properties";
+    private static final int PAGE_LIMIT = 100;
+
+    private final Path directory;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IndexedRecordCollection records = new IndexedRecordCollection();
+    private final CompactDossierStore dossiers = new CompactDossierStore();
+    private final Map<Integer, BitSet> dossiersByNode = new HashMap<>();
+    private final Map<String, Map<String, Event>> eventsByDossier = new HashMap<>();
+    private final Map<String, Instant> latestEvent = new HashMap<>();
+    private final RecordSync recordSync;
+    private MirrorFile recordFile;
+    private MirrorFile dossierFile;
+    private MirrorFile eventFile;
+
+    /**
+     * A file of the mirror opened for appending
+     *
+     * @param channel the channel of the file, to force it to disk
+     * @param writer  the buffered writer on the channel
+     */
+    private record MirrorFile(FileChannel channel, BufferedWriter writer) {
+        /**
+         * Writes the buffered lines and forces them to disk
+         *
+         * @throws IOException thrown when the file could not be written
+         */
+        void force() throws IOException {
+            writer.flush();
+            channel.force(false);
+        }
+
+        /**
+         * Writes the buffered lines and closes the file
+         *
+         * @throws IOException thrown when the file could not be written
+         */
+        void close() throws IOException {
+            force();
+            writer.close();
+        }
+    }
+
+    /**
+     * Opens the mirror in a directory, creating the directory when needed and replaying the mirrored objects
+     *
+     * @param directory the directory of the mirror
+     * @throws IOException thrown when the mirror could not be read
+     */
+    public LocalMirror(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        replay(RECORDS_FILE, this::indexRecord);
+        replay(DOSSIERS_FILE, this::indexDossier);
+        replay(EVENTS_FILE, this::indexEvent);
+        recordSync = new RecordSync(new SyncCheckpoint(directory.resolve(CHECKPOINT_FILE)));
+        openWriters();
+        logger.info("Opened mirror with {} dossiers and {} records", dossiers.size(), records.size());
+    }
+
+    /**
+     * Retrieves the records of a node created since the previous refresh, with the default API controller
+     *
+     * @param node the 6-digit nodenumber on behalf of which the records are retrieved
+     * @return the result of the synchronisation
+     * @throws IOException thrown when the records could not be retrieved or mirrored
+     */
+    @SuppressWarnings("unused")
+    public RecordSync.SyncResult refreshRecords(String node) throws IOException {
+        return refreshRecords(node, APIController.getInstance());
+    }
+
+    /**
+     * Retrieves the records of a node created since the previous refresh. Status changes are picked up for the
+     * records within the overlap window of the synchronisation only, see {@link #refreshStatus(String, String, APIController)}.
+     *
+     * @param node          the 6-digit nodenumber on behalf of which the records are retrieved
+     * @param apiController the controller to be used for the API calls
+     * @return the result of the synchronisation
+     * @throws IOException thrown when the records could not be retrieved or mirrored
+     */
+    public RecordSync.SyncResult refreshRecords(String node, APIController apiController) throws IOException {
+        try {
+            return recordSync.sync(node, null, new RecordSyncListener() {
+                @Override
+                public void onAdded(Record apiRecord) {
+                    putRecord(apiRecord);
+                }
+
+                @Override
+                public void onChanged(Record apiRecord) {
+                    putRecord(apiRecord);
+                }
+
+                @Override
+                public void beforeCommit() throws IOException {
+                    // The checkpoint may only move past records that are on disk
+                    forceRecords();
+                }
+            }, apiController);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            flush();
+        }
+    }
+
+    /**
+     * Updates the mirrored records that have a status on the platform, with the default API controller
+     *
+     * @param node   the 6-digit nodenumber on behalf of which the records are retrieved
+     * @param status the status, f.e. confirmed
+     * @return the number of records of which the status changed
+     * @throws IOException thrown when the records could not be retrieved or mirrored
+     */
+    @SuppressWarnings("unused")
+    public int refreshStatus(String node, String status) throws IOException {
+        return refreshStatus(node, status, APIController.getInstance());
+    }
+
+    /**
+     * Updates the mirrored records that have a status on the platform, f.e. the records confirmed since they left the
+     * overlap window of {@link #refreshRecords(String, APIController)}. The platform cannot filter on the moment of the
+     * status change, so this is a pass over all records of the node with the status; records not mirrored yet are
+     * added.
+     *
+     * @param node          the 6-digit nodenumber on behalf of which the records are retrieved
+     * @param status        the status, f.e. confirmed
+     * @param apiController the controller to be used for the API calls
+     * @return the number of records of which the status changed
+     * @throws IOException thrown when the records could not be retrieved or mirrored
+     */
+    public int refreshStatus(String node, String status, APIController apiController) throws IOException {
+        int count = 0;
+        try (RecordKeysetIterator iterator = new RecordList().setStatus(status).setLimit(PAGE_LIMIT).keysetIterator(node, apiController)) {
+            while (iterator.hasNext()) {
+                Record apiRecord = iterator.next();
+                if (!status.equals(getStatus(apiRecord.getResourceUuid()))) {
+                    putRecord(apiRecord);
+                    count++;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            flush();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the mirrored status of a record
+     *
+     * @param resourceUuid the UUID of the record
+     * @return the status or null when the record is not mirrored
+     */
+    private String getStatus(String resourceUuid) {
+        lock.readLock().lock();
+        try {
+            RecordView view = records.find(resourceUuid);
+            return view == null ? null : view.getStatus();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves all dossiers of a node, with the default API controller
+     *
+     * @param node the 6-digit nodenumber on behalf of which the dossiers are retrieved
+     * @return the number of mirrored dossiers
+     * @throws IOException thrown when the dossiers could not be retrieved or mirrored
+     */
+    @SuppressWarnings("unused")
+    public int refreshDossiers(String node) throws IOException {
+        return refreshDossiers(node, APIController.getInstance());
+    }
+
+    /**
+     * Retrieves all dossiers of a node
+     *
+     * @param node          the 6-digit nodenumber on behalf of which the dossiers are retrieved
+     * @param apiController the controller to be used for the API calls
+     * @return the number of mirrored dossiers
+     * @throws IOException thrown when the dossiers could not be retrieved or mirrored
+     */
+    public int refreshDossiers(String node, APIController apiController) throws IOException {
+        int count = 0;
+        try (PageIterator<Dossier> iterator = new DossierList().setLimit(PAGE_LIMIT).iterator(node, apiController)) {
+            while (iterator.hasNext()) {
+                putDossier(iterator.next());
+                count++;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            flush();
+        }
+        return count;
+    }
+
+    /**
+     * Retrieves the events of a dossier since the latest mirrored event, with the default API controller
+     *
+     * @param dossierUuid the UUID of the dossier
+     * @return the number of new events
+     * @throws IOException thrown when the events could not be retrieved or mirrored
+     */
+    @SuppressWarnings("unused")
+    public int refreshEvents(String dossierUuid) throws IOException {
+        return refreshEvents(dossierUuid, APIController.getInstance());
+    }
+
+    /**
+     * Retrieves the events of a dossier since the latest mirrored event
+     *
+     * @param dossierUuid   the UUID of the dossier
+     * @param apiController the controller to be used for the API calls
+     * @return the number of new events
+     * @throws IOException thrown when the events could not be retrieved or mirrored
+     */
+    public int refreshEvents(String dossierUuid, APIController apiController) throws IOException {
+        EventList eventList = new EventList(dossierUuid);
+        Instant since;
+        lock.readLock().lock();
+        try {
+            since = latestEvent.get(dossierUuid);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (since != null) {
+            // Events with the same timestamp as the latest one may not have been retrieved yet
+            eventList.setTimestamp("$gte", since.toString());
+        }
+
+        int count = 0;
+        try (PageIterator<Event> iterator = new PageIterator<>((offset, limit) -> eventList.getPage(offset, limit, apiController), 0, PAGE_LIMIT)) {
+            while (iterator.hasNext()) {
+                if (putEvent(iterator.next())) {
+                    count++;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            flush();
+        }
+        return count;
+    }
+
+    /**
+     * Mirrors a record, replacing the mirrored metadata of the same record
+     *
+     * @param apiRecord the record
+     */
+    public void putRecord(Record apiRecord) {
+        lock.writeLock().lock();
+        try {
+            int row = records.put(apiRecord);
+            write(recordFile.writer(), toJson(records.get(row)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Mirrors a dossier, replacing the mirrored metadata of the same dossier
+     *
+     * @param dossier the dossier
+     */
+    public void putDossier(Dossier dossier) {
+        lock.writeLock().lock();
+        try {
+            int row = dossiers.indexOf(dossier.getResourceUuid());
+            if (row >= 0) {
+                unindexDossier(row);
+            }
+            row = dossiers.put(dossier);
+            indexDossierNodes(row);
+            write(dossierFile.writer(), toJson(dossiers.get(row)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Mirrors an event, events are never changed so a known event is ignored
+     *
+     * @param event the event
+     * @return true when the event was new
+     */
+    public boolean putEvent(Event event) {
+        lock.writeLock().lock();
+        try {
+            JSONObject json = toJson(event);
+            if (!indexEvent(json)) {
+                return false;
+            }
+            write(eventFile.writer(), json);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Queries the mirrored records
+     *
+     * @param criteria adds the criteria to the query, f.e. {@code query -> query.status("new").sender("123456")}
+     * @return copies of the matching records
+     */
+    @SuppressWarnings("unused")
+    public List<MirroredRecord> queryRecords(UnaryOperator<IndexedRecordCollection.Query> criteria) {
+        lockRecordsForQuery();
+        try {
+            return criteria.apply(records.query()).list().stream().map(RecordView::snapshot).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the mirrored records
+     *
+     * @param criteria adds the criteria to the query, f.e. {@code query -> query.status("new")}
+     * @return the number of matching records
+     */
+    @SuppressWarnings("unused")
+    public int countRecords(UnaryOperator<IndexedRecordCollection.Query> criteria) {
+        lockRecordsForQuery();
+        try {
+            return criteria.apply(records.query()).count();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes the read lock with the sorted index of the records up to date, so concurrent queries only read. When the
+     * index is outdated it is rebuilt under the write lock, which is then downgraded to the read lock.
+     */
+    private void lockRecordsForQuery() {
+        lock.readLock().lock();
+        if (records.isSorted()) {
+            return;
+        }
+        lock.readLock().unlock();
+        lock.writeLock().lock();
+        try {
+            records.sort();
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a mirrored record
+     *
+     * @param resourceUuid the UUID of the record
+     * @return a copy of the record or null when not mirrored
+     */
+    @SuppressWarnings("unused")
+    public MirroredRecord getRecord(String resourceUuid) {
+        lock.readLock().lock();
+        try {
+            RecordView view = records.find(resourceUuid);
+            return view == null ? null : view.snapshot();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a mirrored dossier
+     *
+     * @param resourceUuid the UUID of the dossier
+     * @return a copy of the dossier or null when not mirrored
+     */
+    @SuppressWarnings("unused")
+    public MirroredDossier getDossier(String resourceUuid) {
+        lock.readLock().lock();
+        try {
+            DossierView view = dossiers.find(resourceUuid);
+            return view == null ? null : view.snapshot();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the mirrored dossiers a node has access to
+     *
+     * @param node the 6-digit nodenumber
+     * @return copies of the dossiers
+     */
+    @SuppressWarnings("unused")
+    public List<MirroredDossier> getDossiers(String node) {
+        lock.readLock().lock();
+        try {
+            List<MirroredDossier> views = new ArrayList<>();
+            BitSet rows;
+            try {
+                rows = dossiersByNode.get(Codec.node(node));
+            } catch (IllegalArgumentException e) {
+                rows = null;
+            }
+            if (rows != null) {
+                for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                    views.add(dossiers.get(row).snapshot());
+                }
+            }
+            return views;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the mirrored events of a dossier
+     *
+     * @param dossierUuid the UUID of the dossier
+     * @return the events in the order they were mirrored
+     */
+    @SuppressWarnings("unused")
+    public List<Event> getEvents(String dossierUuid) {
+        lock.readLock().lock();
+        try {
+            Map<String, Event> events = eventsByDossier.get(dossierUuid);
+            return events == null ? List.of() : List.copyOf(events.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of mirrored records
+     *
+     * @return the number of records
+     */
+    @SuppressWarnings("unused")
+    public int getRecordCount() {
+        lock.readLock().lock();
+        try {
+            return records.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of mirrored dossiers
+     *
+     * @return the number of dossiers
+     */
+    @SuppressWarnings("unused")
+    public int getDossierCount() {
+        lock.readLock().lock();
+        try {
+            return dossiers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the mirrored objects to disk and forces them to the storage device
+     *
+     * @throws IOException thrown when the mirror could not be written
+     */
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            recordFile.force();
+            dossierFile.force();
+            eventFile.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the mirrored records to disk and forces them to the storage device
+     *
+     * @throws IOException thrown when the records could not be written
+     */
+    private void forceRecords() throws IOException {
+        lock.writeLock().lock();
+        try {
+            recordFile.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the files of the mirror with only the current state of every object
+     *
+     * @throws IOException thrown when the mirror could not be written
+     */
+    @SuppressWarnings("unused")
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            closeWriters();
+            rewrite(RECORDS_FILE, writer -> records.forEachRow(view -> write(writer, toJson(view))));
+            rewrite(DOSSIERS_FILE, writer -> dossiers.forEachRow(view -> write(writer, toJson(view))));
+            rewrite(EVENTS_FILE, writer -> eventsByDossier.values().forEach(events -> events.values().forEach(event -> write(writer, toJson(event)))));
+            openWriters();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the mirrored objects to disk and closes the files
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            closeWriters();
+        } catch (IOException e) {
+            logger.error("Exception occured while closing the mirror: {}", e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads a file of the mirror, skipping the lines that cannot be read, f.e. a line cut off by a crash
+     *
+     * @param file     the name of the file in the mirror directory
+     * @param consumer receives every readable line
+     * @throws IOException thrown when the file could not be read
+     */
+    private void replay(String file, Consumer<JSONObject> consumer) throws IOException {
+        Path path = directory.resolve(file);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int skipped = 0;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    consumer.accept(new JSONObject(line));
+                } catch (JSONException | IllegalArgumentException | DateTimeParseException e) {
+                    skipped++;
+                }
+            }
+            if (skipped > 0) {
+                logger.warn("Skipped {} unreadable lines in {}", skipped, path);
+            }
+        }
+    }
+
+    private void indexRecord(JSONObject json) {
+        records.put(json.getString("resourceUuid"),
+                json.optString("dossierUuid", null),
+                json.optString("parentRecord", null),
+                json.optString("sender", null),
+                json.optString("receiver", null),
+                json.optString("messageType", null),
+                json.optString("status", null),
+                instant(json, "statusModified"),
+                instant(json, "creationDate"));
+    }
+
+    private void indexDossier(JSONObject json) {
+        int row = dossiers.indexOf(json.getString("resourceUuid"));
+        if (row >= 0) {
+            unindexDossier(row);
+        }
+        row = dossiers.put(json.getString("resourceUuid"), instant(json, "creationDate"), strings(json, "nodes"), strings(json, "originalNodes"));
+        indexDossierNodes(row);
+    }
+
+    private boolean indexEvent(JSONObject json) {
+        String dossierUuid = json.getString("dossierUuid");
+        Map<String, Event> events = eventsByDossier.computeIfAbsent(dossierUuid, key -> new LinkedHashMap<>());
+        String resourceUuid = json.getString("resourceUuid");
+        if (events.containsKey(resourceUuid)) {
+            return false;
+        }
+        Event event = new Event(dossierUuid, json.optString("recordUuid", null), resourceUuid, json.toString());
+        events.put(resourceUuid, event);
+        latestEvent.merge(dossierUuid, event.getTimestamp(), (a, b) -> a.isAfter(b) ? a : b);
+        return true;
+    }
+
+    private void indexDossierNodes(int row) {
+        DossierView view = dossiers.get(row);
+        for (String node : view.getNodes()) {
+            dossiersByNode.computeIfAbsent(Codec.node(node), key -> new BitSet()).set(row);
+        }
+    }
+
+    private void unindexDossier(int row) {
+        for (String node : dossiers.get(row).getNodes()) {
+            BitSet rows = dossiersByNode.get(Codec.node(node));
+            if (rows != null) {
+                rows.clear(row);
+            }
+        }
+    }
+
+    private static JSONObject toJson(RecordView view) {
+        return new JSONObject()
+                .put("resourceUuid", view.getResourceUuid())
+                .putOpt("dossierUuid", view.getDossierUuid())
+                .putOpt("parentRecord", view.getParentRecord())
+                .putOpt("sender", view.getSender())
+                .putOpt("receiver", view.getReceiver())
+                .putOpt("messageType", view.getMessageType())
+                .putOpt("status", view.getStatus())
+                .putOpt("statusModified", view.getStatusModifiedTimestamp() != null ? view.getStatusModifiedTimestamp().toString() : null)
+                .putOpt("creationDate", view.getCreationDate() != null ? view.getCreationDate().toString() : null);
+    }
+
+    private static JSONObject toJson(DossierView view) {
+        return new JSONObject()
+                .put("resourceUuid", view.getResourceUuid())
+                .putOpt("creationDate", view.getCreationDate() != null ? view.getCreationDate().toString() : null)
+                .put("nodes", new JSONArray(view.getNodes()))
+                .put("originalNodes", new JSONArray(view.getOriginalNodes()));
+    }
+
+    private static JSONObject toJson(Event event) {
+        return new JSONObject()
+                .put("resourceUuid", event.getResourceUuid())
+                .put("dossierUuid", event.getDossierUuid())
+                .putOpt("recordUuid", event.getRecordUuid())
+                .put("eventType", event.getEventType())
+                .put("sub", event.getSub())
+                .putOpt("businessKey", event.getBusinessKey())
+                .put("timestamp", event.getTimestamp().toString());
+    }
+
+    private static Instant instant(JSONObject json, String key) {
+        String value = json.optString(key, null);
+        return value == null ? null : Instant.parse(value);
+    }
+
+    private static List<String> strings(JSONObject json, String key) {
+        JSONArray array = json.optJSONArray(key);
+        return array == null ? List.of() : array.toList().stream().map(Object::toString).toList();
+    }
+
+    private static void write(Writer writer, JSONObject json) {
+        try {
+            writer.write(json.toString());
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void rewrite(String file, Consumer<BufferedWriter> consumer) throws IOException {
+        Path path = directory.resolve(file);
+        Path temporary = directory.resolve(file + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            consumer.accept(writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void openWriters() throws IOException {
+        recordFile = open(RECORDS_FILE);
+        dossierFile = open(DOSSIERS_FILE);
+        eventFile = open(EVENTS_FILE);
+    }
+
+    private MirrorFile open(String file) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new MirrorFile(channel, new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8)));
+    }
+
+    private void closeWriters() throws IOException {
+        recordFile.close();
+        dossierFile.close();
+        eventFile.close();
+    }
+}
@@ -0,0 +1,38 @@
+package nl.hdn.api.store;
+
+import nl.hdn.api.object.Dossier;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The metadata of a mirrored dossier, copied from the {@link LocalMirror} so it does not change when the mirror is
+ * updated
+ *
+ * @param resourceUuid  the UUID of the dossier
+ * @param creationDate  the moment the dossier has been created, or null
+ * @param nodes         all nodes with access to the dossier
+ * @param originalNodes all original nodes with access to the dossier
+ */
+public record MirroredDossier(String resourceUuid, Instant creationDate, List<String> nodes, List<String> originalNodes) {
+    /**
+     * Checks if a node has access to the dossier
+     *
+     * @param node the 6-digit nodenumber
+     * @return true when the node is one of the nodes of the dossier
+     */
+    @SuppressWarnings("unused")
+    public boolean hasNode(String node) {
+        return nodes.contains(node);
+    }
+
+    /**
+     * Returns a dossier referring to the mirrored dossier, to fetch it or add a node on the HDN Platform of Trust
+     *
+     * @return the existing dossier
+     */
+    @SuppressWarnings("unused")
+    public Dossier toDossier() {
+        return new Dossier(resourceUuid);
+    }
+}
@@ -0,0 +1,33 @@
+package nl.hdn.api.store;
+
+import nl.hdn.api.object.Record;
+
+import java.time.Instant;
+
+/**
+ * The metadata of a mirrored record, copied from the {@link LocalMirror} so it does not change when the mirror is
+ * updated
+ *
+ * @param resourceUuid            the UUID of the record
+ * @param dossierUuid             the UUID of the dossier containing the record, or null
+ * @param parentRecord            the UUID of the parent record, or null
+ * @param sender                  the nodenumber of the sender of the message, or null
+ * @param receiver                the nodenumber of the receiver of the message, or null
+ * @param messageType             the message type of the request schema, or null
+ * @param status                  the status of the record, f.e. created, new, read, confirmed, deleted, or null
+ * @param statusModifiedTimestamp the moment the status was last updated, or null
+ * @param creationDate            the moment the record has been created, or null
+ */
+public record MirroredRecord(String resourceUuid, String dossierUuid, String parentRecord, String sender,
+                             String receiver, String messageType, String status, Instant statusModifiedTimestamp,
+                             Instant creationDate) {
+    /**
+     * Returns a record referring to the mirrored record, to fetch, send or confirm it on the HDN Platform of Trust
+     *
+     * @return the existing record
+     */
+    @SuppressWarnings("unused")
+    public Record toRecord() {
+        return new Record(dossierUuid, resourceUuid);
+    }
+}
@@ -0,0 +1,553 @@
+package nl.hdn.api.store;
+
+import nl.hdn.api.object.Record;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Archive of record messages, de-duplicated by their SHA-256 hash. Every distinct payload is written once to an
+ * append-only segment file; a record refers to its payload through an index entry. Payloads are read through
+ * memory-mapped segments, so reading a message does not copy it to the heap until it is decoded.
+ * <p>
+ * Two append-only index files describe the archive: {@code payloads.idx} with the hash, segment, offset and length of
+ * every payload, and {@code records.idx} with the resource UUID and payload of every record. On open both are loaded
+ * into primitive columns with a hash table, of about 50 bytes per payload and 30 bytes per record. Entries cut off by
+ * a crash are ignored.
+ * <p>
+ * The index entries of new payloads and records are buffered and written by {@link #flush()}, which first forces the
+ * segments written since the previous flush, so an index entry never refers to payload bytes that were lost. A put is
+ * therefore durable once the archive has been flushed or closed; the archive also flushes itself every
+ * {@value #MAX_PENDING_ENTRIES} entries, so many puts share one force of each file.
+ */
+public class PayloadArchive implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(PayloadArchive.class);
+    private static final String SEGMENT_PREFIX = "payload-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String PAYLOADS_INDEX = "payloads.idx";
+    private static final String RECORDS_INDEX = "records.idx";
+    private static final int HASH_SIZE = 32;
+    private static final int SEGMENT_HEADER_SIZE = Integer.BYTES + HASH_SIZE;
+    private static final int PAYLOAD_ENTRY_SIZE = HASH_SIZE + Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int RECORD_ENTRY_SIZE = 2 * Long.BYTES + Integer.BYTES;
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+    /**
+     * The number of buffered index entries of a kind after which the archive is flushed
+     */
+    private static final int MAX_PENDING_ENTRIES = 10_000;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock mappingLock = new ReentrantLock();
+    private final List<FileChannel> segments = new ArrayList<>();
+    private final List<MappedByteBuffer> mappings = new ArrayList<>();
+    private FileChannel payloadIndex;
+    private FileChannel recordIndex;
+    private final ByteBuffer pendingPayloads = ByteBuffer.allocate(MAX_PENDING_ENTRIES * PAYLOAD_ENTRY_SIZE);
+    private final ByteBuffer pendingRecords = ByteBuffer.allocate(MAX_PENDING_ENTRIES * RECORD_ENTRY_SIZE);
+    /**
+     * The first segment that may hold payloads that have not been forced to disk
+     */
+    private int unforcedSegment = 0;
+
+    // Payloads, by payload id
+    private long[] payloadHashes = new long[0];
+    private int[] payloadSegment = new int[0];
+    private long[] payloadOffset = new long[0];
+    private int[] payloadLength = new int[0];
+    private int payloadCount = 0;
+    // Open addressing table from hash to payload id + 1
+    private int[] payloadTable = new int[64];
+
+    // Records, by row
+    private long[] recordMsb = new long[0];
+    private long[] recordLsb = new long[0];
+    private int[] recordPayload = new int[0];
+    private int recordCount = 0;
+    private final UuidIndex records = new UuidIndex(new UuidIndex.Columns() {
+        @Override
+        public long msb(int row) {
+            return recordMsb[row];
+        }
+
+        @Override
+        public long lsb(int row) {
+            return recordLsb[row];
+        }
+    });
+    private long duplicateCount = 0;
+
+    /**
+     * Opens an archive with segments of at most 1 GB
+     *
+     * @param directory the directory of the archive
+     * @throws IOException thrown when the archive could not be read
+     */
+    @SuppressWarnings("unused")
+    public PayloadArchive(Path directory) throws IOException {
+        this(directory, 1024L * 1024 * 1024);
+    }
+
+    /**
+     * Opens an archive, creating the directory when needed
+     *
+     * @param directory   the directory of the archive
+     * @param segmentSize the size after which a new segment is started, at most 2 GB
+     * @throws IOException thrown when the archive could not be read
+     */
+    public PayloadArchive(Path directory, long segmentSize) throws IOException {
+        if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size should be between 0 and 2 GB");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        for (int segment = 0; Files.exists(segmentPath(segment)); segment++) {
+            segments.add(FileChannel.open(segmentPath(segment), StandardOpenOption.READ, StandardOpenOption.WRITE));
+            mappings.add(null);
+        }
+        payloadIndex = FileChannel.open(directory.resolve(PAYLOADS_INDEX), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recordIndex = FileChannel.open(directory.resolve(RECORDS_INDEX), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        loadPayloads();
+        loadRecords();
+        logger.info("Opened archive with {} payloads for {} records", payloadCount, recordCount);
+    }
+
+    /**
+     * Archives the message of a record
+     *
+     * @param apiRecord the record with a resource UUID and a message
+     * @return the SHA-256 hash of the message as hex string
+     * @throws IOException              thrown when the message could not be written
+     * @throws IllegalArgumentException thrown when the record has no message
+     */
+    @SuppressWarnings("unused")
+    public String put(Record apiRecord) throws IOException {
+        return put(apiRecord.getResourceUuid(), apiRecord.getMessage());
+    }
+
+    /**
+     * Archives a message, writing the payload only when no payload with the same hash is present
+     *
+     * @param resourceUuid the UUID of the record
+     * @param message      the message
+     * @return the SHA-256 hash of the message as hex string
+     * @throws IOException              thrown when the message could not be written
+     * @throws IllegalArgumentException thrown when the message is null
+     */
+    public String put(String resourceUuid, String message) throws IOException {
+        if (message == null) {
+            throw new IllegalArgumentException("Message of record " + resourceUuid + " should not be null");
+        }
+        UUID uuid = Codec.uuid(resourceUuid);
+        byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+        byte[] hash = sha256(payload);
+
+        lock.writeLock().lock();
+        try {
+            int payloadId = findPayload(hash);
+            if (payloadId < 0) {
+                payloadId = appendPayload(hash, payload);
+            } else {
+                duplicateCount++;
+            }
+            if (findRecord(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()) != payloadId) {
+                pendingRecords.putLong(uuid.getMostSignificantBits())
+                        .putLong(uuid.getLeastSignificantBits())
+                        .putInt(payloadId);
+                putRecord(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), payloadId);
+            }
+            if (!pendingPayloads.hasRemaining() || !pendingRecords.hasRemaining()) {
+                flush();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return HexFormat.of().formatHex(hash);
+    }
+
+    /**
+     * Returns the archived message of a record as a read-only view on the mapped segment
+     *
+     * @param resourceUuid the UUID of the record
+     * @return the UTF-8 encoded message or null when not archived
+     * @throws IOException thrown when the segment could not be mapped
+     */
+    public ByteBuffer read(String resourceUuid) throws IOException {
+        UUID uuid;
+        try {
+            uuid = Codec.uuid(resourceUuid);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            int payloadId = findRecord(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            if (payloadId < 0) {
+                return null;
+            }
+            int segment = payloadSegment[payloadId];
+            long offset = payloadOffset[payloadId] + SEGMENT_HEADER_SIZE;
+            int length = payloadLength[payloadId];
+            return mapping(segment, offset + length).slice((int) offset, length).asReadOnlyBuffer();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the archived message of a record
+     *
+     * @param resourceUuid the UUID of the record
+     * @return the message or null when not archived
+     * @throws IOException thrown when the segment could not be mapped
+     */
+    @SuppressWarnings("unused")
+    public String getMessage(String resourceUuid) throws IOException {
+        ByteBuffer payload = read(resourceUuid);
+        return payload == null ? null : StandardCharsets.UTF_8.decode(payload).toString();
+    }
+
+    /**
+     * Returns the SHA-256 hash of the archived message of a record
+     *
+     * @param resourceUuid the UUID of the record
+     * @return the hash as hex string or null when not archived
+     */
+    @SuppressWarnings("unused")
+    public String getHash(String resourceUuid) {
+        UUID uuid;
+        try {
+            uuid = Codec.uuid(resourceUuid);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            int payloadId = findRecord(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            if (payloadId < 0) {
+                return null;
+            }
+            ByteBuffer hash = ByteBuffer.allocate(HASH_SIZE);
+            for (int i = 0; i < 4; i++) {
+                hash.putLong(payloadHashes[payloadId * 4 + i]);
+            }
+            return HexFormat.of().formatHex(hash.array());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks if the message of a record has been archived
+     *
+     * @param resourceUuid the UUID of the record
+     * @return true when archived
+     */
+    @SuppressWarnings("unused")
+    public boolean contains(String resourceUuid) {
+        return getHash(resourceUuid) != null;
+    }
+
+    /**
+     * Returns the number of distinct payloads
+     *
+     * @return the number of payloads
+     */
+    @SuppressWarnings("unused")
+    public int getPayloadCount() {
+        lock.readLock().lock();
+        try {
+            return payloadCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of archived records
+     *
+     * @return the number of records
+     */
+    @SuppressWarnings("unused")
+    public int getRecordCount() {
+        lock.readLock().lock();
+        try {
+            return recordCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of messages that were not written because an identical payload was present, since open
+     *
+     * @return the number of duplicates
+     */
+    @SuppressWarnings("unused")
+    public long getDuplicateCount() {
+        lock.readLock().lock();
+        try {
+            return duplicateCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forces the payloads written since the previous flush to disk, then writes and forces their index entries and
+     * those of the records
+     *
+     * @throws IOException thrown when the archive could not be written
+     */
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (int segment = unforcedSegment; segment < segments.size(); segment++) {
+                segments.get(segment).force(false);
+            }
+            unforcedSegment = Math.max(0, segments.size() - 1);
+            writePending(payloadIndex, pendingPayloads);
+            writePending(recordIndex, pendingRecords);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes and closes the archive
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            flush();
+            for (FileChannel segment : segments) {
+                segment.close();
+            }
+            payloadIndex.close();
+            recordIndex.close();
+        } catch (IOException e) {
+            logger.error("Exception occured while closing the archive: {}", e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int appendPayload(byte[] hash, byte[] payload) throws IOException {
+        int entrySize = SEGMENT_HEADER_SIZE + payload.length;
+        if (entrySize > MAX_SEGMENT_SIZE) {
+            throw new IOException("Payload too large for a segment");
+        }
+        if (segments.isEmpty() || segments.get(segments.size() - 1).size() + entrySize > segmentSize) {
+            segments.add(FileChannel.open(segmentPath(segments.size()), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            mappings.add(null);
+        }
+        int segment = segments.size() - 1;
+        FileChannel channel = segments.get(segment);
+        long offset = channel.size();
+        writeFully(channel, ByteBuffer.allocate(entrySize).putInt(payload.length).put(hash).put(payload).flip(), offset);
+        // Written to the index by the next flush, after the segment has been forced
+        pendingPayloads.put(hash)
+                .putInt(segment)
+                .putLong(offset)
+                .putInt(payload.length);
+        return addPayload(hash, segment, offset, payload.length);
+    }
+
+    /**
+     * Appends the buffered entries to an index file and forces it to disk
+     *
+     * @param index   the index file
+     * @param pending the buffered entries
+     * @throws IOException thrown when the index could not be written
+     */
+    private static void writePending(FileChannel index, ByteBuffer pending) throws IOException {
+        pending.flip();
+        try {
+            writeFully(index, pending, index.size());
+        } finally {
+            pending.compact();
+        }
+        index.force(false);
+    }
+
+    private void loadPayloads() throws IOException {
+        long entries = payloadIndex.size() / PAYLOAD_ENTRY_SIZE;
+        ByteBuffer buffer = payloadIndex.map(FileChannel.MapMode.READ_ONLY, 0, entries * PAYLOAD_ENTRY_SIZE);
+        byte[] hash = new byte[HASH_SIZE];
+        for (long i = 0; i < entries; i++) {
+            buffer.get(hash);
+            int segment = buffer.getInt();
+            long offset = buffer.getLong();
+            int length = buffer.getInt();
+            if (segment >= segments.size() || offset + SEGMENT_HEADER_SIZE + length > segments.get(segment).size()) {
+                logger.warn("Payload index refers beyond the archived data, ignoring the remaining {} entries", entries - i);
+                entries = i;
+                break;
+            }
+            addPayload(hash, segment, offset, length);
+        }
+        payloadIndex.truncate(entries * PAYLOAD_ENTRY_SIZE);
+    }
+
+    private void loadRecords() throws IOException {
+        long entries = recordIndex.size() / RECORD_ENTRY_SIZE;
+        ByteBuffer buffer = recordIndex.map(FileChannel.MapMode.READ_ONLY, 0, entries * RECORD_ENTRY_SIZE);
+        for (long i = 0; i < entries; i++) {
+            long msb = buffer.getLong();
+            long lsb = buffer.getLong();
+            int payloadId = buffer.getInt();
+            if (payloadId >= payloadCount) {
+                logger.warn("Record index refers to a missing payload, ignoring the remaining {} entries", entries - i);
+                entries = i;
+                break;
+            }
+            putRecord(msb, lsb, payloadId);
+        }
+        recordIndex.truncate(entries * RECORD_ENTRY_SIZE);
+    }
+
+    private int addPayload(byte[] hash, int segment, long offset, int length) {
+        int id = payloadCount;
+        if (id == payloadSegment.length) {
+            int capacity = Codec.grow(id, id + 1);
+            payloadHashes = Arrays.copyOf(payloadHashes, capacity * 4);
+            payloadSegment = Arrays.copyOf(payloadSegment, capacity);
+            payloadOffset = Arrays.copyOf(payloadOffset, capacity);
+            payloadLength = Arrays.copyOf(payloadLength, capacity);
+        }
+        ByteBuffer hashBuffer = ByteBuffer.wrap(hash);
+        for (int i = 0; i < 4; i++) {
+            payloadHashes[id * 4 + i] = hashBuffer.getLong();
+        }
+        payloadSegment[id] = segment;
+        payloadOffset[id] = offset;
+        payloadLength[id] = length;
+        payloadCount++;
+
+        if (payloadCount * 2 > payloadTable.length) {
+            payloadTable = new int[payloadTable.length * 2];
+            for (int existing = 0; existing < payloadCount; existing++) {
+                insertPayload(existing);
+            }
+        } else {
+            insertPayload(id);
+        }
+        return id;
+    }
+
+    private void insertPayload(int id) {
+        int mask = payloadTable.length - 1;
+        int slot = (int) mix(payloadHashes[id * 4]) & mask;
+        while (payloadTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        payloadTable[slot] = id + 1;
+    }
+
+    private int findPayload(byte[] hash) {
+        ByteBuffer hashBuffer = ByteBuffer.wrap(hash);
+        long h0 = hashBuffer.getLong();
+        long h1 = hashBuffer.getLong();
+        long h2 = hashBuffer.getLong();
+        long h3 = hashBuffer.getLong();
+        int mask = payloadTable.length - 1;
+        for (int slot = (int) mix(h0) & mask; payloadTable[slot] != 0; slot = (slot + 1) & mask) {
+            int id = payloadTable[slot] - 1;
+            if (payloadHashes[id * 4] == h0 && payloadHashes[id * 4 + 1] == h1
+                    && payloadHashes[id * 4 + 2] == h2 && payloadHashes[id * 4 + 3] == h3) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private void putRecord(long msb, long lsb, int payloadId) {
+        int row = records.find(msb, lsb);
+        if (row < 0) {
+            row = recordCount;
+            if (row == recordPayload.length) {
+                int capacity = Codec.grow(row, row + 1);
+                recordMsb = Codec.grow(recordMsb, capacity);
+                recordLsb = Codec.grow(recordLsb, capacity);
+                recordPayload = Codec.grow(recordPayload, capacity);
+            }
+            recordMsb[row] = msb;
+            recordLsb[row] = lsb;
+            recordCount++;
+            records.add(row);
+        }
+        recordPayload[row] = payloadId;
+    }
+
+    private int findRecord(long msb, long lsb) {
+        int row = records.find(msb, lsb);
+        return row < 0 ? -1 : recordPayload[row];
+    }
+
+    /**
+     * Returns the mapping of a segment covering at least the given size, remapping the segment when it has grown
+     *
+     * @param segment the segment
+     * @param size    the size that must be mapped
+     * @return the mapping
+     * @throws IOException thrown when the segment could not be mapped
+     */
+    private MappedByteBuffer mapping(int segment, long size) throws IOException {
+        mappingLock.lock();
+        try {
+            MappedByteBuffer mapping = mappings.get(segment);
+            if (mapping == null || mapping.capacity() < size) {
+                FileChannel channel = segments.get(segment);
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                mappings.set(segment, mapping);
+            }
+            return mapping;
+        } finally {
+            mappingLock.unlock();
+        }
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static long mix(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    private static byte[] sha256(byte[] payload) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(payload);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package nl.hdn.api.store;
+
+import nl.hdn.api.object.Record;
+
+import java.time.Instant;
+
+/**
+ * Flyweight view on a row of a {@link CompactRecordStore}, decoding the columns only when a getter is called
+ */
+public final class RecordView {
+    private final CompactRecordStore store;
+    private int row;
+
+    /**
+     * Constructs a view on a row
+     *
+     * @param store the store
+     * @param row   the row
+     */
+    RecordView(CompactRecordStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+    /**
+     * Moves the view to another row
+     *
+     * @param row the row
+     * @return the view itself
+     */
+    RecordView moveTo(int row) {
+        this.row = row;
+        return this;
+    }
+
+    /**
+     * Returns the row of the view in the store
+     *
+     * @return the row
+     */
+    @SuppressWarnings("unused")
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Returns the UUID of the record
+     *
+     * @return the resource UUID
+     */
+    @SuppressWarnings("unused")
+    public String getResourceUuid() {
+        return store.resourceUuid(row);
+    }
+
+    /**
+     * Returns the UUID of the dossier containing the record
+     *
+     * @return the dossier UUID or null
+     */
+    @SuppressWarnings("unused")
+    public String getDossierUuid() {
+        return store.dossierUuid(row);
+    }
+
+    /**
+     * Returns the UUID of the parent record
+     *
+     * @return the parent record UUID or null
+     */
+    @SuppressWarnings("unused")
+    public String getParentRecord() {
+        return store.parentRecord(row);
+    }
+
+    /**
+     * Returns the nodenumber of the sender of the message
+     *
+     * @return the sender or null
+     */
+    @SuppressWarnings("unused")
+    public String getSender() {
+        return Codec.node(store.senderCode(row));
+    }
+
+    /**
+     * Returns the nodenumber of the receiver of the message
+     *
+     * @return the receiver or null
+     */
+    @SuppressWarnings("unused")
+    public String getReceiver() {
+        return Codec.node(store.receiverCode(row));
+    }
+
+    /**
+     * Returns the message type of the request schema
+     *
+     * @return the message type or null
+     */
+    @SuppressWarnings("unused")
+    public String getMessageType() {
+        return store.messageTypes().decode(store.messageTypeCode(row));
+    }
+
+    /**
+     * Returns the status of the record, f.e. created, new, read, confirmed, deleted
+     *
+     * @return the status or null
+     */
+    @SuppressWarnings("unused")
+    public String getStatus() {
+        return store.statuses().decode(store.statusCode(row));
+    }
+
+    /**
+     * Returns the moment the status was last updated
+     *
+     * @return the timestamp or null
+     */
+    @SuppressWarnings("unused")
+    public Instant getStatusModifiedTimestamp() {
+        return Codec.time(store.statusModifiedMillis(row));
+    }
+
+    /**
+     * Returns the moment the record has been created
+     *
+     * @return the creation date or null
+     */
+    @SuppressWarnings("unused")
+    public Instant getCreationDate() {
+        return Codec.time(store.creationDateMillis(row));
+    }
+
+    /**
+     * Returns a record referring to this row, to fetch, send or confirm it on the HDN Platform of Trust
+     *
+     * @return the existing record
+     */
+    @SuppressWarnings("unused")
+    public Record toRecord() {
+        return new Record(getDossierUuid(), getResourceUuid());
+    }
+
+    /**
+     * Copies the columns of the row, the copy does not follow later updates of the store
+     *
+     * @return the copy
+     */
+    @SuppressWarnings("unused")
+    public MirroredRecord snapshot() {
+        return new MirroredRecord(getResourceUuid(), getDossierUuid(), getParentRecord(), getSender(), getReceiver(),
+                getMessageType(), getStatus(), getStatusModifiedTimestamp(), getCreationDate());
+    }
+
+    @Override
+    public String toString() {
+        return "RecordView[" + getResourceUuid() + ", " + getMessageType() + ", " + getStatus() + "]";
+    }
+}
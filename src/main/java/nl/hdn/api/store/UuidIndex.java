@@ -0,0 +1,110 @@
+package nl.hdn.api.store;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing index from a UUID to a row, reading the UUID halves from the columns of the store
+ */
+final class UuidIndex {
+    /**
+     * Reads the UUID halves of a row
+     */
+    interface Columns {
+        /**
+         * Returns the most significant bits of the UUID of a row
+         *
+         * @param row the row
+         * @return the most significant bits
+         */
+        long msb(int row);
+
+        /**
+         * Returns the least significant bits of the UUID of a row
+         *
+         * @param row the row
+         * @return the least significant bits
+         */
+        long lsb(int row);
+    }
+
+    private final Columns columns;
+    private int[] slots = new int[64];
+    private int size = 0;
+
+    /**
+     * Constructs an empty index
+     *
+     * @param columns the columns holding the UUIDs of the rows
+     */
+    UuidIndex(Columns columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Finds the row of a UUID
+     *
+     * @param msb the most significant bits
+     * @param lsb the least significant bits
+     * @return the row or -1 when absent
+     */
+    int find(long msb, long lsb) {
+        int mask = slots.length - 1;
+        for (int slot = slot(msb, lsb, mask); slots[slot] != 0; slot = (slot + 1) & mask) {
+            int row = slots[slot] - 1;
+            if (columns.msb(row) == msb && columns.lsb(row) == lsb) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a row, the UUID of the row must not be present yet
+     *
+     * @param row the row
+     */
+    void add(int row) {
+        if ((size + 1) * 2 > slots.length) {
+            int[] old = slots;
+            slots = new int[old.length * 2];
+            for (int value : old) {
+                if (value != 0) {
+                    insert(value - 1);
+                }
+            }
+        }
+        insert(row);
+        size++;
+    }
+
+    /**
+     * Removes all rows
+     */
+    void clear() {
+        Arrays.fill(slots, 0);
+        size = 0;
+    }
+
+    /**
+     * Returns the memory used by the index in bytes
+     *
+     * @return the number of bytes
+     */
+    long memoryUsage() {
+        return (long) slots.length * Integer.BYTES;
+    }
+
+    private void insert(int row) {
+        int mask = slots.length - 1;
+        int slot = slot(columns.msb(row), columns.lsb(row), mask);
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = row + 1;
+    }
+
+    private static int slot(long msb, long lsb, int mask) {
+        long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,293 @@
+package nl.hdn.api.sync;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.concurrent.FanOut;
+import nl.hdn.api.object.RecordKeysetIterator;
+import nl.hdn.api.object.RecordList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Loads all records of a node created within a time window, f.e. for an initial load before a {@link RecordSync}.
+ * The window is split into creationDate ranges that are scanned concurrently. Every range is counted first, and a
+ * range with more records than the split threshold is split again, so a dense period does not end up in a single
+ * long scan.
+ * <p>
+ * Completed ranges are written to the checkpoint, and a backfill that is run again only scans the ranges that have
+ * not been completed yet. A range that was interrupted is scanned again from its start, so the sink receives every
+ * record at least once.
+ */
+public class RecordBackfill {
+    private static final Logger logger = LoggerFactory.getLogger(RecordBackfill.class);
+    /**
+     * The maximum number of parts a dense range is split into at once
+     */
+    private static final int MAX_PARTS = 16;
+
+    /**
+     * The result of a backfill run
+     *
+     * @param records the number of records passed to the sink
+     * @param ranges  the number of ranges scanned
+     * @param splits  the number of ranges that have been split because they held too many records
+     */
+    public record BackfillResult(long records, int ranges, int splits) {
+    }
+
+    /**
+     * A range to scan, with the number of records it held when it was counted. Records can change status or be added
+     * while the backfill runs, so the count only orders the scans and is not checked afterward.
+     */
+    private record PlannedRange(SyncCheckpoint.Range range, int count) {
+    }
+
+    private final SyncCheckpoint checkpoint;
+    /**
+     * The maximum number of calls in flight
+     */
+    private int concurrency = FanOut.DEFAULT_CONCURRENCY;
+    /**
+     * The number of records above which a range is split
+     */
+    private int splitThreshold = 10_000;
+    /**
+     * The shortest range that is created by a split
+     */
+    private Duration minRange = Duration.ofSeconds(1);
+    /**
+     * The limit of records to retrieve in a single call
+     */
+    private int limit = 1000;
+
+    /**
+     * Constructs the backfill
+     *
+     * @param checkpoint the checkpoint holding the completed ranges
+     */
+    public RecordBackfill(SyncCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Runs or resumes a backfill of the records of a node, with the default API controller
+     *
+     * @param node   the 6-digit nodenumber on behalf of which the records are retrieved
+     * @param status the status of the records to load, or null for all records
+     * @param from   the start of the window, included
+     * @param until  the end of the window, excluded
+     * @param sink   the sink receiving the records
+     * @return the result of the run
+     * @throws IOException          thrown when the records could not be retrieved or the checkpoint could not be written
+     * @throws InterruptedException thrown when the backfill is interrupted
+     */
+    @SuppressWarnings("unused")
+    public BackfillResult backfill(String node, String status, Instant from, Instant until, RecordBackfillSink sink) throws IOException, InterruptedException {
+        return backfill(node, status, from, until, sink, APIController.getInstance());
+    }
+
+    /**
+     * Runs or resumes a backfill of the records of a node. The parts of the window that are not completed yet are
+     * counted and split until every range holds at most the split threshold, after which the ranges are scanned
+     * concurrently, the largest first.
+     *
+     * @param node          the 6-digit nodenumber on behalf of which the records are retrieved
+     * @param status        the status of the records to load, or null for all records
+     * @param from          the start of the window, included
+     * @param until         the end of the window, excluded
+     * @param sink          the sink receiving the records
+     * @param apiController the controller to be used for the API calls
+     * @return the result of the run
+     * @throws IOException          thrown when the records could not be retrieved or the checkpoint could not be written
+     * @throws InterruptedException thrown when the backfill is interrupted
+     */
+    public BackfillResult backfill(String node, String status, Instant from, Instant until, RecordBackfillSink sink, APIController apiController) throws IOException, InterruptedException {
+        if (!from.isBefore(until)) {
+            throw new IllegalArgumentException("Start of the window should be before its end");
+        }
+        String key = key(node, status);
+        List<SyncCheckpoint.Range> completed = checkpoint.getRanges(key);
+        List<SyncCheckpoint.Range> pending = new ArrayList<>();
+        for (SyncCheckpoint.Range slice : split(new SyncCheckpoint.Range(from, until), concurrency)) {
+            pending.addAll(subtract(slice, completed));
+        }
+
+        List<PlannedRange> planned = new ArrayList<>();
+        int splits = 0;
+        while (!pending.isEmpty()) {
+            List<Integer> counts = FanOut.map(pending, concurrency, range -> filter(status, range).count(node, apiController));
+            List<SyncCheckpoint.Range> next = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i++) {
+                SyncCheckpoint.Range range = pending.get(i);
+                int count = counts.get(i);
+                if (count < 0) {
+                    throw new IOException("Records created from " + range.from() + " until " + range.until() + " could not be counted");
+                } else if (count == 0) {
+                    checkpoint.addRange(key, range);
+                } else if (count > splitThreshold && Duration.between(range.from(), range.until()).compareTo(minRange.multipliedBy(2)) >= 0) {
+                    next.addAll(split(range, (count + splitThreshold - 1) / splitThreshold));
+                    splits++;
+                } else {
+                    planned.add(new PlannedRange(range, count));
+                }
+            }
+            pending = next;
+        }
+
+        planned.sort(Comparator.comparingInt(PlannedRange::count).reversed());
+        List<Long> scanned = FanOut.map(planned, concurrency, range -> scan(key, node, status, range, sink, apiController));
+        long records = scanned.stream().mapToLong(Long::longValue).sum();
+
+        logger.info("Backfilled records of node {} with status {}: {} records in {} ranges, {} splits", node, status, records, planned.size(), splits);
+        return new BackfillResult(records, planned.size(), splits);
+    }
+
+    /**
+     * Passes all records of a range to the sink and marks the range as completed
+     */
+    private long scan(String key, String node, String status, PlannedRange planned, RecordBackfillSink sink, APIController apiController) throws IOException {
+        long records = 0;
+        try (RecordKeysetIterator iterator = filter(status, planned.range()).setLimit(limit).keysetIterator(node, apiController)) {
+            while (iterator.hasNext()) {
+                sink.accept(iterator.next());
+                records++;
+            }
+        } catch (UncheckedIOException e) {
+            // A page the platform returned an error for, the range is not completed
+            throw e.getCause();
+        }
+        checkpoint.addRange(key, planned.range());
+        return records;
+    }
+
+    private static RecordList filter(String status, SyncCheckpoint.Range range) {
+        return new RecordList().setStatus(status).setCreationDateRange(range.from(), range.until());
+    }
+
+    /**
+     * Splits a range into parts of equal length, no shorter than the minimal range
+     */
+    private List<SyncCheckpoint.Range> split(SyncCheckpoint.Range range, int parts) {
+        Duration length = Duration.between(range.from(), range.until());
+        long maxParts = Math.max(1, length.dividedBy(minRange));
+        int count = (int) Math.min(Math.min(parts, MAX_PARTS), maxParts);
+        Duration step = length.dividedBy(Math.max(1, count));
+
+        List<SyncCheckpoint.Range> result = new ArrayList<>(count);
+        Instant start = range.from();
+        for (int i = 1; i < count; i++) {
+            Instant end = range.from().plus(step.multipliedBy(i)).truncatedTo(ChronoUnit.MILLIS);
+            result.add(new SyncCheckpoint.Range(start, end));
+            start = end;
+        }
+        result.add(new SyncCheckpoint.Range(start, range.until()));
+        return result;
+    }
+
+    /**
+     * Returns the parts of a range that are not covered by the completed ranges
+     */
+    private static List<SyncCheckpoint.Range> subtract(SyncCheckpoint.Range range, List<SyncCheckpoint.Range> completed) {
+        List<SyncCheckpoint.Range> gaps = new ArrayList<>();
+        Instant cursor = range.from();
+        for (SyncCheckpoint.Range done : completed) {
+            if (!done.until().isAfter(cursor)) {
+                continue;
+            }
+            if (!done.from().isBefore(range.until())) {
+                break;
+            }
+            if (done.from().isAfter(cursor)) {
+                gaps.add(new SyncCheckpoint.Range(cursor, done.from()));
+            }
+            cursor = done.until();
+        }
+        if (cursor.isBefore(range.until())) {
+            gaps.add(new SyncCheckpoint.Range(cursor, range.until()));
+        }
+        return gaps;
+    }
+
+    /**
+     * Returns the key of a backfill in the checkpoint
+     *
+     * @param node   the node of the backfill
+     * @param status the status filter of the backfill
+     * @return the key
+     */
+    private static String key(String node, String status) {
+        return "backfill." + node + "." + (status == null ? "all" : status);
+    }
+
+    /**
+     * Sets the maximum number of calls in flight
+     *
+     * @param concurrency the concurrency, must be greater than 0
+     * @return the backfill itself
+     */
+    @SuppressWarnings("unused")
+    public RecordBackfill setConcurrency(int concurrency) {
+        if (concurrency > 0) {
+            this.concurrency = concurrency;
+        } else {
+            logger.error("Concurrency should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of records above which a range is split
+     *
+     * @param splitThreshold the threshold, must be greater than 0
+     * @return the backfill itself
+     */
+    @SuppressWarnings("unused")
+    public RecordBackfill setSplitThreshold(int splitThreshold) {
+        if (splitThreshold > 0) {
+            this.splitThreshold = splitThreshold;
+        } else {
+            logger.error("Split threshold should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the shortest range that is created by a split
+     *
+     * @param minRange the shortest range, must be at least a millisecond
+     * @return the backfill itself
+     */
+    @SuppressWarnings("unused")
+    public RecordBackfill setMinRange(Duration minRange) {
+        if (minRange != null && minRange.compareTo(Duration.ofMillis(1)) >= 0) {
+            this.minRange = minRange;
+        } else {
+            logger.error("Minimal range should be at least a millisecond.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the limit of records to retrieve in a single call
+     *
+     * @param limit the limit, must be greater than 0 and smaller or equal to 1000
+     * @return the backfill itself
+     */
+    @SuppressWarnings("unused")
+    public RecordBackfill setLimit(int limit) {
+        if (limit > 0 && limit <= 1000) {
+            this.limit = limit;
+        } else {
+            logger.error("Limit should be greater than 0 and lower than or equal to 1000.");
+        }
+        return this;
+    }
+}
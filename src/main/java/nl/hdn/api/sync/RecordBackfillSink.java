@@ -0,0 +1,22 @@
+package nl.hdn.api.sync;
+
+import nl.hdn.api.object.Record;
+
+import java.io.IOException;
+
+/**
+ * Receives the records found by a {@link RecordBackfill}. The ranges of a backfill are scanned concurrently, so the
+ * sink is called from several threads at once and should be thread-safe. When the sink throws an exception, the
+ * backfill stops without marking the current range as completed, so its records are offered again when the backfill
+ * is resumed.
+ */
+@FunctionalInterface
+public interface RecordBackfillSink {
+    /**
+     * Called for every record of the backfill, at least once
+     *
+     * @param apiRecord the record
+     * @throws IOException thrown when the record could not be stored
+     */
+    void accept(Record apiRecord) throws IOException;
+}
@@ -0,0 +1,198 @@
+package nl.hdn.api.sync;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.object.RecordKeysetIterator;
+import nl.hdn.api.object.RecordList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Synchronises the records of a node incrementally. Each run only retrieves the records created after the
+ * high-water mark of the previous run, minus an overlap window to allow for clock skew on the platform.
+ * Records within the overlap window are remembered in the checkpoint, so they are only reported again when
+ * their status has changed.
+ */
+public class RecordSync {
+    private static final Logger logger = LoggerFactory.getLogger(RecordSync.class);
+
+    /**
+     * The result of a single synchronisation run
+     *
+     * @param added     the number of records reported as added
+     * @param changed   the number of records reported as changed
+     * @param watermark the high-water mark after the run, null when no record has been seen yet
+     */
+    public record SyncResult(int added, int changed, Instant watermark) {
+    }
+
+    private final SyncCheckpoint checkpoint;
+    /**
+     * The overlap window before the high-water mark that is retrieved again on every run
+     */
+    private Duration overlap = Duration.ofMinutes(5);
+    /**
+     * The number of records after which the checkpoint is updated
+     */
+    private int batchSize = 100;
+    /**
+     * The limit of records to retrieve in a single call
+     */
+    private int limit = 100;
+
+    /**
+     * Constructs the synchronisation
+     *
+     * @param checkpoint the checkpoint holding the high-water marks
+     */
+    public RecordSync(SyncCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Runs a synchronisation of the records of a node, with the default API controller
+     *
+     * @param node     the 6-digit nodenumber on behalf of which the records are retrieved
+     * @param status   the status of the records to synchronise, or null for all records
+     * @param listener the listener receiving the added and changed records
+     * @return the result of the run
+     * @throws IOException thrown when the records could not be retrieved or the checkpoint could not be written
+     */
+    @SuppressWarnings("unused")
+    public SyncResult sync(String node, String status, RecordSyncListener listener) throws IOException {
+        return sync(node, status, listener, APIController.getInstance());
+    }
+
+    /**
+     * Runs a synchronisation of the records of a node
+     *
+     * @param node          the 6-digit nodenumber on behalf of which the records are retrieved
+     * @param status        the status of the records to synchronise, or null for all records
+     * @param listener      the listener receiving the added and changed records
+     * @param apiController the controller to be used for the API calls
+     * @return the result of the run
+     * @throws IOException thrown when the records could not be retrieved or the checkpoint could not be written
+     */
+    public SyncResult sync(String node, String status, RecordSyncListener listener, APIController apiController) throws IOException {
+        String key = key(node, status);
+        Instant watermark = checkpoint.getWatermark(key);
+        Map<String, SyncCheckpoint.WindowEntry> window = checkpoint.getWindow(key);
+
+        RecordList recordList = new RecordList().setStatus(status).setLimit(limit);
+        if (watermark != null) {
+            recordList.setCreationDate("$gte", watermark.minus(overlap).toString());
+        }
+
+        int added = 0;
+        int changed = 0;
+        int pending = 0;
+        try (RecordKeysetIterator iterator = recordList.keysetIterator(node, apiController)) {
+            while (iterator.hasNext()) {
+                Record apiRecord = iterator.next();
+                String recordStatus = apiRecord.getStatus().value();
+                SyncCheckpoint.WindowEntry previous = window.get(apiRecord.getResourceUuid());
+
+                if (previous == null) {
+                    listener.onAdded(apiRecord);
+                    added++;
+                } else if (!previous.status().equals(recordStatus)) {
+                    listener.onChanged(apiRecord);
+                    changed++;
+                }
+                window.put(apiRecord.getResourceUuid(), new SyncCheckpoint.WindowEntry(apiRecord.getCreationDate(), recordStatus));
+                if (watermark == null || apiRecord.getCreationDate().isAfter(watermark)) {
+                    watermark = apiRecord.getCreationDate();
+                }
+
+                if (++pending >= batchSize) {
+                    commit(key, watermark, window, listener);
+                    pending = 0;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (pending > 0) {
+            commit(key, watermark, window, listener);
+        }
+        logger.info("Synchronised records of node {} with status {}: {} added, {} changed", node, status, added, changed);
+        return new SyncResult(added, changed, watermark);
+    }
+
+    /**
+     * Lets the listener store the records of the batch, removes the records before the overlap window and writes the
+     * checkpoint
+     */
+    private void commit(String key, Instant watermark, Map<String, SyncCheckpoint.WindowEntry> window, RecordSyncListener listener) throws IOException {
+        listener.beforeCommit();
+        Instant windowStart = watermark.minus(overlap);
+        window.values().removeIf(entry -> entry.creationDate().isBefore(windowStart));
+        checkpoint.update(key, watermark, window);
+    }
+
+    /**
+     * Returns the key of a synchronisation in the checkpoint
+     *
+     * @param node   the node of the synchronisation
+     * @param status the status filter of the synchronisation
+     * @return the key
+     */
+    private static String key(String node, String status) {
+        return node + "." + (status == null ? "all" : status);
+    }
+
+    /**
+     * Sets the overlap window before the high-water mark that is retrieved again on every run
+     *
+     * @param overlap the overlap, must not be negative
+     * @return the synchronisation itself
+     */
+    @SuppressWarnings("unused")
+    public RecordSync setOverlap(Duration overlap) {
+        if (!overlap.isNegative()) {
+            this.overlap = overlap;
+        } else {
+            logger.error("Overlap should not be negative.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of records after which the checkpoint is updated
+     *
+     * @param batchSize the batch size, must be greater than 0
+     * @return the synchronisation itself
+     */
+    @SuppressWarnings("unused")
+    public RecordSync setBatchSize(int batchSize) {
+        if (batchSize > 0) {
+            this.batchSize = batchSize;
+        } else {
+            logger.error("Batch size should be greater than 0.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the limit of records to retrieve in a single call
+     *
+     * @param limit the limit, must be greater than 0 and smaller or equal to 1000
+     * @return the synchronisation itself
+     */
+    @SuppressWarnings("unused")
+    public RecordSync setLimit(int limit) {
+        if (limit > 0 && limit <= 1000) {
+            this.limit = limit;
+        } else {
+            logger.error("Limit should be greater than 0 and lower than or equal to 1000.");
+        }
+        return this;
+    }
+}
@@ -0,0 +1,35 @@
+package nl.hdn.api.sync;
+
+import nl.hdn.api.object.Record;
+
+import java.io.IOException;
+
+/**
+ * Receives the changes found by a {@link RecordSync}. When a method throws an exception, the synchronisation
+ * stops without moving the checkpoint past the current batch, so the batch is offered again on the next run.
+ */
+public interface RecordSyncListener {
+    /**
+     * Called for a record that has not been seen by an earlier synchronisation
+     *
+     * @param apiRecord the new record
+     */
+    void onAdded(Record apiRecord);
+
+    /**
+     * Called for a record within the overlap window of which the status has changed since it was last seen
+     *
+     * @param apiRecord the changed record
+     */
+    default void onChanged(Record apiRecord) {
+    }
+
+    /**
+     * Called before the checkpoint is moved past the records passed to the listener since the previous commit, f.e.
+     * to force the records stored by the listener to disk. When it throws, the checkpoint is not moved.
+     *
+     * @throws IOException thrown when the records could not be stored
+     */
+    default void beforeCommit() throws IOException {
+    }
+}
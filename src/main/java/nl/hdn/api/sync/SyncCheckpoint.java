@@ -0,0 +1,179 @@
+package nl.hdn.api.sync;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A small local checkpoint file that holds the high-water mark of each synchronisation, together with the
+ * status of the records within the overlap window, and the completed creationDate ranges of each backfill.
+ * The file is always replaced atomically, so a crash leaves either the previous or the new checkpoint behind.
+ */
+public class SyncCheckpoint {
+    private static final String WATERMARK = ".watermark";
+    private static final String WINDOW = ".window.";
+    private static final String RANGE = ".range.";
+
+    /**
+     * A record seen within the overlap window of a synchronisation
+     *
+     * @param creationDate the creation date of the record
+     * @param status       the status of the record when it was last seen
+     */
+    public record WindowEntry(Instant creationDate, String status) {
+    }
+
+    /**
+     * A range of creation dates
+     *
+     * @param from  the start of the range, included
+     * @param until the end of the range, excluded
+     */
+    public record Range(Instant from, Instant until) {
+    }
+
+    private final Path file;
+    private final Properties properties = new Properties();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Opens a checkpoint file, an absent file results in an empty checkpoint
+     *
+     * @param file the path of the checkpoint file
+     * @throws IOException thrown when the existing file could not be read
+     */
+    public SyncCheckpoint(Path file) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+        }
+    }
+
+    /**
+     * Returns the high-water mark of a synchronisation
+     *
+     * @param key the key of the synchronisation
+     * @return the high-water mark, or null when the synchronisation has never run
+     */
+    public Instant getWatermark(String key) {
+        String value = properties.getProperty(key + WATERMARK);
+        return value == null ? null : Instant.parse(value);
+    }
+
+    /**
+     * Returns the records within the overlap window of a synchronisation
+     *
+     * @param key the key of the synchronisation
+     * @return the window entries by record UUID
+     */
+    public Map<String, WindowEntry> getWindow(String key) {
+        String prefix = key + WINDOW;
+        Map<String, WindowEntry> window = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(prefix)) {
+                String[] value = properties.getProperty(name).split("\\|", 2);
+                window.put(name.substring(prefix.length()), new WindowEntry(Instant.parse(value[0]), value[1]));
+            }
+        }
+        return window;
+    }
+
+    /**
+     * Replaces the high-water mark and overlap window of a synchronisation and writes the checkpoint file
+     *
+     * @param key       the key of the synchronisation
+     * @param watermark the new high-water mark
+     * @param window    the records within the new overlap window
+     * @throws IOException thrown when the checkpoint file could not be written
+     */
+    public void update(String key, Instant watermark, Map<String, WindowEntry> window) throws IOException {
+        lock.lock();
+        try {
+            String prefix = key + WINDOW;
+            properties.stringPropertyNames().stream().filter(name -> name.startsWith(prefix)).forEach(properties::remove);
+            properties.setProperty(key + WATERMARK, watermark.toString());
+            window.forEach((uuid, entry) -> properties.setProperty(prefix + uuid, entry.creationDate() + "|" + entry.status()));
+            write();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the completed ranges of a backfill, ordered and without overlap
+     *
+     * @param key the key of the backfill
+     * @return the completed ranges
+     */
+    public List<Range> getRanges(String key) {
+        String prefix = key + RANGE;
+        List<Range> ranges = new ArrayList<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(prefix)) {
+                ranges.add(new Range(Instant.parse(name.substring(prefix.length())), Instant.parse(properties.getProperty(name))));
+            }
+        }
+        ranges.sort(Comparator.comparing(Range::from));
+        return ranges;
+    }
+
+    /**
+     * Adds a completed range of a backfill and writes the checkpoint file. The range is merged with the completed
+     * ranges it overlaps or touches, so the file stays small.
+     *
+     * @param key   the key of the backfill
+     * @param range the completed range
+     * @throws IOException thrown when the checkpoint file could not be written
+     */
+    public void addRange(String key, Range range) throws IOException {
+        lock.lock();
+        try {
+            String prefix = key + RANGE;
+            Instant from = range.from();
+            Instant until = range.until();
+            for (Range completed : getRanges(key)) {
+                if (!completed.until().isBefore(from) && !completed.from().isAfter(until)) {
+                    properties.remove(prefix + completed.from());
+                    from = completed.from().isBefore(from) ? completed.from() : from;
+                    until = completed.until().isAfter(until) ? completed.until() : until;
+                }
+            }
+            properties.setProperty(prefix + from, until.toString());
+            write();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file and moves it over the checkpoint file
+     *
+     * @throws IOException thrown when the checkpoint file could not be written
+     */
+    private void write() throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "HDN sync checkpoint");
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
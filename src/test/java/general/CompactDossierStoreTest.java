@@ -0,0 +1,71 @@
+package general;
+
+import nl.hdn.api.store.CompactDossierStore;
+import nl.hdn.api.store.DossierView;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static nl.hdn.api.mock.Fixtures.dossier;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactDossierStoreTest {
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    @Test
+    void storesAndDecodesDossiers() {
+        CompactDossierStore store = new CompactDossierStore();
+        List<String> uuids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String uuid = UUID.randomUUID().toString();
+            uuids.add(uuid);
+            store.put(dossier(uuid, NOW.plusSeconds(i), List.of("100000", String.format("%06d", 200000 + i)), List.of("100000")));
+        }
+
+        assertThat(store.size()).isEqualTo(1000);
+        DossierView view = store.find(uuids.get(7));
+        assertThat(view.getResourceUuid()).isEqualTo(uuids.get(7));
+        assertThat(view.getCreationDate()).isEqualTo(NOW.plusSeconds(7));
+        assertThat(view.getNodes()).containsExactly("100000", "200007");
+        assertThat(view.getOriginalNodes()).containsExactly("100000");
+        assertThat(view.hasNode("200007")).isTrue();
+        assertThat(view.hasNode("200008")).isFalse();
+        assertThat(store.indexOf(UUID.randomUUID().toString())).isEqualTo(-1);
+
+        List<String> iterated = new ArrayList<>();
+        store.forEachRow(row -> iterated.add(row.getResourceUuid()));
+        assertThat(iterated).isEqualTo(uuids);
+    }
+
+    @Test
+    void rewritesNodeListsOnOverwrite() {
+        CompactDossierStore store = new CompactDossierStore();
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+        int row = store.put(dossier(first, NOW, List.of("100000", "200000", "300000"), List.of("100000", "200000")));
+        store.put(dossier(second, NOW, List.of("400000"), List.of("400000")));
+
+        // Fewer nodes are written in place
+        assertThat(store.put(dossier(first, NOW, List.of("500000"), List.of("100000")))).isEqualTo(row);
+        assertThat(store.get(row).getNodes()).containsExactly("500000");
+        assertThat(store.get(row).getOriginalNodes()).containsExactly("100000");
+        assertThat(store.get(row).hasNode("200000")).isFalse();
+        assertThat(store.find(second).getNodes()).containsExactly("400000");
+
+        // More nodes are written at the end, without touching the nodes of other dossiers
+        assertThat(store.put(dossier(first, NOW, List.of("500000", "600000", "700000", "800000"), List.of("100000", "200000", "300000")))).isEqualTo(row);
+        assertThat(store.get(row).getNodes()).containsExactly("500000", "600000", "700000", "800000");
+        assertThat(store.get(row).getOriginalNodes()).containsExactly("100000", "200000", "300000");
+        assertThat(store.find(second).getNodes()).containsExactly("400000");
+        assertThat(store.find(second).getOriginalNodes()).containsExactly("400000");
+
+        // No nodes at all
+        store.put(dossier(first, NOW, List.of(), List.of()));
+        assertThat(store.get(row).getNodes()).isEmpty();
+        assertThat(store.get(row).getOriginalNodes()).isEmpty();
+        assertThat(store.size()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,53 @@
+package general;
+
+import nl.hdn.api.store.CompactRecordStore;
+import nl.hdn.api.store.RecordView;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static nl.hdn.api.mock.Fixtures.record;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactRecordStoreTest {
+    @Test
+    void storesAndDecodesRecords() {
+        CompactRecordStore store = new CompactRecordStore();
+        List<String> uuids = new ArrayList<>();
+        Instant start = Instant.parse("2025-01-01T10:00:00Z");
+        for (int i = 0; i < 1000; i++) {
+            String uuid = UUID.randomUUID().toString();
+            uuids.add(uuid);
+            store.put(record(uuid, UUID.randomUUID().toString(), "012345", "543210",
+                    i % 2 == 0 ? "AanvraagEnvelop" : "OfferteEnvelop", "new", start.plusSeconds(i)));
+        }
+
+        assertThat(store.size()).isEqualTo(1000);
+        RecordView view = store.find(uuids.get(7));
+        assertThat(view.getResourceUuid()).isEqualTo(uuids.get(7));
+        assertThat(view.getSender()).isEqualTo("012345");
+        assertThat(view.getReceiver()).isEqualTo("543210");
+        assertThat(view.getMessageType()).isEqualTo("OfferteEnvelop");
+        assertThat(view.getStatus()).isEqualTo("new");
+        assertThat(view.getCreationDate()).isEqualTo(start.plusSeconds(7));
+        assertThat(view.getParentRecord()).isNull();
+        assertThat(store.indexOf(UUID.randomUUID().toString())).isEqualTo(-1);
+    }
+
+    @Test
+    void overwritesExistingRecord() {
+        CompactRecordStore store = new CompactRecordStore();
+        String uuid = UUID.randomUUID().toString();
+        String dossierUuid = UUID.randomUUID().toString();
+        Instant now = Instant.parse("2025-01-01T10:00:00Z");
+
+        int row = store.put(record(uuid, dossierUuid, "012345", "543210", "AanvraagEnvelop", "new", now));
+        assertThat(store.put(record(uuid, dossierUuid, "012345", "543210", "AanvraagEnvelop", "read", now))).isEqualTo(row);
+
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.get(row).getStatus()).isEqualTo("read");
+    }
+}
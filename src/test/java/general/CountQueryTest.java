@@ -0,0 +1,66 @@
+package general;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.object.DossierList;
+import nl.hdn.api.object.EventList;
+import nl.hdn.api.object.HookList;
+import nl.hdn.api.object.RecordList;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountQueryTest {
+    private static final String SENDER = "100000";
+    private static final String RECEIVER = "200000";
+
+    @Test
+    void countsWithoutRetrievingLists() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform()) {
+            String dossierUuid = platform.seedDossier(SENDER, RECEIVER, "AX OfferteAanvraag", 4);
+            platform.seedRecords(SENDER, RECEIVER, "OX Offerte", 300);
+            APIController receiver = platform.createController("receiver");
+            long calls = platform.getRequestCount();
+
+            assertThat(new RecordList().count(RECEIVER, receiver)).isEqualTo(304);
+            assertThat(new RecordList(dossierUuid).count(RECEIVER, receiver)).isEqualTo(4);
+            assertThat(new DossierList().count(RECEIVER, receiver)).isEqualTo(301);
+            assertThat(new EventList(dossierUuid).count(receiver)).isEqualTo(8);
+            assertThat(new HookList().count(RECEIVER, receiver)).isZero();
+            assertThat(platform.getRequestCount() - calls).isEqualTo(5);
+        }
+    }
+
+    @Test
+    void countsPerStatusAndMessageType() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform()) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 30);
+            platform.seedRecords(SENDER, RECEIVER, "OX Offerte", 20);
+            APIController receiver = platform.createController("receiver");
+            new RecordList().setMessageType("OX Offerte").getPage(0, 5, RECEIVER, receiver).items()
+                    .forEach(apiRecord -> {
+                        try {
+                            apiRecord.fetch(RECEIVER, receiver);
+                        } catch (IOException | InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    });
+
+            RecordList filter = new RecordList().setNode(RECEIVER);
+            Map<String, Integer> perStatus = filter.countPerStatus(List.of("new", "read", "confirmed"), RECEIVER, receiver);
+            assertThat(perStatus).containsExactly(Map.entry("new", 45), Map.entry("read", 5), Map.entry("confirmed", 0));
+
+            Map<String, Integer> perMessageType = filter.setStatus("new").countPerMessageType(List.of("AX OfferteAanvraag", "OX Offerte"), RECEIVER, receiver);
+            assertThat(perMessageType).containsExactly(Map.entry("AX OfferteAanvraag", 30), Map.entry("OX Offerte", 15));
+
+            RecordList copy = filter.copy();
+            assertThat(copy).isNotSameAs(filter);
+            assertThat(copy.count(RECEIVER, receiver)).isEqualTo(45);
+        }
+    }
+}
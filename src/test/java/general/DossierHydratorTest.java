@@ -0,0 +1,91 @@
+package general;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.Latency;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.object.DossierHydrator;
+import nl.hdn.api.object.DossierSnapshot;
+import nl.hdn.api.object.Event;
+import nl.hdn.api.object.RecordList;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DossierHydratorTest {
+    private static final String SENDER = "100000";
+    private static final String RECEIVER = "200000";
+
+    @Test
+    void hydratesDossierGraph() throws IOException, InterruptedException {
+        try (MockPlatform platform = new MockPlatform()) {
+            String dossierUuid = platform.seedDossier(SENDER, RECEIVER, "AX OfferteAanvraag", 20);
+            platform.setLatency(Latency.fixed(Duration.ofMillis(50)));
+            APIController receiver = platform.createController("receiver");
+            long calls = platform.getRequestCount();
+
+            long start = System.nanoTime();
+            DossierSnapshot snapshot = new DossierHydrator().setConcurrency(64)
+                    .setProjections(DossierHydrator.Projection.values())
+                    .hydrate(dossierUuid, RECEIVER, receiver);
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+            assertThat(snapshot.resourceUuid()).isEqualTo(dossierUuid);
+            assertThat(snapshot.dossier().getNodes()).containsExactly(SENDER, RECEIVER);
+            assertThat(snapshot.records()).hasSize(20).allSatisfy(apiRecord -> {
+                assertThat(apiRecord.record().getMessage()).isEqualTo("<Bericht/>");
+                assertThat(apiRecord.events()).extracting(Event::getEventType).startsWith("record.created", "record.sent");
+            });
+            assertThat(snapshot.events()).hasSizeGreaterThanOrEqualTo(40);
+            assertThat(platform.getRequestCount() - calls).isEqualTo(3 + 2 * 20);
+            // 43 sequential calls would take more than 2 seconds, the graph is two round trips deep
+            assertThat(elapsed).isLessThan(Duration.ofMillis(1000));
+            assertThatThrownBy(() -> snapshot.records().clear()).isInstanceOf(UnsupportedOperationException.class);
+        }
+    }
+
+    @Test
+    void appliesDepthAndProjections() throws IOException, InterruptedException {
+        try (MockPlatform platform = new MockPlatform()) {
+            String dossierUuid = platform.seedDossier(SENDER, RECEIVER, "AX OfferteAanvraag", 5);
+            APIController receiver = platform.createController("receiver");
+
+            long calls = platform.getRequestCount();
+            DossierSnapshot dossierOnly = new DossierHydrator().setDepth(DossierHydrator.Depth.DOSSIER).setProjections().hydrate(dossierUuid, RECEIVER, receiver);
+            assertThat(dossierOnly.records()).isEmpty();
+            assertThat(dossierOnly.events()).isEmpty();
+            assertThat(dossierOnly.dossier().getCreationDate()).isNotNull();
+            assertThat(platform.getRequestCount() - calls).isEqualTo(1);
+
+            calls = platform.getRequestCount();
+            DossierSnapshot withRecords = new DossierHydrator().setDepth(DossierHydrator.Depth.RECORDS).setProjections(DossierHydrator.Projection.DOSSIER_EVENTS).hydrate(dossierUuid, RECEIVER, receiver);
+            assertThat(withRecords.records()).hasSize(5).allSatisfy(apiRecord -> {
+                assertThat(apiRecord.record().getMessage()).isNull();
+                assertThat(apiRecord.events()).isEmpty();
+            });
+            assertThat(withRecords.events()).hasSize(10);
+            assertThat(platform.getRequestCount() - calls).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void leavesRecordsUnreadByDefault() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform()) {
+            String dossierUuid = platform.seedDossier(SENDER, RECEIVER, "AX OfferteAanvraag", 5);
+            APIController receiver = platform.createController("receiver");
+
+            DossierSnapshot snapshot = new DossierHydrator().hydrate(dossierUuid, RECEIVER, receiver);
+
+            assertThat(snapshot.records()).hasSize(5).allSatisfy(apiRecord -> {
+                assertThat(apiRecord.record().getMessage()).isNull();
+                assertThat(apiRecord.events()).isNotEmpty();
+            });
+            assertThat(snapshot.events()).isNotEmpty();
+            assertThat(new RecordList().setStatus("new").get(RECEIVER, receiver).getRecords()).hasSize(5);
+        }
+    }
+}
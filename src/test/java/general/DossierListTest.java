@@ -0,0 +1,75 @@
+package general;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.object.Dossier;
+import nl.hdn.api.object.DossierList;
+import org.json.JSONException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DossierListTest {
+    private static final String SENDER = "100000";
+    private static final String RECEIVER = "200000";
+
+    @Test
+    void populatesDossiersFromPage() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform()) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 250);
+            APIController receiver = platform.createController("receiver");
+            long calls = platform.getRequestCount();
+
+            List<Dossier> dossiers = new DossierList().setLimit(1000).get(RECEIVER, receiver).getDossiers();
+
+            assertThat(platform.getRequestCount() - calls).isEqualTo(1);
+            assertThat(dossiers).hasSize(250).allSatisfy(dossier -> {
+                assertThat(dossier.getNodes()).containsExactly(SENDER, RECEIVER);
+                assertThat(dossier.getOriginalNodes()).containsExactly(SENDER);
+                assertThat(dossier.getSortedOriginalNodes()).isEqualTo(SENDER);
+                assertThat(dossier.getSub()).isEqualTo("seed");
+                assertThat(dossier.getCreationDate()).isNotNull();
+                assertThat(dossier.getRecordList()).isNotNull();
+            });
+        }
+    }
+
+    @Test
+    void projectsFields() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform()) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 3);
+            APIController receiver = platform.createController("receiver");
+
+            List<Dossier> dossiers = new DossierList().setFields(Dossier.Field.NODES).get(RECEIVER, receiver).getDossiers();
+
+            assertThat(dossiers).hasSize(3).allSatisfy(dossier -> {
+                assertThat(dossier.getResourceUuid()).isNotNull();
+                assertThat(dossier.getNodes()).containsExactly(SENDER, RECEIVER);
+                assertThat(dossier.getOriginalNodes()).isNull();
+                assertThat(dossier.getCreationDate()).isNull();
+            });
+        }
+    }
+
+    @Test
+    void leavesMissingOptionalAttributesEmpty() {
+        Dossier dossier = new Dossier("3f0c5c6e-8d3a-4a43-a1f4-7c0f6d1e2b90",
+                "{\"nodes\":[\"100000\"],\"originalNodes\":[\"100000\"],\"creationDate\":\"2025-01-01T10:00:00Z\"}");
+
+        assertThat(dossier.getResourceUuid()).isEqualTo("3f0c5c6e-8d3a-4a43-a1f4-7c0f6d1e2b90");
+        assertThat(dossier.getNodes()).containsExactly("100000");
+        assertThat(dossier.getSub()).isEmpty();
+        assertThat(dossier.getSortedOriginalNodes()).isEmpty();
+    }
+
+    @Test
+    void rejectsMissingRequiredAttributes() {
+        assertThatThrownBy(() -> new Dossier("3f0c5c6e-8d3a-4a43-a1f4-7c0f6d1e2b90", "{\"nodes\":[\"100000\"]}"))
+                .isInstanceOf(JSONException.class);
+    }
+}
@@ -0,0 +1,110 @@
+package general;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.mock.SteppingClock;
+import nl.hdn.api.object.Dossier;
+import nl.hdn.api.outbound.DossierPool;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DossierPoolTest {
+    private static final String NODE = "100000";
+
+    @Test
+    void handsOutPooledDossiersAndRefills() throws IOException, InterruptedException {
+        try (MockPlatform platform = new MockPlatform()) {
+            APIController apiController = platform.createController("pool");
+            try (DossierPool pool = new DossierPool(3, apiController).warmUp(NODE)) {
+                awaitCount(() -> pool.getAvailable(NODE), 3);
+                assertThat(platform.getDossierCount()).isEqualTo(3);
+
+                Dossier first = pool.acquire(NODE);
+                Dossier second = pool.acquire(NODE);
+
+                assertThat(first.getResourceUuid()).isNotNull().isNotEqualTo(second.getResourceUuid());
+                assertThat(pool.getHits()).isEqualTo(2);
+                assertThat(pool.getMisses()).isZero();
+                awaitCount(() -> pool.getAvailable(NODE), 3);
+                assertThat(platform.getDossierCount()).isEqualTo(5);
+            }
+        }
+    }
+
+    @Test
+    void expiresDossiersOlderThanTheMaxAge() throws IOException, InterruptedException {
+        try (MockPlatform platform = new MockPlatform()) {
+            APIController apiController = platform.createController("pool");
+            List<String> expired = new CopyOnWriteArrayList<>();
+            // Every read of the clock is an hour later, so every pooled dossier is expired by the time it is taken
+            try (DossierPool pool = new DossierPool(2, apiController, new SteppingClock(Instant.now(), Duration.ofHours(1)))
+                    .setMaxAge(Duration.ofMinutes(30))
+                    .setExpiryHandler((node, dossier) -> expired.add(dossier.getResourceUuid()))) {
+                pool.warmUp(NODE);
+                awaitCount(() -> pool.getAvailable(NODE), 2);
+
+                Dossier acquired = pool.acquire(NODE);
+
+                assertThat(expired).hasSize(2).doesNotContain(acquired.getResourceUuid());
+                assertThat(pool.getExpired()).isEqualTo(2);
+                assertThat(pool.getHits()).isZero();
+                assertThat(pool.getMisses()).isEqualTo(1);
+            }
+        }
+    }
+
+    @Test
+    void neverHandsOutADossierTwice() throws IOException, InterruptedException {
+        try (MockPlatform platform = new MockPlatform()) {
+            APIController apiController = platform.createController("pool");
+            try (DossierPool pool = new DossierPool(20, apiController).warmUp(NODE)) {
+                awaitCount(() -> pool.getAvailable(NODE), 20);
+
+                Set<String> acquired = ConcurrentHashMap.newKeySet();
+                List<Throwable> failures = new CopyOnWriteArrayList<>();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Thread> threads = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    threads.add(Thread.ofVirtual().start(() -> {
+                        try {
+                            start.await();
+                            acquired.add(pool.acquire(NODE).getResourceUuid());
+                        } catch (Exception e) {
+                            failures.add(e);
+                        }
+                    }));
+                }
+                start.countDown();
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+
+                assertThat(failures).isEmpty();
+                assertThat(acquired).hasSize(50);
+                assertThat(pool.getHits() + pool.getMisses()).isEqualTo(50);
+                assertThat(pool.getHits()).isGreaterThanOrEqualTo(20);
+            }
+        }
+    }
+
+    private static void awaitCount(LongSupplier count, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count.getAsLong() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(count.getAsLong()).isEqualTo(expected);
+    }
+}
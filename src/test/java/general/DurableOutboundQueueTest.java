@@ -0,0 +1,97 @@
+package general;
+
+import nl.hdn.api.APIConstants;
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.outbound.DurableOutboundQueue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DurableOutboundQueueTest {
+    private static final String SENDER = "100000";
+    private static final String RECEIVER = "200000";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysPendingSubmissionsExactlyOnceAfterACrash() throws IOException, InterruptedException, GeneralSecurityException, ExecutionException {
+        PrivateKey privateKey = KeyPairGenerator.getInstance("RSA").generateKeyPair().getPrivate();
+        try (MockPlatform platform = new MockPlatform()) {
+            APIController sender = platform.createController("sender");
+
+            // The platform is down: the submissions are journaled but none of them gets further
+            platform.setErrorRate(1);
+            DurableOutboundQueue crashed = new DurableOutboundQueue(directory, sender)
+                    .setPrivateKey(privateKey)
+                    .setRetryDelay(Duration.ofHours(1))
+                    .start();
+            List<CompletableFuture<Void>> durable = new ArrayList<>();
+            List<CompletableFuture<Record>> sent = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                DurableOutboundQueue.Submission submission = crashed.submit(record(), SENDER);
+                durable.add(submission.durable());
+                sent.add(submission.sent());
+            }
+            CompletableFuture.allOf(durable.toArray(CompletableFuture[]::new)).get();
+            crashed.shutdown(Duration.ofSeconds(10));
+            // Nobody waits forever for a submission that is left to the next start
+            assertThat(sent).allSatisfy(future -> assertThatThrownBy(future::get).isInstanceOf(CancellationException.class));
+            // A write torn by the crash at the tail of the last segment
+            Files.write(segments().getLast(), new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+            platform.setErrorRate(0);
+            DurableOutboundQueue restarted = new DurableOutboundQueue(directory, sender).setPrivateKey(privateKey).start();
+            List<DurableOutboundQueue.Submission> recovered = restarted.getRecovered();
+            assertThat(recovered).hasSize(20);
+            for (DurableOutboundQueue.Submission submission : recovered) {
+                assertThat(submission.sent().get().getResourceUuid()).isNotNull();
+            }
+            assertThat(restarted.getPendingCount()).isZero();
+            restarted.shutdown(Duration.ofSeconds(10));
+
+            DurableOutboundQueue reopened = new DurableOutboundQueue(directory, sender).setPrivateKey(privateKey).start();
+            assertThat(reopened.getRecovered()).isEmpty();
+            reopened.shutdown(Duration.ofSeconds(10));
+
+            assertThat(platform.getDossierCount()).isEqualTo(20);
+            assertThat(platform.getRecordCount()).isEqualTo(20);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static Record record() {
+        return new Record(null)
+                .setHeader(new Record.Header("1", null, SENDER, RECEIVER,
+                        new Record.RequestSchema("AX OfferteAanvraag", "25.0", "HDN", APIConstants.ContentType.XML, APIConstants.Environment.acceptatie),
+                        List.of(), null))
+                .setMiscellaneous(new Record.Miscellaneous("Adviseur", "Geldverstrekker",
+                        new Record.SendingApplication("DurableOutboundQueueTest", "1.0", Instant.now())))
+                .setMessage("<Bericht/>");
+    }
+}
@@ -0,0 +1,107 @@
+package general;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.concurrent.FanOut;
+import nl.hdn.api.mock.Latency;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.object.RecordList;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FanOutTest {
+    private static final String SENDER = "100000";
+    private static final String RECEIVER = "200000";
+
+    @Test
+    void keepsOrderOfItems() throws IOException, InterruptedException {
+        List<Integer> items = IntStream.range(0, 200).boxed().toList();
+
+        List<Integer> results = FanOut.map(items, 8, item -> {
+            Thread.sleep(200 - item);
+            return item * 2;
+        });
+
+        assertThat(results).containsExactlyElementsOf(items.stream().map(item -> item * 2).toList());
+    }
+
+    @Test
+    void capsCallsInFlight() throws IOException, InterruptedException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        FanOut.map(IntStream.range(0, 100).boxed().toList(), 5, item -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            inFlight.decrementAndGet();
+            return item;
+        });
+
+        assertThat(maxInFlight.get()).isBetween(1, 5);
+    }
+
+    @Test
+    void propagatesFailure() {
+        List<Integer> items = IntStream.range(0, 50).boxed().toList();
+
+        assertThatThrownBy(() -> FanOut.map(items, 4, item -> {
+            if (item == 10) {
+                throw new IOException("Call failed");
+            }
+            return item;
+        })).isInstanceOf(IOException.class).hasMessage("Call failed");
+        assertThatThrownBy(() -> FanOut.map(items, 4, item -> {
+            throw new Exception("Checked");
+        })).isInstanceOf(IllegalStateException.class).hasRootCauseMessage("Checked");
+        assertThatThrownBy(() -> FanOut.map(items, 0, item -> item)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void fetchesAllRecords() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform()) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 64);
+            platform.setLatency(Latency.fixed(Duration.ofMillis(20)));
+            APIController receiver = platform.createController("receiver");
+
+            RecordList inbox = new RecordList().setStatus("new").get(RECEIVER, receiver);
+            assertThat(inbox.getRecords()).hasSize(64).allSatisfy(apiRecord -> assertThat(apiRecord.getMessage()).isNull());
+
+            long start = System.nanoTime();
+            inbox.fetchAll(RECEIVER, 16, receiver);
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+            assertThat(inbox.getRecords()).extracting(Record::getMessage).doesNotContainNull();
+            // 64 sequential calls would take at least 1280 ms
+            assertThat(elapsed).isLessThan(Duration.ofMillis(1000));
+            assertThat(new RecordList().setStatus("read").get(RECEIVER, receiver).getRecords()).hasSize(64);
+        }
+    }
+
+    @Test
+    void fetchesOnVirtualThreadsUntilClosed() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform()) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 16);
+            APIController receiver = platform.createController("receiver").useVirtualThreads();
+            // A second executor is refused, the controller keeps its client
+            assertThat(receiver.setExecutor(Runnable::run)).isSameAs(receiver);
+
+            try (receiver) {
+                RecordList inbox = new RecordList().setStatus("new").get(RECEIVER, receiver);
+                inbox.fetchAll(RECEIVER, 4, receiver);
+                assertThat(inbox.getRecords()).hasSize(16).extracting(Record::getMessage).doesNotContainNull();
+            }
+
+            // Closed, the controller goes back to the shared client
+            assertThat(new RecordList().setStatus("read").get(RECEIVER, receiver).getRecords()).hasSize(16);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package general;
+
+import nl.hdn.api.inbound.HookDelivery;
+import nl.hdn.api.inbound.HookReceiver;
+import nl.hdn.api.inbound.UuidDeduplicator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HookReceiverTest {
+    @Test
+    void acknowledgesAndDispatchesByMessageType() throws Exception {
+        CompletableFuture<HookDelivery> offerte = new CompletableFuture<>();
+        CompletableFuture<HookDelivery> other = new CompletableFuture<>();
+
+        try (HookReceiver receiver = new HookReceiver(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+                .setPath("/hooks")
+                .onMessageType("OX Offerte", offerte::complete)
+                .onDelivery(other::complete)
+                .start();
+             HttpClient client = HttpClient.newHttpClient()) {
+            URI uri = URI.create("http://localhost:" + receiver.getAddress().getPort() + "/hooks");
+
+            assertThat(post(client, uri, "{\"resourceUuid\":\"r1\",\"dossierUuid\":\"d1\",\"messageType\":\"OX Offerte\"}")).isEqualTo(202);
+            assertThat(post(client, uri, "{\"resourceUuid\":\"r2\",\"eventType\":\"record.read\"}")).isEqualTo(202);
+            assertThat(post(client, uri, "no json")).isEqualTo(400);
+
+            assertThat(offerte.get(5, TimeUnit.SECONDS).dossierUuid()).isEqualTo("d1");
+            assertThat(other.get(5, TimeUnit.SECONDS).resourceUuid()).isEqualTo("r2");
+            assertThat(receiver.getReceivedCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void handlesAResendAfterAFailedDelivery() throws Exception {
+        String uuid = UUID.randomUUID().toString();
+        String body = "{\"resourceUuid\":\"" + uuid + "\",\"messageType\":\"OX Offerte\"}";
+        AtomicInteger attempts = new AtomicInteger();
+        BlockingQueue<Boolean> outcomes = new LinkedBlockingQueue<>();
+        UuidDeduplicator deduplicator = new UuidDeduplicator(1024, Duration.ofHours(1));
+
+        try (HookReceiver receiver = new HookReceiver(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+                .setPath("/hooks")
+                .setDeduplicator(deduplicator)
+                .onDelivery(delivery -> {
+                    boolean fail = attempts.incrementAndGet() == 1;
+                    outcomes.add(!fail);
+                    if (fail) {
+                        throw new IllegalStateException("Handler failed");
+                    }
+                })
+                .start();
+             HttpClient client = HttpClient.newHttpClient()) {
+            URI uri = URI.create("http://localhost:" + receiver.getAddress().getPort() + "/hooks");
+
+            assertThat(post(client, uri, body)).isEqualTo(202);
+            assertThat(outcomes.poll(5, TimeUnit.SECONDS)).isFalse();
+            awaitCount(() -> deduplicator.contains(uuid) ? 1 : 0, 0);
+            assertThat(receiver.getFailedCount()).isEqualTo(1);
+
+            assertThat(post(client, uri, body)).isEqualTo(202);
+            assertThat(outcomes.poll(5, TimeUnit.SECONDS)).isTrue();
+            awaitCount(receiver::getHandledCount, 1);
+
+            assertThat(post(client, uri, body)).isEqualTo(202);
+            awaitCount(receiver::getDuplicateCount, 1);
+            assertThat(attempts.get()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void handlesAcknowledgedDeliveriesBeforeStopping() throws Exception {
+        AtomicInteger handled = new AtomicInteger();
+        HookReceiver receiver = new HookReceiver(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+                .setWorkers(1)
+                .onDelivery(delivery -> {
+                    Thread.sleep(20);
+                    handled.incrementAndGet();
+                })
+                .start();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            URI uri = URI.create("http://localhost:" + receiver.getAddress().getPort() + "/");
+            for (int i = 0; i < 10; i++) {
+                assertThat(post(client, uri, "{\"resourceUuid\":\"r" + i + "\"}")).isEqualTo(202);
+            }
+        }
+
+        assertThat(receiver.stop(Duration.ofSeconds(5))).isEmpty();
+        assertThat(handled.get()).isEqualTo(10);
+    }
+
+    @Test
+    void returnsTheDeliveriesNotHandledWithinTheDrainTimeout() throws Exception {
+        CountDownLatch never = new CountDownLatch(1);
+        HookReceiver receiver = new HookReceiver(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+                .setWorkers(1)
+                .onDelivery(delivery -> never.await())
+                .start();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            URI uri = URI.create("http://localhost:" + receiver.getAddress().getPort() + "/");
+            for (int i = 0; i < 3; i++) {
+                assertThat(post(client, uri, "{\"resourceUuid\":\"r" + i + "\"}")).isEqualTo(202);
+            }
+        }
+
+        List<HookDelivery> abandoned = receiver.stop(Duration.ofMillis(200));
+
+        assertThat(abandoned).extracting(HookDelivery::resourceUuid).containsExactlyInAnyOrder("r0", "r1", "r2");
+    }
+
+    private static void awaitCount(LongSupplier count, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count.getAsLong() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(count.getAsLong()).isEqualTo(expected);
+    }
+
+    private static int post(HttpClient client, URI uri, String body) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,171 @@
+package general;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.inbound.InboundHandler;
+import nl.hdn.api.inbound.InboundPipeline;
+import nl.hdn.api.mock.Latency;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.object.RecordList;
+import nl.hdn.api.pipeline.StageMetrics;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SignatureException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InboundPipelineTest {
+    private static final String SENDER = "100000";
+    private static final String RECEIVER = "200000";
+
+    @Test
+    void handlesAndConfirmsDiscoveredRecords() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform()) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 50);
+            platform.setLatency(Latency.fixed(Duration.ofMillis(5)));
+            APIController receiver = platform.createController("receiver");
+            List<String> rootElements = new CopyOnWriteArrayList<>();
+
+            InboundPipeline pipeline = new InboundPipeline((apiRecord, document) -> rootElements.add(document.getDocumentElement().getTagName()), receiver)
+                    .setQueueCapacity(4)
+                    .start();
+            pipeline.discover(new RecordList().setStatus("new"), RECEIVER);
+            assertThat(pipeline.shutdown(Duration.ofSeconds(30))).isTrue();
+
+            assertThat(rootElements).hasSize(50).containsOnly("Bericht");
+            assertThat(new RecordList().setStatus("confirmed").count(RECEIVER, receiver)).isEqualTo(50);
+            assertThat(pipeline.getMetrics()).extracting(StageMetrics::name).containsExactly("discover", "fetch", "decode", "handle", "confirm");
+            assertThat(pipeline.getMetrics()).allSatisfy(metrics -> {
+                assertThat(metrics.failed()).isZero();
+                assertThat(metrics.queueCapacity()).isEqualTo(4);
+            });
+            assertThat(pipeline.getMetrics().get(4).processed()).isEqualTo(50);
+        }
+    }
+
+    @Test
+    void confirmsOnlyAfterTheHandlerSucceeded() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform()) {
+            List<String> uuids = platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 10);
+            APIController receiver = platform.createController("receiver");
+            String rejected = uuids.get(3);
+            List<String> failed = new CopyOnWriteArrayList<>();
+
+            InboundHandler handler = new InboundHandler() {
+                @Override
+                public void handle(Record apiRecord, Document document) {
+                    if (apiRecord.getResourceUuid().equals(rejected)) {
+                        throw new IllegalArgumentException("Rejected");
+                    }
+                }
+
+                @Override
+                public void failed(Record apiRecord, Exception exception) {
+                    failed.add(apiRecord.getResourceUuid());
+                }
+            };
+            List<CompletableFuture<Record>> futures = new ArrayList<>();
+            try (InboundPipeline pipeline = new InboundPipeline(handler, receiver).start()) {
+                for (Record apiRecord : new RecordList().get(RECEIVER, receiver).getRecords()) {
+                    futures.add(pipeline.submit(apiRecord, RECEIVER));
+                }
+            }
+
+            assertThat(futures).filteredOn(CompletableFuture::isCompletedExceptionally).hasSize(1);
+            assertThat(failed).containsExactly(rejected);
+            assertThat(new RecordList().setStatus("confirmed").count(RECEIVER, receiver)).isEqualTo(9);
+            assertThat(new RecordList().setStatus("read").setResourceUuid(rejected).count(RECEIVER, receiver)).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void handlesAFailedRecordAgainByAScanOfReadRecords() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform()) {
+            List<String> uuids = platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 5);
+            APIController receiver = platform.createController("receiver");
+            String rejected = uuids.get(2);
+            List<String> handled = new CopyOnWriteArrayList<>();
+            AtomicBoolean rejecting = new AtomicBoolean(true);
+
+            try (InboundPipeline pipeline = new InboundPipeline((apiRecord, document) -> {
+                if (apiRecord.getResourceUuid().equals(rejected) && rejecting.getAndSet(false)) {
+                    throw new IllegalArgumentException("Rejected");
+                }
+                handled.add(apiRecord.getResourceUuid());
+            }, receiver).start()) {
+                pipeline.discover(new RecordList().setStatus("new"), RECEIVER);
+                pipeline.discover(new RecordList().setStatus("new"), RECEIVER);
+            }
+            assertThat(handled).hasSize(4).doesNotContain(rejected);
+
+            try (InboundPipeline pipeline = new InboundPipeline((apiRecord, document) -> handled.add(apiRecord.getResourceUuid()), receiver).start()) {
+                pipeline.discover(new RecordList().setStatus("read"), RECEIVER);
+            }
+            assertThat(handled).hasSize(5).contains(rejected);
+            assertThat(new RecordList().setStatus("confirmed").count(RECEIVER, receiver)).isEqualTo(5);
+        }
+    }
+
+    @Test
+    void rejectsRecordsWithoutValidSignature() throws IOException, InterruptedException, URISyntaxException, GeneralSecurityException {
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        Record signed = new Record("dossier").setMessage("<Bericht/>").signMessage(keyPair.getPrivate());
+        assertThat(signed.verifyMessage(keyPair.getPublic())).isTrue();
+        assertThat(signed.setMessage("<Bericht>gewijzigd</Bericht>").verifyMessage(keyPair.getPublic())).isFalse();
+
+        try (MockPlatform platform = new MockPlatform()) {
+            List<String> uuids = platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 3);
+            APIController receiver = platform.createController("receiver");
+            List<String> handled = new CopyOnWriteArrayList<>();
+
+            InboundPipeline pipeline = new InboundPipeline((apiRecord, document) -> handled.add(apiRecord.getResourceUuid()), receiver)
+                    .setSignatureKeys(uuid -> keyPair.getPublic())
+                    .start();
+            CompletableFuture<Record> future = pipeline.submit(new RecordList().setResourceUuid(uuids.getFirst()).get(RECEIVER, receiver).getRecords().getFirst(), RECEIVER);
+            assertThatThrownBy(future::get).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(SignatureException.class);
+            pipeline.discover(new RecordList().setStatus("new"), RECEIVER);
+            assertThat(pipeline.shutdown(Duration.ofSeconds(10))).isTrue();
+
+            assertThat(handled).isEmpty();
+            assertThat(new RecordList().setStatus("confirmed").count(RECEIVER, receiver)).isZero();
+            StageMetrics verify = pipeline.getMetrics().get(3);
+            assertThat(verify.name()).isEqualTo("verify");
+            assertThat(verify.failed()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void failsTheRecordsLeftAfterATimedOutShutdown() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform()) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 10);
+            APIController receiver = platform.createController("receiver");
+            CountDownLatch never = new CountDownLatch(1);
+
+            InboundPipeline pipeline = new InboundPipeline((apiRecord, document) -> never.await(), receiver).start();
+            List<CompletableFuture<Record>> futures = new ArrayList<>();
+            for (Record apiRecord : new RecordList().get(RECEIVER, receiver).getRecords()) {
+                futures.add(pipeline.submit(apiRecord, RECEIVER));
+            }
+            assertThat(pipeline.shutdown(Duration.ofMillis(500))).isFalse();
+
+            assertThat(futures).hasSize(10).allSatisfy(future -> assertThat(future).isCompletedExceptionally());
+            assertThat(futures).filteredOn(future -> future.exceptionNow() instanceof IllegalStateException).isNotEmpty();
+            assertThat(new RecordList().setStatus("confirmed").count(RECEIVER, receiver)).isZero();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package general;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.inbound.InboxPoller;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.mock.SteppingClock;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.object.RecordList;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InboxPollerTest {
+    private static final String SENDER = "100000";
+    private static final String RECEIVER = "200000";
+
+    @Test
+    void deliversEveryRecordOnce() throws IOException, InterruptedException {
+        try (MockPlatform platform = new MockPlatform(new SteppingClock(Instant.now(), Duration.ofSeconds(1)));
+             InboxPoller poller = new InboxPoller().setMinInterval(Duration.ofMillis(20)).setMaxInterval(Duration.ofMillis(50))) {
+            List<String> expected = new ArrayList<>(platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 250));
+            APIController receiver = platform.createController("receiver");
+            List<String> received = new CopyOnWriteArrayList<>();
+
+            poller.subscribe(RECEIVER, new RecordList().setStatus("new"), apiRecord -> received.add(apiRecord.getResourceUuid()), receiver);
+            awaitSize(received, 250);
+            expected.addAll(platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 5));
+            awaitSize(received, 255);
+            // Idle polls only retrieve the overlap window, so the delivered records are not offered again
+            Thread.sleep(200);
+
+            assertThat(received).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    void handsOutARecordAgainWhenTheListenerFailed() throws IOException, InterruptedException {
+        try (MockPlatform platform = new MockPlatform(new SteppingClock(Instant.now(), Duration.ofSeconds(1)));
+             InboxPoller poller = new InboxPoller().setMinInterval(Duration.ofMillis(20)).setMaxInterval(Duration.ofMillis(50))) {
+            List<String> expected = platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 20);
+            APIController receiver = platform.createController("receiver");
+            List<String> received = new CopyOnWriteArrayList<>();
+            AtomicBoolean failed = new AtomicBoolean();
+
+            poller.subscribe(RECEIVER, new RecordList().setStatus("new"), apiRecord -> {
+                if (apiRecord.getResourceUuid().equals(expected.get(5)) && failed.compareAndSet(false, true)) {
+                    throw new IllegalStateException("Listener failed");
+                }
+                received.add(apiRecord.getResourceUuid());
+            }, receiver);
+            awaitSize(received, 20);
+
+            assertThat(failed).isTrue();
+            assertThat(received).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    void awaitRecordsCompletesWithTheFirstRecords() throws Exception {
+        try (MockPlatform platform = new MockPlatform();
+             InboxPoller poller = new InboxPoller().setMinInterval(Duration.ofMillis(20)).setMaxInterval(Duration.ofMillis(50))) {
+            APIController receiver = platform.createController("receiver");
+
+            assertThat(poller.awaitRecords(RECEIVER, new RecordList(), Duration.ofMillis(200), receiver).get(5, TimeUnit.SECONDS)).isEmpty();
+
+            CompletableFuture<List<Record>> future = poller.awaitRecords(RECEIVER, new RecordList().setStatus("new"), Duration.ofSeconds(5), receiver);
+            List<String> uuids = platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 3);
+            assertThat(future.get(5, TimeUnit.SECONDS)).extracting(Record::getResourceUuid).containsExactlyInAnyOrderElementsOf(uuids);
+            assertThat(poller.getSubscriptionCount()).isZero();
+        }
+    }
+
+    private static void awaitSize(List<String> list, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (list.size() < size && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(list).hasSizeGreaterThanOrEqualTo(size);
+    }
+}
@@ -0,0 +1,64 @@
+package general;
+
+import nl.hdn.api.store.IndexedRecordCollection;
+import nl.hdn.api.store.RecordView;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static nl.hdn.api.mock.Fixtures.record;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IndexedRecordCollectionTest {
+    private static final Instant START = Instant.parse("2025-01-01T10:00:00Z");
+
+    @Test
+    void intersectsIndexes() {
+        IndexedRecordCollection collection = new IndexedRecordCollection();
+        for (int i = 0; i < 1000; i++) {
+            collection.put(record(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                    i % 2 == 0 ? "100000" : "200000", "300000",
+                    i % 3 == 0 ? "AanvraagEnvelop" : "OfferteEnvelop",
+                    i % 5 == 0 ? "read" : "new", START.plusSeconds(1000 - i)));
+        }
+
+        assertThat(collection.query().status("new").count()).isEqualTo(800);
+        assertThat(collection.query().status("new", "read").count()).isEqualTo(1000);
+        assertThat(collection.query().sender("100000").messageType("AanvraagEnvelop").count()).isEqualTo(167);
+        assertThat(collection.query().status("unknown").count()).isZero();
+        assertThat(collection.query().receiver("300000").createdBetween(START.plusSeconds(1), START.plusSeconds(11)).list())
+                .hasSize(10)
+                .allMatch(view -> !view.getCreationDate().isBefore(START.plusSeconds(1)) && view.getCreationDate().isBefore(START.plusSeconds(11)));
+    }
+
+    @Test
+    void updatesIndexesOnPut() {
+        IndexedRecordCollection collection = new IndexedRecordCollection();
+        String uuid = UUID.randomUUID().toString();
+        String dossierUuid = UUID.randomUUID().toString();
+        collection.put(record(uuid, dossierUuid, "100000", "300000", "AanvraagEnvelop", "new", START));
+        collection.put(record(uuid, dossierUuid, "100000", "300000", "AanvraagEnvelop", "confirmed", START));
+
+        assertThat(collection.query().status("new").count()).isZero();
+        assertThat(collection.query().status("confirmed").list()).extracting(RecordView::getResourceUuid).containsExactly(uuid);
+    }
+
+    @Test
+    void keepsIndexesWhenAnUpdateIsRejected() {
+        IndexedRecordCollection collection = new IndexedRecordCollection();
+        String uuid = UUID.randomUUID().toString();
+        String dossierUuid = UUID.randomUUID().toString();
+        collection.put(record(uuid, dossierUuid, "100000", "300000", "AanvraagEnvelop", "new", START));
+
+        assertThatThrownBy(() -> collection.put(record(uuid, dossierUuid, "100000", "not a node", "AanvraagEnvelop", "read", START)))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(collection.size()).isEqualTo(1);
+        assertThat(collection.find(uuid).getStatus()).isEqualTo("new");
+        assertThat(collection.query().status("new").receiver("300000").dossier(dossierUuid).count()).isEqualTo(1);
+        assertThat(collection.query().status("read").count()).isZero();
+        assertThat(collection).extracting(RecordView::getResourceUuid).containsExactly(uuid);
+    }
+}
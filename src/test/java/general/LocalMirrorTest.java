@@ -0,0 +1,147 @@
+package general;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.mock.SteppingClock;
+import nl.hdn.api.object.Dossier;
+import nl.hdn.api.object.Event;
+import nl.hdn.api.object.RecordList;
+import nl.hdn.api.store.LocalMirror;
+import nl.hdn.api.store.MirroredRecord;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+
+import static nl.hdn.api.mock.Fixtures.record;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalMirrorTest {
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysMirroredObjects() throws IOException {
+        String recordUuid = UUID.randomUUID().toString();
+        String dossierUuid = UUID.randomUUID().toString();
+        String eventUuid = UUID.randomUUID().toString();
+
+        try (LocalMirror mirror = new LocalMirror(directory)) {
+            mirror.putRecord(record(recordUuid, dossierUuid, "100000", "200000", "AanvraagEnvelop", "new", NOW));
+            mirror.putRecord(record(recordUuid, dossierUuid, "100000", "200000", "AanvraagEnvelop", "read", NOW));
+            mirror.putDossier(new Dossier(dossierUuid));
+            Event event = new Event(dossierUuid, recordUuid, eventUuid, new JSONObject()
+                    .put("eventType", "record.read")
+                    .put("sub", UUID.randomUUID().toString())
+                    .put("timestamp", NOW.toString())
+                    .toString());
+            assertThat(mirror.putEvent(event)).isTrue();
+            assertThat(mirror.putEvent(event)).isFalse();
+        }
+
+        try (LocalMirror mirror = new LocalMirror(directory)) {
+            assertThat(mirror.getRecordCount()).isEqualTo(1);
+            assertThat(mirror.getRecord(recordUuid).status()).isEqualTo("read");
+            assertThat(mirror.countRecords(query -> query.dossier(dossierUuid).status("read"))).isEqualTo(1);
+            assertThat(mirror.countRecords(query -> query.status("new"))).isZero();
+            assertThat(mirror.getDossier(dossierUuid)).isNotNull();
+            assertThat(mirror.getEvents(dossierUuid)).extracting(Event::getResourceUuid).containsExactly(eventUuid);
+
+            mirror.compact();
+        }
+
+        try (LocalMirror mirror = new LocalMirror(directory)) {
+            assertThat(mirror.queryRecords(query -> query.sender("100000"))).hasSize(1);
+            assertThat(mirror.getDossierCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void answersConcurrentQueriesAfterAChange() throws IOException, InterruptedException, BrokenBarrierException {
+        try (LocalMirror mirror = new LocalMirror(directory)) {
+            for (int i = 0; i < 20000; i++) {
+                mirror.putRecord(record(UUID.randomUUID().toString(), UUID.randomUUID().toString(), "100000", "200000", "AanvraagEnvelop", "new", NOW.plusSeconds(i)));
+            }
+            int readers = 8;
+            int rounds = 50;
+            CyclicBarrier barrier = new CyclicBarrier(readers + 1);
+            List<Integer> counts = new CopyOnWriteArrayList<>();
+            List<Throwable> failures = new CopyOnWriteArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                threads.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        for (int round = 0; round < rounds; round++) {
+                            barrier.await();
+                            // Every round starts with an outdated creation date index, which the readers race to use
+                            counts.add(mirror.countRecords(query -> query.createdBetween(NOW, NOW.plusSeconds(10000))));
+                            barrier.await();
+                        }
+                    } catch (Exception e) {
+                        failures.add(e);
+                    }
+                }));
+            }
+            for (int round = 0; round < rounds; round++) {
+                mirror.putRecord(record(UUID.randomUUID().toString(), UUID.randomUUID().toString(), "100000", "200000", "AanvraagEnvelop", "new", NOW.minusSeconds(round + 1)));
+                barrier.await();
+                barrier.await();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertThat(failures).isEmpty();
+            assertThat(counts).hasSize(readers * rounds).containsOnly(10000);
+        }
+    }
+
+    @Test
+    void returnsCopiesThatDoNotFollowLaterUpdates() throws IOException {
+        String recordUuid = UUID.randomUUID().toString();
+        String dossierUuid = UUID.randomUUID().toString();
+        try (LocalMirror mirror = new LocalMirror(directory)) {
+            mirror.putRecord(record(recordUuid, dossierUuid, "100000", "200000", "AanvraagEnvelop", "new", NOW));
+            MirroredRecord copy = mirror.getRecord(recordUuid);
+            mirror.putRecord(record(recordUuid, dossierUuid, "100000", "200000", "AanvraagEnvelop", "read", NOW));
+
+            assertThat(copy.status()).isEqualTo("new");
+            assertThat(mirror.getRecord(recordUuid).status()).isEqualTo("read");
+            assertThat(mirror.queryRecords(query -> query.status("read"))).extracting(MirroredRecord::resourceUuid).containsExactly(recordUuid);
+        }
+    }
+
+    @Test
+    void refreshesTheStatusOfRecordsOutsideTheOverlapWindow() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform(new SteppingClock(NOW, Duration.ofMinutes(1)));
+             LocalMirror mirror = new LocalMirror(directory)) {
+            platform.seedRecords("100000", "200000", "AanvraagEnvelop", 20);
+            APIController receiver = platform.createController("receiver");
+            mirror.refreshRecords("200000", receiver);
+            assertThat(mirror.countRecords(query -> query.status("new"))).isEqualTo(20);
+
+            // Reading the records moves them to read, long after most of them left the overlap window
+            new RecordList().setStatus("new").get("200000", receiver).fetchAll("200000", 4, receiver);
+            mirror.refreshRecords("200000", receiver);
+            assertThat(mirror.countRecords(query -> query.status("new"))).isPositive();
+
+            assertThat(mirror.refreshStatus("200000", "read", receiver)).isPositive();
+            assertThat(mirror.countRecords(query -> query.status("new"))).isZero();
+            assertThat(mirror.countRecords(query -> query.status("read"))).isEqualTo(20);
+            assertThat(mirror.refreshStatus("200000", "read", receiver)).isZero();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package general;
+
+import nl.hdn.api.APIConstants;
+import nl.hdn.api.APIController;
+import nl.hdn.api.object.Dossier;
+import nl.hdn.api.object.Event;
+import nl.hdn.api.object.EventList;
+import nl.hdn.api.object.PublicKey;
+import nl.hdn.api.object.PublicKeyList;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.object.RecordList;
+import nl.hdn.api.mock.MockPlatform;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MockPlatformTest {
+    private static final String SENDER = "100000";
+    private static final String RECEIVER = "200000";
+
+    @Test
+    void exchangesRecord() throws IOException, InterruptedException, URISyntaxException, GeneralSecurityException {
+        try (MockPlatform platform = new MockPlatform()) {
+            APIController sender = platform.createController("sender");
+            APIController receiver = platform.createController("receiver");
+
+            Dossier dossier = new Dossier();
+            assertThat(dossier.create(SENDER, sender).getResponse().statusCode()).isEqualTo(201);
+
+            Record apiRecord = newRecord(dossier.getResourceUuid());
+            assertThat(apiRecord.create(SENDER, sender).getResponse().statusCode()).isEqualTo(201);
+            assertThat(new RecordList().setStatus("created").get(SENDER, sender).getRecords()).hasSize(1);
+            assertThat(new RecordList().get(RECEIVER, receiver).getRecords()).isEmpty();
+            assertThat(apiRecord.send(SENDER, sender).getResponse().statusCode()).isEqualTo(200);
+
+            RecordList inbox = new RecordList().setStatus("new").get(RECEIVER, receiver);
+            assertThat(inbox.getRecords()).extracting(Record::getResourceUuid).containsExactly(apiRecord.getResourceUuid());
+            inbox.confirmAllRecords(RECEIVER, receiver);
+            assertThat(inbox.getRecords().getFirst().getMessage()).isEqualTo("<Bericht/>");
+
+            assertThat(new RecordList().setStatus("confirmed").get(SENDER, sender).getRecords()).hasSize(1);
+            assertThat(new EventList(dossier.getResourceUuid()).get(sender).getEvents())
+                    .extracting(Event::getEventType)
+                    .containsExactly("record.created", "record.sent", "record.read", "record.confirmed");
+        }
+    }
+
+    @Test
+    void pagesSeededRecords() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform()) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 250);
+            APIController receiver = platform.createController("receiver");
+
+            assertThat(new RecordList().setStatus("new").get(RECEIVER, receiver).getRecords()).hasSize(250);
+            assertThat(new RecordList().getPage(200, 100, RECEIVER, receiver).items()).hasSize(50);
+            assertThat(new RecordList().getPage(0, 10, RECEIVER, receiver).total()).isEqualTo(250);
+        }
+    }
+
+    @Test
+    void injectsFaults() throws IOException, InterruptedException {
+        try (MockPlatform platform = new MockPlatform()) {
+            APIController apiController = platform.createController("client");
+
+            platform.setThrottleRate(1);
+            assertThat(new Dossier().create(SENDER, apiController).getResponse().statusCode()).isEqualTo(429);
+            platform.setThrottleRate(0).setErrorRate(1);
+            assertThat(new Dossier().create(SENDER, apiController).getResponse().statusCode()).isEqualTo(500);
+            platform.setErrorRate(0);
+            assertThat(new Dossier().create(SENDER, apiController).getResponse().statusCode()).isEqualTo(201);
+
+            assertThat(platform.getThrottledCount()).isEqualTo(1);
+            assertThat(platform.getErrorCount()).isEqualTo(1);
+            assertThat(platform.getDossierCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void listsPublicKeys() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform()) {
+            APIController apiController = platform.createController("sender");
+
+            PublicKey publicKey = new PublicKey().setAlgorithm("RS256").setPublicKeyValue("-----BEGIN PUBLIC KEY-----");
+            assertThat(publicKey.create(SENDER, apiController).getResponse().statusCode()).isEqualTo(201);
+
+            assertThat(new PublicKeyList().setNode(SENDER).get(SENDER, apiController).getPublicKeys())
+                    .singleElement()
+                    .satisfies(listed -> {
+                        assertThat(listed.getResourceUuid()).isEqualTo(publicKey.getResourceUuid());
+                        assertThat(listed.getNode()).isEqualTo(SENDER);
+                        assertThat(listed.getAlgorithm()).isEqualTo("RS256");
+                    });
+        }
+    }
+
+    private static Record newRecord(String dossierUuid) throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        PrivateKey privateKey = generator.generateKeyPair().getPrivate();
+
+        return new Record(dossierUuid)
+                .setHeader(new Record.Header("1", null, SENDER, RECEIVER,
+                        new Record.RequestSchema("AX OfferteAanvraag", "25.0", "HDN", APIConstants.ContentType.XML, APIConstants.Environment.acceptatie),
+                        List.of(), null))
+                .setMiscellaneous(new Record.Miscellaneous("Sender", "Receiver",
+                        new Record.SendingApplication("Test", "1.0", Instant.now())))
+                .setMessage("<Bericht/>")
+                .setPublicKey(UUID.randomUUID().toString())
+                .signMessage(privateKey);
+    }
+}
@@ -0,0 +1,74 @@
+package general;
+
+import nl.hdn.api.outbound.OutboundJournal;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboundJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysConcurrentAppends() throws Exception {
+        try (OutboundJournal journal = new OutboundJournal(directory, 1024 * 1024)) {
+            List<CompletableFuture<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                futures.add(journal.append(new JSONObject().put("id", i)));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get();
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        new OutboundJournal(directory, 1024 * 1024).replay((segment, entry) -> ids.add(entry.getInt("id")));
+        assertThat(ids).hasSize(500).isSorted();
+    }
+
+    @Test
+    void ignoresTornTailAndStartsNewSegment() throws Exception {
+        try (OutboundJournal journal = new OutboundJournal(directory, 1024 * 1024)) {
+            journal.append(new JSONObject().put("id", 1)).get();
+        }
+        Path segment = segments().get(0);
+        Files.write(segment, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        try (OutboundJournal journal = new OutboundJournal(directory, 1024 * 1024)) {
+            List<Integer> ids = new ArrayList<>();
+            journal.replay((s, entry) -> ids.add(entry.getInt("id")));
+            assertThat(ids).containsExactly(1);
+
+            assertThat(journal.append(new JSONObject().put("id", 2)).get()).isEqualTo(2L);
+        }
+        assertThat(segments()).hasSize(2);
+    }
+
+    @Test
+    void rollsAndDeletesSegments() throws Exception {
+        try (OutboundJournal journal = new OutboundJournal(directory, 64)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(new JSONObject().put("id", i).put("padding", "x".repeat(64))).get();
+            }
+            assertThat(journal.getSegmentCount()).isGreaterThan(5);
+
+            journal.deleteSegmentsBefore(journal.getCurrentSegment());
+            assertThat(journal.getSegmentCount()).isEqualTo(1);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package general;
+
+import nl.hdn.api.APIConstants;
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.Latency;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.outbound.OutboundPipeline;
+import nl.hdn.api.pipeline.StageMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OutboundPipelineTest {
+    private static final String SENDER = "100000";
+    private static final String RECEIVER = "200000";
+
+    @Test
+    void keepsSendingAfterFailedRecords() throws IOException, InterruptedException, GeneralSecurityException {
+        try (MockPlatform platform = new MockPlatform()) {
+            APIController sender = platform.createController("sender");
+            OutboundPipeline pipeline = new OutboundPipeline(sender)
+                    .setPrivateKey(KeyPairGenerator.getInstance("RSA").generateKeyPair().getPrivate())
+                    .setDossierConcurrency(1)
+                    .setSigningConcurrency(1)
+                    .setUploadConcurrency(1)
+                    .setSendConcurrency(1)
+                    .start();
+
+            List<CompletableFuture<Record>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                // Every third record has no message, its signing task throws
+                futures.add(pipeline.submit(record(i % 3 == 1 ? null : "<Bericht/>"), SENDER));
+            }
+            assertThat(pipeline.shutdown(Duration.ofSeconds(30))).isTrue();
+
+            assertThat(futures).allMatch(CompletableFuture::isDone);
+            assertThat(futures).filteredOn(CompletableFuture::isCompletedExceptionally).hasSize(3);
+            assertThat(futures).filteredOn(future -> !future.isCompletedExceptionally())
+                    .allSatisfy(future -> assertThat(future.get().getResourceUuid()).isNotNull());
+            assertThat(pipeline.getMetrics()).extracting(StageMetrics::name).containsExactly("dossier", "sign", "upload", "send");
+            assertThat(pipeline.getMetrics().get(1).failed()).isEqualTo(3);
+            assertThat(pipeline.getMetrics().get(3).processed()).isEqualTo(7);
+        }
+    }
+
+    @Test
+    void failsRecordsThePlatformRejects() throws IOException, InterruptedException, GeneralSecurityException {
+        try (MockPlatform platform = new MockPlatform()) {
+            APIController sender = platform.createController("sender");
+            platform.setErrorRate(1);
+            OutboundPipeline pipeline = new OutboundPipeline(sender)
+                    .setPrivateKey(KeyPairGenerator.getInstance("RSA").generateKeyPair().getPrivate())
+                    .start();
+
+            CompletableFuture<Record> future = pipeline.submit(record("<Bericht/>"), SENDER);
+            assertThatThrownBy(future::get).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(IOException.class);
+            assertThat(pipeline.shutdown(Duration.ofSeconds(30))).isTrue();
+        }
+    }
+
+    @Test
+    void failsTheRecordsLeftAfterATimedOutShutdown() throws IOException, InterruptedException, GeneralSecurityException {
+        try (MockPlatform platform = new MockPlatform()) {
+            APIController sender = platform.createController("sender");
+            platform.setLatency(Latency.fixed(Duration.ofSeconds(2)));
+            OutboundPipeline pipeline = new OutboundPipeline(sender)
+                    .setPrivateKey(KeyPairGenerator.getInstance("RSA").generateKeyPair().getPrivate())
+                    .setDossierConcurrency(1)
+                    .start();
+
+            List<CompletableFuture<Record>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(pipeline.submit(record("<Bericht/>"), SENDER));
+            }
+            assertThat(pipeline.shutdown(Duration.ofMillis(200))).isFalse();
+
+            assertThat(futures).allSatisfy(future -> assertThat(future).isCompletedExceptionally());
+            assertThat(futures).filteredOn(future -> future.exceptionNow() instanceof IllegalStateException).hasSizeGreaterThanOrEqualTo(4);
+        }
+    }
+
+    private static Record record(String message) {
+        return new Record(null)
+                .setHeader(new Record.Header("1", null, SENDER, RECEIVER,
+                        new Record.RequestSchema("AX OfferteAanvraag", "25.0", "HDN", APIConstants.ContentType.XML, APIConstants.Environment.acceptatie),
+                        List.of(), null))
+                .setMiscellaneous(new Record.Miscellaneous("Adviseur", "Geldverstrekker",
+                        new Record.SendingApplication("OutboundPipelineTest", "1.0", Instant.now())))
+                .setMessage(message);
+    }
+}
@@ -0,0 +1,59 @@
+package general;
+
+import nl.hdn.api.object.Page;
+import nl.hdn.api.object.PageIterator;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageIteratorTest {
+    private static Page<Integer> page(int offset, int limit, int total) {
+        return new Page<>(IntStream.range(offset, Math.min(offset + limit, total)).boxed().toList(), offset, limit, total);
+    }
+
+    @Test
+    void iteratesAllPages() {
+        AtomicInteger calls = new AtomicInteger();
+        PageIterator<Integer> iterator = new PageIterator<>((offset, limit) -> {
+            calls.incrementAndGet();
+            return page(offset, limit, 25);
+        }, 0, 10);
+
+        List<Integer> result = iterator.stream().toList();
+        assertThat(result).containsExactlyElementsOf(IntStream.range(0, 25).boxed().toList());
+        assertThat(calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    void stopsOnEmptyPage() {
+        PageIterator<Integer> iterator = new PageIterator<>((offset, limit) -> new Page<>(List.of(), offset, limit, 0), 0, 10);
+        assertThat(iterator.hasNext()).isFalse();
+    }
+
+    @Test
+    void throwsOnFailedPage() {
+        PageIterator<Integer> iterator = new PageIterator<>((offset, limit) -> offset == 0 ? page(offset, limit, 25) : Page.empty(offset, limit), 0, 10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(iterator.next()).isEqualTo(i);
+        }
+        assertThatThrownBy(iterator::hasNext).isInstanceOf(UncheckedIOException.class);
+    }
+
+    @Test
+    void doesNotFetchBeforeConsumption() {
+        AtomicInteger calls = new AtomicInteger();
+        try (PageIterator<Integer> iterator = new PageIterator<>((offset, limit) -> {
+            calls.incrementAndGet();
+            return page(offset, limit, 1000);
+        }, 0, 10)) {
+            assertThat(calls.get()).isZero();
+            assertThat(iterator.next()).isZero();
+        }
+    }
+}
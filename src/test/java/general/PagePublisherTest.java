@@ -0,0 +1,135 @@
+package general;
+
+import nl.hdn.api.object.Page;
+import nl.hdn.api.object.PagePublisher;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PagePublisherTest {
+    private final List<Integer> requestedLimits = new CopyOnWriteArrayList<>();
+
+    private final PagePublisher<Integer> publisher = new PagePublisher<>((offset, limit) -> {
+        requestedLimits.add(limit);
+        return new Page<>(IntStream.range(offset, Math.min(offset + limit, 12)).boxed().toList(), offset, limit, 12);
+    }, 0, 5);
+
+    @Test
+    void pagesFollowDemand() throws InterruptedException {
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+
+        publisher.subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(2);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                received.add(item);
+                if (received.size() % 2 == 0) subscription.request(2);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                completed.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+
+        assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).containsExactlyElementsOf(IntStream.range(0, 12).boxed().toList());
+        assertThat(requestedLimits).allMatch(limit -> limit <= 2);
+    }
+
+    @Test
+    void cancelStopsRetrieval() throws InterruptedException {
+        CountDownLatch first = new CountDownLatch(1);
+
+        publisher.subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                subscription.cancel();
+                first.countDown();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        assertThat(first.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(100);
+        assertThat(requestedLimits).hasSize(1);
+    }
+
+    @Test
+    void errorPageSignalsError() throws InterruptedException {
+        PagePublisher<Integer> failing = new PagePublisher<>((offset, limit) -> offset == 0
+                ? new Page<>(IntStream.range(0, limit).boxed().toList(), offset, limit, 12)
+                : Page.empty(offset, limit), 0, 5);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        AtomicBoolean completed = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(1);
+
+        failing.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                received.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                error.set(throwable);
+                done.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                completed.set(true);
+                done.countDown();
+            }
+        });
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).containsExactly(0, 1, 2, 3, 4);
+        assertThat(completed).isFalse();
+        assertThat(error.get()).isInstanceOf(IOException.class);
+    }
+}
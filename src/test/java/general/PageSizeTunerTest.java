@@ -0,0 +1,82 @@
+package general;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.Latency;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.object.PageSizeTuner;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.object.RecordList;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageSizeTunerTest {
+    private static final String SENDER = "100000";
+    private static final String RECEIVER = "200000";
+
+    @Test
+    void settlesOnTargetTime() {
+        // 40 ms latency per call and 1 ms per object: a page of 160 objects takes the target of 200 ms
+        PageSizeTuner tuner = new PageSizeTuner(10).setTargetTime(Duration.ofMillis(200));
+        for (int page = 0; page < 20; page++) {
+            int limit = tuner.getLimit();
+            tuner.record(limit, limit, Duration.ofMillis(40 + limit).toNanos(), 100L * limit);
+        }
+
+        assertThat(tuner.getLimit()).isBetween(155, 165);
+        PageSizeTuner.Metrics metrics = tuner.getMetrics();
+        assertThat(metrics.pages()).isEqualTo(20);
+        assertThat(metrics.minLimit()).isEqualTo(10);
+        assertThat(metrics.maxLimit()).isBetween(155, 170);
+    }
+
+    @Test
+    void respectsTargetSizeGrowthAndBounds() {
+        PageSizeTuner bySize = new PageSizeTuner(100).setTargetSize(50_000).setGrowth(4);
+        for (int page = 0; page < 10; page++) {
+            int limit = bySize.getLimit();
+            recordPage(bySize, limit, 1_000L * limit);
+        }
+        assertThat(bySize.getLimit()).isEqualTo(50);
+
+        PageSizeTuner growing = new PageSizeTuner(10);
+        recordPage(growing, 10, 10);
+        assertThat(growing.getLimit()).isEqualTo(20);
+        for (int page = 0; page < 20; page++) {
+            recordPage(growing, growing.getLimit(), 10);
+        }
+        assertThat(growing.getLimit()).isEqualTo(PageSizeTuner.MAX_LIMIT);
+
+        PageSizeTuner slow = new PageSizeTuner(2);
+        for (int page = 0; page < 10; page++) {
+            slow.record(slow.getLimit(), slow.getLimit(), Duration.ofSeconds(5).toNanos(), 10);
+        }
+        assertThat(slow.getLimit()).isEqualTo(PageSizeTuner.MIN_LIMIT);
+    }
+
+    @Test
+    void tunesListRetrieval() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform()) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 3000);
+            platform.setLatency(Latency.fixed(Duration.ofMillis(20)));
+            APIController receiver = platform.createController("receiver");
+            PageSizeTuner tuner = new PageSizeTuner();
+
+            List<Record> records = new RecordList().setPageSizeTuner(tuner).get(RECEIVER, receiver).getRecords();
+
+            assertThat(records).hasSize(3000);
+            assertThat(records.stream().map(Record::getResourceUuid).distinct()).hasSize(3000);
+            assertThat(tuner.getMetrics().maxLimit()).isGreaterThan(100);
+            assertThat(tuner.getMetrics().objects()).isEqualTo(3000);
+        }
+    }
+
+    private static void recordPage(PageSizeTuner tuner, int limit, long size) {
+        tuner.record(limit, limit, Duration.ofMillis(1).toNanos(), size);
+    }
+}
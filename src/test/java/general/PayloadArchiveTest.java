@@ -0,0 +1,119 @@
+package general;
+
+import nl.hdn.api.object.Record;
+import nl.hdn.api.store.PayloadArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PayloadArchiveTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void deduplicatesAndReopens() throws IOException {
+        String first = UUID.randomUUID().toString();
+        String resend = UUID.randomUUID().toString();
+        String other = UUID.randomUUID().toString();
+
+        try (PayloadArchive archive = new PayloadArchive(directory, 256)) {
+            String hash = archive.put(first, "<AanvraagEnvelop>1</AanvraagEnvelop>");
+            assertThat(archive.put(resend, "<AanvraagEnvelop>1</AanvraagEnvelop>")).isEqualTo(hash);
+            archive.put(other, "<OfferteEnvelop>" + "x".repeat(200) + "</OfferteEnvelop>");
+
+            assertThat(archive.getPayloadCount()).isEqualTo(2);
+            assertThat(archive.getRecordCount()).isEqualTo(3);
+            assertThat(archive.getDuplicateCount()).isEqualTo(1);
+            assertThat(archive.getMessage(resend)).isEqualTo("<AanvraagEnvelop>1</AanvraagEnvelop>");
+        }
+        assertThat(directory.resolve("payload-000001.seg")).exists();
+
+        try (PayloadArchive archive = new PayloadArchive(directory, 256)) {
+            assertThat(archive.getRecordCount()).isEqualTo(3);
+            assertThat(archive.getHash(first)).isEqualTo(archive.getHash(resend));
+            assertThat(archive.getMessage(other)).startsWith("<OfferteEnvelop>xxx");
+            assertThat(archive.read(other).isReadOnly()).isTrue();
+            assertThat(archive.contains(UUID.randomUUID().toString())).isFalse();
+        }
+    }
+
+    @Test
+    void ignoresTornIndexEntries() throws IOException {
+        String uuid = UUID.randomUUID().toString();
+        try (PayloadArchive archive = new PayloadArchive(directory)) {
+            archive.put(uuid, "<Bericht/>");
+        }
+        Files.write(directory.resolve("records.idx"), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (PayloadArchive archive = new PayloadArchive(directory)) {
+            assertThat(archive.getRecordCount()).isEqualTo(1);
+            archive.put(UUID.randomUUID().toString(), "<Bericht>2</Bericht>");
+        }
+        try (PayloadArchive archive = new PayloadArchive(directory)) {
+            assertThat(archive.getRecordCount()).isEqualTo(2);
+            assertThat(archive.getMessage(uuid)).isEqualTo("<Bericht/>");
+        }
+    }
+
+    @Test
+    void replacesTheMessageOfARecord() throws IOException {
+        List<String> uuids = new ArrayList<>();
+        try (PayloadArchive archive = new PayloadArchive(directory)) {
+            for (int i = 0; i < 1000; i++) {
+                String uuid = UUID.randomUUID().toString();
+                uuids.add(uuid);
+                archive.put(uuid, "<Bericht>" + i % 10 + "</Bericht>");
+            }
+            archive.put(uuids.get(3), "<Bericht>gewijzigd</Bericht>");
+            assertThat(archive.getRecordCount()).isEqualTo(1000);
+            assertThat(archive.getPayloadCount()).isEqualTo(11);
+        }
+
+        try (PayloadArchive archive = new PayloadArchive(directory)) {
+            assertThat(archive.getRecordCount()).isEqualTo(1000);
+            assertThat(archive.getMessage(uuids.get(3))).isEqualTo("<Bericht>gewijzigd</Bericht>");
+            assertThat(archive.getMessage(uuids.get(13))).isEqualTo("<Bericht>3</Bericht>");
+            assertThat(archive.getMessage(uuids.get(999))).isEqualTo("<Bericht>9</Bericht>");
+        }
+    }
+
+    @Test
+    void writesTheIndexesOnFlush() throws IOException {
+        String uuid = UUID.randomUUID().toString();
+        try (PayloadArchive archive = new PayloadArchive(directory)) {
+            archive.put(uuid, "<Bericht/>");
+            assertThat(archive.getMessage(uuid)).isEqualTo("<Bericht/>");
+            assertThat(Files.size(directory.resolve("payloads.idx"))).isZero();
+            assertThat(Files.size(directory.resolve("records.idx"))).isZero();
+
+            archive.flush();
+            assertThat(Files.size(directory.resolve("payloads.idx"))).isPositive();
+            assertThat(Files.size(directory.resolve("records.idx"))).isPositive();
+
+            // Many puts share a flush, the archive flushes itself once enough entries are buffered
+            for (int i = 0; i < 25_000; i++) {
+                archive.put(UUID.randomUUID().toString(), "<Bericht>" + i + "</Bericht>");
+            }
+            assertThat(Files.size(directory.resolve("records.idx"))).isGreaterThan(20L * 20_000);
+        }
+    }
+
+    @Test
+    void rejectsARecordWithoutMessage() throws IOException {
+        try (PayloadArchive archive = new PayloadArchive(directory)) {
+            assertThatThrownBy(() -> archive.put(new Record(UUID.randomUUID().toString(), UUID.randomUUID().toString())))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThat(archive.getRecordCount()).isZero();
+        }
+    }
+}
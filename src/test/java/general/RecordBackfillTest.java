@@ -0,0 +1,112 @@
+package general;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.mock.SteppingClock;
+import nl.hdn.api.object.RecordList;
+import nl.hdn.api.sync.RecordBackfill;
+import nl.hdn.api.sync.SyncCheckpoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecordBackfillTest {
+    private static final String SENDER = "100000";
+    private static final String RECEIVER = "200000";
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadsWindowInSplitRanges() throws IOException, InterruptedException {
+        try (MockPlatform platform = new MockPlatform(new SteppingClock(START, Duration.ofMinutes(1)))) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 1200);
+            APIController receiver = platform.createController("receiver");
+            SyncCheckpoint checkpoint = new SyncCheckpoint(directory.resolve("backfill.properties"));
+            Instant end = START.plus(Duration.ofDays(30));
+            Set<String> seen = ConcurrentHashMap.newKeySet();
+
+            RecordBackfill.BackfillResult result = new RecordBackfill(checkpoint)
+                    .setConcurrency(4)
+                    .setSplitThreshold(100)
+                    .setLimit(50)
+                    .backfill(RECEIVER, null, START, end, apiRecord -> seen.add(apiRecord.getResourceUuid()), receiver);
+
+            assertThat(seen).hasSize(1200);
+            assertThat(result.records()).isEqualTo(1200);
+            assertThat(result.splits()).isPositive();
+            assertThat(new SyncCheckpoint(directory.resolve("backfill.properties")).getRanges("backfill." + RECEIVER + ".all"))
+                    .containsExactly(new SyncCheckpoint.Range(START, end));
+        }
+    }
+
+    @Test
+    void resumesAfterFailure() throws IOException, InterruptedException {
+        try (MockPlatform platform = new MockPlatform(new SteppingClock(START, Duration.ofMinutes(1)))) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 1000);
+            APIController receiver = platform.createController("receiver");
+            Path file = directory.resolve("backfill.properties");
+            Instant end = START.plus(Duration.ofDays(30));
+            Set<String> seen = ConcurrentHashMap.newKeySet();
+            AtomicInteger accepted = new AtomicInteger();
+
+            assertThatThrownBy(() -> newBackfill(file).backfill(RECEIVER, "new", START, end, apiRecord -> {
+                if (accepted.incrementAndGet() > 500) {
+                    throw new IOException("Sink full");
+                }
+                seen.add(apiRecord.getResourceUuid());
+            }, receiver)).isInstanceOf(IOException.class).hasMessage("Sink full");
+
+            RecordBackfill.BackfillResult resumed = newBackfill(file).backfill(RECEIVER, "new", START, end, apiRecord -> seen.add(apiRecord.getResourceUuid()), receiver);
+            assertThat(resumed.records()).isLessThan(1000);
+            assertThat(seen).hasSize(1000);
+
+            RecordBackfill.BackfillResult completed = newBackfill(file).backfill(RECEIVER, "new", START, end, apiRecord -> { }, receiver);
+            assertThat(completed.records()).isZero();
+            assertThat(completed.ranges()).isZero();
+        }
+    }
+
+    @Test
+    void completesRangesThatShrinkWhileScanning() throws IOException, InterruptedException {
+        try (MockPlatform platform = new MockPlatform(new SteppingClock(START, Duration.ofMinutes(1)))) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 1000);
+            APIController receiver = platform.createController("receiver");
+            Path file = directory.resolve("backfill.properties");
+            Instant end = START.plus(Duration.ofDays(30));
+            AtomicBoolean readAll = new AtomicBoolean();
+
+            // After the ranges have been counted, another client reads every record, so they are no longer new
+            RecordBackfill.BackfillResult result = newBackfill(file).backfill(RECEIVER, "new", START, end, apiRecord -> {
+                if (readAll.compareAndSet(false, true)) {
+                    try {
+                        new RecordList().setStatus("new").setLimit(1000).get(RECEIVER, receiver).fetchAll(RECEIVER, 8, receiver);
+                    } catch (InterruptedException | URISyntaxException e) {
+                        throw new IOException(e);
+                    }
+                }
+            }, receiver);
+
+            assertThat(result.records()).isLessThan(1000);
+            assertThat(new SyncCheckpoint(file).getRanges("backfill." + RECEIVER + ".new"))
+                    .containsExactly(new SyncCheckpoint.Range(START, end));
+        }
+    }
+
+    private static RecordBackfill newBackfill(Path file) throws IOException {
+        return new RecordBackfill(new SyncCheckpoint(file)).setConcurrency(4).setSplitThreshold(100).setLimit(50);
+    }
+}
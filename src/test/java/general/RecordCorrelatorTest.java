@@ -0,0 +1,151 @@
+package general;
+
+import nl.hdn.api.APIConstants;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.outbound.RecordCorrelator;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecordCorrelatorTest {
+    private static final String SENDER = "100000";
+    private static final String RECEIVER = "200000";
+    private static final String DOSSIER = UUID.randomUUID().toString();
+
+    @Test
+    void matchesOnParentRecord() throws ExecutionException, InterruptedException {
+        RecordCorrelator correlator = new RecordCorrelator();
+        Record first = request("AX OfferteAanvraag", List.of());
+        Record second = request("AX OfferteAanvraag", List.of());
+        CompletableFuture<Record> firstReply = correlator.expect(first);
+        CompletableFuture<Record> secondReply = correlator.expect(second);
+
+        Record reply = reply("OX Offerte", second.getResourceUuid());
+        assertThat(correlator.offer(reply)).isTrue();
+
+        assertThat(secondReply.get()).isSameAs(reply);
+        assertThat(firstReply).isNotDone();
+        assertThat(correlator.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void matchesOnBusinessKey() throws ExecutionException, InterruptedException {
+        Record first = request("AX OfferteAanvraag", List.of());
+        Record second = request("AX OfferteAanvraag", List.of());
+        Record reply = reply("OX Offerte", null);
+        Map<String, String> keys = Map.of(first.getResourceUuid(), "offerte-1", second.getResourceUuid(), "offerte-2", reply.getResourceUuid(), "offerte-2");
+        RecordCorrelator correlator = new RecordCorrelator().setBusinessKeyExtractor(apiRecord -> keys.get(apiRecord.getResourceUuid()));
+        CompletableFuture<Record> firstReply = correlator.expect(first);
+        CompletableFuture<Record> secondReply = correlator.expect(second);
+
+        assertThat(correlator.offer(reply)).isTrue();
+
+        assertThat(secondReply.get()).isSameAs(reply);
+        assertThat(firstReply).isNotDone();
+    }
+
+    @Test
+    void matchesTheOnlyRequestExpectingTheReplyType() throws ExecutionException, InterruptedException {
+        RecordCorrelator correlator = new RecordCorrelator().addReplyType("AX OfferteAanvraag", "OX Offerte");
+        CompletableFuture<Record> offerte = correlator.expect(request("AX OfferteAanvraag", List.of()));
+        CompletableFuture<Record> taxatie = correlator.expect(request("TX TaxatieAanvraag", List.of(
+                new Record.ResponseSchema("TX Taxatie", "000000", "1.0", APIConstants.ContentType.XML))));
+
+        Record offerteReply = reply("OX Offerte", null);
+        Record taxatieReply = reply("TX Taxatie", null);
+        assertThat(correlator.offer(taxatieReply)).isTrue();
+        assertThat(correlator.offer(offerteReply)).isTrue();
+
+        assertThat(offerte.get()).isSameAs(offerteReply);
+        assertThat(taxatie.get()).isSameAs(taxatieReply);
+        assertThat(correlator.getPendingCount()).isZero();
+    }
+
+    @Test
+    void doesNotGuessBetweenRequestsOfTheSameType() {
+        RecordCorrelator correlator = new RecordCorrelator().addReplyType("AX OfferteAanvraag", "OX Offerte");
+        CompletableFuture<Record> first = correlator.expect(request("AX OfferteAanvraag", List.of()));
+        CompletableFuture<Record> second = correlator.expect(request("AX OfferteAanvraag", List.of()));
+
+        assertThat(correlator.offer(reply("OX Offerte", null))).isFalse();
+
+        assertThat(first).isNotDone();
+        assertThat(second).isNotDone();
+        assertThat(correlator.getPendingCount()).isEqualTo(2);
+    }
+
+    @Test
+    void ignoresRepliesOfAnotherTypeOrNode() {
+        RecordCorrelator correlator = new RecordCorrelator().addReplyType("AX OfferteAanvraag", "OX Offerte");
+        Record request = request("AX OfferteAanvraag", List.of());
+        CompletableFuture<Record> future = correlator.expect(request);
+
+        assertThat(correlator.offer(reply("OX Afwijzing", null))).isFalse();
+        assertThat(correlator.offer(record(UUID.randomUUID().toString(), "300000", SENDER, "OX Offerte", null))).isFalse();
+        assertThat(correlator.offer(request)).isFalse();
+
+        assertThat(future).isNotDone();
+    }
+
+    @Test
+    void failsAfterTheTimeout() {
+        RecordCorrelator correlator = new RecordCorrelator().setTimeout(Duration.ofMillis(50));
+        CompletableFuture<Record> future = correlator.expect(request("AX OfferteAanvraag", List.of()));
+
+        assertThatThrownBy(future::get).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(TimeoutException.class);
+        assertThat(correlator.getPendingCount()).isZero();
+    }
+
+    private static Record request(String messageType, List<Record.ResponseSchema> responseSchemas) {
+        return new Record(DOSSIER, UUID.randomUUID().toString()).setHeader(new Record.Header("1.0", "", SENDER, RECEIVER,
+                new Record.RequestSchema(messageType, "1.0", "000000", APIConstants.ContentType.XML, APIConstants.Environment.acceptatie),
+                responseSchemas, null));
+    }
+
+    private static Record reply(String messageType, String parentRecord) {
+        return record(UUID.randomUUID().toString(), RECEIVER, SENDER, messageType, parentRecord);
+    }
+
+    private static Record record(String resourceUuid, String sender, String receiver, String messageType, String parentRecord) {
+        String now = Instant.now().toString();
+        JSONObject attributes = new JSONObject()
+                .put("header", new JSONObject()
+                        .put("requestVersion", "1.0")
+                        .put("requestTraceNr", "")
+                        .put("sender", sender)
+                        .put("receiver", receiver)
+                        .put("requestSchema", new JSONObject()
+                                .put("messageType", messageType)
+                                .put("schemaVersion", "1.0")
+                                .put("receiverCode", "000000")
+                                .put("contentType", "XML")
+                                .put("environment", "acceptatie")))
+                .put("miscellaneous", new JSONObject()
+                        .put("senderName", "Sender")
+                        .put("receiverName", "Receiver")
+                        .put("sendingApplication", new JSONObject()
+                                .put("applicationName", "test")
+                                .put("applicationVersion", "1.0")
+                                .put("sendingDateTime", now)))
+                .put("status", new JSONObject().put("value", "new").put("modifiedTimestamp", now))
+                .put("sub", sender)
+                .put("creationDate", now)
+                .put("resourceUuid", resourceUuid)
+                .put("dossierUuid", DOSSIER);
+        if (parentRecord != null) {
+            attributes.put("parentRecord", parentRecord);
+        }
+        return new Record(DOSSIER, resourceUuid, attributes.toString());
+    }
+}
@@ -0,0 +1,70 @@
+package general;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.mock.SteppingClock;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.object.RecordKeysetIterator;
+import nl.hdn.api.object.RecordList;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecordKeysetIteratorTest {
+    private static final String SENDER = "100000";
+    private static final String RECEIVER = "200000";
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    void returnsTiesLargerThanAPageOnce() throws IOException {
+        try (MockPlatform platform = new MockPlatform(Clock.fixed(START, ZoneOffset.UTC))) {
+            List<String> uuids = platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 25);
+            APIController receiver = platform.createController("receiver");
+
+            List<String> scanned = new RecordList().setLimit(10).keysetStream(RECEIVER, receiver).map(Record::getResourceUuid).toList();
+            assertThat(scanned).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(uuids);
+        }
+    }
+
+    @Test
+    void keepsTheStartOfAGtFilterExcluded() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform(new SteppingClock(START, Duration.ofSeconds(1)))) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 10);
+            APIController receiver = platform.createController("receiver");
+            List<Record> records = new RecordList().setSort("creationDate").get(RECEIVER, receiver).getRecords();
+            Instant start = records.get(2).getCreationDate();
+
+            List<String> after = new RecordList().setCreationDate("$gt", start.toString()).setLimit(3)
+                    .keysetStream(RECEIVER, receiver).map(Record::getResourceUuid).toList();
+            List<String> from = new RecordList().setCreationDate("$gte", start.toString()).setLimit(3)
+                    .keysetStream(RECEIVER, receiver).map(Record::getResourceUuid).toList();
+
+            assertThat(after).containsExactlyElementsOf(records.subList(3, 10).stream().map(Record::getResourceUuid).toList());
+            assertThat(from).containsExactlyElementsOf(records.subList(2, 10).stream().map(Record::getResourceUuid).toList());
+        }
+    }
+
+    @Test
+    void throwsWhenAPageFails() throws IOException {
+        try (MockPlatform platform = new MockPlatform()) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 5);
+            APIController receiver = platform.createController("receiver");
+            platform.setErrorRate(1);
+
+            try (RecordKeysetIterator iterator = new RecordList().keysetIterator(RECEIVER, receiver)) {
+                assertThatThrownBy(iterator::hasNext).isInstanceOf(UncheckedIOException.class);
+                assertThat(iterator.hasNext()).isFalse();
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package general;
+
+import nl.hdn.api.APIController;
+import nl.hdn.api.mock.MockPlatform;
+import nl.hdn.api.mock.SteppingClock;
+import nl.hdn.api.object.Record;
+import nl.hdn.api.object.RecordList;
+import nl.hdn.api.sync.RecordSync;
+import nl.hdn.api.sync.RecordSyncListener;
+import nl.hdn.api.sync.SyncCheckpoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecordSyncTest {
+    private static final String SENDER = "100000";
+    private static final String RECEIVER = "200000";
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reportsOnlyNewRecordsAfterTheWatermark() throws IOException {
+        try (MockPlatform platform = new MockPlatform(new SteppingClock(START, Duration.ofMinutes(1)))) {
+            List<String> first = platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 30);
+            APIController receiver = platform.createController("receiver");
+            RecordSync sync = new RecordSync(new SyncCheckpoint(directory.resolve("sync.properties"))).setLimit(7);
+            Collector collector = new Collector();
+
+            RecordSync.SyncResult result = sync.sync(RECEIVER, null, collector, receiver);
+            assertThat(result.added()).isEqualTo(30);
+            assertThat(collector.added).containsExactlyInAnyOrderElementsOf(first);
+            assertThat(result.watermark()).isAfter(START);
+
+            collector.added.clear();
+            RecordSync.SyncResult again = sync.sync(RECEIVER, null, collector, receiver);
+            assertThat(again.added()).isZero();
+            assertThat(again.changed()).isZero();
+            assertThat(again.watermark()).isEqualTo(result.watermark());
+
+            List<String> second = platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 5);
+            RecordSync.SyncResult next = sync.sync(RECEIVER, null, collector, receiver);
+            assertThat(next.added()).isEqualTo(5);
+            assertThat(collector.added).containsExactlyInAnyOrderElementsOf(second);
+            assertThat(next.watermark()).isAfter(result.watermark());
+        }
+    }
+
+    @Test
+    void reportsStatusChangesWithinTheOverlapWindow() throws IOException, InterruptedException, URISyntaxException {
+        try (MockPlatform platform = new MockPlatform(new SteppingClock(START, Duration.ofMinutes(1)))) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 10);
+            APIController receiver = platform.createController("receiver");
+            RecordSync sync = new RecordSync(new SyncCheckpoint(directory.resolve("sync.properties"))).setOverlap(Duration.ofMinutes(20));
+            Collector collector = new Collector();
+            sync.sync(RECEIVER, null, collector, receiver);
+
+            // Only the newest records fall within an overlap window of 20 minutes
+            List<Record> records = new RecordList().setSort("creationDate").get(RECEIVER, receiver).getRecords();
+            Record oldest = records.getFirst();
+            Record newest = records.getLast();
+            oldest.fetch(RECEIVER, receiver);
+            newest.fetch(RECEIVER, receiver);
+
+            RecordSync.SyncResult result = sync.sync(RECEIVER, null, collector, receiver);
+            assertThat(result.added()).isZero();
+            assertThat(result.changed()).isEqualTo(1);
+            assertThat(collector.changed).containsExactly(newest.getResourceUuid());
+        }
+    }
+
+    @Test
+    void resumesAfterTheLastCommittedBatch() throws IOException {
+        try (MockPlatform platform = new MockPlatform(new SteppingClock(START, Duration.ofMinutes(1)))) {
+            List<String> uuids = platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 30);
+            APIController receiver = platform.createController("receiver");
+            Path file = directory.resolve("sync.properties");
+            List<String> delivered = new ArrayList<>();
+
+            RecordSyncListener failing = apiRecord -> {
+                if (delivered.size() == 24) {
+                    throw new IllegalStateException("Stopped");
+                }
+                delivered.add(apiRecord.getResourceUuid());
+            };
+            assertThatThrownBy(() -> new RecordSync(new SyncCheckpoint(file)).setBatchSize(10).sync(RECEIVER, null, failing, receiver))
+                    .isInstanceOf(IllegalStateException.class);
+
+            Collector collector = new Collector();
+            RecordSync.SyncResult result = new RecordSync(new SyncCheckpoint(file)).setBatchSize(10).sync(RECEIVER, null, collector, receiver);
+
+            // The first two batches were committed, the records of the third batch are offered again
+            assertThat(result.added()).isEqualTo(10);
+            assertThat(collector.added).containsAll(delivered.subList(20, 24));
+            List<String> all = new ArrayList<>(delivered.subList(0, 20));
+            all.addAll(collector.added);
+            assertThat(all).containsExactlyInAnyOrderElementsOf(uuids);
+        }
+    }
+
+    @Test
+    void movesTheCheckpointOnlyAfterTheListenerStoredTheBatch() throws IOException {
+        try (MockPlatform platform = new MockPlatform(new SteppingClock(START, Duration.ofMinutes(1)))) {
+            platform.seedRecords(SENDER, RECEIVER, "AX OfferteAanvraag", 30);
+            APIController receiver = platform.createController("receiver");
+            Path file = directory.resolve("sync.properties");
+            List<Integer> stored = new ArrayList<>();
+
+            Collector failing = new Collector() {
+                @Override
+                public void beforeCommit() throws IOException {
+                    if (!stored.isEmpty()) {
+                        throw new IOException("Disk full");
+                    }
+                    stored.add(added.size());
+                }
+            };
+            assertThatThrownBy(() -> new RecordSync(new SyncCheckpoint(file)).setBatchSize(10).sync(RECEIVER, null, failing, receiver))
+                    .isInstanceOf(IOException.class);
+            assertThat(stored).containsExactly(10);
+            assertThat(failing.added).hasSize(20);
+
+            // Only the first batch was stored, the second batch is offered again
+            RecordSync.SyncResult result = new RecordSync(new SyncCheckpoint(file)).setBatchSize(10).sync(RECEIVER, null, new Collector(), receiver);
+            assertThat(result.added()).isEqualTo(20);
+        }
+    }
+
+    private static class Collector implements RecordSyncListener {
+        final List<String> added = new ArrayList<>();
+        final List<String> changed = new ArrayList<>();
+
+        @Override
+        public void onAdded(Record apiRecord) {
+            added.add(apiRecord.getResourceUuid());
+        }
+
+        @Override
+        public void onChanged(Record apiRecord) {
+            changed.add(apiRecord.getResourceUuid());
+        }
+    }
+}
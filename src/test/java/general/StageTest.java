@@ -0,0 +1,68 @@
+package general;
+
+import nl.hdn.api.pipeline.Stage;
+import nl.hdn.api.pipeline.StageMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StageTest {
+    @Test
+    void processesAndReportsMetrics() throws InterruptedException {
+        List<Integer> results = new CopyOnWriteArrayList<>();
+        List<Integer> failures = new CopyOnWriteArrayList<>();
+        Stage<Integer, Integer> stage = new Stage<>("square", 4, 2,
+                value -> {
+                    if (value < 0) throw new IllegalArgumentException("negative");
+                    return value * value;
+                },
+                results::add,
+                (value, e) -> failures.add(value));
+
+        for (int i = -2; i < 10; i++) {
+            stage.submit(i);
+        }
+        assertThat(stage.shutdown(Duration.ofSeconds(5))).isTrue();
+
+        StageMetrics metrics = stage.getMetrics();
+        assertThat(results).hasSize(10);
+        assertThat(failures).containsExactlyInAnyOrder(-2, -1);
+        assertThat(metrics.processed()).isEqualTo(10);
+        assertThat(metrics.failed()).isEqualTo(2);
+        assertThat(metrics.queueDepth()).isZero();
+        assertThat(metrics.queueCapacity()).isEqualTo(4);
+    }
+
+    @Test
+    void keepsWorkingWhenTheSinkOrFailureHandlerThrows() throws InterruptedException {
+        List<Integer> results = new CopyOnWriteArrayList<>();
+        List<Integer> failures = new CopyOnWriteArrayList<>();
+        Stage<Integer, Integer> stage = new Stage<>("square", 4, 1,
+                value -> {
+                    if (value < 0) throw new IllegalArgumentException("negative");
+                    return value * value;
+                },
+                value -> {
+                    if (value == 9) throw new IllegalStateException("Next stage stopped");
+                    results.add(value);
+                },
+                (value, e) -> {
+                    failures.add(value);
+                    throw new IllegalStateException("Handler failed");
+                });
+
+        for (int i = -2; i < 10; i++) {
+            stage.submit(i);
+        }
+        assertThat(stage.shutdown(Duration.ofSeconds(5))).isTrue();
+
+        assertThat(results).hasSize(9).doesNotContain(9);
+        assertThat(failures).containsExactly(-2, -1, 3);
+        assertThat(stage.getMetrics().processed()).isEqualTo(9);
+        assertThat(stage.getMetrics().failed()).isEqualTo(3);
+    }
+}
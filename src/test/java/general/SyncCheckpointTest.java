@@ -0,0 +1,31 @@
+package general;
+
+import nl.hdn.api.sync.SyncCheckpoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SyncCheckpointTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void persistsWatermarkAndWindow() throws IOException {
+        Path file = directory.resolve("sync.properties");
+        Instant watermark = Instant.parse("2025-01-01T10:00:00Z");
+
+        new SyncCheckpoint(file).update("123456.new", watermark,
+                Map.of("0d1e0c5a-7d43-4b8a-9f4f-0c1f3f6e2b11", new SyncCheckpoint.WindowEntry(watermark, "new")));
+
+        SyncCheckpoint reloaded = new SyncCheckpoint(file);
+        assertThat(reloaded.getWatermark("123456.new")).isEqualTo(watermark);
+        assertThat(reloaded.getWatermark("123456.all")).isNull();
+        assertThat(reloaded.getWindow("123456.new")).containsOnlyKeys("0d1e0c5a-7d43-4b8a-9f4f-0c1f3f6e2b11");
+    }
+}
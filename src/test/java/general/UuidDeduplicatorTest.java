@@ -0,0 +1,77 @@
+package general;
+
+import nl.hdn.api.inbound.UuidDeduplicator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidDeduplicatorTest {
+    @TempDir
+    Path directory;
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @Test
+    void filtersDuplicatesUntilExpiry() {
+        MutableClock clock = new MutableClock();
+        UuidDeduplicator deduplicator = new UuidDeduplicator(1024, Duration.ofMinutes(10), clock).enableBloomFilter();
+        String uuid = UUID.randomUUID().toString();
+
+        assertThat(deduplicator.firstSeen(uuid)).isTrue();
+        assertThat(deduplicator.firstSeen(uuid)).isFalse();
+        assertThat(deduplicator.contains(UUID.randomUUID().toString())).isFalse();
+
+        clock.now = clock.now.plus(Duration.ofMinutes(11));
+        assertThat(deduplicator.contains(uuid)).isFalse();
+        assertThat(deduplicator.firstSeen(uuid)).isTrue();
+    }
+
+    @Test
+    void staysWithinCapacity() {
+        UuidDeduplicator deduplicator = new UuidDeduplicator(64, Duration.ofHours(1));
+        for (int i = 0; i < 10_000; i++) {
+            deduplicator.firstSeen(UUID.randomUUID().toString());
+        }
+        String recent = UUID.randomUUID().toString();
+        assertThat(deduplicator.firstSeen(recent)).isTrue();
+        assertThat(deduplicator.firstSeen(recent)).isFalse();
+        assertThat(deduplicator.getCapacity()).isEqualTo(64);
+    }
+
+    @Test
+    void survivesSaveAndLoad() throws IOException {
+        UuidDeduplicator deduplicator = new UuidDeduplicator(1024, Duration.ofHours(1));
+        String uuid = UUID.randomUUID().toString();
+        deduplicator.firstSeen(uuid);
+        deduplicator.save(directory.resolve("dedup.bin"));
+
+        UuidDeduplicator reloaded = new UuidDeduplicator(1024, Duration.ofHours(1)).load(directory.resolve("dedup.bin"));
+        assertThat(reloaded.firstSeen(uuid)).isFalse();
+    }
+}
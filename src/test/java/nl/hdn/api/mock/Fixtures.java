@@ -0,0 +1,77 @@
+package nl.hdn.api.mock;
+
+import nl.hdn.api.object.Dossier;
+import nl.hdn.api.object.Record;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Builds records and dossiers as the platform returns them, for the tests of the local stores
+ */
+public final class Fixtures {
+    private Fixtures() {
+    }
+
+    /**
+     * Builds an existing record
+     *
+     * @param uuid         the resource UUID of the record
+     * @param dossierUuid  the UUID of the dossier of the record
+     * @param sender       the nodenumber of the sender
+     * @param receiver     the nodenumber of the receiver
+     * @param messageType  the message type
+     * @param status       the status
+     * @param creationDate the creation date
+     * @return the record
+     */
+    public static Record record(String uuid, String dossierUuid, String sender, String receiver, String messageType, String status, Instant creationDate) {
+        JSONObject attributes = new JSONObject()
+                .put("resourceUuid", uuid)
+                .put("dossierUuid", dossierUuid)
+                .put("sub", UUID.randomUUID().toString())
+                .put("creationDate", creationDate.toString())
+                .put("header", new JSONObject()
+                        .put("requestVersion", "1.0")
+                        .put("requestTraceNr", "")
+                        .put("sender", sender)
+                        .put("receiver", receiver)
+                        .put("requestSchema", new JSONObject()
+                                .put("messageType", messageType)
+                                .put("schemaVersion", "1.0")
+                                .put("receiverCode", "HDN")
+                                .put("contentType", "XML")
+                                .put("environment", "acceptatie")))
+                .put("miscellaneous", new JSONObject()
+                        .put("senderName", "Sender")
+                        .put("receiverName", "Receiver")
+                        .put("sendingApplication", new JSONObject()
+                                .put("applicationName", "Test")
+                                .put("applicationVersion", "1")
+                                .put("sendingDateTime", creationDate.toString())))
+                .put("status", new JSONObject()
+                        .put("value", status)
+                        .put("modifiedTimestamp", creationDate.toString()));
+        return new Record(dossierUuid, uuid, attributes.toString());
+    }
+
+    /**
+     * Builds an existing dossier
+     *
+     * @param uuid          the resource UUID of the dossier
+     * @param creationDate  the creation date
+     * @param nodes         the nodes with access to the dossier
+     * @param originalNodes the original nodes of the dossier
+     * @return the dossier
+     */
+    public static Dossier dossier(String uuid, Instant creationDate, List<String> nodes, List<String> originalNodes) {
+        JSONObject attributes = new JSONObject()
+                .put("creationDate", creationDate.toString())
+                .put("nodes", new JSONArray(nodes))
+                .put("originalNodes", new JSONArray(originalNodes));
+        return new Dossier(uuid, attributes.toString());
+    }
+}
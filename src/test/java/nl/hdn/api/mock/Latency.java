@@ -0,0 +1,63 @@
+package nl.hdn.api.mock;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Distribution of the latency the mock platform adds to every API call
+ */
+@FunctionalInterface
+public interface Latency {
+    /**
+     * Draws the latency of the next call
+     *
+     * @param random the source of randomness
+     * @return the latency
+     */
+    Duration next(Random random);
+
+    /**
+     * No added latency
+     *
+     * @return the distribution
+     */
+    static Latency none() {
+        return random -> Duration.ZERO;
+    }
+
+    /**
+     * The same latency for every call
+     *
+     * @param latency the latency
+     * @return the distribution
+     */
+    static Latency fixed(Duration latency) {
+        return random -> latency;
+    }
+
+    /**
+     * A latency drawn uniformly between a minimum and a maximum
+     *
+     * @param min the minimum latency
+     * @param max the maximum latency
+     * @return the distribution
+     */
+    static Latency uniform(Duration min, Duration max) {
+        long minNanos = min.toNanos();
+        long range = max.toNanos() - minNanos;
+        return random -> Duration.ofNanos(minNanos + (range <= 0 ? 0 : (long) (random.nextDouble() * range)));
+    }
+
+    /**
+     * A log-normal latency, the usual shape of service latencies with a long tail
+     *
+     * @param median the median latency
+     * @param sigma  the standard deviation of the underlying normal distribution, f.e. 0.5 for a p99 of about 3.2 times
+     *               the median
+     * @return the distribution
+     */
+    static Latency logNormal(Duration median, double sigma) {
+        double mu = Math.log(median.toNanos());
+        return random -> Duration.ofNanos((long) Math.exp(mu + sigma * random.nextGaussian()));
+    }
+}
@@ -0,0 +1,372 @@
+package nl.hdn.api.mock;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import nl.hdn.api.APIController;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in of the HDN Platform of Trust on the JDK {@link HttpServer}, for offline integration and load
+ * tests. It implements the endpoints of {@link nl.hdn.api.APIConstants} and the token endpoint with in-memory state,
+ * pagination and totals. Latency, server errors and throttling (429) can be injected on every API call.
+ * <p>
+ * Every exchange is handled on its own virtual thread, so the stand-in is not the bottleneck of a load test.
+ */
+public final class MockPlatform implements AutoCloseable {
+    /**
+     * The path of the token endpoint below the authorization URL
+     */
+    public static final String TOKEN_PATH = "/auth/realms/platformoftrust/protocol/openid-connect/token";
+    private static final String API_PATH = "/api/v2";
+    private static final Logger logger = LoggerFactory.getLogger(MockPlatform.class);
+
+    static {
+        // Without TCP_NODELAY small responses wait for the delayed ACK of the client, adding about 40 ms per call
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final PlatformState state;
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private volatile Latency latency = Latency.none();
+    private volatile double errorRate = 0;
+    private volatile double throttleRate = 0;
+    private volatile Duration retryAfter = Duration.ofSeconds(1);
+
+    /**
+     * Starts the stand-in on a free port of the loopback address
+     *
+     * @throws IOException thrown when the server could not be started
+     */
+    public MockPlatform() throws IOException {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * Starts the stand-in on a free port of the loopback address
+     *
+     * @param clock the clock used for creation dates and timestamps
+     * @throws IOException thrown when the server could not be started
+     */
+    public MockPlatform(Clock clock) throws IOException {
+        state = new PlatformState(clock);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.createContext(API_PATH, this::handleApi);
+        server.createContext(TOKEN_PATH, this::handleToken);
+        server.setExecutor(executor);
+        server.start();
+        logger.info("Mock platform listening on {}", getBaseUrl());
+    }
+
+    /**
+     * Returns the base URL for the API calls
+     *
+     * @return the base URL
+     */
+    public String getBaseUrl() {
+        return getAuthUrl() + API_PATH;
+    }
+
+    /**
+     * Returns the base URL for the token calls
+     *
+     * @return the base URL
+     */
+    public String getAuthUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Creates a controller for the stand-in, without a client certificate, and requests its token
+     *
+     * @param clientID the client ID, which determines the sub of the created objects
+     * @return the controller
+     */
+    @SuppressWarnings("unused")
+    public APIController createController(String clientID) {
+        APIController apiController = new APIController(getBaseUrl(), getAuthUrl(), clientID, "secret", null, null);
+        apiController.getToken();
+        return apiController;
+    }
+
+    /**
+     * Adds records that have been sent and not yet read, each in its own dossier
+     *
+     * @param sender      the node of the sender
+     * @param receiver    the node of the receiver
+     * @param messageType the message type
+     * @param count       the number of records
+     * @return the resource UUIDs of the records
+     */
+    @SuppressWarnings("unused")
+    public List<String> seedRecords(String sender, String receiver, String messageType, int count) {
+        return state.seedRecords(sender, receiver, messageType, count);
+    }
+
+    /**
+     * Adds a dossier with records that have been sent and not yet read
+     *
+     * @param sender      the node of the sender
+     * @param receiver    the node of the receiver
+     * @param messageType the message type
+     * @param count       the number of records
+     * @return the resource UUID of the dossier
+     */
+    @SuppressWarnings("unused")
+    public String seedDossier(String sender, String receiver, String messageType, int count) {
+        return state.seedDossier(sender, receiver, messageType, count);
+    }
+
+    /**
+     * Sets the distribution of the latency added to every API call
+     *
+     * @param latency the distribution
+     * @return the stand-in itself
+     */
+    @SuppressWarnings("unused")
+    public MockPlatform setLatency(Latency latency) {
+        if (latency != null) {
+            this.latency = latency;
+        } else {
+            logger.error("Latency should not be null, use Latency.none()");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the fraction of API calls answered with a server error
+     *
+     * @param errorRate the fraction between 0 and 1
+     * @return the stand-in itself
+     */
+    @SuppressWarnings("unused")
+    public MockPlatform setErrorRate(double errorRate) {
+        if (errorRate >= 0 && errorRate <= 1) {
+            this.errorRate = errorRate;
+        } else {
+            logger.error("Error rate should be between 0 and 1.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the fraction of API calls answered with 429 Too Many Requests
+     *
+     * @param throttleRate the fraction between 0 and 1
+     * @return the stand-in itself
+     */
+    @SuppressWarnings("unused")
+    public MockPlatform setThrottleRate(double throttleRate) {
+        if (throttleRate >= 0 && throttleRate <= 1) {
+            this.throttleRate = throttleRate;
+        } else {
+            logger.error("Throttle rate should be between 0 and 1.");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the Retry-After of throttled calls
+     *
+     * @param retryAfter the time after which the call may be retried, in whole seconds
+     * @return the stand-in itself
+     */
+    @SuppressWarnings("unused")
+    public MockPlatform setRetryAfter(Duration retryAfter) {
+        if (retryAfter != null && !retryAfter.isNegative()) {
+            this.retryAfter = retryAfter;
+        } else {
+            logger.error("Retry after should not be negative.");
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of API calls received
+     *
+     * @return the number of calls
+     */
+    @SuppressWarnings("unused")
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of API calls answered with an injected server error
+     *
+     * @return the number of calls
+     */
+    @SuppressWarnings("unused")
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /**
+     * Returns the number of API calls answered with an injected 429
+     *
+     * @return the number of calls
+     */
+    @SuppressWarnings("unused")
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    /**
+     * Returns the number of dossiers
+     *
+     * @return the number of dossiers
+     */
+    @SuppressWarnings("unused")
+    public int getDossierCount() {
+        return state.getDossierCount();
+    }
+
+    /**
+     * Returns the number of records
+     *
+     * @return the number of records
+     */
+    @SuppressWarnings("unused")
+    public int getRecordCount() {
+        return state.getRecordCount();
+    }
+
+    /**
+     * Stops the server
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handleToken(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, PlatformState.Reply.error(405, "Method not allowed"));
+                return;
+            }
+            Map<String, String> form = parseQuery(new String(readBody(exchange), StandardCharsets.UTF_8));
+            String clientID = form.get("client_id");
+            if (clientID == null || clientID.isBlank()) {
+                send(exchange, PlatformState.Reply.error(401, "Unknown client"));
+                return;
+            }
+            String token = UUID.randomUUID().toString();
+            tokens.put(token, UUID.nameUUIDFromBytes(clientID.getBytes(StandardCharsets.UTF_8)).toString());
+            send(exchange, PlatformState.Reply.of(200, new JSONObject()
+                    .put("access_token", token)
+                    .put("token_type", "Bearer")
+                    .put("expires_in", 300)));
+        }
+    }
+
+    private void handleApi(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            byte[] body = readBody(exchange);
+            pause(latency.next(ThreadLocalRandom.current()));
+
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            String sub = authorization != null && authorization.startsWith("Bearer ") ? tokens.get(authorization.substring(7)) : null;
+            if (sub == null) {
+                send(exchange, PlatformState.Reply.error(401, "Invalid token"));
+                return;
+            }
+            double chance = ThreadLocalRandom.current().nextDouble();
+            if (chance < throttleRate) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", Long.toString(retryAfter.toSeconds()));
+                send(exchange, PlatformState.Reply.error(429, "Too many requests"));
+                return;
+            }
+            if (chance < throttleRate + errorRate) {
+                errors.incrementAndGet();
+                send(exchange, PlatformState.Reply.error(500, "Injected error"));
+                return;
+            }
+
+            String path = exchange.getRequestURI().getRawPath().substring(API_PATH.length());
+            String node = exchange.getRequestHeaders().getFirst("x-on-behalf-of");
+            send(exchange, state.handle(new PlatformState.Request(exchange.getRequestMethod(),
+                    URLDecoder.decode(path, StandardCharsets.UTF_8),
+                    parseQuery(exchange.getRequestURI().getRawQuery()),
+                    node,
+                    sub,
+                    new String(body, StandardCharsets.UTF_8))));
+        } catch (RuntimeException e) {
+            logger.error("Exception occured while handling {}: {}", exchange.getRequestURI(), e.getMessage());
+            throw e;
+        }
+    }
+
+    private static void pause(Duration duration) {
+        if (duration.isZero() || duration.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream input = exchange.getRequestBody()) {
+            return input.readAllBytes();
+        }
+    }
+
+    private static void send(HttpExchange exchange, PlatformState.Reply reply) throws IOException {
+        if (reply.body() == null) {
+            exchange.sendResponseHeaders(reply.status(), -1);
+            return;
+        }
+        byte[] body = reply.body().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(reply.status(), body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+}
@@ -0,0 +1,597 @@
+package nl.hdn.api.mock;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * The in-memory dossiers, records, events, hooks and public keys of the mock platform, with the handling of the API
+ * calls on them. Replies are serialized while the lock is held, so a reply never shows a half-applied update.
+ */
+final class PlatformState {
+    /**
+     * An API call
+     *
+     * @param method the HTTP method
+     * @param path   the path below the base URL
+     * @param query  the decoded query parameters
+     * @param node   the node on behalf of which the call is made or null
+     * @param sub    the sub of the client
+     * @param body   the request body, empty when absent
+     */
+    record Request(String method, String path, Map<String, String> query, String node, String sub, String body) {
+    }
+
+    /**
+     * The reply to an API call
+     *
+     * @param status the HTTP status
+     * @param body   the JSON body or null for an empty body
+     */
+    record Reply(int status, String body) {
+        static Reply of(int status, JSONObject body) {
+            return new Reply(status, body.toString());
+        }
+
+        static Reply error(int status, String message) {
+            return of(status, new JSONObject().put("message", message));
+        }
+    }
+
+    private record Route(String method, Pattern pattern, boolean write, BiFunction<Request, String[], Reply> handler) {
+    }
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSX").withZone(ZoneOffset.UTC);
+    private static final Pattern NODE = Pattern.compile("\\d{6}");
+
+    private final Clock clock;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong traceNumbers = new AtomicLong();
+    private final Map<String, JSONObject> dossiers = new LinkedHashMap<>();
+    private final Map<String, JSONObject> records = new LinkedHashMap<>();
+    private final Map<String, List<JSONObject>> events = new HashMap<>();
+    private final Map<String, JSONObject> hooks = new LinkedHashMap<>();
+    private final Map<String, JSONObject> publicKeys = new LinkedHashMap<>();
+    private final List<Route> routes = List.of(
+            route("POST", "/dossiers", true, this::createDossier),
+            route("GET", "/dossiers", false, this::listDossiers),
+            route("GET", "/dossiers/([^/]+)", false, this::getDossier),
+            route("POST", "/dossiers/([^/]+)/nodes/add", true, this::addNode),
+            route("POST", "/dossiers/([^/]+)/records", true, this::createRecord),
+            route("GET", "/dossiers/([^/]+)/records", false, this::listRecords),
+            route("GET", "/dossiers/([^/]+)/records/([^/]+)", true, this::getRecord),
+            route("POST", "/dossiers/([^/]+)/records/([^/]+)/send", true, this::sendRecord),
+            route("POST", "/dossiers/([^/]+)/records/([^/]+)/confirm", true, this::confirmRecord),
+            route("GET", "/dossiers/([^/]+)/events", false, this::listEvents),
+            route("GET", "/dossiers/([^/]+)/records/([^/]+)/events", false, this::listEvents),
+            // The event URL of the client lacks the slash after records
+            route("GET", "/dossiers/([^/]+)/records/?([^/]+)/events/([^/]+)", false, this::getEvent),
+            route("GET", "/records", false, this::listRecords),
+            route("POST", "/records/validate", false, this::validateRecord),
+            route("POST", "/hooks", true, this::createHook),
+            route("GET", "/hooks", false, this::listHooks),
+            route("GET", "/hooks/([^/]+)", false, this::getHook),
+            route("PUT", "/hooks/([^/]+)", true, this::updateHook),
+            route("DELETE", "/hooks/([^/]+)", true, this::deleteHook),
+            route("GET", "/publickeys/algorithms", false, this::listAlgorithms),
+            route("POST", "/publickeys", true, this::createPublicKey),
+            route("GET", "/publickeys", false, this::listPublicKeys),
+            route("GET", "/publickeys/([^/]+)", false, this::getPublicKey)
+    );
+
+    PlatformState(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Handles an API call
+     *
+     * @param request the call
+     * @return the reply
+     */
+    Reply handle(Request request) {
+        boolean pathFound = false;
+        for (Route route : routes) {
+            Matcher matcher = route.pattern().matcher(request.path());
+            if (!matcher.matches()) {
+                continue;
+            }
+            pathFound = true;
+            if (!route.method().equals(request.method())) {
+                continue;
+            }
+            String[] groups = new String[matcher.groupCount()];
+            for (int i = 0; i < groups.length; i++) {
+                groups[i] = matcher.group(i + 1);
+            }
+            Lock routeLock = route.write() ? lock.writeLock() : lock.readLock();
+            routeLock.lock();
+            try {
+                return route.handler().apply(request, groups);
+            } catch (JSONException | DateTimeParseException | NumberFormatException e) {
+                return Reply.error(400, e.getMessage());
+            } finally {
+                routeLock.unlock();
+            }
+        }
+        return pathFound ? Reply.error(405, "Method not allowed") : Reply.error(404, "Not found");
+    }
+
+    /**
+     * Adds records that have been sent, each in its own dossier, without events
+     *
+     * @param sender      the node of the sender
+     * @param receiver    the node of the receiver
+     * @param messageType the message type
+     * @param count       the number of records
+     * @return the resource UUIDs of the records
+     */
+    List<String> seedRecords(String sender, String receiver, String messageType, int count) {
+        List<String> uuids = new ArrayList<>(count);
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                JSONObject dossier = newDossier(sender, "seed");
+                dossier.getJSONArray("nodes").put(receiver);
+                uuids.add(seedRecord(dossier, sender, receiver, messageType).getString("resourceUuid"));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return uuids;
+    }
+
+    String seedDossier(String sender, String receiver, String messageType, int count) {
+        lock.writeLock().lock();
+        try {
+            JSONObject dossier = newDossier(sender, "seed");
+            dossier.getJSONArray("nodes").put(receiver);
+            for (int i = 0; i < count; i++) {
+                seedRecord(dossier, sender, receiver, messageType);
+            }
+            return dossier.getString("resourceUuid");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private JSONObject seedRecord(JSONObject dossier, String sender, String receiver, String messageType) {
+        JSONObject body = new JSONObject()
+                .put("header", new JSONObject()
+                        .put("receiver", receiver)
+                        .put("requestVersion", "1")
+                        .put("requestSchema", new JSONObject()
+                                .put("messageType", messageType)
+                                .put("schemaVersion", "25.0")
+                                .put("receiverCode", "HDN")
+                                .put("contentType", "XML")
+                                .put("environment", "acceptatie")))
+                .put("message", new JSONObject().put("data", Base64.getEncoder().encodeToString("<Bericht/>".getBytes())))
+                .put("miscellaneous", new JSONObject()
+                        .put("senderName", "Sender")
+                        .put("receiverName", "Receiver")
+                        .put("sendingApplication", new JSONObject()
+                                .put("applicationName", "Seed")
+                                .put("applicationVersion", "1")
+                                .put("sendingDateTime", now())));
+        JSONObject apiRecord = newRecord(dossier, body, sender, "seed");
+        addEvent(apiRecord, "record.created", "seed");
+        setStatus(apiRecord, "new");
+        addEvent(apiRecord, "record.sent", "seed");
+        return apiRecord;
+    }
+
+    int getDossierCount() {
+        lock.readLock().lock();
+        try {
+            return dossiers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int getRecordCount() {
+        lock.readLock().lock();
+        try {
+            return records.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Reply createDossier(Request request, String[] path) {
+        if (request.node() == null) {
+            return Reply.error(400, "x-on-behalf-of is required");
+        }
+        return Reply.of(201, newDossier(request.node(), request.sub()));
+    }
+
+    private Reply listDossiers(Request request, String[] path) {
+        Map<String, String> query = request.query();
+        Stream<JSONObject> items = dossiers.values().stream()
+                .filter(dossier -> contains(dossier.getJSONArray("nodes"), request.node()))
+                .filter(dossier -> matches(query, "resourceUuid", dossier.getString("resourceUuid")))
+                .filter(dossier -> matches(query, "requestTraceNr", dossier.getString("requestTraceNr")))
+                .filter(dossier -> !query.containsKey("originalNodes") || contains(dossier.getJSONArray("originalNodes"), query.get("originalNodes")))
+                .filter(dossier -> matchesTime(query, "creationDate", dossier.getString("creationDate")));
+        return page("dossiers", sort(items, query.get("sort")), query);
+    }
+
+    private Reply getDossier(Request request, String[] path) {
+        JSONObject dossier = dossiers.get(path[0]);
+        if (dossier == null) {
+            return Reply.error(404, "Dossier not found");
+        }
+        if (!contains(dossier.getJSONArray("nodes"), request.node())) {
+            return Reply.error(403, "Node is not part of the dossier");
+        }
+        return Reply.of(200, dossier);
+    }
+
+    private Reply addNode(Request request, String[] path) {
+        JSONObject dossier = dossiers.get(path[0]);
+        if (dossier == null) {
+            return Reply.error(404, "Dossier not found");
+        }
+        if (!contains(dossier.getJSONArray("nodes"), request.node())) {
+            return Reply.error(403, "Node is not part of the dossier");
+        }
+        String node = new JSONObject(request.body()).getString("node");
+        if (!NODE.matcher(node).matches()) {
+            return Reply.error(400, "Node should be 6 digits");
+        }
+        if (!contains(dossier.getJSONArray("nodes"), node)) {
+            dossier.getJSONArray("nodes").put(node);
+        }
+        return Reply.of(200, dossier);
+    }
+
+    private Reply createRecord(Request request, String[] path) {
+        JSONObject dossier = dossiers.get(path[0]);
+        if (dossier == null) {
+            return Reply.error(404, "Dossier not found");
+        }
+        if (!contains(dossier.getJSONArray("nodes"), request.node())) {
+            return Reply.error(403, "Node is not part of the dossier");
+        }
+        JSONObject body = new JSONObject(request.body());
+        String receiver = body.getJSONObject("header").getString("receiver");
+        if (!NODE.matcher(receiver).matches()) {
+            return Reply.error(400, "Receiver should be 6 digits");
+        }
+        JSONObject apiRecord = newRecord(dossier, body, request.node(), request.sub());
+        addEvent(apiRecord, "record.created", request.sub());
+        return Reply.of(201, apiRecord);
+    }
+
+    private Reply listRecords(Request request, String[] path) {
+        Map<String, String> query = request.query();
+        String dossierUuid = path.length > 0 ? path[0] : null;
+        Stream<JSONObject> items = records.values().stream()
+                .filter(apiRecord -> dossierUuid == null || dossierUuid.equals(apiRecord.getString("dossierUuid")))
+                .filter(apiRecord -> isVisible(apiRecord, request.node()))
+                .filter(apiRecord -> matches(query, "status", apiRecord.getJSONObject("status").getString("value")))
+                .filter(apiRecord -> !query.containsKey("node") || isParty(apiRecord, query.get("node")))
+                .filter(apiRecord -> matches(query, "header.requestSchema.messageType", apiRecord.getJSONObject("header").getJSONObject("requestSchema").getString("messageType")))
+                .filter(apiRecord -> matches(query, "sub", apiRecord.getString("sub")))
+                .filter(apiRecord -> matches(query, "resourceUuid", apiRecord.getString("resourceUuid")))
+                .filter(apiRecord -> matchesTime(query, "creationDate", apiRecord.getString("creationDate")));
+        return page("records", sort(items, query.get("sort")), query, PlatformState::withoutMessage);
+    }
+
+    private Reply getRecord(Request request, String[] path) {
+        JSONObject apiRecord = records.get(path[1]);
+        if (apiRecord == null || !apiRecord.getString("dossierUuid").equals(path[0]) || !isVisible(apiRecord, request.node())) {
+            return Reply.error(404, "Record not found");
+        }
+        if (isReceiver(apiRecord, request.node()) && "new".equals(apiRecord.getJSONObject("status").getString("value"))) {
+            setStatus(apiRecord, "read");
+            addEvent(apiRecord, "record.read", request.sub());
+        }
+        return Reply.of(200, apiRecord);
+    }
+
+    private Reply sendRecord(Request request, String[] path) {
+        JSONObject apiRecord = records.get(path[1]);
+        if (apiRecord == null || !apiRecord.getString("dossierUuid").equals(path[0]) || !isSender(apiRecord, request.node())) {
+            return Reply.error(404, "Record not found");
+        }
+        if (!"created".equals(apiRecord.getJSONObject("status").getString("value"))) {
+            return Reply.error(409, "Record has already been sent");
+        }
+        JSONArray nodes = dossiers.get(path[0]).getJSONArray("nodes");
+        String receiver = apiRecord.getJSONObject("header").getString("receiver");
+        if (!contains(nodes, receiver)) {
+            nodes.put(receiver);
+        }
+        setStatus(apiRecord, "new");
+        addEvent(apiRecord, "record.sent", request.sub());
+        return Reply.of(200, withoutMessage(apiRecord));
+    }
+
+    private Reply confirmRecord(Request request, String[] path) {
+        JSONObject apiRecord = records.get(path[1]);
+        if (apiRecord == null || !apiRecord.getString("dossierUuid").equals(path[0]) || !isVisible(apiRecord, request.node())) {
+            return Reply.error(404, "Record not found");
+        }
+        if (!isReceiver(apiRecord, request.node())) {
+            return Reply.error(403, "Only the receiver can confirm a record");
+        }
+        setStatus(apiRecord, "confirmed");
+        addEvent(apiRecord, "record.confirmed", request.sub());
+        return Reply.of(200, withoutMessage(apiRecord));
+    }
+
+    private Reply listEvents(Request request, String[] path) {
+        Map<String, String> query = request.query();
+        String recordUuid = path.length > 1 ? path[1] : null;
+        Stream<JSONObject> items = events.getOrDefault(path[0], List.of()).stream()
+                .filter(event -> recordUuid == null || recordUuid.equals(event.getString("recordUuid")))
+                .filter(event -> matches(query, "resourceUuid", event.getString("resourceUuid")))
+                .filter(event -> matchesTime(query, "timestamp", event.getString("timestamp")));
+        return page("events", items, query);
+    }
+
+    private Reply getEvent(Request request, String[] path) {
+        return events.getOrDefault(path[0], List.of()).stream()
+                .filter(event -> event.getString("recordUuid").equals(path[1]) && event.getString("resourceUuid").equals(path[2]))
+                .findFirst()
+                .map(event -> Reply.of(200, event))
+                .orElseGet(() -> Reply.error(404, "Event not found"));
+    }
+
+    private Reply validateRecord(Request request, String[] path) {
+        JSONObject body = new JSONObject(request.body());
+        body.getJSONObject("header").getJSONObject("requestSchema");
+        body.getJSONObject("message").getString("data");
+        return Reply.of(200, new JSONObject().put("valid", true));
+    }
+
+    private Reply createHook(Request request, String[] path) {
+        JSONObject body = new JSONObject(request.body());
+        JSONObject hook = new JSONObject()
+                .put("resourceUuid", UUID.randomUUID().toString())
+                .put("url", body.getString("url"))
+                .put("messageTypes", body.optJSONArray("messageTypes", new JSONArray()))
+                .put("nodes", body.getJSONArray("nodes"))
+                .put("authenticationMethod", body.optString("authenticationMethod", "none"))
+                .put("sub", request.sub())
+                .put("creationDate", now());
+        if (body.has("certificateUuid")) {
+            hook.put("certificateUuid", body.getString("certificateUuid"));
+        }
+        hooks.put(hook.getString("resourceUuid"), hook);
+        return Reply.of(201, hook);
+    }
+
+    private Reply listHooks(Request request, String[] path) {
+        Stream<JSONObject> items = hooks.values().stream()
+                .filter(hook -> request.node() == null || contains(hook.getJSONArray("nodes"), request.node()))
+                .filter(hook -> matches(request.query(), "resourceUuid", hook.getString("resourceUuid")));
+        return page("hooks", items, request.query());
+    }
+
+    private Reply getHook(Request request, String[] path) {
+        JSONObject hook = hooks.get(path[0]);
+        return hook == null ? Reply.error(404, "Hook not found") : Reply.of(200, hook);
+    }
+
+    private Reply updateHook(Request request, String[] path) {
+        JSONObject hook = hooks.get(path[0]);
+        if (hook == null) {
+            return Reply.error(404, "Hook not found");
+        }
+        JSONObject body = new JSONObject(request.body());
+        for (String field : List.of("url", "messageTypes", "nodes", "authenticationMethod", "certificateUuid")) {
+            if (body.has(field)) {
+                hook.put(field, body.get(field));
+            }
+        }
+        return Reply.of(200, hook);
+    }
+
+    private Reply deleteHook(Request request, String[] path) {
+        return hooks.remove(path[0]) == null ? Reply.error(404, "Hook not found") : new Reply(204, null);
+    }
+
+    private Reply listAlgorithms(Request request, String[] path) {
+        return Reply.of(200, new JSONObject().put("algorithms", new JSONArray().put("RS256")));
+    }
+
+    private Reply createPublicKey(Request request, String[] path) {
+        if (request.node() == null) {
+            return Reply.error(400, "x-on-behalf-of is required");
+        }
+        JSONObject data = new JSONObject(request.body()).getJSONObject("data");
+        JSONObject publicKey = new JSONObject()
+                .put("resourceUuid", UUID.randomUUID().toString())
+                .put("node", request.node())
+                .put("algorithm", data.getString("algorithm"))
+                .put("publicKey", data.getString("publicKey"))
+                .put("sub", request.sub())
+                .put("creationDate", now());
+        publicKeys.put(publicKey.getString("resourceUuid"), publicKey);
+        return Reply.of(201, publicKey);
+    }
+
+    private Reply listPublicKeys(Request request, String[] path) {
+        Stream<JSONObject> items = publicKeys.values().stream()
+                .filter(publicKey -> matches(request.query(), "node", publicKey.getString("node")));
+        return page("publickeys", items, request.query());
+    }
+
+    private Reply getPublicKey(Request request, String[] path) {
+        JSONObject publicKey = publicKeys.get(path[0]);
+        return publicKey == null ? Reply.error(404, "Public key not found") : Reply.of(200, publicKey);
+    }
+
+    private JSONObject newDossier(String node, String sub) {
+        JSONObject dossier = new JSONObject()
+                .put("resourceUuid", UUID.randomUUID().toString())
+                .put("sub", sub)
+                .put("requestTraceNr", String.format("MOCK%012d", traceNumbers.incrementAndGet()))
+                .put("nodes", new JSONArray().put(node))
+                .put("originalNodes", new JSONArray().put(node))
+                .put("sortedOriginalNodes", node)
+                .put("creationDate", now());
+        dossiers.put(dossier.getString("resourceUuid"), dossier);
+        return dossier;
+    }
+
+    private JSONObject newRecord(JSONObject dossier, JSONObject body, String sender, String sub) {
+        JSONObject bodyHeader = body.getJSONObject("header");
+        JSONObject header = new JSONObject()
+                .put("requestVersion", bodyHeader.getString("requestVersion"))
+                .put("requestTraceNr", dossier.getString("requestTraceNr"))
+                .put("sender", sender)
+                .put("receiver", bodyHeader.getString("receiver"))
+                .put("requestSchema", bodyHeader.getJSONObject("requestSchema"));
+        JSONArray responseSchemas = bodyHeader.optJSONArray("responseSchemas");
+        if (responseSchemas != null && !responseSchemas.isEmpty()) {
+            header.put("responseSchema", responseSchemas.getJSONObject(0));
+        }
+        if (bodyHeader.has("externalSource")) {
+            header.put("externalSource", bodyHeader.getJSONObject("externalSource"));
+        }
+        JSONObject apiRecord = new JSONObject()
+                .put("resourceUuid", UUID.randomUUID().toString())
+                .put("dossierUuid", dossier.getString("resourceUuid"))
+                .put("sub", sub)
+                .put("creationDate", now())
+                .put("header", header)
+                .put("message", body.getJSONObject("message"))
+                .put("miscellaneous", body.getJSONObject("miscellaneous"));
+        setStatus(apiRecord, "created");
+        records.put(apiRecord.getString("resourceUuid"), apiRecord);
+        return apiRecord;
+    }
+
+    private void setStatus(JSONObject apiRecord, String status) {
+        apiRecord.put("status", new JSONObject().put("value", status).put("modifiedTimestamp", now()));
+    }
+
+    private void addEvent(JSONObject apiRecord, String eventType, String sub) {
+        events.computeIfAbsent(apiRecord.getString("dossierUuid"), dossierUuid -> new ArrayList<>()).add(new JSONObject()
+                .put("resourceUuid", UUID.randomUUID().toString())
+                .put("recordUuid", apiRecord.getString("resourceUuid"))
+                .put("eventType", eventType)
+                .put("sub", sub)
+                .put("businessKey", apiRecord.getJSONObject("header").getString("requestTraceNr"))
+                .put("timestamp", now()));
+    }
+
+    private String now() {
+        return TIMESTAMP.format(clock.instant());
+    }
+
+    private static Route route(String method, String path, boolean write, BiFunction<Request, String[], Reply> handler) {
+        return new Route(method, Pattern.compile(path), write, handler);
+    }
+
+    private static Reply page(String name, Stream<JSONObject> items, Map<String, String> query) {
+        return page(name, items, query, UnaryOperator.identity());
+    }
+
+    private static Reply page(String name, Stream<JSONObject> items, Map<String, String> query, UnaryOperator<JSONObject> view) {
+        int limit = Integer.parseInt(query.getOrDefault("limit", "100"));
+        int offset = Integer.parseInt(query.getOrDefault("offset", "0"));
+        if (limit < 1 || limit > 1000 || offset < 0) {
+            return Reply.error(400, "Limit should be between 1 and 1000 and offset should be positive");
+        }
+        List<JSONObject> all = items.toList();
+        JSONArray page = new JSONArray();
+        all.stream().skip(offset).limit(limit).map(view).forEach(page::put);
+        return Reply.of(200, new JSONObject()
+                .put("data", new JSONObject().put(name, page))
+                .put("total", all.size())
+                .put("limit", limit)
+                .put("offset", offset));
+    }
+
+    private static Stream<JSONObject> sort(Stream<JSONObject> items, String sort) {
+        if (sort == null) {
+            return items;
+        }
+        boolean descending = sort.startsWith("-");
+        String field = descending ? sort.substring(1) : sort;
+        // Timestamps are formatted with a fixed number of digits, so they sort as strings
+        Comparator<JSONObject> comparator = Comparator.comparing(item -> item.optString(field));
+        return items.sorted(descending ? comparator.reversed() : comparator);
+    }
+
+    private static boolean matches(Map<String, String> query, String name, String value) {
+        String expected = query.get(name);
+        return expected == null || expected.equals(value);
+    }
+
+    private static boolean matchesTime(Map<String, String> query, String name, String value) {
+        Instant instant = Instant.parse(value);
+        for (Map.Entry<String, String> entry : query.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(name)) {
+                continue;
+            }
+            int comparison = instant.compareTo(Instant.parse(entry.getValue()));
+            boolean matches = switch (key.substring(name.length())) {
+                case "" -> comparison == 0;
+                case "[$lt]" -> comparison < 0;
+                case "[$lte]" -> comparison <= 0;
+                case "[$gt]" -> comparison > 0;
+                case "[$gte]" -> comparison >= 0;
+                case "[$ne]" -> comparison != 0;
+                default -> true;
+            };
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(JSONArray array, String value) {
+        for (int i = 0; i < array.length(); i++) {
+            if (array.getString(i).equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSender(JSONObject apiRecord, String node) {
+        return apiRecord.getJSONObject("header").getString("sender").equals(node);
+    }
+
+    private static boolean isReceiver(JSONObject apiRecord, String node) {
+        return apiRecord.getJSONObject("header").getString("receiver").equals(node);
+    }
+
+    private static boolean isParty(JSONObject apiRecord, String node) {
+        return isSender(apiRecord, node) || isReceiver(apiRecord, node);
+    }
+
+    private static boolean isVisible(JSONObject apiRecord, String node) {
+        return isSender(apiRecord, node)
+                || isReceiver(apiRecord, node) && !"created".equals(apiRecord.getJSONObject("status").getString("value"));
+    }
+
+    private static JSONObject withoutMessage(JSONObject apiRecord) {
+        JSONObject copy = new JSONObject(apiRecord, JSONObject.getNames(apiRecord));
+        copy.remove("message");
+        return copy;
+    }
+}
@@ -0,0 +1,43 @@
+package nl.hdn.api.mock;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A clock that moves a fixed step every time it is read, so the objects seeded in the mock platform are spread over
+ * time instead of sharing a creationDate
+ */
+public final class SteppingClock extends Clock {
+    private final AtomicLong millis;
+    private final long step;
+
+    /**
+     * Constructs the clock
+     *
+     * @param start the first instant returned
+     * @param step  the step after every read
+     */
+    public SteppingClock(Instant start, Duration step) {
+        this.millis = new AtomicLong(start.toEpochMilli());
+        this.step = step.toMillis();
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return this;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis.getAndAdd(step));
+    }
+}
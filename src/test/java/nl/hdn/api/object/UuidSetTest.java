@@ -0,0 +1,50 @@
+package nl.hdn.api.object;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidSetTest {
+    @Test
+    void addsEachUuidOnceAcrossResizes() {
+        UuidSet set = new UuidSet();
+        List<String> uuids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            uuids.add(UUID.randomUUID().toString());
+        }
+
+        assertThat(uuids).allMatch(set::add);
+        assertThat(uuids).noneMatch(set::add);
+        assertThat(set.size()).isEqualTo(1000);
+        assertThat(uuids).allMatch(set::contains);
+        assertThat(set.contains(UUID.randomUUID().toString())).isFalse();
+    }
+
+    @Test
+    void storesOtherIdentifiersByTheirNameBasedUuid() {
+        UuidSet set = new UuidSet();
+        assertThat(set.add("record-1")).isTrue();
+        assertThat(set.add("record-1")).isFalse();
+        assertThat(set.contains("record-1")).isTrue();
+        assertThat(set.contains("record-2")).isFalse();
+    }
+
+    @Test
+    void clearEmptiesTheSet() {
+        UuidSet set = new UuidSet();
+        for (int i = 0; i < 5000; i++) {
+            set.add(UUID.randomUUID().toString());
+        }
+        String uuid = UUID.randomUUID().toString();
+        set.add(uuid);
+
+        set.clear();
+        assertThat(set.size()).isZero();
+        assertThat(set.contains(uuid)).isFalse();
+        assertThat(set.add(uuid)).isTrue();
+    }
+}